@@ -0,0 +1,89 @@
+package com.bookstore.bookstore.jmh;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.service.BookImportService;
+import com.bookstore.bookstore.service.BookService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spring context and seeded catalog shared by the JMH benchmarks.
+ * Each trial gets its own freshly created database, either in memory or in a file
+ * under target/jmh, so results don't depend on what a previous run left behind.
+ * The {@code engine} option runs the in-memory storage engine (profile
+ * {@code inmemory}) with its log in a fresh directory under target/jmh.
+ */
+final class BenchmarkCatalog implements AutoCloseable {
+
+	static final String MEMORY = "memory";
+	static final String FILE = "file";
+	static final String ENGINE = "engine";
+
+	private static final int SEED_CHUNK = 10_000;
+
+	final ConfigurableApplicationContext context;
+	final BookService bookService;
+	final BookImportService bookImportService;
+	final List<Book> books;
+
+	private BenchmarkCatalog(ConfigurableApplicationContext context, List<Book> books) {
+		this.context = context;
+		this.bookService = context.getBean(BookService.class);
+		this.bookImportService = context.getBean(BookImportService.class);
+		this.books = books;
+	}
+
+	static BenchmarkCatalog start(String database, int size) {
+		String url = switch (database) {
+			case MEMORY, ENGINE -> "jdbc:h2:mem:jmh" + size + ";DB_CLOSE_DELAY=-1";
+			case FILE -> "jdbc:h2:file:./target/jmh/bookstore" + size;
+			default -> throw new IllegalArgumentException("Unknown database: " + database);
+		};
+		SpringApplicationBuilder builder = new SpringApplicationBuilder(BookstoreApplication.class);
+		if (ENGINE.equals(database)) {
+			builder.profiles("inmemory")
+					.properties("bookstore.storage.memory.directory=./target/jmh/engine" + size + "-" + System.nanoTime());
+		}
+		ConfigurableApplicationContext context = builder
+				.web(WebApplicationType.NONE)
+				.headless(true)
+				.logStartupInfo(false)
+				.properties(
+						"spring.datasource.url=" + url,
+						"spring.jpa.hibernate.ddl-auto=create-drop",
+						"spring.jpa.show-sql=false",
+						"spring.h2.console.enabled=false",
+						"logging.level.root=WARN")
+				.run();
+		BenchmarkCatalog catalog = new BenchmarkCatalog(context, new ArrayList<>(size));
+		catalog.seed(size);
+		return catalog;
+	}
+
+	private void seed(int size) {
+		for (int start = 0; start < size; start += SEED_CHUNK) {
+			List<Book> chunk = newBooks("seed-", start, Math.min(SEED_CHUNK, size - start));
+			bookImportService.createBooks(chunk);
+			books.addAll(chunk);
+		}
+	}
+
+	static List<Book> newBooks(String prefix, int first, int count) {
+		List<Book> books = new ArrayList<>(count);
+		for (int i = first; i < first + count; i++) {
+			books.add(new Book(null, "Title " + i, "Author " + (i % 500), prefix + i,
+					5.0 + i % 50, 10 + i % 90, "Description of book " + i, true));
+		}
+		return books;
+	}
+
+	@Override
+	public void close() {
+		context.close();
+	}
+}
@@ -0,0 +1,74 @@
+package com.bookstore.bookstore.jmh;
+
+import com.bookstore.bookstore.codec.BookBinaryCodec;
+import com.bookstore.bookstore.model.Book;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode throughput of a 1000-book catalog page with Jackson and with the
+ * binary codec (with and without the author dictionary). The payload size of each
+ * format is printed in bytes per book when its trial starts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookCodecBenchmark {
+
+	private static final int BOOKS = 1_000;
+	private static final TypeReference<List<Book>> BOOK_LIST = new TypeReference<>() {
+	};
+
+	@Param({"json", "binary", "binary-dictionary"})
+	public String format;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private List<Book> books;
+	private byte[] encoded;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		books = BenchmarkCatalog.newBooks("codec-", 0, BOOKS);
+		for (int i = 0; i < books.size(); i++) {
+			books.get(i).setId((long) i + 1);
+		}
+		encoded = encode();
+		System.out.printf("%n%s: %.1f bytes/book%n", format, (double) encoded.length / BOOKS);
+	}
+
+	@Benchmark
+	public byte[] encode() throws IOException {
+		return switch (format) {
+			case "json" -> objectMapper.writeValueAsBytes(books);
+			case "binary" -> BookBinaryCodec.encode(books, false);
+			default -> BookBinaryCodec.encode(books, true);
+		};
+	}
+
+	@Benchmark
+	public List<Book> decode() throws IOException {
+		return switch (format) {
+			case "json" -> objectMapper.readValue(encoded, BOOK_LIST);
+			default -> BookBinaryCodec.decode(encoded);
+		};
+	}
+}
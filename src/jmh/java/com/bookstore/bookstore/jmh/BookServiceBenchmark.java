@@ -0,0 +1,80 @@
+package com.bookstore.bookstore.jmh;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read and update paths of BookServiceImpl at several catalog sizes,
+ * against in-memory and file-mode H2 and the in-memory storage engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookServiceBenchmark {
+
+	@Param({BenchmarkCatalog.MEMORY, BenchmarkCatalog.FILE, BenchmarkCatalog.ENGINE})
+	public String database;
+
+	@Param({"1000", "10000", "100000"})
+	public int catalogSize;
+
+	private BenchmarkCatalog catalog;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		catalog = BenchmarkCatalog.start(database, catalogSize);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		catalog.close();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public List<Book> getAllBooks() {
+		return catalog.bookService.getAllBooks();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public List<BookSummary> getAllBookSummaries() {
+		return catalog.bookService.getAllBookSummaries();
+	}
+
+	@Benchmark
+	public Book getBookById() {
+		return catalog.bookService.getBookById(randomBook().getId());
+	}
+
+	@Benchmark
+	public Book updateBook() {
+		Book changes = randomBook().copy();
+		changes.setPrice(5.0 + ThreadLocalRandom.current().nextInt(50));
+		return catalog.bookService.updateBook(changes.getId(), changes);
+	}
+
+	private Book randomBook() {
+		return catalog.books.get(ThreadLocalRandom.current().nextInt(catalog.books.size()));
+	}
+}
@@ -0,0 +1,63 @@
+package com.bookstore.bookstore.jmh;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.swing.utils.BookTableRows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.swing.table.DefaultTableModel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of book summaries to Swing table rows, as done when the book table is loaded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class BookTableRowsBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	public int catalogSize;
+
+	private List<BookSummary> books;
+	private DefaultTableModel tableModel;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		List<Book> catalog = BenchmarkCatalog.newBooks("row-", 0, catalogSize);
+		for (int i = 0; i < catalog.size(); i++) {
+			catalog.get(i).setId((long) i + 1);
+		}
+		books = catalog.stream().map(BookSummary::of).toList();
+		tableModel = new DefaultTableModel(BookTableRows.COLUMN_NAMES, 0);
+	}
+
+	@Benchmark
+	public void toRow(Blackhole blackhole) {
+		for (BookSummary book : books) {
+			blackhole.consume(BookTableRows.toRow(book));
+		}
+	}
+
+	@Benchmark
+	public int fillTableModel() {
+		BookTableRows.fill(tableModel, books);
+		return tableModel.getRowCount();
+	}
+}
@@ -0,0 +1,91 @@
+package com.bookstore.bookstore.jmh;
+
+import com.bookstore.bookstore.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * createBook and deleteBook of BookServiceImpl.
+ * Both consume or produce rows, so every iteration is a fixed batch of operations
+ * and the catalog is put back to its original size between iterations.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = BookWriteBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = BookWriteBenchmark.BATCH)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookWriteBenchmark {
+
+	static final int BATCH = 1_000;
+
+	@Param({BenchmarkCatalog.MEMORY, BenchmarkCatalog.FILE, BenchmarkCatalog.ENGINE})
+	public String database;
+
+	@Param({"1000", "10000", "100000"})
+	public int catalogSize;
+
+	private BenchmarkCatalog catalog;
+	private List<Book> batch;
+	private int next;
+	private int iteration;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		catalog = BenchmarkCatalog.start(database, catalogSize);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		catalog.close();
+	}
+
+	/**
+	 * Prepares the books created by createBook, or stored for deleteBook to remove.
+	 */
+	@Setup(Level.Iteration)
+	public void prepareBatch() {
+		batch = BenchmarkCatalog.newBooks("batch-" + iteration++ + "-", 0, BATCH);
+		next = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void removeBatch() {
+		catalog.bookService.deleteBooks(batch.stream().map(Book::getId).filter(id -> id != null).toList());
+	}
+
+	@State(Scope.Benchmark)
+	public static class StoredBatch {
+
+		@Setup(Level.Iteration)
+		public void store(BookWriteBenchmark benchmark) {
+			benchmark.catalog.bookImportService.createBooks(benchmark.batch);
+		}
+	}
+
+	@Benchmark
+	public Book createBook() {
+		return catalog.bookService.createBook(batch.get(next++));
+	}
+
+	@Benchmark
+	public int deleteBook(StoredBatch stored) {
+		Long id = batch.get(next++).getId();
+		catalog.bookService.deleteBook(id);
+		return id.intValue();
+	}
+}
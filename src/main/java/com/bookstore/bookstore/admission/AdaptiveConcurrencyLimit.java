@@ -0,0 +1,159 @@
+package com.bookstore.bookstore.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to the observed latency (AIMD).
+ * While requests complete close to the best latency seen recently the limit grows by
+ * about one per limit's worth of completions; when latency rises above the tolerated
+ * multiple of that baseline, requests are queuing somewhere downstream (typically for
+ * a database connection) and the limit is cut by a fixed factor. Requests over the
+ * limit wait in a short bounded queue and are rejected when it is full or they time out.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private static final double DECREASE_FACTOR = 0.9;
+    private static final double SMOOTHING = 0.05;
+    private static final int BASELINE_RESET_SAMPLES = 1_000;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final int maxQueue;
+    private final long queueTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private double smoothedLatencyNanos;
+    private long baselineLatencyNanos = Long.MAX_VALUE;
+    private int samplesSinceBaselineReset;
+    private int completionsSinceDecrease;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder queuedTotal = new LongAdder();
+
+    AdaptiveConcurrencyLimit(String name, int initialLimit, int minLimit, int maxLimit,
+                             double latencyTolerance, int maxQueue, long queueTimeoutMillis) {
+        if (minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid " + name + " concurrency limits");
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.maxQueue = maxQueue;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Acquires a slot, waiting briefly in the queue if the limit is reached.
+     * @return true if admitted (call {@link #release(long)} when done), false if shed
+     */
+    boolean acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                admitted.increment();
+                return true;
+            }
+            if (queued >= maxQueue || queueTimeoutNanos <= 0) {
+                shed.increment();
+                return false;
+            }
+            queued++;
+            queuedTotal.increment();
+            try {
+                long remaining = queueTimeoutNanos;
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        shed.increment();
+                        return false;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+            } finally {
+                queued--;
+            }
+            inFlight++;
+            admitted.increment();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot and feeds the request latency to the limit.
+     * @param latencyNanos time the request took once admitted
+     */
+    void release(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            adjust(latencyNanos);
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot without feeding a latency, for requests whose duration says
+     * nothing about the load (a full catalog download takes minutes on an idle server).
+     */
+    void releaseUnsampled() {
+        lock.lock();
+        try {
+            inFlight--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    AdmissionStats.LimitStats stats() {
+        lock.lock();
+        try {
+            return new AdmissionStats.LimitStats(name, (int) limit, inFlight, queued,
+                    admitted.sum(), shed.sum(), queuedTotal.sum(),
+                    smoothedLatencyNanos / 1_000_000.0,
+                    baselineLatencyNanos == Long.MAX_VALUE ? 0 : baselineLatencyNanos / 1_000_000.0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust(long latencyNanos) {
+        smoothedLatencyNanos = smoothedLatencyNanos == 0
+                ? latencyNanos
+                : smoothedLatencyNanos + SMOOTHING * (latencyNanos - smoothedLatencyNanos);
+        if (++samplesSinceBaselineReset >= BASELINE_RESET_SAMPLES) {
+            // Let the baseline follow lasting changes (bigger catalog, slower disk)
+            baselineLatencyNanos = (long) smoothedLatencyNanos;
+            samplesSinceBaselineReset = 0;
+        }
+        baselineLatencyNanos = Math.min(baselineLatencyNanos, latencyNanos);
+
+        completionsSinceDecrease++;
+        if (smoothedLatencyNanos > baselineLatencyNanos * latencyTolerance) {
+            // At most one decrease per limit's worth of completions
+            if (completionsSinceDecrease >= limit) {
+                limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+                completionsSinceDecrease = 0;
+            }
+        } else if (inFlight + 1 >= (int) limit) {
+            // Only grow when the limit is actually what constrains us
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.bookstore.bookstore.admission;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admission control in front of the book service.
+ * A request first spends a token of its client's bucket, then takes a slot of the
+ * read or write concurrency limit. Rejections are immediate (or after a short bounded
+ * wait for a slot) and carry a retry-after hint, so a spike is shed at the edge
+ * instead of piling up on the connection pool and slowing everyone down.
+ * Token buckets are kept for the {@code maxClients} most recently seen clients.
+ */
+@Component
+public class AdmissionController {
+
+    private final double ratePerSecond;
+    private final double burst;
+    private final int maxClients;
+    private final Map<String, TokenBucket> buckets;
+    private final AdaptiveConcurrencyLimit reads;
+    private final AdaptiveConcurrencyLimit writes;
+    private final LongAdder rateLimited = new LongAdder();
+
+    /**
+     * Constructor for dependency injection.
+     * @param ratePerSecond sustained requests per second allowed to each client
+     * @param burst requests a client can make at once after being idle
+     * @param maxClients token buckets kept before the least recently seen clients are forgotten
+     * @param readLimit initial concurrency limit of reads
+     * @param minReadLimit lower bound of the read limit
+     * @param maxReadLimit upper bound of the read limit
+     * @param writeLimit initial concurrency limit of writes
+     * @param minWriteLimit lower bound of the write limit
+     * @param maxWriteLimit upper bound of the write limit
+     * @param latencyTolerance latency over the baseline, as a multiple, that shrinks the limits
+     * @param maxQueue requests allowed to wait for a slot, per limit
+     * @param queueTimeoutMillis maximum wait for a slot
+     */
+    public AdmissionController(@Value("${bookstore.admission.client.rate-per-second:50}") double ratePerSecond,
+                               @Value("${bookstore.admission.client.burst:100}") double burst,
+                               @Value("${bookstore.admission.client.max-clients:10000}") int maxClients,
+                               @Value("${bookstore.admission.reads.initial-limit:32}") int readLimit,
+                               @Value("${bookstore.admission.reads.min-limit:4}") int minReadLimit,
+                               @Value("${bookstore.admission.reads.max-limit:256}") int maxReadLimit,
+                               @Value("${bookstore.admission.writes.initial-limit:8}") int writeLimit,
+                               @Value("${bookstore.admission.writes.min-limit:2}") int minWriteLimit,
+                               @Value("${bookstore.admission.writes.max-limit:64}") int maxWriteLimit,
+                               @Value("${bookstore.admission.latency-tolerance:2.0}") double latencyTolerance,
+                               @Value("${bookstore.admission.max-queue:100}") int maxQueue,
+                               @Value("${bookstore.admission.queue-timeout-ms:50}") long queueTimeoutMillis) {
+        if (ratePerSecond <= 0 || burst < 1 || maxClients <= 0) {
+            throw new IllegalArgumentException("Client rate, burst and max clients must be greater than 0");
+        }
+        if (latencyTolerance <= 1.0) {
+            throw new IllegalArgumentException("Latency tolerance must be greater than 1");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxClients = maxClients;
+        this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                return size() > AdmissionController.this.maxClients;
+            }
+        };
+        this.reads = new AdaptiveConcurrencyLimit("reads", readLimit, minReadLimit, maxReadLimit,
+                latencyTolerance, maxQueue, queueTimeoutMillis);
+        this.writes = new AdaptiveConcurrencyLimit("writes", writeLimit, minWriteLimit, maxWriteLimit,
+                latencyTolerance, maxQueue, queueTimeoutMillis);
+    }
+
+    /**
+     * Result of an admission attempt.
+     *
+     * @param outcome whether the request may proceed
+     * @param retryAfterSeconds for rejections, when the client should try again
+     * @param write true if the request counts against the write limit
+     * @param admittedAtNanos when the concurrency slot was taken, 0 if none was
+     * @param sampled true if the latency of the request feeds the limit
+     */
+    public record Decision(Outcome outcome, long retryAfterSeconds, boolean write, long admittedAtNanos,
+                           boolean sampled) {
+
+        public boolean admitted() {
+            return outcome == Outcome.ADMITTED;
+        }
+    }
+
+    public enum Outcome {
+        ADMITTED, RATE_LIMITED, OVERLOADED
+    }
+
+    /**
+     * How a request takes part in the concurrency limits.
+     */
+    public enum Concurrency {
+        /** Takes a slot and feeds its latency to the limit. */
+        LIMITED,
+        /** Takes a slot, but its latency depends on the size of the response, not on the load (downloads). */
+        UNSAMPLED,
+        /** Takes no slot: long-lived streams are only rate limited. */
+        UNLIMITED
+    }
+
+    /**
+     * Tries to admit a request.
+     * @param clientId identity of the client, for its rate limit
+     * @param write true for requests that modify the catalog
+     * @param concurrency how the request counts against the concurrency limits
+     * @return the decision; admitted requests must be passed to {@link #complete(Decision)}
+     */
+    public Decision admit(String clientId, boolean write, Concurrency concurrency) {
+        long now = System.nanoTime();
+        long waitNanos = bucket(clientId, now).tryTake(now);
+        boolean sampled = concurrency == Concurrency.LIMITED;
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            return new Decision(Outcome.RATE_LIMITED,
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)), write, 0, sampled);
+        }
+        if (concurrency == Concurrency.UNLIMITED) {
+            return new Decision(Outcome.ADMITTED, 0, write, 0, false);
+        }
+        try {
+            if (!(write ? writes : reads).acquire()) {
+                return new Decision(Outcome.OVERLOADED, 1, write, 0, sampled);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Decision(Outcome.OVERLOADED, 1, write, 0, sampled);
+        }
+        return new Decision(Outcome.ADMITTED, 0, write, System.nanoTime(), sampled);
+    }
+
+    /**
+     * Releases the concurrency slot of an admitted request.
+     * @param decision the decision returned by {@link #admit(String, boolean, Concurrency)}
+     */
+    public void complete(Decision decision) {
+        if (decision.admitted() && decision.admittedAtNanos() != 0) {
+            AdaptiveConcurrencyLimit limit = decision.write() ? writes : reads;
+            if (decision.sampled()) {
+                limit.release(System.nanoTime() - decision.admittedAtNanos());
+            } else {
+                limit.releaseUnsampled();
+            }
+        }
+    }
+
+    /**
+     * Gets the admission counters.
+     * @return admitted, shed and queued counts per limit and rate-limited requests
+     */
+    public AdmissionStats stats() {
+        int trackedClients;
+        synchronized (buckets) {
+            trackedClients = buckets.size();
+        }
+        return new AdmissionStats(rateLimited.sum(), trackedClients, reads.stats(), writes.stats());
+    }
+
+    private TokenBucket bucket(String clientId, long now) {
+        synchronized (buckets) {
+            // Access order: the least recently seen client goes first when the map is full
+            return buckets.computeIfAbsent(clientId, key -> new TokenBucket(ratePerSecond, burst, now));
+        }
+    }
+}
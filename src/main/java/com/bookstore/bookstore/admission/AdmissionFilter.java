@@ -0,0 +1,132 @@
+package com.bookstore.bookstore.admission;
+
+import java.io.IOException;
+import java.security.Principal;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Applies the {@link AdmissionController} to the REST API.
+ * Clients are identified by their authenticated principal, or by their address: never
+ * by anything the client can pick freely. Rate-limited requests get 429 and overloaded
+ * ones 503, both with Retry-After. The concurrency slot of a streamed response is held
+ * until the response completes; catalog exports don't feed their duration to the
+ * adaptive limits, and change feed streams are long-lived, so they are only rate limited.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final AdmissionController admissionController;
+
+    /**
+     * Constructor for dependency injection.
+     * @param admissionController admission control decisions
+     */
+    public AdmissionFilter(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/") || request.getRequestURI().startsWith("/api/admission");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Principal principal = request.getUserPrincipal();
+        String clientId = principal != null ? principal.getName() : request.getRemoteAddr();
+        String method = request.getMethod();
+        boolean write = !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+
+        AdmissionController.Decision decision = admissionController.admit(clientId, write, concurrency(request));
+        if (!decision.admitted()) {
+            reject(response, decision);
+            return;
+        }
+
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                async = true;
+                request.getAsyncContext().addListener(new CompletionListener(decision));
+            }
+        } finally {
+            if (!async) {
+                admissionController.complete(decision);
+            }
+        }
+    }
+
+    private static AdmissionController.Concurrency concurrency(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (uri.startsWith("/api/books/changes/stream")) {
+            return AdmissionController.Concurrency.UNLIMITED;
+        }
+        return uri.startsWith("/api/books/export")
+                ? AdmissionController.Concurrency.UNSAMPLED
+                : AdmissionController.Concurrency.LIMITED;
+    }
+
+    private static void reject(HttpServletResponse response, AdmissionController.Decision decision) throws IOException {
+        boolean rateLimited = decision.outcome() == AdmissionController.Outcome.RATE_LIMITED;
+        HttpStatus status = rateLimited ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(decision.retryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        response.getWriter().write("{\"status\":" + status.value() + ",\"title\":\"" + status.getReasonPhrase()
+                + "\",\"detail\":\"" + (rateLimited ? "Client request rate exceeded" : "Server overloaded")
+                + "\"}");
+    }
+
+    private final class CompletionListener implements AsyncListener {
+
+        private final AdmissionController.Decision decision;
+        private boolean completed;
+
+        private CompletionListener(AdmissionController.Decision decision) {
+            this.decision = decision;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Still the same request
+        }
+
+        private synchronized void release() {
+            if (!completed) {
+                completed = true;
+                admissionController.complete(decision);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.bookstore.bookstore.admission;
+
+/**
+ * Snapshot of the admission control counters.
+ *
+ * @param rateLimited requests rejected by the per-client rate limits
+ * @param trackedClients clients with a live token bucket
+ * @param reads state of the read concurrency limit
+ * @param writes state of the write concurrency limit
+ */
+public record AdmissionStats(long rateLimited, int trackedClients, LimitStats reads, LimitStats writes) {
+
+    /**
+     * State of one adaptive concurrency limit.
+     *
+     * @param name reads or writes
+     * @param limit current concurrency limit
+     * @param inFlight requests being served
+     * @param queued requests waiting right now
+     * @param admitted requests admitted since startup
+     * @param shed requests rejected since startup (queue full or queue timeout)
+     * @param queuedTotal requests that had to wait since startup
+     * @param latencyMillis smoothed latency of admitted requests
+     * @param baselineLatencyMillis best recent latency, the reference for the limit
+     */
+    public record LimitStats(String name, int limit, int inFlight, int queued, long admitted, long shed,
+                             long queuedTotal, double latencyMillis, double baselineLatencyMillis) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.bookstore.bookstore.admission;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Exposes the admission control counters.
+ */
+@RestController
+public class AdmissionStatsController {
+
+    private final AdmissionController admissionController;
+
+    public AdmissionStatsController(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    @GetMapping("/api/admission/stats")
+    public AdmissionStats stats() {
+        return admissionController.stats();
+    }
+}
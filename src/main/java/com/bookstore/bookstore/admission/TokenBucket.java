@@ -0,0 +1,42 @@
+package com.bookstore.bookstore.admission;
+
+/**
+ * Token bucket rate limiter of a single client.
+ * Tokens refill continuously at a fixed rate up to the burst capacity; a request
+ * takes one token or is rejected with the time until the next token is available.
+ */
+final class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(double ratePerSecond, double capacity, long nowNanos) {
+        this.tokensPerNano = ratePerSecond / 1_000_000_000.0;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * Takes a token if one is available.
+     * @return 0 if a token was taken, otherwise the nanoseconds until one will be available
+     */
+    synchronized long tryTake(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0;
+        }
+        return (long) Math.ceil((1.0 - tokens) / tokensPerNano);
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
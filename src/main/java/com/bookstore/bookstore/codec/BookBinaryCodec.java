@@ -0,0 +1,355 @@
+package com.bookstore.bookstore.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bookstore.bookstore.model.Book;
+
+/**
+ * Compact binary encoding of book batches, for catalog sync.
+ *
+ * <p>A batch is the magic bytes {@code BKB1}, a flags byte and one record per book,
+ * ended by a zero byte. Each record starts with a varint bit set of the non-null
+ * fields, followed by those fields in declaration order:
+ * <ul>
+ *   <li>id: zigzag varint of the difference with the previous id, so ascending
+ *       catalog ids take one byte</li>
+ *   <li>strings: varint byte length and UTF-8 bytes</li>
+ *   <li>author: with the dictionary flag, varint 0 introduces a new author (string
+ *       follows) and n + 1 repeats the n-th author of the batch</li>
+ *   <li>price: zigzag varint of the price in cents (fixed point, 2 decimals)</li>
+ *   <li>stock: zigzag varint</li>
+ *   <li>available: stored in the bit set</li>
+ * </ul>
+ * Writers and readers are streaming, so a batch can be as large as the catalog.
+ */
+public final class BookBinaryCodec {
+
+    private static final byte[] MAGIC = {'B', 'K', 'B', '1'};
+    private static final int FLAG_AUTHOR_DICTIONARY = 1;
+
+    private static final int RECORD = 1;
+    private static final int ID = 1 << 1;
+    private static final int TITLE = 1 << 2;
+    private static final int AUTHOR = 1 << 3;
+    private static final int ISBN = 1 << 4;
+    private static final int PRICE = 1 << 5;
+    private static final int STOCK = 1 << 6;
+    private static final int DESCRIPTION = 1 << 7;
+    private static final int AVAILABLE = 1 << 8;
+    private static final int AVAILABLE_TRUE = 1 << 9;
+
+    private static final int PRICE_SCALE = 100;
+    private static final int MAX_STRING_BYTES = 16 * 1024 * 1024;
+
+    private BookBinaryCodec() {
+    }
+
+    /**
+     * Encodes a batch of books in memory.
+     * @param books books to encode
+     * @param authorDictionary whether repeated authors are written once
+     * @return the encoded batch
+     */
+    public static byte[] encode(List<Book> books, boolean authorDictionary) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(books.size() * 64 + 8);
+        try {
+            BookWriter writer = new BookWriter(bytes, authorDictionary);
+            for (Book book : books) {
+                writer.write(book);
+            }
+            writer.finish();
+        } catch (IOException e) {
+            // ByteArrayOutputStream doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a batch of books encoded in memory.
+     * @param data the encoded batch
+     * @return the decoded books
+     * @throws IOException if the data is not a valid batch
+     */
+    public static List<Book> decode(byte[] data) throws IOException {
+        BookReader reader = new BookReader(new ByteArrayInputStream(data));
+        List<Book> books = new ArrayList<>();
+        Book book;
+        while ((book = reader.read()) != null) {
+            books.add(book);
+        }
+        return books;
+    }
+
+    /**
+     * Streaming encoder of one batch. Writes are buffered: call {@link #finish()}
+     * to end the batch and flush, the underlying stream is not closed.
+     */
+    public static final class BookWriter {
+
+        private final OutputStream out;
+        private final boolean authorDictionary;
+        private final Map<String, Integer> authors = new HashMap<>();
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private long previousId;
+
+        /**
+         * Starts a batch by writing its header.
+         * @param out destination stream
+         * @param authorDictionary whether repeated authors are written once
+         * @throws IOException if writing fails
+         */
+        public BookWriter(OutputStream out, boolean authorDictionary) throws IOException {
+            this.out = out;
+            this.authorDictionary = authorDictionary;
+            for (byte b : MAGIC) {
+                writeByte(b);
+            }
+            writeByte(authorDictionary ? FLAG_AUTHOR_DICTIONARY : 0);
+        }
+
+        /**
+         * Appends a book to the batch.
+         * @param book the book to write
+         * @throws IOException if writing fails
+         */
+        public void write(Book book) throws IOException {
+            int fields = RECORD;
+            fields |= book.getId() != null ? ID : 0;
+            fields |= book.getTitle() != null ? TITLE : 0;
+            fields |= book.getAuthor() != null ? AUTHOR : 0;
+            fields |= book.getIsbn() != null ? ISBN : 0;
+            fields |= book.getPrice() != null ? PRICE : 0;
+            fields |= book.getStock() != null ? STOCK : 0;
+            fields |= book.getDescription() != null ? DESCRIPTION : 0;
+            if (book.getAvailable() != null) {
+                fields |= book.getAvailable() ? AVAILABLE | AVAILABLE_TRUE : AVAILABLE;
+            }
+            writeVarLong(fields);
+
+            if (book.getId() != null) {
+                writeVarLong(zigzag(book.getId() - previousId));
+                previousId = book.getId();
+            }
+            if (book.getTitle() != null) {
+                writeString(book.getTitle());
+            }
+            if (book.getAuthor() != null) {
+                writeAuthor(book.getAuthor());
+            }
+            if (book.getIsbn() != null) {
+                writeString(book.getIsbn());
+            }
+            if (book.getPrice() != null) {
+                writeVarLong(zigzag(Math.round(book.getPrice() * PRICE_SCALE)));
+            }
+            if (book.getStock() != null) {
+                writeVarLong(zigzag(book.getStock()));
+            }
+            if (book.getDescription() != null) {
+                writeString(book.getDescription());
+            }
+        }
+
+        /**
+         * Ends the batch and flushes it to the underlying stream.
+         * @throws IOException if writing fails
+         */
+        public void finish() throws IOException {
+            writeByte(0);
+            flush();
+            out.flush();
+        }
+
+        private void writeAuthor(String author) throws IOException {
+            if (!authorDictionary) {
+                writeString(author);
+                return;
+            }
+            Integer index = authors.get(author);
+            if (index != null) {
+                writeVarLong(index + 1L);
+            } else {
+                authors.put(author, authors.size());
+                writeVarLong(0);
+                writeString(author);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            if (bytes.length > buffer.length - position) {
+                flush();
+                if (bytes.length > buffer.length) {
+                    out.write(bytes);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            if (buffer.length - position < 10) {
+                flush();
+            }
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeByte(int value) throws IOException {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    /**
+     * Streaming decoder of one batch. The underlying stream is not closed.
+     */
+    public static final class BookReader {
+
+        private final InputStream in;
+        private final boolean authorDictionary;
+        private final List<String> authors = new ArrayList<>();
+        private long previousId;
+        private boolean finished;
+
+        /**
+         * Reads the header of a batch.
+         * @param in source stream (buffer it if it isn't already in memory)
+         * @throws IOException if reading fails or the header is not valid
+         */
+        public BookReader(InputStream in) throws IOException {
+            this.in = in;
+            for (byte expected : MAGIC) {
+                if (readByte() != expected) {
+                    throw new IOException("Not a binary book batch");
+                }
+            }
+            this.authorDictionary = (readByte() & FLAG_AUTHOR_DICTIONARY) != 0;
+        }
+
+        /**
+         * Reads the next book.
+         * @return the book, or null at the end of the batch
+         * @throws IOException if reading fails or the data is not valid
+         */
+        public Book read() throws IOException {
+            if (finished) {
+                return null;
+            }
+            long fields = readVarLong();
+            if (fields == 0) {
+                finished = true;
+                return null;
+            }
+            if ((fields & RECORD) == 0) {
+                throw new IOException("Corrupt binary book batch");
+            }
+
+            Book book = new Book();
+            if ((fields & ID) != 0) {
+                previousId += unzigzag(readVarLong());
+                book.setId(previousId);
+            }
+            if ((fields & TITLE) != 0) {
+                book.setTitle(readString());
+            }
+            if ((fields & AUTHOR) != 0) {
+                book.setAuthor(readAuthor());
+            }
+            if ((fields & ISBN) != 0) {
+                book.setIsbn(readString());
+            }
+            if ((fields & PRICE) != 0) {
+                book.setPrice((double) unzigzag(readVarLong()) / PRICE_SCALE);
+            }
+            if ((fields & STOCK) != 0) {
+                book.setStock((int) unzigzag(readVarLong()));
+            }
+            if ((fields & DESCRIPTION) != 0) {
+                book.setDescription(readString());
+            }
+            book.setAvailable((fields & AVAILABLE) == 0 ? null : (fields & AVAILABLE_TRUE) != 0);
+            return book;
+        }
+
+        private String readAuthor() throws IOException {
+            if (!authorDictionary) {
+                return readString();
+            }
+            long reference = readVarLong();
+            if (reference == 0) {
+                String author = readString();
+                authors.add(author);
+                return author;
+            }
+            if (reference > authors.size()) {
+                throw new IOException("Corrupt binary book batch: unknown author " + reference);
+            }
+            return authors.get((int) reference - 1);
+        }
+
+        private String readString() throws IOException {
+            long length = readVarLong();
+            if (length > MAX_STRING_BYTES) {
+                throw new IOException("Corrupt binary book batch: string of " + length + " bytes");
+            }
+            byte[] bytes = in.readNBytes((int) length);
+            if (bytes.length != length) {
+                throw new EOFException("Truncated binary book batch");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt binary book batch: varint too long");
+        }
+
+        private int readByte() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated binary book batch");
+            }
+            return b;
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,135 @@
+package com.bookstore.bookstore.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores text as bytes, deflate-compressed when it is long enough.
+ * The first byte tells the format, so compressed and plain values can coexist and
+ * the threshold can change at any time:
+ * <ul>
+ *   <li>{@code 0}: UTF-8 bytes follow</li>
+ *   <li>{@code 1}: raw deflate of the UTF-8 bytes follows</li>
+ * </ul>
+ * Text shorter than {@code bookstore.description.compression.min-bytes} is stored
+ * plain, since deflate doesn't pay off on a few words; so is text that doesn't shrink.
+ *
+ * <p>Hibernate creates the converter through Spring, so the settings are injected.
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    static final byte PLAIN = 0;
+    static final byte DEFLATE = 1;
+
+    private final boolean compress;
+    private final int minBytes;
+
+    /**
+     * Constructor used when Hibernate runs without the Spring bean container:
+     * compresses text of 512 bytes or more.
+     */
+    public CompressedTextConverter() {
+        this(true, 512);
+    }
+
+    /**
+     * Constructor for dependency injection.
+     * @param compress true to compress long text, false to store everything plain
+     * @param minBytes UTF-8 length from which text is compressed
+     */
+    @Autowired
+    public CompressedTextConverter(@Value("${bookstore.description.compression.enabled:true}") boolean compress,
+                                   @Value("${bookstore.description.compression.min-bytes:512}") int minBytes) {
+        if (minBytes < 0) {
+            throw new IllegalArgumentException("Compression threshold cannot be negative");
+        }
+        this.compress = compress;
+        this.minBytes = minBytes;
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        if (text == null) {
+            return null;
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if (compress && utf8.length >= minBytes) {
+            byte[] deflated = deflate(utf8);
+            if (deflated.length < utf8.length) {
+                return deflated;
+            }
+        }
+        byte[] plain = new byte[utf8.length + 1];
+        plain[0] = PLAIN;
+        System.arraycopy(utf8, 0, plain, 1, utf8.length);
+        return plain;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] stored) {
+        if (stored == null || stored.length == 0) {
+            return null;
+        }
+        return switch (stored[0]) {
+            case PLAIN -> new String(stored, 1, stored.length - 1, StandardCharsets.UTF_8);
+            case DEFLATE -> new String(inflate(stored), StandardCharsets.UTF_8);
+            default -> throw new IllegalStateException("Unknown stored text format " + stored[0]);
+        };
+    }
+
+    /**
+     * Compresses UTF-8 bytes.
+     * @return the format byte followed by the raw deflate stream
+     */
+    private static byte[] deflate(byte[] utf8) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(utf8.length / 2 + 16);
+            out.write(DEFLATE);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] stored) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(stored, 1, stored.length - 1);
+            byte[] result = new byte[Math.max(64, (stored.length - 1) * 4)];
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == result.length) {
+                    result = Arrays.copyOf(result, result.length * 2);
+                }
+                int inflated = inflater.inflate(result, length, result.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed text");
+                }
+                length += inflated;
+            }
+            return length == result.length ? result : Arrays.copyOf(result, length);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted compressed text", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
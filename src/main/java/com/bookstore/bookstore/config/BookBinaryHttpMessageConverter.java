@@ -0,0 +1,66 @@
+package com.bookstore.bookstore.config;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import com.bookstore.bookstore.codec.BookBinaryCodec;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPage;
+
+/**
+ * Writes and reads catalog pages with the compact {@link BookBinaryCodec} encoding
+ * when the client asks for {@value #MEDIA_TYPE_VALUE}. The token of the next page
+ * travels in the {@value #NEXT_PAGE_TOKEN_HEADER} header.
+ */
+public class BookBinaryHttpMessageConverter extends AbstractHttpMessageConverter<BookPage> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-bookstore-books";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+    public static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
+    public BookBinaryHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return BookPage.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected BookPage readInternal(Class<? extends BookPage> clazz, HttpInputMessage inputMessage)
+            throws IOException {
+        BookBinaryCodec.BookReader reader;
+        try {
+            reader = new BookBinaryCodec.BookReader(new BufferedInputStream(inputMessage.getBody()));
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+        List<Book> books = new ArrayList<>();
+        Book book;
+        while ((book = reader.read()) != null) {
+            books.add(book);
+        }
+        return new BookPage(books, inputMessage.getHeaders().getFirst(NEXT_PAGE_TOKEN_HEADER));
+    }
+
+    @Override
+    protected void writeInternal(BookPage page, HttpOutputMessage outputMessage) throws IOException {
+        if (page.nextPageToken() != null) {
+            outputMessage.getHeaders().set(NEXT_PAGE_TOKEN_HEADER, page.nextPageToken());
+        }
+        BookBinaryCodec.BookWriter writer = new BookBinaryCodec.BookWriter(outputMessage.getBody(), true);
+        for (Book book : page.books()) {
+            writer.write(book);
+        }
+        writer.finish();
+    }
+}
@@ -0,0 +1,47 @@
+package com.bookstore.bookstore.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.bookstore.bookstore.model.Book;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Moves the book id sequence past the existing rows.
+ * Databases created before the switch from IDENTITY to a pooled sequence already
+ * contain ids that a freshly created sequence would hand out again.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class BookSequenceInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSequenceInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookSequenceInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void alignSequence() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM book", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        Long nextValue = jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'BOOK_SEQ'",
+                Long.class);
+        // The pooled optimizer hands out (value - allocationSize, value], so the
+        // next sequence value must be at least maxId + allocationSize
+        long required = maxId + Book.ID_ALLOCATION_SIZE;
+        if (nextValue == null || nextValue < required) {
+            jdbcTemplate.execute("ALTER SEQUENCE book_seq RESTART WITH " + required);
+            log.info("Book id sequence restarted at {} (max existing id {})", required, maxId);
+        }
+    }
+}
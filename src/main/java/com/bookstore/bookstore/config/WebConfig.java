@@ -0,0 +1,25 @@
+package com.bookstore.bookstore.config;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web layer configuration.
+ * Pages returned by the REST API are serialized through a stable DTO
+ * instead of the internal PageImpl structure, and catalog pages can also be
+ * requested in the compact binary format.
+ */
+@Configuration
+@EnableSpringDataWebSupport(pageSerializationMode = EnableSpringDataWebSupport.PageSerializationMode.VIA_DTO)
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Last, so clients that accept anything keep getting JSON
+        converters.add(new BookBinaryHttpMessageConverter());
+    }
+}
@@ -0,0 +1,324 @@
+package com.bookstore.bookstore.controller;
+
+import java.net.URI;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPage;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.model.BookWriteOperation;
+import com.bookstore.bookstore.model.BookWriteResult;
+import com.bookstore.bookstore.replica.ReplicaRouting;
+import com.bookstore.bookstore.service.BookBatchService;
+import com.bookstore.bookstore.service.BookService;
+import com.bookstore.bookstore.service.version.CatalogVersion;
+
+/**
+ * REST API for the book catalog.
+ * A thin layer over {@link BookService}: validation errors of the service
+ * ({@link IllegalArgumentException}) are returned as 400 problem details and
+ * missing books as 404. Reads carry an ETag derived from the {@link CatalogVersion}
+ * and answer a matching If-None-Match with 304 before touching the database; the tag
+ * is set on the response by that check, so the entities don't repeat it. With
+ * read replicas, those reads only use replicas that have caught up with the tag.
+ */
+@RestController
+@RequestMapping("/api/books")
+public class BookController {
+
+    private final BookService bookService;
+    private final BookBatchService bookBatchService;
+    private final CatalogVersion catalogVersion;
+    private final ReplicaRouting replicaRouting;
+
+    /**
+     * Constructor for dependency injection.
+     * @param bookService book service
+     * @param bookBatchService batch write service
+     * @param catalogVersion version of the catalog, for ETags
+     * @param replicaRouting read replica routing, when enabled for this deployment
+     */
+    public BookController(BookService bookService, BookBatchService bookBatchService,
+                          CatalogVersion catalogVersion, ObjectProvider<ReplicaRouting> replicaRouting) {
+        this.bookService = bookService;
+        this.bookBatchService = bookBatchService;
+        this.catalogVersion = catalogVersion;
+        this.replicaRouting = replicaRouting.getIfAvailable();
+    }
+
+    /**
+     * Lists the catalog one keyset page at a time.
+     * @param pageToken token of the page, as returned in the previous page
+     * @param pageSize number of books per page
+     * @param request current request, checked for a matching If-None-Match
+     * @return the page and the token of the next one (null on the last page), or 304
+     */
+    @GetMapping
+    public ResponseEntity<BookPage> getBooks(@RequestParam(required = false) String pageToken,
+                                             @RequestParam(required = false) Integer pageSize,
+                                             WebRequest request) {
+        return lookup(request, () -> bookService.getBooks(pageToken, pageSize));
+    }
+
+    /**
+     * Lists the books of an author, in ID order, one keyset page at a time.
+     * @param author exact author name
+     * @param pageToken token of the page, as returned in the previous page
+     * @param pageSize number of books per page
+     * @param request current request, checked for a matching If-None-Match
+     * @return the page and the token of the next one, or 304
+     */
+    @GetMapping("/by-author")
+    public ResponseEntity<BookPage> getBooksByAuthor(@RequestParam String author,
+                                                     @RequestParam(required = false) String pageToken,
+                                                     @RequestParam(required = false) Integer pageSize,
+                                                     WebRequest request) {
+        return lookup(request, () -> bookService.getBooksByAuthor(author, pageToken, pageSize));
+    }
+
+    /**
+     * Lists the books whose title starts with a prefix (case-sensitive), in title order.
+     * @param prefix start of the title
+     * @param pageToken token of the page, as returned in the previous page
+     * @param pageSize number of books per page
+     * @param request current request, checked for a matching If-None-Match
+     * @return the page and the token of the next one, or 304
+     */
+    @GetMapping("/by-title")
+    public ResponseEntity<BookPage> getBooksByTitlePrefix(@RequestParam String prefix,
+                                                          @RequestParam(required = false) String pageToken,
+                                                          @RequestParam(required = false) Integer pageSize,
+                                                          WebRequest request) {
+        return lookup(request, () -> bookService.getBooksByTitlePrefix(prefix, pageToken, pageSize));
+    }
+
+    /**
+     * Lists the books within a price range, in price order.
+     * @param min inclusive minimum price
+     * @param max inclusive maximum price
+     * @param pageToken token of the page, as returned in the previous page
+     * @param pageSize number of books per page
+     * @param request current request, checked for a matching If-None-Match
+     * @return the page and the token of the next one, or 304
+     */
+    @GetMapping("/by-price")
+    public ResponseEntity<BookPage> getBooksByPriceRange(@RequestParam(defaultValue = "0") double min,
+                                                         @RequestParam double max,
+                                                         @RequestParam(required = false) String pageToken,
+                                                         @RequestParam(required = false) Integer pageSize,
+                                                         WebRequest request) {
+        return lookup(request, () -> bookService.getBooksByPriceRange(min, max, pageToken, pageSize));
+    }
+
+    /**
+     * Lists the books by availability, in ID order: {@code inStock} narrows the
+     * available books to the ones with stock left.
+     * @param available availability to match
+     * @param inStock whether to list only available books with stock left
+     * @param pageToken token of the page, as returned in the previous page
+     * @param pageSize number of books per page
+     * @param request current request, checked for a matching If-None-Match
+     * @return the page and the token of the next one, or 304
+     */
+    @GetMapping("/by-availability")
+    public ResponseEntity<BookPage> getBooksByAvailability(@RequestParam(defaultValue = "true") boolean available,
+                                                           @RequestParam(defaultValue = "false") boolean inStock,
+                                                           @RequestParam(required = false) String pageToken,
+                                                           @RequestParam(required = false) Integer pageSize,
+                                                           WebRequest request) {
+        if (inStock && !available) {
+            throw new IllegalArgumentException("Books in stock are always available");
+        }
+        return lookup(request, () -> inStock
+                ? bookService.getBooksInStock(pageToken, pageSize)
+                : bookService.getBooksByAvailability(available, pageToken, pageSize));
+    }
+
+    /**
+     * Answers a read of catalog pages, which are sent as JSON or in the binary format
+     * depending on the Accept header: the ETag names the format and the response varies by Accept.
+     * @param request current request, checked for a matching If-None-Match
+     * @param query read of the page
+     * @return the page, or 304
+     */
+    private ResponseEntity<BookPage> lookup(WebRequest request, Supplier<BookPage> query) {
+        Negotiation.varyByAccept(request);
+        String eTag = catalogETag(Negotiation.prefersBinaryPage(request) ? "binary" : "json");
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().body(query.get());
+    }
+
+    /**
+     * Gets the ETag of the whole catalog for a read that follows.
+     * @return the current catalog ETag
+     */
+    private String catalogETag() {
+        // Read the version before the data: a concurrent commit can only make the tag older
+        String eTag = catalogVersion.catalogETag();
+        requireReplicaHead();
+        return eTag;
+    }
+
+    /**
+     * Gets the ETag of the whole catalog for a read that follows, in one of its representations.
+     * @param representation short name of the representation
+     * @return the current catalog ETag of the representation
+     */
+    private String catalogETag(String representation) {
+        String eTag = catalogVersion.catalogETag(representation);
+        requireReplicaHead();
+        return eTag;
+    }
+
+    /**
+     * Keeps the reads of the request off replicas that lack changes behind an ETag just read.
+     * The feed listener runs before the version listener, so the head covers the tag.
+     */
+    private void requireReplicaHead() {
+        if (replicaRouting != null) {
+            replicaRouting.requireHead();
+        }
+    }
+
+    @GetMapping("/{id:\\d+}")
+    public ResponseEntity<Book> getBook(@PathVariable Long id, WebRequest request) {
+        String eTag = catalogVersion.bookETag(id);
+        requireReplicaHead();
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        Book book = bookService.getBookById(id);
+        return book == null
+                ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok().body(book);
+    }
+
+    /**
+     * Gets the book that has an ISBN. Which book that is can change with any write, so
+     * the response carries the catalog ETag.
+     * @param isbn the ISBN
+     * @param request current request, checked for a matching If-None-Match
+     * @return the book, 404 if no book has the ISBN, or 304
+     */
+    @GetMapping("/isbn/{isbn}")
+    public ResponseEntity<Book> getBookByIsbn(@PathVariable String isbn, WebRequest request) {
+        String eTag = catalogETag();
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        Book book = bookService.findByIsbn(isbn);
+        return book == null
+                ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok().body(book);
+    }
+
+    /**
+     * Full-text search over title, author and description, ranked by relevance.
+     * @param query free text query
+     * @param page zero-based page number
+     * @param size number of books per page
+     * @param request current request, checked for a matching If-None-Match
+     * @return the requested page of matching books, or 304
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Page<Book>> searchBooks(@RequestParam("q") String query,
+                                                  @RequestParam(defaultValue = "0") int page,
+                                                  @RequestParam(defaultValue = "20") int size,
+                                                  WebRequest request) {
+        String eTag = catalogETag();
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().body(bookService.searchBooks(query, PageRequest.of(page, size)));
+    }
+
+    @PostMapping
+    public ResponseEntity<Book> createBook(@RequestBody Book book) {
+        book.setId(null);
+        Book created = bookService.createBook(book);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(created.getId())
+                .toUri();
+        return ResponseEntity.created(location).body(created);
+    }
+
+    /**
+     * Applies mixed creates, updates, patches and deletes in chunked transactions.
+     * @param operations the writes to apply
+     * @return one result per operation, in request order; failed items don't fail the request
+     */
+    @PostMapping("/batch")
+    public List<BookWriteResult> writeBatch(@RequestBody List<BookWriteOperation> operations) {
+        return bookBatchService.write(operations);
+    }
+
+    @PutMapping("/{id:\\d+}")
+    public ResponseEntity<Book> updateBook(@PathVariable Long id, @RequestBody Book book) {
+        return ResponseEntity.ofNullable(bookService.updateBook(id, book));
+    }
+
+    @PatchMapping("/{id:\\d+}")
+    public ResponseEntity<Void> patchBook(@PathVariable Long id, @RequestBody BookPatch changes) {
+        return bookService.patchBook(id, changes)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @DeleteMapping("/{id:\\d+}")
+    public ResponseEntity<Void> deleteBook(@PathVariable Long id) {
+        return bookService.deleteBooks(List.of(id)) > 0
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Reserves stock of a book.
+     * @param id identifier of the book
+     * @param quantity units to reserve
+     * @return 204 if reserved, 409 if the book is unavailable or lacks stock
+     */
+    @PostMapping("/{id:\\d+}/reservations")
+    public ResponseEntity<Void> reserveStock(@PathVariable Long id,
+                                             @RequestParam(defaultValue = "1") int quantity) {
+        return bookService.reserveStock(id, quantity)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @DeleteMapping("/{id:\\d+}/reservations")
+    public ResponseEntity<Void> releaseStock(@PathVariable Long id,
+                                             @RequestParam(defaultValue = "1") int quantity) {
+        return bookService.releaseStock(id, quantity)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    ProblemDetail handleInvalidRequest(IllegalArgumentException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+}
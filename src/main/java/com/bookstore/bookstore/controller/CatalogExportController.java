@@ -0,0 +1,109 @@
+package com.bookstore.bookstore.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.bookstore.bookstore.config.BookBinaryHttpMessageConverter;
+import com.bookstore.bookstore.replica.ReplicaRouting;
+import com.bookstore.bookstore.service.CatalogExportService;
+import com.bookstore.bookstore.service.ExportFormat;
+import com.bookstore.bookstore.service.version.CatalogVersion;
+
+/**
+ * Full catalog download.
+ * The response is written from the repository stream while the books are read, so
+ * neither the book list nor its serialized form is ever held in memory and the first
+ * bytes leave before the last row is read. The format is chosen from the Accept
+ * header, so each format has its own ETag and responses vary by Accept; compression
+ * is negotiated by the server (see server.compression), which is why the ETag is weak.
+ * With read replicas, the export only reads from replicas that have caught up with its ETag.
+ */
+@RestController
+@RequestMapping("/api/books/export")
+public class CatalogExportController {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    private final CatalogExportService catalogExportService;
+    private final CatalogVersion catalogVersion;
+    private final ReplicaRouting replicaRouting;
+
+    /**
+     * Constructor for dependency injection.
+     * @param catalogExportService catalog export service
+     * @param catalogVersion version of the catalog, for ETags
+     * @param replicaRouting read replica routing, when enabled for this deployment
+     */
+    public CatalogExportController(CatalogExportService catalogExportService, CatalogVersion catalogVersion,
+                                   ObjectProvider<ReplicaRouting> replicaRouting) {
+        this.catalogExportService = catalogExportService;
+        this.catalogVersion = catalogVersion;
+        this.replicaRouting = replicaRouting.getIfAvailable();
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportJson(WebRequest request) {
+        return export(ExportFormat.JSON, MediaType.APPLICATION_JSON, request);
+    }
+
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportJsonLines(WebRequest request) {
+        return export(ExportFormat.JSON_LINES, MediaType.parseMediaType(NDJSON), request);
+    }
+
+    @GetMapping(produces = CSV)
+    public ResponseEntity<StreamingResponseBody> exportCsv(WebRequest request) {
+        return export(ExportFormat.CSV, new MediaType("text", "csv", StandardCharsets.UTF_8), request);
+    }
+
+    @GetMapping(produces = BookBinaryHttpMessageConverter.MEDIA_TYPE_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBinary(WebRequest request) {
+        return export(ExportFormat.BINARY, BookBinaryHttpMessageConverter.MEDIA_TYPE, request);
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(ExportFormat format, MediaType mediaType,
+                                                         WebRequest request) {
+        // Every format is served from the same URL: the tag names the format
+        Negotiation.varyByAccept(request);
+        String eTag = catalogVersion.catalogETag(format.name().toLowerCase(Locale.ROOT));
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        StreamingResponseBody body = replicaRouting == null
+                ? out -> catalogExportService.exportBooks(format, out)
+                : atReplicaHead(format);
+        // The check above has set the ETag: a second one would be sent twice
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .body(body);
+    }
+
+    /**
+     * Streams the export from replicas that have every change behind the ETag.
+     * The body is written by another thread, which gets the routing floor taken here,
+     * after the ETag: the feed listener runs before the version listener.
+     * @param format serialization format
+     * @return the response body
+     */
+    private StreamingResponseBody atReplicaHead(ExportFormat format) {
+        long head = replicaRouting.requireHead();
+        return out -> {
+            replicaRouting.requireSequence(head);
+            try {
+                catalogExportService.exportBooks(format, out);
+            } finally {
+                replicaRouting.clearContext();
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.bookstore.bookstore.controller;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.bookstore.bookstore.service.feed.BookChange;
+import com.bookstore.bookstore.service.feed.ChangeBatch;
+import com.bookstore.bookstore.service.feed.ChangeFeed;
+
+/**
+ * REST access to the catalog change feed, by polling or as server-sent events.
+ * Clients resume from the cursor ({@code epoch:sequence}) of the last change they
+ * applied; a cursor from before a restart gets a reset.
+ */
+@RestController
+@RequestMapping("/api/books/changes")
+public class ChangeFeedController {
+
+    private static final int MAX_EVENTS_PER_READ = 500;
+    private static final Duration KEEP_ALIVE = Duration.ofSeconds(15);
+
+    private final ChangeFeed changeFeed;
+    private final long streamTimeoutMillis;
+
+    /**
+     * Constructor for dependency injection.
+     * @param changeFeed catalog change feed
+     * @param streamTimeoutMillis time after which an event stream is closed (clients reconnect)
+     */
+    public ChangeFeedController(ChangeFeed changeFeed,
+                                @Value("${bookstore.feed.stream-timeout-ms:1800000}") long streamTimeoutMillis) {
+        this.changeFeed = changeFeed;
+        this.streamTimeoutMillis = streamTimeoutMillis;
+    }
+
+    /**
+     * Pulls the changes committed after a cursor.
+     * @param since cursor of the last change the client applied, none to start from the oldest retained change
+     * @param limit maximum number of changes
+     * @return the changes and the cursor to ask from next time
+     */
+    @GetMapping
+    public ChangeBatch changesSince(@RequestParam(required = false) String since,
+                                    @RequestParam(defaultValue = "" + MAX_EVENTS_PER_READ) int limit) {
+        return changeFeed.changesSince(since, Math.min(limit, MAX_EVENTS_PER_READ));
+    }
+
+    /**
+     * Streams the changes committed after a cursor as server-sent events.
+     * Each change is a "change" event whose id is its cursor, so a reconnecting
+     * client resumes from Last-Event-ID. A "reset" event tells the client to reload
+     * the catalog; its data is the cursor the stream continues from.
+     * @param since cursor of the last change the client applied, when not reconnecting
+     * @param lastEventId cursor of the last event received before reconnecting
+     * @return the event stream
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) String since,
+                             @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        String start = lastEventId != null ? lastEventId
+                : since != null ? since : changeFeed.cursor(changeFeed.lastSequence());
+        // Malformed cursors are rejected before the stream starts
+        changeFeed.sequenceOf(start);
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        AtomicBoolean open = new AtomicBoolean(true);
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> open.set(false));
+        emitter.onError(error -> open.set(false));
+
+        // One virtual thread per subscriber: a slow client only delays itself
+        Thread.ofVirtual().name("change-feed-sse").start(() -> {
+            String cursor = start;
+            try {
+                while (open.get()) {
+                    ChangeBatch batch = changeFeed.awaitChangesSince(cursor, MAX_EVENTS_PER_READ, KEEP_ALIVE);
+                    if (batch.reset()) {
+                        emitter.send(SseEmitter.event().name("reset").data(batch.cursor()));
+                    } else if (batch.changes().isEmpty()) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    }
+                    for (BookChange change : batch.changes()) {
+                        emitter.send(SseEmitter.event()
+                                .id(changeFeed.cursor(change.sequence()))
+                                .name("change")
+                                .data(change, MediaType.APPLICATION_JSON));
+                    }
+                    cursor = batch.cursor();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client gone or emitter already completed
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    ProblemDetail handleInvalidRequest(IllegalArgumentException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+}
@@ -0,0 +1,73 @@
+package com.bookstore.bookstore.controller;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import com.bookstore.bookstore.config.BookBinaryHttpMessageConverter;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Content negotiation helpers for conditional reads whose representation depends on
+ * the Accept header. The ETag of such a read must name its representation, and caches
+ * must key the response on Accept, including the 304 answered before the body exists.
+ */
+final class Negotiation {
+
+    private Negotiation() {
+    }
+
+    /**
+     * Adds {@code Vary: Accept} to the response of the request, so it is also sent with a 304.
+     * @param request current request
+     */
+    static void varyByAccept(WebRequest request) {
+        if (request instanceof NativeWebRequest nativeRequest) {
+            HttpServletResponse response = nativeRequest.getNativeResponse(HttpServletResponse.class);
+            if (response != null && !response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT)) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            }
+        }
+    }
+
+    /**
+     * Tells whether a {@link com.bookstore.bookstore.model.BookPage} will be written in the
+     * binary format rather than JSON. Like the message converters, the acceptable types are
+     * tried from the highest quality down and the first one either format can serve wins.
+     * @param request current request
+     * @return true for {@value BookBinaryHttpMessageConverter#MEDIA_TYPE_VALUE}, false for JSON
+     */
+    static boolean prefersBinaryPage(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return false;
+        }
+        List<MediaType> acceptable;
+        try {
+            acceptable = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            // Rejected by the negotiation itself, no body is written
+            return false;
+        }
+        acceptable.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : acceptable) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (BookBinaryHttpMessageConverter.MEDIA_TYPE.equalsTypeAndSubtype(type)) {
+                return true;
+            }
+            if (type.includes(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -1,24 +1,49 @@
 package com.bookstore.bookstore.model;
 
+import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import jakarta.persistence.Column;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.ToString;
 import lombok.Data;
 
+/**
+ * A book of the catalog.
+ * The secondary indexes end with the ID so that lookups by author, title prefix,
+ * price range or availability are index range scans already in page order
+ * (see the keyset queries of {@code BookRepository}).
+ */
 @Entity
+@Table(name = "book", indexes = {
+    @Index(name = "idx_book_author", columnList = "author, id"),
+    @Index(name = "idx_book_title", columnList = "title, id"),
+    @Index(name = "idx_book_price", columnList = "price, id"),
+    @Index(name = "idx_book_available", columnList = "available, id")
+})
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 @ToString
 public class Book {
 
+    /** Pooled sequence ids let Hibernate batch inserts (IDENTITY forces one insert per statement). */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     
     @Column(nullable = false)
@@ -36,9 +61,73 @@ public class Book {
     @Column(nullable = false)
     private Integer stock;
     
-    @Column(columnDefinition = "TEXT")
-    private String description;
+    /**
+     * The description lives in its own table, out of the hot row: loading a book only
+     * reads the foreign key, and the text is fetched the first time it is accessed.
+     */
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "description_id")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private BookDescription descriptionText;
     
     @Column(nullable = false)
     private Boolean available = true;
+
+    public Book(Long id, String title, String author, String isbn, Double price, Integer stock,
+                String description, Boolean available) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.isbn = isbn;
+        this.price = price;
+        this.stock = stock;
+        setDescription(description);
+        this.available = available;
+    }
+
+    /**
+     * Sets the ID. Clearing it also clears the generated ID of the description, so
+     * a book whose insert was rolled back can be persisted again.
+     * @param id identifier of the book
+     */
+    public void setId(Long id) {
+        this.id = id;
+        if (id == null && descriptionText != null) {
+            descriptionText.setId(null);
+        }
+    }
+
+    /**
+     * Gets the description, loading it on first access.
+     * @return the description, or null if the book has none
+     */
+    @EqualsAndHashCode.Include
+    public String getDescription() {
+        return descriptionText == null ? null : descriptionText.getText();
+    }
+
+    /**
+     * Sets the description. A null description removes the stored one.
+     * @param description the new description
+     */
+    public void setDescription(String description) {
+        if (description == null) {
+            descriptionText = null;
+        } else if (descriptionText == null) {
+            descriptionText = new BookDescription(description);
+        } else {
+            descriptionText.setText(description);
+        }
+    }
+
+    /**
+     * Creates a detached copy of this book.
+     * @return a new instance with the same field values
+     */
+    public Book copy() {
+        return new Book(id, title, author, isbn, price, stock, getDescription(), available);
+    }
 }
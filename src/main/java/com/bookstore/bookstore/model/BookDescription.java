@@ -0,0 +1,59 @@
+package com.bookstore.bookstore.model;
+
+import com.bookstore.bookstore.codec.CompressedTextConverter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+/**
+ * Description of a book, stored apart from the book row.
+ * The text is kept as bytes, compressed when it is long enough to be worth it
+ * (see {@link CompressedTextConverter}). Only reachable through {@link Book}; accessors
+ * are public so that Hibernate's lazy proxy can intercept them.
+ */
+@Entity
+@Table(name = "book_description")
+public class BookDescription {
+
+    /** Largest stored description, in bytes after compression. */
+    public static final int MAX_CONTENT_BYTES = 16 * 1024 * 1024;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_description_seq")
+    @SequenceGenerator(name = "book_description_seq", sequenceName = "book_description_seq",
+            allocationSize = Book.ID_ALLOCATION_SIZE)
+    private Long id;
+
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "content", nullable = false, length = MAX_CONTENT_BYTES)
+    private String text;
+
+    protected BookDescription() {
+    }
+
+    BookDescription(String text) {
+        this.text = text;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
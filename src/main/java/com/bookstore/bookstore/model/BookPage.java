@@ -0,0 +1,103 @@
+package com.bookstore.bookstore.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A single page of books obtained with keyset (seek) pagination.
+ * Books are ordered by ascending ID, so a page is identified by the last ID of
+ * the previous page, encoded as an opaque page token. Lookups ordered by another
+ * column (title, price) use a token that also carries the last value of that column.
+ *
+ * @param books books of the current page
+ * @param nextPageToken token to request the next page, or null if this is the last page
+ */
+public record BookPage(List<Book> books, String nextPageToken) {
+
+    private static final String TOKEN_PREFIX = "id:";
+    private static final String KEYSET_TOKEN_PREFIX = "key:";
+
+    /**
+     * Position of a page ordered by a sort key and then by ID.
+     * @param key sort key of the last book of the previous page
+     * @param lastId ID of the last book of the previous page
+     */
+    public record Keyset(String key, long lastId) {
+    }
+
+    /**
+     * Checks whether there are more books after this page.
+     * @return true if a next page exists
+     */
+    public boolean hasNext() {
+        return nextPageToken != null;
+    }
+
+    /**
+     * Encodes the last ID of a page as an opaque page token.
+     * @param lastId ID of the last book of the page
+     * @return the page token
+     */
+    public static String encodeToken(long lastId) {
+        byte[] raw = (TOKEN_PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Decodes a page token into the ID after which the page starts.
+     * @param token page token, or null/blank for the first page
+     * @return the ID to seek after (0 for the first page)
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static long decodeToken(String token) {
+        if (token == null || token.isBlank()) {
+            return 0L;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!raw.startsWith(TOKEN_PREFIX)) {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+            return Long.parseLong(raw.substring(TOKEN_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException and Base64 errors are both IllegalArgumentExceptions
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+
+    /**
+     * Encodes the sort key and ID of the last book of a page as an opaque page token.
+     * @param key sort key of the last book of the page
+     * @param lastId ID of the last book of the page
+     * @return the page token
+     */
+    public static String encodeToken(String key, long lastId) {
+        // The ID goes first: it never contains the separator, the key might
+        byte[] raw = (KEYSET_TOKEN_PREFIX + lastId + ":" + key).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Decodes a page token created by {@link #encodeToken(String, long)}.
+     * @param token page token, or null/blank for the first page
+     * @return the position to seek after, or null for the first page
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static Keyset decodeKeysetToken(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':', KEYSET_TOKEN_PREFIX.length());
+            if (!raw.startsWith(KEYSET_TOKEN_PREFIX) || separator < 0) {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+            return new Keyset(raw.substring(separator + 1),
+                    Long.parseLong(raw.substring(KEYSET_TOKEN_PREFIX.length(), separator)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.bookstore.bookstore.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A partial update of a book: only the non-null fields are changed.
+ *
+ * @param title new title, or null to keep it
+ * @param author new author, or null to keep it
+ * @param isbn new ISBN, or null to keep it
+ * @param price new price, or null to keep it
+ * @param stock new stock, or null to keep it
+ * @param description new description, or null to keep it
+ * @param available new availability, or null to keep it
+ */
+public record BookPatch(String title, String author, String isbn, Double price, Integer stock,
+                        String description, Boolean available) {
+
+    /**
+     * Checks whether the patch changes anything.
+     * @return true if every field is null
+     */
+    public boolean isEmpty() {
+        return changes().isEmpty();
+    }
+
+    /**
+     * Gets the changed fields.
+     * @return field name to new value, in declaration order
+     */
+    public Map<String, Object> changes() {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        putIfPresent(changes, "title", title);
+        putIfPresent(changes, "author", author);
+        putIfPresent(changes, "isbn", isbn);
+        putIfPresent(changes, "price", price);
+        putIfPresent(changes, "stock", stock);
+        putIfPresent(changes, "description", description);
+        putIfPresent(changes, "available", available);
+        return changes;
+    }
+
+    private static void putIfPresent(Map<String, Object> changes, String field, Object value) {
+        if (value != null) {
+            changes.put(field, value);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.bookstore.bookstore.model;
+
+/**
+ * Read-only list view of a book: every column except the description.
+ * Loaded with a JPQL constructor expression, so listing the catalog neither reads
+ * the description TEXT column nor creates managed entities with dirty-checking
+ * snapshots. Load the full {@link Book} only for detail views.
+ *
+ * @param id identifier of the book
+ * @param title title
+ * @param author author
+ * @param isbn ISBN
+ * @param price price
+ * @param stock units in stock
+ * @param available whether the book can be sold
+ */
+public record BookSummary(Long id, String title, String author, String isbn,
+                          Double price, Integer stock, Boolean available) {
+
+    /**
+     * Creates the summary of a loaded book.
+     * @param book the book
+     * @return its summary
+     */
+    public static BookSummary of(Book book) {
+        return new BookSummary(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+                book.getPrice(), book.getStock(), book.getAvailable());
+    }
+}
@@ -0,0 +1,32 @@
+package com.bookstore.bookstore.model;
+
+/**
+ * One item of a batch write.
+ *
+ * @param type kind of write
+ * @param id identifier of the book to change (ignored for creates)
+ * @param book book data for creates and full updates
+ * @param patch changed fields for partial updates
+ */
+public record BookWriteOperation(Type type, Long id, Book book, BookPatch patch) {
+
+    public enum Type {
+        CREATE, UPDATE, PATCH, DELETE
+    }
+
+    public static BookWriteOperation create(Book book) {
+        return new BookWriteOperation(Type.CREATE, null, book, null);
+    }
+
+    public static BookWriteOperation update(Long id, Book book) {
+        return new BookWriteOperation(Type.UPDATE, id, book, null);
+    }
+
+    public static BookWriteOperation patch(Long id, BookPatch patch) {
+        return new BookWriteOperation(Type.PATCH, id, null, patch);
+    }
+
+    public static BookWriteOperation delete(Long id) {
+        return new BookWriteOperation(Type.DELETE, id, null, null);
+    }
+}
@@ -0,0 +1,24 @@
+package com.bookstore.bookstore.model;
+
+/**
+ * Outcome of one item of a batch write.
+ *
+ * @param index 0-based position of the operation in the batch
+ * @param status what happened to the operation
+ * @param id identifier of the affected book (the generated one for creates), if known
+ * @param message reason of the failure, null on success
+ */
+public record BookWriteResult(int index, Status status, Long id, String message) {
+
+    public enum Status {
+        CREATED, UPDATED, DELETED, NOT_FOUND, INVALID, CONFLICT, FAILED
+    }
+
+    /**
+     * Checks whether the operation was applied.
+     * @return true for created, updated and deleted books
+     */
+    public boolean succeeded() {
+        return status == Status.CREATED || status == Status.UPDATED || status == Status.DELETED;
+    }
+}
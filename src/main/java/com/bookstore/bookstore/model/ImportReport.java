@@ -0,0 +1,39 @@
+package com.bookstore.bookstore.model;
+
+import java.util.List;
+
+/**
+ * Result of a bulk import: how many rows were stored and which ones were rejected.
+ *
+ * @param imported number of books stored
+ * @param errors rejected rows, in input order
+ * @param elapsedMillis wall-clock duration of the import
+ */
+public record ImportReport(long imported, List<RowError> errors, long elapsedMillis) {
+
+    /**
+     * A rejected input row.
+     *
+     * @param row 1-based position of the row in the input (data rows, header excluded)
+     * @param isbn ISBN of the row, if it could be read
+     * @param message reason of the rejection
+     */
+    public record RowError(long row, String isbn, String message) {
+    }
+
+    /**
+     * Gets the number of rejected rows.
+     * @return number of errors
+     */
+    public int failed() {
+        return errors.size();
+    }
+
+    /**
+     * Gets the import throughput.
+     * @return stored rows per second
+     */
+    public double rowsPerSecond() {
+        return elapsedMillis == 0 ? imported * 1000.0 : imported * 1000.0 / elapsedMillis;
+    }
+}
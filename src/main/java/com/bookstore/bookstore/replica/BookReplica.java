@@ -0,0 +1,232 @@
+package com.bookstore.bookstore.replica;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * One read replica of the book catalog: an in-memory H2 database holding copies of
+ * the book and book_description tables, kept up to date by the {@link ReplicaFeeder}.
+ *
+ * <p>Changes are applied by state, not by replaying statements: for every changed book
+ * the current row is read from the primary and merged (or deleted) here, so applying a
+ * change twice or out of order converges to the primary. The replica tables have no
+ * unique or foreign key constraints for the same reason; the primary enforces them.
+ *
+ * <p>The replica has applied every change of the feed up to {@link #appliedSequence()}.
+ */
+final class BookReplica implements AutoCloseable {
+
+    private static final String BOOK_COLUMNS = "b.id, b.title, b.author, b.isbn, b.price, b.stock, b.available, "
+            + "b.description_id, d.content";
+    private static final String BOOK_FROM = " FROM book b LEFT JOIN book_description d ON d.id = b.description_id";
+
+    private static final RowMapper<BookRow> ROW_MAPPER = (rs, rowNum) -> new BookRow(rs.getLong(1), rs.getString(2),
+            rs.getString(3), rs.getString(4), rs.getDouble(5), rs.getInt(6), rs.getBoolean(7),
+            rs.getObject(8, Long.class), rs.getBytes(9));
+
+    private final String name;
+    private final HikariDataSource dataSource;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final LongAdder reads = new LongAdder();
+
+    private volatile boolean ready;
+    private volatile long appliedSequence;
+    /** Commit time of the oldest change not applied yet, 0 when the replica is caught up. */
+    private volatile long behindSinceMillis;
+
+    /**
+     * Creates the replica database. It is not ready for reads until the first {@link #copyFrom}.
+     * @param name name of the replica, also its routing key
+     * @param url JDBC URL of the in-memory H2 database
+     */
+    BookReplica(String name, String url) {
+        this.name = name;
+        this.dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username("sa")
+                .password("")
+                .build();
+        this.dataSource.setPoolName(name);
+        this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    /**
+     * A book row of the primary, with the content of its description.
+     */
+    private record BookRow(long id, String title, String author, String isbn, double price, int stock,
+                           boolean available, Long descriptionId, byte[] content) {
+    }
+
+    String name() {
+        return name;
+    }
+
+    HikariDataSource dataSource() {
+        return dataSource;
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    long appliedSequence() {
+        return appliedSequence;
+    }
+
+    long behindSinceMillis() {
+        return behindSinceMillis;
+    }
+
+    long reads() {
+        return reads.sum();
+    }
+
+    void countRead() {
+        reads.increment();
+    }
+
+    /**
+     * Takes the replica out of the routing until it is copied again.
+     */
+    void markStale() {
+        ready = false;
+    }
+
+    /**
+     * Records that changes up to a sequence are applied.
+     * @param sequence last applied sequence
+     * @param pendingSinceMillis commit time of the oldest change still to apply, or 0 if none
+     */
+    void applied(long sequence, long pendingSinceMillis) {
+        appliedSequence = sequence;
+        behindSinceMillis = pendingSinceMillis;
+    }
+
+    /**
+     * Records that the replica is behind since a change committed at the given time.
+     * @param pendingSinceMillis commit time of the oldest change not applied yet
+     */
+    void behindSince(long pendingSinceMillis) {
+        if (behindSinceMillis == 0) {
+            behindSinceMillis = pendingSinceMillis;
+        }
+    }
+
+    /**
+     * Recreates the replica tables and copies the whole catalog from the primary.
+     * The copy reflects at least every change up to {@code sequence}; later changes are
+     * reapplied from the feed.
+     * @param primary the primary database
+     * @param sequence last feed sequence committed before the copy started
+     * @param pageSize rows copied per statement
+     */
+    void copyFrom(NamedParameterJdbcTemplate primary, long sequence, int pageSize) {
+        ready = false;
+        recreateSchema();
+        long afterId = 0L;
+        List<BookRow> page;
+        do {
+            page = primary.query("SELECT " + BOOK_COLUMNS + BOOK_FROM
+                            + " WHERE b.id > :afterId ORDER BY b.id LIMIT :limit",
+                    Map.of("afterId", afterId, "limit", pageSize), ROW_MAPPER);
+            if (!page.isEmpty()) {
+                List<BookRow> rows = page;
+                transactionTemplate.executeWithoutResult(status -> merge(rows));
+                afterId = page.get(page.size() - 1).id();
+            }
+        } while (page.size() == pageSize);
+        applied(sequence, 0L);
+        ready = true;
+    }
+
+    /**
+     * Brings the given books up to date with the primary.
+     * @param ids identifiers of the changed books
+     * @param primary the primary database
+     */
+    void apply(Collection<Long> ids, NamedParameterJdbcTemplate primary) {
+        // One statement, so a book and its description are read from the same committed state
+        List<BookRow> rows = primary.query("SELECT " + BOOK_COLUMNS + BOOK_FROM + " WHERE b.id IN (:ids)",
+                Map.of("ids", ids), ROW_MAPPER);
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Long> staleDescriptions = new HashSet<>(jdbc.queryForList(
+                    "SELECT description_id FROM book WHERE id IN (:ids) AND description_id IS NOT NULL",
+                    Map.of("ids", ids), Long.class));
+            Set<Long> deleted = new HashSet<>(ids);
+            for (BookRow row : rows) {
+                deleted.remove(row.id());
+                if (row.descriptionId() != null) {
+                    staleDescriptions.remove(row.descriptionId());
+                }
+            }
+            merge(rows);
+            if (!deleted.isEmpty()) {
+                jdbc.update("DELETE FROM book WHERE id IN (:ids)", Map.of("ids", deleted));
+            }
+            if (!staleDescriptions.isEmpty()) {
+                jdbc.update("DELETE FROM book_description WHERE id IN (:ids)", Map.of("ids", staleDescriptions));
+            }
+        });
+    }
+
+    private void recreateSchema() {
+        JdbcTemplate ddl = jdbc.getJdbcTemplate();
+        ddl.execute("DROP ALL OBJECTS");
+        ddl.execute("CREATE TABLE book_description (id BIGINT PRIMARY KEY, content VARBINARY NOT NULL)");
+        ddl.execute("CREATE TABLE book (id BIGINT PRIMARY KEY, title VARCHAR(255) NOT NULL, "
+                + "author VARCHAR(255) NOT NULL, isbn VARCHAR(255) NOT NULL, price DOUBLE PRECISION NOT NULL, "
+                + "stock INTEGER NOT NULL, available BOOLEAN NOT NULL, description_id BIGINT)");
+        // Same secondary indexes as the primary (see Book), so lookups stay index range scans
+        ddl.execute("CREATE INDEX idx_book_isbn ON book (isbn)");
+        ddl.execute("CREATE INDEX idx_book_author ON book (author, id)");
+        ddl.execute("CREATE INDEX idx_book_title ON book (title, id)");
+        ddl.execute("CREATE INDEX idx_book_price ON book (price, id)");
+        ddl.execute("CREATE INDEX idx_book_available ON book (available, id)");
+    }
+
+    private void merge(List<BookRow> rows) {
+        List<Object[]> books = new ArrayList<>(rows.size());
+        List<Object[]> descriptions = new ArrayList<>();
+        for (BookRow row : rows) {
+            books.add(new Object[]{row.id(), row.title(), row.author(), row.isbn(), row.price(), row.stock(),
+                    row.available(), row.descriptionId()});
+            if (row.descriptionId() != null && row.content() != null) {
+                descriptions.add(new Object[]{row.descriptionId(), row.content()});
+            }
+        }
+        if (!descriptions.isEmpty()) {
+            jdbc.getJdbcTemplate().batchUpdate("MERGE INTO book_description (id, content) KEY (id) VALUES (?, ?)",
+                    descriptions);
+        }
+        jdbc.getJdbcTemplate().batchUpdate("MERGE INTO book (id, title, author, isbn, price, stock, available, "
+                + "description_id) KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", books);
+    }
+
+    @Override
+    public void close() {
+        ready = false;
+        try {
+            // The database is kept open without connections (DB_CLOSE_DELAY=-1): drop it explicitly
+            jdbc.getJdbcTemplate().execute("SHUTDOWN");
+        } finally {
+            dataSource.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.bookstore.bookstore.replica;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The read replicas of this node and the lag rules that decide whether one can serve a read.
+ * A replica is eligible when it is ready, has applied the changes the caller must see,
+ * and is within both lag bounds: at most {@code maxLagChanges} feed changes behind the
+ * primary, and no unapplied change older than {@code maxLagMillis}. Eligible replicas
+ * are taken in turn.
+ */
+public class BookReplicas implements AutoCloseable {
+
+    private final List<BookReplica> replicas;
+    private final long maxLagChanges;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Creates the replica databases, empty until the {@link ReplicaFeeder} copies the catalog.
+     * @param count number of replicas
+     * @param maxLagChanges largest number of unapplied changes of a replica that serves reads
+     * @param maxLagMillis largest age of the oldest unapplied change of a replica that serves reads
+     */
+    public BookReplicas(int count, long maxLagChanges, long maxLagMillis) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Replica count must be greater than 0");
+        }
+        if (maxLagChanges < 0 || maxLagMillis < 0) {
+            throw new IllegalArgumentException("Replica lag bounds cannot be negative");
+        }
+        // Unique names: several application contexts can run in the same JVM (tests, benchmarks)
+        String instance = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        List<BookReplica> created = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            String name = "replica-" + i;
+            created.add(new BookReplica(name, "jdbc:h2:mem:bookstore-" + name + "-" + instance + ";DB_CLOSE_DELAY=-1"));
+        }
+        this.replicas = List.copyOf(created);
+        this.maxLagChanges = maxLagChanges;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    List<BookReplica> all() {
+        return replicas;
+    }
+
+    /**
+     * Picks a replica for a read.
+     * @param headSequence last sequence of the change feed
+     * @param minSequence sequence the replica must have applied (read-your-writes)
+     * @return an eligible replica, or null if the read must go to the primary
+     */
+    BookReplica pick(long headSequence, long minSequence) {
+        long now = System.currentTimeMillis();
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            BookReplica replica = replicas.get((start + i) % replicas.size());
+            if (eligible(replica, headSequence, minSequence, now)) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private boolean eligible(BookReplica replica, long headSequence, long minSequence, long now) {
+        if (!replica.isReady()) {
+            return false;
+        }
+        long applied = replica.appliedSequence();
+        long behindSince = replica.behindSinceMillis();
+        return applied >= minSequence
+                && headSequence - applied <= maxLagChanges
+                && (behindSince == 0 || now - behindSince <= maxLagMillis);
+    }
+
+    /**
+     * Gets the state of every replica.
+     * @param headSequence last sequence of the change feed
+     * @return one entry per replica
+     */
+    List<ReplicaStats.Replica> stats(long headSequence) {
+        long now = System.currentTimeMillis();
+        return replicas.stream()
+                .map(replica -> new ReplicaStats.Replica(replica.name(), replica.isReady(), replica.appliedSequence(),
+                        Math.max(0, headSequence - replica.appliedSequence()),
+                        replica.behindSinceMillis() == 0 ? 0 : now - replica.behindSinceMillis(),
+                        replica.reads()))
+                .toList();
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(BookReplica::close);
+    }
+}
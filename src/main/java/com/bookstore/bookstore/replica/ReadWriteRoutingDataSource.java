@@ -0,0 +1,41 @@
+package com.bookstore.bookstore.replica;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Data source that opens each connection on the primary or on a replica, as chosen by
+ * {@link ReplicaRouting}. The choice depends on the transaction, so it must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the
+ * transaction manager asks for the connection before the read-only flag is set.
+ */
+class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaRouting routing;
+
+    /**
+     * Creates the routing data source.
+     * @param primary the primary database
+     * @param replicas the read replicas
+     * @param routing the routing decisions
+     */
+    ReadWriteRoutingDataSource(DataSource primary, BookReplicas replicas, ReplicaRouting routing) {
+        this.routing = routing;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRouting.PRIMARY, primary);
+        replicas.all().forEach(replica -> targets.put(replica.name(), replica.dataSource()));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return routing.route();
+    }
+}
@@ -0,0 +1,57 @@
+package com.bookstore.bookstore.replica;
+
+import java.io.IOException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Read-your-writes across requests: a request carrying the X-Catalog-Sequence header
+ * (a change feed cursor) returned by an earlier write only reads from replicas that
+ * have applied that change. A malformed header is rejected with 400.
+ * The routing state of the request thread is dropped when the request ends.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.replica.enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final ReplicaRouting routing;
+
+    /**
+     * Constructor for dependency injection.
+     * @param routing the routing decisions
+     */
+    public ReadYourWritesFilter(ReplicaRouting routing) {
+        this.routing = routing;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String sequence = request.getHeader(ReplicaRouting.SEQUENCE_HEADER);
+        try {
+            if (sequence != null) {
+                try {
+                    routing.requireCursor(sequence);
+                } catch (IllegalArgumentException e) {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid " + ReplicaRouting.SEQUENCE_HEADER);
+                    return;
+                }
+            }
+            chain.doFilter(request, response);
+        } finally {
+            routing.clearContext();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.bookstore.bookstore.replica;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Read/write splitting, enabled with {@code bookstore.replica.enabled}.
+ * Replaces the auto-configured data source: the {@code spring.datasource} pool becomes
+ * the primary, and the data source used by JPA and JDBC routes each connection to the
+ * primary or to one of the in-memory replicas.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bookstore.replica.enabled", havingValue = "true")
+public class ReplicaConfiguration {
+
+    /**
+     * The primary database, configured as the auto-configured pool would be.
+     * @param properties the {@code spring.datasource} properties
+     * @return the primary connection pool
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * The replica databases, empty until the {@link ReplicaFeeder} copies the catalog.
+     * @param count number of replicas
+     * @param maxLagChanges largest number of unapplied changes of a replica that serves reads
+     * @param maxLagMillis largest age of the oldest unapplied change of a replica that serves reads
+     * @return the replicas
+     */
+    @Bean(destroyMethod = "close")
+    public BookReplicas bookReplicas(@Value("${bookstore.replica.count:2}") int count,
+                                     @Value("${bookstore.replica.max-lag-changes:100}") long maxLagChanges,
+                                     @Value("${bookstore.replica.max-lag-ms:1000}") long maxLagMillis) {
+        return new BookReplicas(count, maxLagChanges, maxLagMillis);
+    }
+
+    /**
+     * The data source of the application.
+     * @param primaryDataSource the primary database
+     * @param replicas the replica databases
+     * @param routing the routing decisions
+     * @return a data source that picks the database when a connection is first used
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, BookReplicas replicas, ReplicaRouting routing) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicas, routing));
+    }
+}
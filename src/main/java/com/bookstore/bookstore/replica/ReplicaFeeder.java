@@ -0,0 +1,148 @@
+package com.bookstore.bookstore.replica;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.bookstore.bookstore.service.feed.BookChange;
+import com.bookstore.bookstore.service.feed.ChangeBatch;
+import com.bookstore.bookstore.service.feed.ChangeFeed;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the replicas up to date from the {@link ChangeFeed} of the primary.
+ * Once the application is ready, one thread per replica copies the catalog and then
+ * tails the feed, applying each batch of changes in a single replica transaction.
+ * A replica that falls out of the feed's retention, or fails to apply a batch, leaves
+ * the routing and is copied again.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.replica.enabled", havingValue = "true")
+public class ReplicaFeeder {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaFeeder.class);
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final BookReplicas replicas;
+    private final ChangeFeed changeFeed;
+    private final NamedParameterJdbcTemplate primary;
+    private final int batchSize;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * Constructor for dependency injection.
+     * @param replicas the replicas to feed
+     * @param changeFeed feed of committed book changes
+     * @param primaryDataSource the primary database, read directly (never through the routing)
+     * @param batchSize changes applied per replica transaction, also rows per statement of a copy
+     */
+    public ReplicaFeeder(BookReplicas replicas,
+                         ChangeFeed changeFeed,
+                         HikariDataSource primaryDataSource,
+                         @Value("${bookstore.replica.batch-size:500}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Replica batch size must be greater than 0");
+        }
+        this.replicas = replicas;
+        this.changeFeed = changeFeed;
+        this.primary = new NamedParameterJdbcTemplate(primaryDataSource);
+        this.batchSize = batchSize;
+    }
+
+    // After the startup runners: the schema and the data are final
+    @EventListener(ApplicationReadyEvent.class)
+    synchronized void start() {
+        if (!threads.isEmpty()) {
+            return;
+        }
+        for (BookReplica replica : replicas.all()) {
+            threads.add(Thread.ofPlatform()
+                    .name("replica-feeder-" + replica.name())
+                    .daemon()
+                    .start(() -> feed(replica)));
+        }
+    }
+
+    @PreDestroy
+    synchronized void stop() throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            thread.join(RETRY_DELAY_MILLIS);
+        }
+    }
+
+    private void feed(BookReplica replica) {
+        while (running) {
+            try {
+                if (!replica.isReady()) {
+                    copy(replica);
+                }
+                ChangeBatch batch = changeFeed.awaitChangesSince(replica.appliedSequence(), batchSize, POLL_TIMEOUT);
+                if (batch.reset()) {
+                    log.info("Replica {} fell behind the change feed retention, copying the catalog again",
+                            replica.name());
+                    replica.markStale();
+                } else if (!batch.changes().isEmpty()) {
+                    apply(replica, batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Replica {} failed to apply changes, copying the catalog again", replica.name(), e);
+                replica.markStale();
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void copy(BookReplica replica) {
+        long started = System.nanoTime();
+        // Changes committed after this point are applied again from the feed
+        long sequence = changeFeed.lastSequence();
+        replica.copyFrom(primary, sequence, batchSize);
+        log.info("Replica {} copied the catalog at sequence {} in {} ms", replica.name(), sequence,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void apply(BookReplica replica, ChangeBatch batch) {
+        replica.behindSince(batch.changes().get(0).committedAt().toEpochMilli());
+        Set<Long> ids = new LinkedHashSet<>();
+        for (BookChange change : batch.changes()) {
+            ids.add(change.id());
+        }
+        replica.apply(ids, primary);
+
+        // Still behind if more changes were committed meanwhile
+        ChangeBatch next = changeFeed.changesSince(batch.lastSequence(), 1);
+        long pendingSince = next.changes().isEmpty() ? 0L : next.changes().get(0).committedAt().toEpochMilli();
+        replica.applied(batch.lastSequence(), pendingSince);
+    }
+}
@@ -0,0 +1,177 @@
+package com.bookstore.bookstore.replica;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+import com.bookstore.bookstore.service.feed.ChangeFeed;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Decides which database serves each connection: read-only transactions go to a
+ * replica that is within the lag bounds of {@link BookReplicas}, everything else
+ * (writes, and reads outside a read-only transaction) to the primary.
+ *
+ * <p>Read-your-writes: after a thread commits book changes, its reads only go to
+ * replicas that have applied them. HTTP clients get the change feed cursor of their
+ * last change in the X-Catalog-Sequence response header and can send it back on later
+ * requests (see {@link ReadYourWritesFilter}) to get the same guarantee across requests.
+ *
+ * <p>Responses with an ETag read the catalog version from the primary before the data,
+ * then call {@link #requireHead()}: their reads only go to replicas that have every change
+ * behind the tag, so a body is never older than its ETag.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.replica.enabled", havingValue = "true")
+public class ReplicaRouting {
+
+    static final String PRIMARY = "primary";
+    static final String SEQUENCE_HEADER = "X-Catalog-Sequence";
+
+    private final BookReplicas replicas;
+    private final ObjectProvider<ChangeFeed> changeFeedProvider;
+    private final ThreadLocal<ReadContext> context = ThreadLocal.withInitial(ReadContext::new);
+    private final LongAdder primaryWrites = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private volatile ChangeFeed changeFeed;
+
+    /**
+     * Constructor for dependency injection.
+     * @param replicas the read replicas
+     * @param changeFeedProvider change feed, resolved on first use (it needs the routed data source)
+     */
+    public ReplicaRouting(BookReplicas replicas, ObjectProvider<ChangeFeed> changeFeedProvider) {
+        this.replicas = replicas;
+        this.changeFeedProvider = changeFeedProvider;
+    }
+
+    /**
+     * Routing state of a thread.
+     */
+    private static final class ReadContext {
+        /** Feed sequence the reads of this thread must see. */
+        long minSequence;
+        /** Depth of nested {@link #onPrimary(Supplier)} calls. */
+        int pinned;
+    }
+
+    /**
+     * Chooses the database of a new connection.
+     * @return {@link #PRIMARY} or the name of a replica
+     */
+    String route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryWrites.increment();
+            return PRIMARY;
+        }
+        ReadContext current = context.get();
+        if (current.pinned == 0) {
+            BookReplica replica = replicas.pick(changeFeed().lastSequence(), current.minSequence);
+            if (replica != null) {
+                replica.countRead();
+                return replica.name();
+            }
+        }
+        primaryReads.increment();
+        return PRIMARY;
+    }
+
+    /**
+     * Runs a read on the primary database even inside a read-only transaction.
+     * Only affects connections acquired during the call: a transaction that already
+     * holds a connection keeps using it.
+     * @param read the read
+     * @return the result of the read
+     */
+    public <T> T onPrimary(Supplier<T> read) {
+        ReadContext current = context.get();
+        current.pinned++;
+        try {
+            return read.get();
+        } finally {
+            current.pinned--;
+        }
+    }
+
+    /**
+     * Makes the reads of the current thread see every change up to a feed sequence.
+     * @param sequence sequence of the last change the caller must see
+     */
+    public void requireSequence(long sequence) {
+        ReadContext current = context.get();
+        current.minSequence = Math.max(current.minSequence, sequence);
+    }
+
+    /**
+     * Makes the reads of the current thread see every change committed so far.
+     * Falls back to the primary while no replica has caught up with the head.
+     * @return the current head of the change feed, for reads made by another thread
+     */
+    public long requireHead() {
+        long head = changeFeed().lastSequence();
+        requireSequence(head);
+        return head;
+    }
+
+    /**
+     * Makes the reads of the current thread see every change up to a change feed cursor.
+     * A cursor from a previous run of the feed requires nothing: replicas copy the
+     * catalog when the application starts.
+     * @param cursor {@code epoch:sequence} of the last change the caller must see
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public void requireCursor(String cursor) {
+        long sequence = changeFeed().sequenceOf(cursor);
+        if (sequence > 0) {
+            requireSequence(sequence);
+        }
+    }
+
+    /**
+     * Forgets the routing state of the current thread, at the end of a request or of
+     * a task that required a sequence.
+     */
+    public void clearContext() {
+        context.remove();
+    }
+
+    /**
+     * Gets the routing counters and the state of the replicas.
+     * @return current stats
+     */
+    public ReplicaStats stats() {
+        long head = changeFeed().lastSequence();
+        return new ReplicaStats(head, primaryWrites.sum(), primaryReads.sum(), replicas.stats(head));
+    }
+
+    // Runs after the change feed listener, so the committed changes already have a sequence
+    @TransactionalEventListener(fallbackExecution = true)
+    void onBookChanged(BookChangedEvent event) {
+        long sequence = changeFeed().lastSequence();
+        requireSequence(sequence);
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletResponse response = attributes.getResponse();
+            if (response != null && !response.isCommitted()) {
+                response.setHeader(SEQUENCE_HEADER, changeFeed().cursor(context.get().minSequence));
+            }
+        }
+    }
+
+    private ChangeFeed changeFeed() {
+        ChangeFeed feed = changeFeed;
+        if (feed == null) {
+            feed = changeFeedProvider.getObject();
+            changeFeed = feed;
+        }
+        return feed;
+    }
+}
@@ -0,0 +1,28 @@
+package com.bookstore.bookstore.replica;
+
+import java.util.List;
+
+/**
+ * Snapshot of the read/write routing counters.
+ *
+ * @param headSequence last sequence of the change feed
+ * @param primaryWrites connections routed to the primary for read-write work
+ * @param primaryReads read-only connections routed to the primary (no replica eligible, or pinned)
+ * @param replicas state of each replica
+ */
+public record ReplicaStats(long headSequence, long primaryWrites, long primaryReads, List<Replica> replicas) {
+
+    /**
+     * State of one replica.
+     *
+     * @param name name of the replica
+     * @param ready whether the replica holds a copy of the catalog
+     * @param appliedSequence last change of the feed applied to the replica
+     * @param lagChanges changes of the feed not applied yet
+     * @param lagMillis age of the oldest change not applied yet
+     * @param reads read-only connections routed to the replica
+     */
+    public record Replica(String name, boolean ready, long appliedSequence, long lagChanges, long lagMillis,
+                          long reads) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.bookstore.bookstore.replica;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Exposes the read/write routing counters and the lag of each replica.
+ */
+@RestController
+@ConditionalOnProperty(name = "bookstore.replica.enabled", havingValue = "true")
+public class ReplicaStatsController {
+
+    private final ReplicaRouting routing;
+
+    public ReplicaStatsController(ReplicaRouting routing) {
+        this.routing = routing;
+    }
+
+    @GetMapping("/api/replicas/stats")
+    public ReplicaStats stats() {
+        return routing.stats();
+    }
+}
@@ -0,0 +1,225 @@
+package com.bookstore.bookstore.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.data.support.ExampleMatcherAccessor;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookSummary;
+
+/**
+ * Query by example for the storage engines that don't run JPA queries. The example
+ * becomes a predicate over the non-null properties of its probe, matched the way its
+ * {@link ExampleMatcher} says, and the engine filters a scan of its books with it.
+ * Property paths are the ones of the JPA mapping ({@code descriptionText.text} for the
+ * description), so the same matcher selects the same books on every engine.
+ */
+public final class BookExamples {
+
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+    private static final String DESCRIPTION = "descriptionText";
+
+    private static final List<Property> PROPERTIES = List.of(
+            new Property("id", Book::getId),
+            new Property("title", Book::getTitle),
+            new Property("author", Book::getAuthor),
+            new Property("isbn", Book::getIsbn),
+            new Property("price", Book::getPrice),
+            new Property("stock", Book::getStock),
+            new Property("available", Book::getAvailable),
+            new Property(DESCRIPTION + ".text", Book::getDescription));
+
+    private BookExamples() {
+    }
+
+    /**
+     * Builds the predicate of an example. Properties that are null in the probe are
+     * skipped, unless the matcher includes nulls; strings follow the string matcher and
+     * case sensitivity of their path, other values must be equal.
+     * @param example the example
+     * @return predicate accepting the books the example matches
+     */
+    public static Predicate<Book> predicate(Example<? extends Book> example) {
+        ExampleMatcherAccessor matcher = new ExampleMatcherAccessor(example.getMatcher());
+        Book probe = example.getProbe();
+        List<Predicate<Book>> predicates = new ArrayList<>();
+        for (Property property : PROPERTIES) {
+            if (matcher.isIgnoredPath(property.path())
+                    || (property.path().startsWith(DESCRIPTION) && matcher.isIgnoredPath(DESCRIPTION))) {
+                continue;
+            }
+            Optional<Object> value = matcher.getValueTransformerForPath(property.path())
+                    .apply(Optional.ofNullable(property.value().apply(probe)));
+            if (value.isEmpty()) {
+                if (matcher.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE) {
+                    predicates.add(book -> property.value().apply(book) == null);
+                }
+                continue;
+            }
+            predicates.add(matches(property, value.get(), matcher));
+        }
+        if (predicates.isEmpty()) {
+            return book -> true;
+        }
+        return example.getMatcher().isAllMatching()
+                ? book -> predicates.stream().allMatch(predicate -> predicate.test(book))
+                : book -> predicates.stream().anyMatch(predicate -> predicate.test(book));
+    }
+
+    /**
+     * Creates the fluent query of an example.
+     * @param search returns copies of the books the example matches, in the given order
+     * @return query whose results have the probe type
+     */
+    @SuppressWarnings("unchecked")
+    public static <S extends Book> FluentQuery.FetchableFluentQuery<S> query(Function<Sort, Stream<Book>> search) {
+        return new ExampleQuery<>(search, Sort.unsorted(), 0, book -> (S) book);
+    }
+
+    private static Predicate<Book> matches(Property property, Object expected, ExampleMatcherAccessor matcher) {
+        if (!(expected instanceof String text)) {
+            return book -> expected.equals(property.value().apply(book));
+        }
+        boolean ignoreCase = matcher.isIgnoreCaseForPath(property.path());
+        String probe = ignoreCase ? text.toLowerCase(Locale.ROOT) : text;
+        Predicate<String> test = switch (matcher.getStringMatcherForPath(property.path())) {
+            case DEFAULT, EXACT -> probe::equals;
+            case STARTING -> value -> value.startsWith(probe);
+            case ENDING -> value -> value.endsWith(probe);
+            case CONTAINING -> value -> value.contains(probe);
+            case REGEX -> Pattern.compile(text, ignoreCase ? Pattern.CASE_INSENSITIVE : 0).asMatchPredicate();
+        };
+        return book -> {
+            Object value = property.value().apply(book);
+            if (!(value instanceof String string)) {
+                return false;
+            }
+            return test.test(ignoreCase ? string.toLowerCase(Locale.ROOT) : string);
+        };
+    }
+
+    private record Property(String path, Function<Book, Object> value) {
+    }
+
+    /**
+     * Fluent query over the books an example matches. Every book is loaded whole, so
+     * property selections are accepted and have no effect.
+     */
+    private static final class ExampleQuery<T> implements FluentQuery.FetchableFluentQuery<T> {
+
+        private final Function<Sort, Stream<Book>> search;
+        private final Sort sort;
+        private final int limit;
+        private final Function<Book, T> mapping;
+
+        ExampleQuery(Function<Sort, Stream<Book>> search, Sort sort, int limit, Function<Book, T> mapping) {
+            this.search = search;
+            this.sort = sort;
+            this.limit = limit;
+            this.mapping = mapping;
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<T> sortBy(Sort sort) {
+            return new ExampleQuery<>(search, this.sort.and(Objects.requireNonNull(sort, "Sort must not be null")),
+                    limit, mapping);
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<T> limit(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Limit must not be negative");
+            }
+            return new ExampleQuery<>(search, sort, limit, mapping);
+        }
+
+        @Override
+        public <R> FluentQuery.FetchableFluentQuery<R> as(Class<R> resultType) {
+            Function<Book, R> as;
+            if (resultType.isAssignableFrom(Book.class)) {
+                as = resultType::cast;
+            } else if (resultType == BookSummary.class) {
+                as = book -> resultType.cast(BookSummary.of(book));
+            } else if (resultType.isInterface()) {
+                as = book -> PROJECTIONS.createProjection(resultType, book);
+            } else {
+                throw new IllegalArgumentException("Cannot read books as " + resultType.getName());
+            }
+            return new ExampleQuery<>(search, sort, limit, as);
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<T> project(Collection<String> properties) {
+            return this;
+        }
+
+        @Override
+        public T oneValue() {
+            List<T> found = stream().limit(2).toList();
+            if (found.size() > 1) {
+                throw new IncorrectResultSizeDataAccessException(1, found.size());
+            }
+            return found.isEmpty() ? null : found.get(0);
+        }
+
+        @Override
+        public T firstValue() {
+            return stream().findFirst().orElse(null);
+        }
+
+        @Override
+        public List<T> all() {
+            return stream().toList();
+        }
+
+        @Override
+        public Page<T> page(Pageable pageable) {
+            if (pageable.isUnpaged()) {
+                return new PageImpl<>(all());
+            }
+            List<T> content = search.apply(sort.and(pageable.getSort()))
+                    .skip(pageable.getOffset())
+                    .limit(pageable.getPageSize())
+                    .map(mapping)
+                    .toList();
+            return PageableExecutionUtils.getPage(content, pageable, this::count);
+        }
+
+        @Override
+        public Stream<T> stream() {
+            Stream<Book> books = search.apply(sort);
+            return (limit > 0 ? books.limit(limit) : books).map(mapping);
+        }
+
+        @Override
+        public long count() {
+            return search.apply(Sort.unsorted()).count();
+        }
+
+        @Override
+        public boolean exists() {
+            return search.apply(Sort.unsorted()).findAny().isPresent();
+        }
+    }
+}
@@ -1,9 +1,246 @@
 package com.bookstore.bookstore.repository;
 
 import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookSummary;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
+
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
+
+    /**
+     * Keyset page of the books of an author, in ID order. Range scan of {@code idx_book_author}.
+     */
+    String AUTHOR_PAGE_SQL = "SELECT * FROM book WHERE author = :author AND id > :afterId ORDER BY id";
+
+    /**
+     * Keyset page of the books whose title is in [afterTitle, titleEnd), in (title, ID) order.
+     * Range scan of {@code idx_book_title}; the first page starts at the prefix with ID 0.
+     */
+    String TITLE_PAGE_SQL = "SELECT * FROM book WHERE title >= :afterTitle AND title < :titleEnd "
+            + "AND (title > :afterTitle OR id > :afterId) ORDER BY title, id";
+
+    /**
+     * Keyset page of the books whose price is in [afterPrice, maxPrice], in (price, ID) order.
+     * Range scan of {@code idx_book_price}; the first page starts at the minimum price with ID 0.
+     */
+    String PRICE_PAGE_SQL = "SELECT * FROM book WHERE price >= :afterPrice AND price <= :maxPrice "
+            + "AND (price > :afterPrice OR id > :afterId) ORDER BY price, id";
+
+    /**
+     * Keyset page of the available (or unavailable) books, in ID order. Range scan of {@code idx_book_available}.
+     */
+    String AVAILABILITY_PAGE_SQL = "SELECT * FROM book WHERE available = :available AND id > :afterId ORDER BY id";
+
+    /**
+     * Keyset page of the available books with stock left, in ID order. Range scan of
+     * {@code idx_book_available}, the stock is checked on the rows it returns.
+     */
+    String IN_STOCK_PAGE_SQL = "SELECT * FROM book WHERE available = TRUE AND stock > 0 AND id > :afterId ORDER BY id";
+
+    /**
+     * Keyset pagination: returns the books whose ID is greater than the given one,
+     * ordered by ID so that pages are stable while the catalog changes.
+     * Descriptions are fetched in the same query.
+     * @param afterId ID of the last book of the previous page (0 for the first page)
+     * @param limit maximum number of books to return
+     * @return the next books in ID order
+     */
+    @EntityGraph(attributePaths = "descriptionText")
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    /**
+     * Keyset pagination over the books of an author.
+     * The queries of the secondary lookups are plain SQL so that their plans can be checked with EXPLAIN.
+     * @param author exact author name
+     * @param afterId ID of the last book of the previous page (0 for the first page)
+     * @param limit maximum number of books to return
+     * @return the next books of the author in ID order
+     */
+    @Query(value = AUTHOR_PAGE_SQL, nativeQuery = true)
+    List<Book> findByAuthorAfter(@Param("author") String author, @Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Keyset pagination over the books whose title is in a range, usually the titles
+     * starting with a prefix (case-sensitive).
+     * @param afterTitle title of the last book of the previous page, or the prefix for the first page
+     * @param titleEnd exclusive upper bound of the titles
+     * @param afterId ID of the last book of the previous page (0 for the first page)
+     * @param limit maximum number of books to return
+     * @return the next books in (title, ID) order
+     */
+    @Query(value = TITLE_PAGE_SQL, nativeQuery = true)
+    List<Book> findByTitleRangeAfter(@Param("afterTitle") String afterTitle, @Param("titleEnd") String titleEnd,
+                                     @Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Keyset pagination over the books in a price range.
+     * @param afterPrice price of the last book of the previous page, or the minimum price for the first page
+     * @param maxPrice inclusive maximum price
+     * @param afterId ID of the last book of the previous page (0 for the first page)
+     * @param limit maximum number of books to return
+     * @return the next books in (price, ID) order
+     */
+    @Query(value = PRICE_PAGE_SQL, nativeQuery = true)
+    List<Book> findByPriceRangeAfter(@Param("afterPrice") double afterPrice, @Param("maxPrice") double maxPrice,
+                                     @Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Keyset pagination over the books with the given availability.
+     * @param available availability flag to match
+     * @param afterId ID of the last book of the previous page (0 for the first page)
+     * @param limit maximum number of books to return
+     * @return the next matching books in ID order
+     */
+    @Query(value = AVAILABILITY_PAGE_SQL, nativeQuery = true)
+    List<Book> findByAvailableAfter(@Param("available") boolean available, @Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Keyset pagination over the available books with stock left.
+     * @param afterId ID of the last book of the previous page (0 for the first page)
+     * @param limit maximum number of books to return
+     * @return the next books in stock in ID order
+     */
+    @Query(value = IN_STOCK_PAGE_SQL, nativeQuery = true)
+    List<Book> findInStockAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Loads a book together with its description, for detail views.
+     * Plain {@link #findById(Object)} leaves the description to be loaded on first access.
+     * @param id identifier of the book
+     * @return the book, if it exists
+     */
+    @EntityGraph(attributePaths = "descriptionText")
+    Optional<Book> findWithDescriptionById(Long id);
+
+    /**
+     * Loads several books together with their descriptions in a single query.
+     * @param ids identifiers of the books
+     * @return the found books, in no particular order
+     */
+    @EntityGraph(attributePaths = "descriptionText")
+    List<Book> findWithDescriptionByIdIn(Collection<Long> ids);
+
+    /**
+     * Keyset pagination over book summaries: same ordering as
+     * {@link #findByIdGreaterThanOrderByIdAsc(Long, Limit)}, but only the list columns
+     * are selected and no entities are created.
+     * @param afterId ID of the last book of the previous page (0 for the first page)
+     * @param limit maximum number of books to return
+     * @return the next book summaries in ID order
+     */
+    @Query("select new com.bookstore.bookstore.model.BookSummary(b.id, b.title, b.author, b.isbn, b.price, b.stock, b.available) "
+            + "from Book b where b.id > :afterId order by b.id")
+    List<BookSummary> findSummariesByIdGreaterThan(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Loads the list columns of a single book, without creating an entity.
+     * @param id identifier of the book
+     * @return the book summary, if the book exists
+     */
+    @Query("select new com.bookstore.bookstore.model.BookSummary(b.id, b.title, b.author, b.isbn, b.price, b.stock, b.available) "
+            + "from Book b where b.id = :id")
+    Optional<BookSummary> findSummaryById(@Param("id") Long id);
+
+    /**
+     * Streams the whole catalog ordered by ID through a server-side cursor.
+     * Entities are loaded read-only (no dirty-checking snapshots) and fetched
+     * from the driver in chunks, descriptions joined in the same query.
+     * Must be consumed inside a transaction and closed.
+     * @return a lazily populated stream of books
+     */
+    @Query("select b from Book b left join fetch b.descriptionText order by b.id")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    Stream<Book> streamAllByOrderByIdAsc();
+
+    /**
+     * Returns which of the given ISBNs are already stored.
+     * @param isbns ISBNs to check
+     * @return the subset of ISBNs that already exist
+     */
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    @EntityGraph(attributePaths = "descriptionText")
+    Optional<Book> findByIsbn(String isbn);
+
+    /**
+     * Streams the (id, isbn) pairs of the whole catalog without loading entities.
+     * Must be consumed inside a transaction and closed.
+     * @return stream of two-element arrays: Long id, String isbn
+     */
+    @Query("select b.id, b.isbn from Book b")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamIdsAndIsbns();
+
+    /**
+     * Deletes the given books with a single statement and reports which ones existed.
+     * Uses an H2 data change delta table, so the deleted IDs come back from the
+     * same DELETE without a prior lookup.
+     * @param ids identifiers of the books to delete
+     * @return identifiers of the rows actually deleted
+     */
+    @Query(value = "SELECT id FROM OLD TABLE (DELETE FROM book WHERE id IN (:ids))", nativeQuery = true)
+    List<Long> deleteByIdInReturningIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Returns the description rows of the given books, to delete them along with the books.
+     * @param ids identifiers of the books
+     * @return identifiers of their descriptions
+     */
+    @Query(value = "SELECT description_id FROM book WHERE id IN (:ids) AND description_id IS NOT NULL",
+            nativeQuery = true)
+    List<Long> findDescriptionIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Deletes description rows with a single statement. Their books must be deleted first.
+     * @param ids identifiers of the descriptions
+     * @return number of deleted rows
+     */
+    @Modifying
+    @Query(value = "DELETE FROM book_description WHERE id IN (:ids)", nativeQuery = true)
+    int deleteDescriptions(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Atomically takes stock from an available book, only if enough is left.
+     * The book becomes unavailable when its stock reaches zero.
+     * @param id identifier of the book
+     * @param quantity units to take, must be positive
+     * @return 1 if the stock was reserved, 0 if the book doesn't exist, is unavailable or lacks stock
+     */
+    @Modifying
+    @Query("update Book b set b.stock = b.stock - :quantity, "
+            + "b.available = (case when b.stock - :quantity > 0 then true else false end) "
+            + "where b.id = :id and b.available = true and b.stock >= :quantity")
+    int reserveStock(@Param("id") Long id, @Param("quantity") int quantity);
 
-public interface BookRepository extends JpaRepository<Book, Long> {
-    
+    /**
+     * Atomically gives back stock to a book.
+     * A book that was sold out becomes available again.
+     * @param id identifier of the book
+     * @param quantity units to give back, must be positive
+     * @return 1 if the stock was released, 0 if the book doesn't exist
+     */
+    @Modifying
+    @Query("update Book b set b.stock = b.stock + :quantity, "
+            + "b.available = (case when b.stock = 0 then true else b.available end) "
+            + "where b.id = :id")
+    int releaseStock(@Param("id") Long id, @Param("quantity") int quantity);
 }
@@ -0,0 +1,19 @@
+package com.bookstore.bookstore.repository;
+
+import com.bookstore.bookstore.model.BookPatch;
+
+/**
+ * Book repository operations that can't be expressed as derived or annotated queries.
+ */
+public interface BookRepositoryCustom {
+
+    /**
+     * Updates only the non-null fields of the patch with a single UPDATE statement.
+     * The persistence context is bypassed: entities already loaded in it are not refreshed.
+     * A new description is the exception: it is stored in its own table through the entity.
+     * @param id identifier of the book
+     * @param patch fields to change, must not be empty
+     * @return number of updated rows (0 if the book doesn't exist)
+     */
+    int patch(Long id, BookPatch patch);
+}
@@ -0,0 +1,51 @@
+package com.bookstore.bookstore.repository;
+
+import java.util.Map;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * JPA implementation of {@link BookRepositoryCustom}.
+ */
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int patch(Long id, BookPatch patch) {
+        Map<String, Object> changes = patch.changes();
+        if (changes.isEmpty()) {
+            throw new IllegalArgumentException("Book patch cannot be empty");
+        }
+
+        if (patch.description() != null) {
+            // The description lives in its own table: change it through the entity,
+            // and write it before the UPDATE below so the flush can't overwrite it
+            Book book = entityManager.find(Book.class, id);
+            if (book == null) {
+                return 0;
+            }
+            book.setDescription(patch.description());
+            entityManager.flush();
+            changes.remove("description");
+            if (changes.isEmpty()) {
+                return 1;
+            }
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Book> update = cb.createCriteriaUpdate(Book.class);
+        Root<Book> root = update.from(Book.class);
+        changes.forEach((field, value) -> update.set(root.get(field), value));
+        update.where(cb.equal(root.get("id"), id));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
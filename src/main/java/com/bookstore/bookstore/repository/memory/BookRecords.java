@@ -0,0 +1,120 @@
+package com.bookstore.bookstore.repository.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.bookstore.bookstore.model.Book;
+
+/**
+ * Binary form of the mutations written to the log and of the books in a snapshot.
+ * <ul>
+ *   <li>PUT: type byte, id, title, author, ISBN, price, stock, description, availability</li>
+ *   <li>DELETE: type byte, id</li>
+ *   <li>TRANSACTION: type byte, record count, then each PUT or DELETE record with an int length prefix</li>
+ * </ul>
+ * Strings are an int byte length (-1 for null) and UTF-8 bytes; availability is
+ * 0 (false), 1 (true) or 2 (null).
+ */
+final class BookRecords {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte TRANSACTION = 3;
+
+    private BookRecords() {
+    }
+
+    static byte[] put(Book book) {
+        byte[] title = utf8(book.getTitle());
+        byte[] author = utf8(book.getAuthor());
+        byte[] isbn = utf8(book.getIsbn());
+        byte[] description = utf8(book.getDescription());
+        int size = 1 + 8 + 4 * 4 + length(title) + length(author) + length(isbn) + length(description)
+                + 1 + 8 + 1 + 4 + 1;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(PUT);
+        buffer.putLong(book.getId());
+        putString(buffer, title);
+        putString(buffer, author);
+        putString(buffer, isbn);
+        buffer.put((byte) (book.getPrice() == null ? 0 : 1));
+        buffer.putDouble(book.getPrice() == null ? 0 : book.getPrice());
+        buffer.put((byte) (book.getStock() == null ? 0 : 1));
+        buffer.putInt(book.getStock() == null ? 0 : book.getStock());
+        putString(buffer, description);
+        buffer.put((byte) (book.getAvailable() == null ? 2 : book.getAvailable() ? 1 : 0));
+        return buffer.array();
+    }
+
+    static byte[] delete(long id) {
+        return ByteBuffer.allocate(1 + 8).put(DELETE).putLong(id).array();
+    }
+
+    /**
+     * Groups the records of a transaction, so that the log holds all of them or none.
+     */
+    static byte[] transaction(List<byte[]> records) {
+        int size = 1 + 4;
+        for (byte[] record : records) {
+            size += 4 + record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(TRANSACTION);
+        buffer.putInt(records.size());
+        for (byte[] record : records) {
+            buffer.putInt(record.length);
+            buffer.put(record);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reads the book of a PUT record, positioned after the type byte.
+     */
+    static Book readBook(ByteBuffer buffer) {
+        Book book = new Book();
+        book.setId(buffer.getLong());
+        book.setTitle(getString(buffer));
+        book.setAuthor(getString(buffer));
+        book.setIsbn(getString(buffer));
+        boolean hasPrice = buffer.get() != 0;
+        double price = buffer.getDouble();
+        book.setPrice(hasPrice ? price : null);
+        boolean hasStock = buffer.get() != 0;
+        int stock = buffer.getInt();
+        book.setStock(hasStock ? stock : null);
+        book.setDescription(getString(buffer));
+        byte available = buffer.get();
+        book.setAvailable(available == 2 ? null : available == 1);
+        return book;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,947 @@
+package com.bookstore.bookstore.repository.memory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.repository.BookExamples;
+import com.bookstore.bookstore.repository.BookRepository;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+
+/**
+ * {@link BookRepository} that keeps the whole catalog in memory, for catalogs that
+ * fit in RAM. Selected with the {@code inmemory} profile, it replaces the JPA
+ * repository for every service.
+ *
+ * <p>Books live in a concurrent skip list ordered by ID (keyset pages and ordered
+ * scans are tail views) with a concurrent ISBN index next to it. Reads never lock
+ * and always return copies, like detached entities. Writes are serialized by a
+ * single lock and validated (non-null columns, unique ISBN).
+ *
+ * <p>Transactions: writes made inside a Spring transaction are kept by the
+ * transaction, which reads its own writes, and are only appended to the
+ * {@link MappedMutationLog} and applied when it commits; a rollback discards them.
+ * Other transactions keep reading the committed books. Like row locks, the books
+ * and ISBNs a transaction writes stay locked until it completes: other writers of
+ * the same book or ISBN wait for it, at most {@code lock-timeout-ms}. Outside
+ * transactions every write commits on its own.
+ *
+ * <p>Durability: a transaction is appended to the log as a single record, so a
+ * crash never leaves half of it. The log is synced every {@code sync-interval-ms};
+ * once {@code snapshot-after-mutations} writes accumulate, a snapshot of the catalog
+ * is written and the segments it covers are deleted. At startup the newest snapshot
+ * is loaded and the log replayed from where it ends; a torn record at the end of
+ * the log is discarded.
+ */
+@Repository
+@Primary
+@Profile("inmemory")
+public class InMemoryBookRepository implements BookRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryBookRepository.class);
+
+    private final NavigableMap<Long, Book> books = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> isbns = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Condition lockReleased = writeLock.newCondition();
+    // Books (by ID) and ISBNs written by uncommitted transactions, guarded by the write lock
+    private final Map<Object, EngineTransaction> locks = new HashMap<>();
+    private final long lockTimeoutNanos;
+    private final Path directory;
+    private final MappedMutationLog mutationLog;
+    private final long snapshotAfterMutations;
+    private final AtomicLong mutationsSinceSnapshot = new AtomicLong();
+    private final ScheduledExecutorService maintenance;
+
+    /**
+     * Constructor for dependency injection. Recovers the catalog from disk.
+     * @param directory directory of the log segments and snapshots
+     * @param segmentMegabytes size of a log segment file
+     * @param syncIntervalMillis time between syncs of the log to disk
+     * @param snapshotAfterMutations logged writes after which a snapshot is taken
+     * @param lockTimeoutMillis longest wait for a book or ISBN written by another transaction
+     */
+    public InMemoryBookRepository(@Value("${bookstore.storage.memory.directory:./data/memory-engine}") String directory,
+                                  @Value("${bookstore.storage.memory.segment-mb:64}") int segmentMegabytes,
+                                  @Value("${bookstore.storage.memory.sync-interval-ms:100}") long syncIntervalMillis,
+                                  @Value("${bookstore.storage.memory.snapshot-after-mutations:100000}") long snapshotAfterMutations,
+                                  @Value("${bookstore.storage.memory.lock-timeout-ms:10000}") long lockTimeoutMillis) {
+        if (segmentMegabytes <= 0 || syncIntervalMillis <= 0 || snapshotAfterMutations <= 0 || lockTimeoutMillis <= 0) {
+            throw new IllegalArgumentException(
+                    "Segment size, sync interval, snapshot threshold and lock timeout must be greater than 0");
+        }
+        this.directory = Path.of(directory);
+        this.mutationLog = new MappedMutationLog(this.directory, segmentMegabytes * 1024 * 1024);
+        this.snapshotAfterMutations = snapshotAfterMutations;
+        this.lockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(lockTimeoutMillis);
+        recover();
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "memory-engine-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maintenance.scheduleWithFixedDelay(this::maintain, syncIntervalMillis, syncIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // ---- Reads -------------------------------------------------------------------------
+    // Inside a transaction that wrote books, reads see the committed books with its own writes applied
+
+    @Override
+    public Optional<Book> findById(Long id) {
+        return Optional.ofNullable(copy(visible(currentTransaction(), requireId(id))));
+    }
+
+    @Override
+    public Optional<Book> findWithDescriptionById(Long id) {
+        return findById(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return visible(currentTransaction(), requireId(id)) != null;
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return values(0).map(Book::copy).toList();
+    }
+
+    @Override
+    public List<Book> findAll(Sort sort) {
+        return values(0).sorted(comparator(sort)).map(Book::copy).toList();
+    }
+
+    @Override
+    public Page<Book> findAll(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findAll(pageable.getSort()));
+        }
+        List<Book> content = values(0)
+                .sorted(comparator(pageable.getSort()))
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(Book::copy)
+                .toList();
+        return new PageImpl<>(content, pageable, count());
+    }
+
+    @Override
+    public List<Book> findAllById(Iterable<Long> ids) {
+        EngineTransaction transaction = currentTransaction();
+        List<Book> found = new ArrayList<>();
+        for (Long id : ids) {
+            Book book = visible(transaction, requireId(id));
+            if (book != null) {
+                found.add(book.copy());
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Book> findWithDescriptionByIdIn(Collection<Long> ids) {
+        return findAllById(ids);
+    }
+
+    @Override
+    public long count() {
+        EngineTransaction transaction = currentTransaction();
+        long count = books.size();
+        if (transaction != null) {
+            for (Map.Entry<Long, Book> write : transaction.writes.entrySet()) {
+                count += (write.getValue() != null ? 1 : 0) - (books.containsKey(write.getKey()) ? 1 : 0);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public List<Book> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit) {
+        return values(afterId)
+                .limit(limit.isLimited() ? limit.max() : Long.MAX_VALUE)
+                .map(Book::copy)
+                .toList();
+    }
+
+    @Override
+    public List<BookSummary> findSummariesByIdGreaterThan(Long afterId, Limit limit) {
+        return values(afterId)
+                .limit(limit.isLimited() ? limit.max() : Long.MAX_VALUE)
+                .map(BookSummary::of)
+                .toList();
+    }
+
+    // The secondary lookups scan the catalog: the engine keeps no secondary indexes
+
+    @Override
+    public List<Book> findByAuthorAfter(String author, long afterId, Limit limit) {
+        return scanAfter(afterId, book -> book.getAuthor().equals(author), limit);
+    }
+
+    @Override
+    public List<Book> findByTitleRangeAfter(String afterTitle, String titleEnd, long afterId, Limit limit) {
+        return values(0)
+                .filter(book -> book.getTitle().compareTo(titleEnd) < 0)
+                .filter(book -> {
+                    int order = book.getTitle().compareTo(afterTitle);
+                    return order > 0 || (order == 0 && book.getId() > afterId);
+                })
+                .sorted(Comparator.comparing(Book::getTitle).thenComparing(Book::getId))
+                .limit(limit.isLimited() ? limit.max() : Long.MAX_VALUE)
+                .map(Book::copy)
+                .toList();
+    }
+
+    @Override
+    public List<Book> findByPriceRangeAfter(double afterPrice, double maxPrice, long afterId, Limit limit) {
+        return values(0)
+                .filter(book -> book.getPrice() <= maxPrice)
+                .filter(book -> book.getPrice() > afterPrice || (book.getPrice() == afterPrice && book.getId() > afterId))
+                .sorted(Comparator.comparing(Book::getPrice).thenComparing(Book::getId))
+                .limit(limit.isLimited() ? limit.max() : Long.MAX_VALUE)
+                .map(Book::copy)
+                .toList();
+    }
+
+    @Override
+    public List<Book> findByAvailableAfter(boolean available, long afterId, Limit limit) {
+        return scanAfter(afterId, book -> book.getAvailable() == available, limit);
+    }
+
+    @Override
+    public List<Book> findInStockAfter(long afterId, Limit limit) {
+        return scanAfter(afterId, book -> book.getAvailable() && book.getStock() > 0, limit);
+    }
+
+    @Override
+    public Optional<BookSummary> findSummaryById(Long id) {
+        return Optional.ofNullable(visible(currentTransaction(), requireId(id))).map(BookSummary::of);
+    }
+
+    @Override
+    public Stream<Book> streamAllByOrderByIdAsc() {
+        return values(0).map(Book::copy);
+    }
+
+    @Override
+    public List<String> findExistingIsbns(Collection<String> candidates) {
+        EngineTransaction transaction = currentTransaction();
+        return candidates.stream().filter(isbn -> visibleOwner(transaction, isbn) != null).toList();
+    }
+
+    @Override
+    public Optional<Book> findByIsbn(String isbn) {
+        EngineTransaction transaction = currentTransaction();
+        Long id = visibleOwner(transaction, isbn);
+        return id == null ? Optional.empty() : Optional.ofNullable(copy(visible(transaction, id)));
+    }
+
+    @Override
+    public Stream<Object[]> streamIdsAndIsbns() {
+        return values(0).map(book -> new Object[]{book.getId(), book.getIsbn()});
+    }
+
+    @Override
+    public List<Long> findDescriptionIds(Collection<Long> ids) {
+        // Descriptions are stored with their books
+        return List.of();
+    }
+
+    // ---- Writes ------------------------------------------------------------------------
+
+    @Override
+    public <S extends Book> S save(S book) {
+        return write(transaction -> {
+            if (book.getId() == null) {
+                validate(book);
+                book.setId(lastId.incrementAndGet());
+            }
+            put(transaction, book.copy());
+            return book;
+        });
+    }
+
+    @Override
+    public <S extends Book> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        for (S book : entities) {
+            saved.add(save(book));
+        }
+        return saved;
+    }
+
+    @Override
+    public <S extends Book> S saveAndFlush(S book) {
+        return save(book);
+    }
+
+    @Override
+    public <S extends Book> List<S> saveAllAndFlush(Iterable<S> entities) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public int patch(Long id, BookPatch patch) {
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("Book patch cannot be empty");
+        }
+        return write(transaction -> {
+            Book current = lockVisible(transaction, requireId(id));
+            if (current == null) {
+                return 0;
+            }
+            Book changed = current.copy();
+            if (patch.title() != null) {
+                changed.setTitle(patch.title());
+            }
+            if (patch.author() != null) {
+                changed.setAuthor(patch.author());
+            }
+            if (patch.isbn() != null) {
+                changed.setIsbn(patch.isbn());
+            }
+            if (patch.price() != null) {
+                changed.setPrice(patch.price());
+            }
+            if (patch.stock() != null) {
+                changed.setStock(patch.stock());
+            }
+            if (patch.description() != null) {
+                changed.setDescription(patch.description());
+            }
+            if (patch.available() != null) {
+                changed.setAvailable(patch.available());
+            }
+            put(transaction, changed);
+            return 1;
+        });
+    }
+
+    @Override
+    public int reserveStock(Long id, int quantity) {
+        return write(transaction -> {
+            Book current = lockVisible(transaction, requireId(id));
+            if (current == null || !Boolean.TRUE.equals(current.getAvailable()) || current.getStock() < quantity) {
+                return 0;
+            }
+            Book changed = current.copy();
+            changed.setStock(current.getStock() - quantity);
+            changed.setAvailable(changed.getStock() > 0);
+            put(transaction, changed);
+            return 1;
+        });
+    }
+
+    @Override
+    public int releaseStock(Long id, int quantity) {
+        return write(transaction -> {
+            Book current = lockVisible(transaction, requireId(id));
+            if (current == null) {
+                return 0;
+            }
+            Book changed = current.copy();
+            changed.setStock(current.getStock() + quantity);
+            changed.setAvailable(current.getStock() == 0 || Boolean.TRUE.equals(current.getAvailable()));
+            put(transaction, changed);
+            return 1;
+        });
+    }
+
+    @Override
+    public List<Long> deleteByIdInReturningIds(Collection<Long> ids) {
+        return write(transaction -> {
+            List<Long> deleted = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                Book previous = lockVisible(transaction, requireId(id));
+                if (previous != null) {
+                    transaction.delete(previous);
+                    deleted.add(id);
+                }
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public int deleteDescriptions(Collection<Long> ids) {
+        return 0;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        deleteByIdInReturningIds(List.of(id));
+    }
+
+    @Override
+    public void delete(Book book) {
+        if (book.getId() != null) {
+            deleteById(book.getId());
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        List<Long> list = new ArrayList<>();
+        ids.forEach(list::add);
+        deleteByIdInReturningIds(list);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Book> entities) {
+        for (Book book : entities) {
+            delete(book);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        deleteByIdInReturningIds(values(0).map(Book::getId).toList());
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<Book> entities) {
+        deleteAll(entities);
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(Iterable<Long> ids) {
+        deleteAllById(ids);
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    @Override
+    public void flush() {
+        // Writes are applied when their transaction commits
+    }
+
+    @Override
+    @Deprecated
+    public Book getOne(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    @Deprecated
+    public Book getById(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    public Book getReferenceById(Long id) {
+        return findById(id).orElseThrow(() -> new EntityNotFoundException("Book not found: " + id));
+    }
+
+    // ---- Query by example ------------------------------------------------------------
+    // The example is a predicate over a scan of the books the transaction sees, see BookExamples
+
+    @Override
+    public <S extends Book> Optional<S> findOne(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::one);
+    }
+
+    @Override
+    public <S extends Book> List<S> findAll(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::all);
+    }
+
+    @Override
+    public <S extends Book> List<S> findAll(Example<S> example, Sort sort) {
+        return findBy(example, query -> query.sortBy(sort).all());
+    }
+
+    @Override
+    public <S extends Book> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return findBy(example, query -> query.page(pageable));
+    }
+
+    @Override
+    public <S extends Book> long count(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::count);
+    }
+
+    @Override
+    public <S extends Book> boolean exists(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::exists);
+    }
+
+    @Override
+    public <S extends Book, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        Predicate<Book> matches = BookExamples.predicate(example);
+        return queryFunction.apply(BookExamples.query(sort -> {
+            Stream<Book> found = values(0).filter(matches);
+            return (sort.isSorted() ? found.sorted(comparator(sort)) : found).map(Book::copy);
+        }));
+    }
+
+    // ---- Storage -----------------------------------------------------------------------
+
+    /**
+     * Writes a snapshot of the catalog and drops the log segments it covers.
+     */
+    public void snapshot() {
+        List<Book> catalog;
+        long segment;
+        writeLock.lock();
+        try {
+            segment = mutationLog.roll();
+            // Stored books are never modified, so the references are a consistent copy
+            // of the committed catalog; later commits are logged in the new segment
+            catalog = new ArrayList<>(books.values());
+            mutationsSinceSnapshot.set(0);
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            SnapshotFiles.write(directory, segment, catalog);
+            mutationLog.deleteBefore(segment);
+            SnapshotFiles.deleteBefore(directory, segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("In-memory storage snapshot of {} books written", catalog.size());
+    }
+
+    /**
+     * Gets the bytes appended to the current log segment.
+     */
+    long currentLogBytes() {
+        return mutationLog.currentSegmentBytes();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try {
+            mutationLog.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void recover() {
+        long start = System.nanoTime();
+        try {
+            long segment = SnapshotFiles.readLatest(directory, this::store);
+            long snapshotBooks = books.size();
+            long replayed = mutationLog.recover(segment, this::replay);
+            mutationsSinceSnapshot.set(replayed);
+            log.info("In-memory storage recovered {} books ({} from snapshot, {} log records) in {} ms",
+                    books.size(), snapshotBooks, replayed, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover the in-memory storage from " + directory, e);
+        }
+    }
+
+    private void replay(ByteBuffer record) {
+        byte type = record.get();
+        if (type == BookRecords.PUT) {
+            store(BookRecords.readBook(record));
+        } else if (type == BookRecords.DELETE) {
+            removeStored(record.getLong());
+        } else if (type == BookRecords.TRANSACTION) {
+            int count = record.getInt();
+            for (int i = 0; i < count; i++) {
+                int length = record.getInt();
+                replay(record.slice(record.position(), length));
+                record.position(record.position() + length);
+            }
+        } else {
+            throw new IllegalStateException("Unknown log record type " + type);
+        }
+    }
+
+    private void maintain() {
+        try {
+            mutationLog.force();
+            if (mutationsSinceSnapshot.get() >= snapshotAfterMutations) {
+                snapshot();
+            }
+        } catch (RuntimeException e) {
+            log.error("In-memory storage maintenance failed", e);
+        }
+    }
+
+    /**
+     * Runs a write in the current transaction, or in one of its own that commits
+     * right away outside transactions. Holds the write lock, except while waiting
+     * for a book or ISBN locked by another transaction.
+     */
+    private <T> T write(Function<EngineTransaction, T> work) {
+        writeLock.lock();
+        try {
+            EngineTransaction transaction = currentTransaction();
+            if (transaction == null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                transaction = new EngineTransaction();
+                TransactionSynchronizationManager.registerSynchronization(transaction);
+            }
+            if (transaction != null) {
+                return work.apply(transaction);
+            }
+            EngineTransaction single = new EngineTransaction();
+            try {
+                T result = work.apply(single);
+                commit(single);
+                return result;
+            } finally {
+                release(single);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the transaction of this engine bound to the current Spring transaction.
+     * Looked up among the synchronizations (not bound as a resource) so that a
+     * suspended outer transaction keeps its own writes.
+     */
+    private EngineTransaction currentTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof EngineTransaction candidate && candidate.owner() == this) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets a book as the transaction sees it: its own write, if any, or the committed book.
+     */
+    private Book visible(EngineTransaction transaction, long id) {
+        if (transaction != null && transaction.writes.containsKey(id)) {
+            return transaction.writes.get(id);
+        }
+        return books.get(id);
+    }
+
+    /**
+     * Gets the ID of the book that holds an ISBN as the transaction sees it.
+     */
+    private Long visibleOwner(EngineTransaction transaction, String isbn) {
+        if (transaction != null && transaction.isbnOwners.containsKey(isbn)) {
+            return transaction.isbnOwners.get(isbn);
+        }
+        return isbns.get(isbn);
+    }
+
+    /**
+     * Locks a book for the transaction and reads it: nobody else can change it until the transaction completes.
+     */
+    private Book lockVisible(EngineTransaction transaction, long id) {
+        lock(transaction, id);
+        return visible(transaction, id);
+    }
+
+    /**
+     * Validates a book, which must not be modified afterwards, and keeps it in the transaction.
+     */
+    private void put(EngineTransaction transaction, Book book) {
+        validate(book);
+        Book previous = lockVisible(transaction, book.getId());
+        if (previous == null || !previous.getIsbn().equals(book.getIsbn())) {
+            // Two transactions can't claim the same ISBN: the second waits for the first
+            lock(transaction, book.getIsbn());
+            Long owner = visibleOwner(transaction, book.getIsbn());
+            if (owner != null && !owner.equals(book.getId())) {
+                throw new DataIntegrityViolationException("Unique index violation: ISBN " + book.getIsbn());
+            }
+        }
+        transaction.put(book, previous);
+    }
+
+    /**
+     * Takes the lock of a book ID or an ISBN for the transaction, waiting for the
+     * transaction that holds it to complete. Called with the write lock held.
+     */
+    private void lock(EngineTransaction transaction, Object key) {
+        long remaining = lockTimeoutNanos;
+        EngineTransaction holder;
+        while ((holder = locks.putIfAbsent(key, transaction)) != null && holder != transaction) {
+            if (remaining <= 0) {
+                throw new CannotAcquireLockException("Timed out waiting for " + describe(key)
+                        + ", written by another transaction");
+            }
+            try {
+                remaining = lockReleased.awaitNanos(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CannotAcquireLockException("Interrupted while waiting for " + describe(key), e);
+            }
+        }
+        if (holder == null) {
+            transaction.held.add(key);
+        }
+    }
+
+    /**
+     * Appends the writes of a transaction to the log as one record and applies them.
+     */
+    private void commit(EngineTransaction transaction) {
+        writeLock.lock();
+        try {
+            List<byte[]> records = new ArrayList<>(transaction.writes.size());
+            transaction.writes.forEach((id, book) -> {
+                if (book != null) {
+                    records.add(BookRecords.put(book));
+                } else if (books.containsKey(id)) {
+                    records.add(BookRecords.delete(id));
+                }
+            });
+            if (records.isEmpty()) {
+                return;
+            }
+            mutationLog.append(records.size() == 1 ? records.get(0) : BookRecords.transaction(records));
+            mutationsSinceSnapshot.addAndGet(records.size());
+            transaction.writes.forEach((id, book) -> {
+                if (book != null) {
+                    store(book);
+                } else {
+                    removeStored(id);
+                }
+            });
+            transaction.writes.clear();
+            transaction.isbnOwners.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Releases the locks of a completed transaction and wakes up the writers waiting for them.
+     */
+    private void release(EngineTransaction transaction) {
+        writeLock.lock();
+        try {
+            if (!transaction.held.isEmpty()) {
+                transaction.held.forEach(key -> locks.remove(key, transaction));
+                transaction.held.clear();
+                lockReleased.signalAll();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Stores a committed book, which must not be modified afterwards. Called with the
+     * write lock held, except during recovery.
+     */
+    private void store(Book book) {
+        Book previous = books.put(book.getId(), book);
+        if (previous != null && !previous.getIsbn().equals(book.getIsbn())) {
+            // Another book of the same commit may have taken the old ISBN already
+            isbns.remove(previous.getIsbn(), book.getId());
+        }
+        isbns.put(book.getIsbn(), book.getId());
+        lastId.accumulateAndGet(book.getId(), Math::max);
+    }
+
+    private void removeStored(long id) {
+        Book previous = books.remove(id);
+        if (previous != null) {
+            isbns.remove(previous.getIsbn(), id);
+        }
+    }
+
+    private static void validate(Book book) {
+        if (book.getTitle() == null || book.getAuthor() == null || book.getIsbn() == null
+                || book.getPrice() == null || book.getStock() == null || book.getAvailable() == null) {
+            throw new DataIntegrityViolationException("Title, author, ISBN, price, stock and availability cannot be null");
+        }
+    }
+
+    private static Long requireId(Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("The given id must not be null");
+        }
+        return id;
+    }
+
+    private static Book copy(Book book) {
+        return book == null ? null : book.copy();
+    }
+
+    private List<Book> scanAfter(long afterId, Predicate<Book> filter, Limit limit) {
+        return values(afterId)
+                .filter(filter)
+                .limit(limit.isLimited() ? limit.max() : Long.MAX_VALUE)
+                .map(Book::copy)
+                .toList();
+    }
+
+    /**
+     * Streams the books with an ID greater than the given one, in ID order, as the
+     * current transaction sees them.
+     */
+    private Stream<Book> values(long afterId) {
+        Stream<Book> committed = books.tailMap(afterId, false).values().stream();
+        EngineTransaction transaction = currentTransaction();
+        if (transaction == null || transaction.writes.isEmpty()) {
+            return committed;
+        }
+        NavigableMap<Long, Book> written = transaction.writes.tailMap(afterId, false);
+        Iterator<Book> stored = committed.filter(book -> !written.containsKey(book.getId())).iterator();
+        Iterator<Book> own = written.values().stream().filter(Objects::nonNull).iterator();
+        Iterator<Book> merged = new Iterator<>() {
+            private Book nextStored = advance(stored);
+            private Book nextOwn = advance(own);
+
+            @Override
+            public boolean hasNext() {
+                return nextStored != null || nextOwn != null;
+            }
+
+            @Override
+            public Book next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Book book;
+                if (nextOwn == null || (nextStored != null && nextStored.getId() < nextOwn.getId())) {
+                    book = nextStored;
+                    nextStored = advance(stored);
+                } else {
+                    book = nextOwn;
+                    nextOwn = advance(own);
+                }
+                return book;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static Book advance(Iterator<Book> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private static String describe(Object key) {
+        return key instanceof String ? "ISBN " + key : "book " + key;
+    }
+
+    private static Comparator<Book> comparator(Sort sort) {
+        Comparator<Book> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Book> next = switch (order.getProperty()) {
+                case "id" -> Comparator.comparing(Book::getId);
+                case "title" -> Comparator.comparing(Book::getTitle);
+                case "author" -> Comparator.comparing(Book::getAuthor);
+                case "isbn" -> Comparator.comparing(Book::getIsbn);
+                case "price" -> Comparator.comparing(Book::getPrice);
+                case "stock" -> Comparator.comparing(Book::getStock);
+                case "available" -> Comparator.comparing(Book::getAvailable);
+                default -> throw new IllegalArgumentException("Cannot sort books by " + order.getProperty());
+            };
+            next = order.isDescending() ? next.reversed() : next;
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        // Ties, and unsorted requests, keep the ID order
+        Comparator<Book> byId = Comparator.comparing(Book::getId);
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    /**
+     * Writes of a transaction, applied when it commits, and the locks it holds until it completes.
+     */
+    private final class EngineTransaction implements TransactionSynchronization {
+
+        // Book of every written ID as the transaction sees it, null once deleted
+        private final NavigableMap<Long, Book> writes = new TreeMap<>();
+        // Holder of every ISBN the transaction claimed or gave up, null once given up
+        private final Map<String, Long> isbnOwners = new HashMap<>();
+        private final List<Object> held = new ArrayList<>();
+
+        InMemoryBookRepository owner() {
+            return InMemoryBookRepository.this;
+        }
+
+        void put(Book book, Book previous) {
+            writes.put(book.getId(), book);
+            if (previous != null && !previous.getIsbn().equals(book.getIsbn())) {
+                isbnOwners.put(previous.getIsbn(), null);
+            }
+            isbnOwners.put(book.getIsbn(), book.getId());
+        }
+
+        void delete(Book previous) {
+            writes.put(previous.getId(), null);
+            isbnOwners.put(previous.getIsbn(), null);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            commit(this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            // On rollback the writes are simply dropped: nobody else has seen them
+            release(this);
+        }
+    }
+}
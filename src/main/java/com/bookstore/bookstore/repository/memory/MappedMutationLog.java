@@ -0,0 +1,223 @@
+package com.bookstore.bookstore.repository.memory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only mutation log in memory-mapped segment files.
+ * Each record is an int payload length, the CRC32C of the payload and the payload.
+ * Segments are preallocated (zero-filled) and mapped, so an append is a memory copy;
+ * the length is written last, and a zero length marks the end of a segment.
+ *
+ * <p>Appended records survive a crash of the process as soon as they are written
+ * (they are in the page cache); {@link #force()} makes them survive a crash of the
+ * machine. Recovery stops at the first record with a bad length or checksum: a
+ * torn write at the end of the log is discarded, and so is anything after it.
+ *
+ * <p>Not thread-safe for appends: the caller serializes them.
+ */
+final class MappedMutationLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedMutationLog.class);
+
+    private static final int HEADER = 8;
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private long segment;
+    private MappedByteBuffer buffer;
+    private int position;
+    private volatile boolean dirty;
+
+    /**
+     * @param directory directory of the segment files, created if needed
+     * @param segmentBytes size of a segment file
+     */
+    MappedMutationLog(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replays the records of every segment from the given one, then opens the log
+     * for appends after the last valid record. Segments after a torn record are deleted.
+     * @param fromSegment first segment to replay (the one a snapshot was taken at)
+     * @param consumer receives each record payload
+     * @return number of replayed records
+     */
+    long recover(long fromSegment, Consumer<ByteBuffer> consumer) throws IOException {
+        List<Long> segments = segments();
+        long replayed = 0;
+        long last = fromSegment;
+        int end = 0;
+        boolean torn = false;
+        for (long number : segments) {
+            if (number < fromSegment) {
+                continue;
+            }
+            if (torn) {
+                log.warn("Deleting log segment {} found after a torn record", number);
+                Files.delete(segmentPath(number));
+                continue;
+            }
+            MappedByteBuffer mapped = map(number, 0);
+            int offset = 0;
+            while (offset + HEADER <= mapped.capacity()) {
+                int length = mapped.getInt(offset);
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || offset + HEADER + length > mapped.capacity()) {
+                    torn = true;
+                    break;
+                }
+                byte[] payload = new byte[length];
+                mapped.get(offset + HEADER, payload);
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+                if ((int) crc.getValue() != mapped.getInt(offset + 4)) {
+                    torn = true;
+                    break;
+                }
+                consumer.accept(ByteBuffer.wrap(payload));
+                replayed++;
+                offset += HEADER + length;
+            }
+            if (torn) {
+                log.warn("Discarding torn log record at offset {} of segment {}", offset, number);
+                // Zero the rest so that later recoveries stop at the same place
+                for (int i = offset; i < mapped.capacity(); i++) {
+                    mapped.put(i, (byte) 0);
+                }
+                mapped.force();
+            }
+            last = number;
+            end = offset;
+            buffer = mapped;
+        }
+        segment = last;
+        if (buffer == null) {
+            buffer = map(segment, segmentBytes);
+            end = 0;
+        }
+        position = end;
+        return replayed;
+    }
+
+    /**
+     * Appends a record.
+     * @param payload the record
+     */
+    void append(byte[] payload) {
+        if (position + HEADER + payload.length + 4 > buffer.capacity()) {
+            roll(payload.length);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        buffer.put(position + HEADER, payload);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        // Written last: a record is only visible to recovery once complete
+        buffer.putInt(position, payload.length);
+        position += HEADER + payload.length;
+        dirty = true;
+    }
+
+    /**
+     * Closes the current segment and starts a new one.
+     * @return number of the new segment: replaying from it skips everything appended so far
+     */
+    long roll() {
+        return roll(0);
+    }
+
+    /**
+     * Writes the appended records to the storage device.
+     */
+    void force() {
+        if (dirty) {
+            dirty = false;
+            buffer.force();
+        }
+    }
+
+    /**
+     * Deletes the segments older than the given one, once a snapshot covers them.
+     * @param segmentNumber first segment to keep
+     */
+    void deleteBefore(long segmentNumber) throws IOException {
+        for (long number : segments()) {
+            if (number < segmentNumber) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        }
+    }
+
+    /**
+     * Gets the bytes appended to the current segment.
+     */
+    long currentSegmentBytes() {
+        return position;
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    private long roll(int recordLength) {
+        buffer.force();
+        segment++;
+        buffer = map(segment, Math.max(segmentBytes, HEADER + recordLength + 4));
+        position = 0;
+        return segment;
+    }
+
+    private MappedByteBuffer map(long number, int size) {
+        try (FileChannel channel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long length = Math.max(channel.size(), size);
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("segment-") && name.endsWith(SUFFIX))
+                    .forEach(name -> numbers.add(Long.parseLong(
+                            name.substring("segment-".length(), name.length() - SUFFIX.length()))));
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("segment-%016d%s", number, SUFFIX));
+    }
+}
@@ -0,0 +1,147 @@
+package com.bookstore.bookstore.repository.memory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bookstore.bookstore.model.Book;
+
+/**
+ * Snapshots of the whole catalog, named after the first log segment they don't cover.
+ * A snapshot is the magic bytes {@code BKS1}, the number of books, one length-prefixed
+ * PUT record per book and the CRC32C of everything before it. It is written to a
+ * temporary file, synced and renamed, so a snapshot file is either complete or absent.
+ */
+final class SnapshotFiles {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotFiles.class);
+
+    private static final int MAGIC = 0x424B5331;
+    private static final String SUFFIX = ".snap";
+
+    private SnapshotFiles() {
+    }
+
+    /**
+     * Writes a snapshot.
+     * @param directory storage directory
+     * @param segment first log segment not included in the snapshot
+     * @param books every book of the catalog
+     */
+    static void write(Path directory, long segment, Collection<Book> books) throws IOException {
+        Path temporary = directory.resolve("snapshot.tmp");
+        CRC32C crc = new CRC32C();
+        try (OutputStream file = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                     new BufferedOutputStream(file, 1 << 16), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(books.size());
+            for (Book book : books) {
+                byte[] record = BookRecords.put(book);
+                out.writeInt(record.length);
+                out.write(record);
+            }
+            out.flush();
+            // Not part of the checksum
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, path(directory, segment), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Loads the newest readable snapshot.
+     * @param directory storage directory
+     * @param consumer receives each book of the snapshot
+     * @return the segment to replay the log from (0 without snapshot)
+     */
+    static long readLatest(Path directory, Consumer<Book> consumer) throws IOException {
+        List<Long> snapshots = list(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            long segment = snapshots.get(i);
+            List<Book> books = read(path(directory, segment));
+            if (books != null) {
+                books.forEach(consumer);
+                return segment;
+            }
+            log.warn("Snapshot {} is damaged, trying an older one", path(directory, segment));
+        }
+        return 0;
+    }
+
+    /**
+     * Deletes the snapshots older than the given one.
+     */
+    static void deleteBefore(Path directory, long segment) throws IOException {
+        for (long number : list(directory)) {
+            if (number < segment) {
+                Files.deleteIfExists(path(directory, number));
+            }
+        }
+    }
+
+    private static List<Book> read(Path path) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+             DataInputStream in = new DataInputStream(new CheckedInputStream(file, crc))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            int count = in.readInt();
+            List<Book> books = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] record = new byte[in.readInt()];
+                in.readFully(record);
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                if (buffer.get() != BookRecords.PUT) {
+                    return null;
+                }
+                books.add(BookRecords.readBook(buffer));
+            }
+            int expected = (int) crc.getValue();
+            return new DataInputStream(file).readInt() == expected ? books : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static List<Long> list(Path directory) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("snapshot-") && name.endsWith(SUFFIX))
+                    .forEach(name -> numbers.add(Long.parseLong(
+                            name.substring("snapshot-".length(), name.length() - SUFFIX.length()))));
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private static Path path(Path directory, long segment) {
+        return directory.resolve(String.format("snapshot-%016d%s", segment, SUFFIX));
+    }
+}
@@ -0,0 +1,186 @@
+package com.bookstore.bookstore.repository.shard;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import com.bookstore.bookstore.model.BookDescription;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * One shard of the catalog: an H2 database holding the books of the buckets the
+ * {@link ShardMap} assigns to it, and the ISBN claims of the same buckets.
+ *
+ * <p>The book table has the columns of the primary one plus the bucket of each row
+ * (so a bucket can be moved with a range scan), and keeps the description, compressed,
+ * in the row. ISBN uniqueness is global: every ISBN is claimed in book_isbn on the shard
+ * of its own bucket, which is usually the shard of the book too. A book whose ISBN was
+ * changed after its creation keeps its ID, and so its shard, and has its claim elsewhere.
+ */
+final class BookShard implements AutoCloseable {
+
+    private final int index;
+    private final HikariDataSource dataSource;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final SQLExceptionTranslator translator;
+
+    /**
+     * Opens the shard database and creates its tables if needed.
+     * @param index number of the shard
+     * @param url JDBC URL of the H2 database
+     * @param poolSize maximum connections to the shard
+     */
+    BookShard(int index, String url, int poolSize) {
+        this.index = index;
+        this.dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username("sa")
+                .password("")
+                .build();
+        this.dataSource.setPoolName("shard-" + index);
+        this.dataSource.setMaximumPoolSize(poolSize);
+        this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+        this.translator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+        this.jdbc.getJdbcTemplate().setExceptionTranslator(translator);
+        createSchema();
+    }
+
+    int index() {
+        return index;
+    }
+
+    /**
+     * Gets JDBC access through the pool, one auto-committed statement at a time.
+     */
+    NamedParameterJdbcTemplate jdbc() {
+        return jdbc;
+    }
+
+    /**
+     * Gets JDBC access through a connection of a {@link ShardTransaction}.
+     * @param connection connection to this shard
+     */
+    NamedParameterJdbcTemplate on(Connection connection) {
+        JdbcTemplate template = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        template.setExceptionTranslator(translator);
+        return new NamedParameterJdbcTemplate(template);
+    }
+
+    /**
+     * Opens a connection for a transaction.
+     * @return a pooled connection with auto-commit disabled
+     */
+    Connection begin() {
+        try {
+            Connection connection = dataSource.getConnection();
+            connection.setAutoCommit(false);
+            return connection;
+        } catch (SQLException e) {
+            throw translate("begin", e);
+        }
+    }
+
+    /**
+     * Converts a JDBC failure of this shard to Spring's exception hierarchy.
+     * @param task what was being done
+     * @param e the failure
+     */
+    DataAccessException translate(String task, SQLException e) {
+        String description = task + " on shard " + index;
+        DataAccessException translated = translator.translate(description, null, e);
+        return translated != null ? translated : new UncategorizedSQLException(description, null, e);
+    }
+
+    /**
+     * Copies the book rows and ISBN claims of a bucket to another shard, as stored.
+     * Rows already present there are overwritten, so an interrupted copy can be run again.
+     * @param bucket the bucket
+     * @param target the shard to copy to
+     * @param batchSize rows read and written per statement
+     * @return number of books copied
+     */
+    long copyBucket(int bucket, BookShard target, int batchSize) {
+        JdbcTemplate source = jdbc.getJdbcTemplate();
+        JdbcTemplate destination = target.jdbc.getJdbcTemplate();
+        long copied = 0;
+        long afterId = 0L;
+        List<Object[]> rows;
+        do {
+            rows = source.query("SELECT id, bucket, title, author, isbn, price, stock, available, description "
+                            + "FROM book WHERE bucket = ? AND id > ? ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getInt(2), rs.getString(3), rs.getString(4),
+                            rs.getString(5), rs.getDouble(6), rs.getInt(7), rs.getBoolean(8), rs.getBytes(9)},
+                    bucket, afterId, batchSize);
+            if (!rows.isEmpty()) {
+                destination.batchUpdate("MERGE INTO book (id, bucket, title, author, isbn, price, stock, available, "
+                        + "description) KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+                copied += rows.size();
+            }
+        } while (rows.size() == batchSize);
+
+        String afterIsbn = "";
+        do {
+            rows = source.query("SELECT isbn, bucket, book_id FROM book_isbn WHERE bucket = ? AND isbn > ? "
+                            + "ORDER BY isbn LIMIT ?",
+                    (rs, rowNum) -> new Object[]{rs.getString(1), rs.getInt(2), rs.getLong(3)},
+                    bucket, afterIsbn, batchSize);
+            if (!rows.isEmpty()) {
+                destination.batchUpdate("MERGE INTO book_isbn (isbn, bucket, book_id) KEY (isbn) VALUES (?, ?, ?)",
+                        rows);
+                afterIsbn = (String) rows.get(rows.size() - 1)[0];
+            }
+        } while (rows.size() == batchSize);
+        return copied;
+    }
+
+    /**
+     * Deletes the book rows and ISBN claims of a bucket.
+     * @param bucket the bucket
+     */
+    void deleteBucket(int bucket) {
+        JdbcTemplate template = jdbc.getJdbcTemplate();
+        template.update("DELETE FROM book WHERE bucket = ?", bucket);
+        template.update("DELETE FROM book_isbn WHERE bucket = ?", bucket);
+    }
+
+    /**
+     * Counts the books stored in this shard.
+     */
+    long countBooks() {
+        return jdbc.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM book", Long.class);
+    }
+
+    private void createSchema() {
+        JdbcTemplate ddl = jdbc.getJdbcTemplate();
+        ddl.execute("CREATE TABLE IF NOT EXISTS book (id BIGINT PRIMARY KEY, bucket SMALLINT NOT NULL, "
+                + "title VARCHAR(255) NOT NULL, author VARCHAR(255) NOT NULL, isbn VARCHAR(255) NOT NULL, "
+                + "price DOUBLE PRECISION NOT NULL, stock INTEGER NOT NULL, available BOOLEAN NOT NULL, "
+                + "description VARBINARY(" + BookDescription.MAX_CONTENT_BYTES + "))");
+        ddl.execute("CREATE TABLE IF NOT EXISTS book_isbn (isbn VARCHAR(255) PRIMARY KEY, "
+                + "bucket SMALLINT NOT NULL, book_id BIGINT NOT NULL)");
+        ddl.execute("CREATE INDEX IF NOT EXISTS idx_book_bucket ON book (bucket, id)");
+        ddl.execute("CREATE INDEX IF NOT EXISTS idx_book_isbn_bucket ON book_isbn (bucket)");
+        // Same secondary indexes as the primary (see Book), so every shard answers with range scans
+        ddl.execute("CREATE INDEX IF NOT EXISTS idx_book_author ON book (author, id)");
+        ddl.execute("CREATE INDEX IF NOT EXISTS idx_book_title ON book (title, id)");
+        ddl.execute("CREATE INDEX IF NOT EXISTS idx_book_price ON book (price, id)");
+        ddl.execute("CREATE INDEX IF NOT EXISTS idx_book_available ON book (available, id)");
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,142 @@
+package com.bookstore.bookstore.repository.shard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The shard databases, opened on demand from a URL pattern, and the scatter-gather
+ * of queries over them.
+ */
+final class BookShards implements AutoCloseable {
+
+    private final String urlPattern;
+    private final int poolSize;
+    private final List<BookShard> shards = new ArrayList<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param urlPattern JDBC URL of the shards, with %d standing for the shard number
+     * @param poolSize maximum connections to each shard
+     */
+    BookShards(String urlPattern, int poolSize) {
+        if (!urlPattern.contains("%d")) {
+            throw new IllegalArgumentException("Shard URL pattern must contain %d for the shard number");
+        }
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("Shard pool size must be greater than 0");
+        }
+        this.urlPattern = urlPattern;
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * Gets a shard, opening (and creating) its database if needed.
+     * @param index number of the shard
+     */
+    synchronized BookShard shard(int index) {
+        while (shards.size() <= index) {
+            int next = shards.size();
+            shards.add(new BookShard(next, String.format(urlPattern, next), poolSize));
+        }
+        return shards.get(index);
+    }
+
+    /**
+     * Gets the shards that are open, whether or not they hold buckets.
+     */
+    synchronized List<BookShard> open() {
+        return List.copyOf(shards);
+    }
+
+    /**
+     * Runs one query per shard in parallel.
+     * @param tasks the query of each shard
+     * @return the result of each shard, in task order
+     */
+    <T> List<T> scatter(List<ShardTask<T>> tasks) {
+        if (tasks.size() == 1) {
+            return List.of(tasks.get(0).call());
+        }
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (ShardTask<T> task : tasks) {
+            futures.add(executor.submit(task::call));
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying the shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * A query on one shard.
+     */
+    @FunctionalInterface
+    interface ShardTask<T> {
+        T call();
+    }
+
+    /**
+     * Merges lists that are each sorted into one sorted list.
+     * @param sorted the sorted lists, one per shard
+     * @param order the order of every list
+     * @param limit maximum number of elements to return
+     * @return the first {@code limit} elements in order
+     */
+    static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order, long limit) {
+        record Cursor<T>(List<T> list, int position) {
+            T head() {
+                return list.get(position);
+            }
+        }
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>(Math.max(1, sorted.size()),
+                Comparator.comparing((Cursor<T> cursor) -> cursor.head(), order));
+        int total = 0;
+        for (List<T> list : sorted) {
+            total += list.size();
+            if (!list.isEmpty()) {
+                heads.add(new Cursor<>(list, 0));
+            }
+        }
+        List<T> merged = new ArrayList<>((int) Math.min(total, limit));
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Cursor<T> cursor = heads.poll();
+            merged.add(cursor.head());
+            if (cursor.position() + 1 < cursor.list().size()) {
+                heads.add(new Cursor<>(cursor.list(), cursor.position() + 1));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Concatenates the lists of every shard.
+     */
+    static <T> List<T> concat(List<List<T>> lists) {
+        return lists.stream().flatMap(List::stream).toList();
+    }
+
+    @Override
+    public synchronized void close() {
+        executor.shutdownNow();
+        shards.forEach(BookShard::close);
+    }
+}
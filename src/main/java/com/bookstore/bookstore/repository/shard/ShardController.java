@@ -0,0 +1,45 @@
+package com.bookstore.bookstore.repository.shard;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Exposes the placement of the catalog over the shards, and changes the shard count.
+ */
+@RestController
+@Profile("sharded")
+public class ShardController {
+
+    private final ShardRebalancer rebalancer;
+
+    public ShardController(ShardRebalancer rebalancer) {
+        this.rebalancer = rebalancer;
+    }
+
+    @GetMapping("/api/shards/stats")
+    public ShardStats stats() {
+        return rebalancer.stats();
+    }
+
+    /**
+     * Moves buckets until the catalog is spread over the given number of shards.
+     * Runs in the request: reads go on meanwhile, writes pause while each bucket moves.
+     * @param shards new number of shards
+     * @return the placement once every bucket has moved
+     */
+    @PostMapping("/api/shards/rebalance")
+    public ShardStats rebalance(@RequestParam int shards) {
+        return rebalancer.rebalance(shards);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    ProblemDetail handleInvalidRequest(IllegalArgumentException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+}
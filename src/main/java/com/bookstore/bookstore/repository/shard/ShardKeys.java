@@ -0,0 +1,51 @@
+package com.bookstore.bookstore.repository.shard;
+
+/**
+ * Placement of books on virtual buckets.
+ *
+ * <p>Every ISBN hashes to one of {@link #BUCKETS} buckets, and the ID of a book
+ * embeds the bucket of the ISBN it was created with in its low bits:
+ * {@code id = sequence << BUCKET_BITS | bucket}. Both an ID and an ISBN therefore
+ * lead to a bucket without any lookup, and the {@link ShardMap} leads from the
+ * bucket to the shard. IDs keep growing with the sequence, so ID order is still
+ * creation order.
+ */
+final class ShardKeys {
+
+    static final int BUCKET_BITS = 10;
+    static final int BUCKETS = 1 << BUCKET_BITS;
+    private static final int BUCKET_MASK = BUCKETS - 1;
+
+    private ShardKeys() {
+    }
+
+    /**
+     * Gets the bucket of an ISBN.
+     * @param isbn the ISBN, as stored
+     * @return bucket in [0, BUCKETS)
+     */
+    static int bucketOfIsbn(String isbn) {
+        // String.hashCode is part of the language spec: buckets are stable across JVMs.
+        // Fibonacci hashing spreads ISBNs that differ only in the last digits.
+        return (isbn.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - BUCKET_BITS);
+    }
+
+    /**
+     * Gets the bucket embedded in a book ID.
+     * @param id identifier of the book
+     * @return bucket in [0, BUCKETS)
+     */
+    static int bucketOfId(long id) {
+        return (int) (id & BUCKET_MASK);
+    }
+
+    /**
+     * Builds a book ID.
+     * @param sequence globally unique sequence value, positive
+     * @param bucket bucket of the ISBN of the new book
+     * @return the ID
+     */
+    static long id(long sequence, int bucket) {
+        return sequence << BUCKET_BITS | bucket;
+    }
+}
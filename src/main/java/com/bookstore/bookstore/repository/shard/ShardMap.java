@@ -0,0 +1,172 @@
+package com.bookstore.bookstore.repository.shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Assignment of the virtual buckets to shards, stored in the book_shard_map table of
+ * the main database so that every restart routes the same way.
+ *
+ * <p>Changing the shard count moves whole buckets (see {@link ShardRebalancer}); the IDs
+ * and ISBNs of the books never change. A bucket move in progress is recorded in
+ * book_shard_move, so that a move interrupted by a crash can be cleaned up at startup.
+ *
+ * <p>The version is odd while a bucket is moving and grows with every move. Readers
+ * that saw the same even version before and after a query did not overlap a move.
+ */
+final class ShardMap {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Assignment assignment;
+
+    /**
+     * Shard of every bucket, replaced as a whole when a bucket moves.
+     */
+    private record Assignment(int[] owners, int shardCount) {
+        Assignment(int[] owners) {
+            this(owners, Arrays.stream(owners).max().orElse(0) + 1);
+        }
+    }
+
+    /**
+     * Loads the assignment, creating it with the buckets dealt round-robin to
+     * {@code initialShards} shards if the catalog is new.
+     * @param jdbcTemplate access to the main database
+     * @param initialShards shard count of a new catalog
+     */
+    ShardMap(JdbcTemplate jdbcTemplate, int initialShards) {
+        this.jdbcTemplate = jdbcTemplate;
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS book_shard_map (bucket INT PRIMARY KEY, shard INT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS book_shard_move "
+                + "(bucket INT PRIMARY KEY, source INT NOT NULL, target INT NOT NULL)");
+        int[] loaded = new int[ShardKeys.BUCKETS];
+        Arrays.fill(loaded, -1);
+        jdbcTemplate.query("SELECT bucket, shard FROM book_shard_map",
+                rs -> { loaded[rs.getInt(1)] = rs.getInt(2); });
+        if (Arrays.stream(loaded).allMatch(shard -> shard == -1)) {
+            List<Object[]> rows = new ArrayList<>(ShardKeys.BUCKETS);
+            for (int bucket = 0; bucket < ShardKeys.BUCKETS; bucket++) {
+                loaded[bucket] = bucket % initialShards;
+                rows.add(new Object[]{bucket, loaded[bucket]});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO book_shard_map (bucket, shard) VALUES (?, ?)", rows);
+        } else if (Arrays.stream(loaded).anyMatch(shard -> shard == -1)) {
+            throw new IllegalStateException("The book_shard_map table does not assign every bucket");
+        }
+        this.assignment = new Assignment(loaded);
+    }
+
+    /**
+     * Gets the shard that holds a bucket.
+     * @param bucket bucket in [0, BUCKETS)
+     * @return the shard number
+     */
+    int owner(int bucket) {
+        return assignment.owners()[bucket];
+    }
+
+    /**
+     * Gets the number of shards in use: every shard up to the highest assigned one.
+     */
+    int shardCount() {
+        return assignment.shardCount();
+    }
+
+    /**
+     * Gets a copy of the assignment, indexed by bucket.
+     */
+    int[] owners() {
+        return assignment.owners().clone();
+    }
+
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * Gets the move interrupted by the last shutdown, if any.
+     * @return {bucket, source, target}, or null
+     */
+    int[] pendingMove() {
+        List<int[]> moves = jdbcTemplate.query("SELECT bucket, source, target FROM book_shard_move",
+                (rs, rowNum) -> new int[]{rs.getInt(1), rs.getInt(2), rs.getInt(3)});
+        return moves.isEmpty() ? null : moves.get(0);
+    }
+
+    /**
+     * Records the start of a bucket move. The caller must keep writers out until {@link #endMove()}.
+     */
+    void beginMove(int bucket, int source, int target) {
+        jdbcTemplate.update("INSERT INTO book_shard_move (bucket, source, target) VALUES (?, ?, ?)",
+                bucket, source, target);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Hands a bucket to another shard: reads and writes of the bucket go there from now on.
+     */
+    void assign(int bucket, int shard) {
+        jdbcTemplate.update("UPDATE book_shard_map SET shard = ? WHERE bucket = ?", shard, bucket);
+        int[] changed = assignment.owners().clone();
+        changed[bucket] = shard;
+        assignment = new Assignment(changed);
+    }
+
+    /**
+     * Forgets a move recorded by {@link #beginMove}, once only the owner of the bucket holds its rows.
+     */
+    void clearMove(int bucket) {
+        jdbcTemplate.update("DELETE FROM book_shard_move WHERE bucket = ?", bucket);
+    }
+
+    /**
+     * Lets readers run without retries again after {@link #beginMove}, whether the move succeeded or not.
+     */
+    void endMove() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Plans the assignment for a new shard count, moving as few buckets as possible:
+     * each shard ends up with BUCKETS / shardCount buckets (one more for the first
+     * BUCKETS % shardCount shards), and a bucket only moves if its shard is removed
+     * or holds more than its share.
+     * @param owners current assignment, indexed by bucket
+     * @param shardCount new number of shards
+     * @return the new assignment, indexed by bucket
+     */
+    static int[] plan(int[] owners, int shardCount) {
+        if (shardCount <= 0 || shardCount > ShardKeys.BUCKETS) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + ShardKeys.BUCKETS);
+        }
+        int[] quota = new int[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            quota[shard] = ShardKeys.BUCKETS / shardCount + (shard < ShardKeys.BUCKETS % shardCount ? 1 : 0);
+        }
+        int[] planned = new int[owners.length];
+        List<Integer> moving = new ArrayList<>();
+        for (int bucket = 0; bucket < owners.length; bucket++) {
+            int owner = owners[bucket];
+            if (owner < shardCount && quota[owner] > 0) {
+                quota[owner]--;
+                planned[bucket] = owner;
+            } else {
+                moving.add(bucket);
+            }
+        }
+        int shard = 0;
+        for (int bucket : moving) {
+            while (quota[shard] == 0) {
+                shard++;
+            }
+            quota[shard]--;
+            planned[bucket] = shard;
+        }
+        return planned;
+    }
+}
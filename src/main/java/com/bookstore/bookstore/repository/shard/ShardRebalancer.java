@@ -0,0 +1,122 @@
+package com.bookstore.bookstore.repository.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Changes the number of shards of the {@link ShardedBookRepository} while the
+ * application runs.
+ *
+ * <p>The new assignment comes from {@link ShardMap#plan}, which moves as few buckets as
+ * possible. Buckets move one at a time: with writers kept out, the rows of the bucket
+ * are copied to the new shard, the bucket is assigned to it and the rows are deleted
+ * from the old one. Reads are never blocked for long; writes wait for the bucket being
+ * moved, whatever bucket they touch. A move interrupted by a crash is finished at the
+ * next startup, and running the rebalance again moves the remaining buckets.
+ */
+@Component
+@Profile("sharded")
+public class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private final ShardedBookRepository repository;
+    private final int batchSize;
+
+    /**
+     * Constructor for dependency injection.
+     * @param repository the sharded repository
+     * @param batchSize rows copied per statement
+     */
+    public ShardRebalancer(ShardedBookRepository repository,
+                           @Value("${bookstore.shard.batch-size:500}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Shard batch size must be greater than 0");
+        }
+        this.repository = repository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Spreads the catalog over a new number of shards. Shards that don't exist yet are
+     * created; shards left without buckets stay open, empty.
+     * @param shardCount new number of shards
+     * @return the placement once every bucket has moved
+     */
+    public synchronized ShardStats rebalance(int shardCount) {
+        ShardMap shardMap = repository.shardMap();
+        int[] current = shardMap.owners();
+        int[] planned = ShardMap.plan(current, shardCount);
+        long started = System.nanoTime();
+        int buckets = 0;
+        long books = 0;
+        for (int bucket = 0; bucket < planned.length; bucket++) {
+            if (planned[bucket] != current[bucket]) {
+                books += move(bucket, current[bucket], planned[bucket]);
+                buckets++;
+            }
+        }
+        log.info("Rebalanced the catalog to {} shards: {} buckets ({} books) moved in {} ms", shardCount, buckets,
+                books, (System.nanoTime() - started) / 1_000_000);
+        return stats();
+    }
+
+    /**
+     * Gets the placement of the catalog.
+     * @return buckets and books of every open shard
+     */
+    public ShardStats stats() {
+        int[] owners = repository.shardMap().owners();
+        List<ShardStats.Shard> shards = new ArrayList<>();
+        for (BookShard shard : repository.shards().open()) {
+            int buckets = 0;
+            for (int owner : owners) {
+                if (owner == shard.index()) {
+                    buckets++;
+                }
+            }
+            shards.add(new ShardStats.Shard(shard.index(), buckets, shard.countBooks()));
+        }
+        return new ShardStats(repository.shardMap().shardCount(), shards);
+    }
+
+    private long move(int bucket, int source, int target) {
+        ShardMap shardMap = repository.shardMap();
+        BookShard from = repository.shards().shard(source);
+        BookShard to = repository.shards().shard(target);
+        Lock lock = repository.moveLock();
+        lock.lock();
+        try {
+            shardMap.beginMove(bucket, source, target);
+            boolean assigned = false;
+            try {
+                long copied = from.copyBucket(bucket, to, batchSize);
+                shardMap.assign(bucket, target);
+                assigned = true;
+                from.deleteBucket(bucket);
+                shardMap.clearMove(bucket);
+                return copied;
+            } catch (RuntimeException e) {
+                // Keep the rows on the owner only; if that fails too, the next startup does it
+                try {
+                    (assigned ? from : to).deleteBucket(bucket);
+                    shardMap.clearMove(bucket);
+                } catch (RuntimeException cleanup) {
+                    e.addSuppressed(cleanup);
+                }
+                throw e;
+            } finally {
+                shardMap.endMove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.bookstore.bookstore.repository.shard;
+
+import java.util.List;
+
+/**
+ * Placement of the catalog over the shards.
+ *
+ * @param shardCount number of shards that hold buckets
+ * @param shards every open shard, including those left without buckets by a rebalance
+ */
+public record ShardStats(int shardCount, List<Shard> shards) {
+
+    /**
+     * One shard.
+     *
+     * @param index number of the shard
+     * @param buckets virtual buckets assigned to the shard
+     * @param books books stored in the shard
+     */
+    public record Shard(int index, int buckets, long books) {
+    }
+}
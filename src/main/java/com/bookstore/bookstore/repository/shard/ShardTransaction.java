@@ -0,0 +1,177 @@
+package com.bookstore.bookstore.repository.shard;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+/**
+ * Shard connections of one unit of work: a Spring transaction (registered as its
+ * synchronization) or a single repository call made outside of one.
+ *
+ * <p>A connection is opened on the first write to a shard and kept until the end, so
+ * the transaction reads its own writes there. Shards are committed one after the
+ * other just before the Spring transaction commits: a failure rolls back the shards
+ * not committed yet and the transaction, but not the shards already committed. Only
+ * writes that stay on one shard are atomic. A write of one book usually does, but an
+ * ISBN change also claims the new ISBN and releases the old one on the shards of their
+ * buckets, up to three shards in all.
+ *
+ * <p>So that a failure between commits leaves the catalog readable, shards that claim
+ * ISBNs commit first, then the shards of the book rows, then the shards that only
+ * release claims: an ISBN is claimed before a book takes it. What a partial commit
+ * leaves behind, claims without their book or books without their claim, is repaired
+ * by {@link ShardedBookRepository#reconcileClaims()} right after, or at the next startup.
+ *
+ * <p>The first write also takes the write side of the rebalancing lock (a read lock,
+ * shared with other writers) until the end, so buckets never move under a transaction.
+ */
+final class ShardTransaction implements TransactionSynchronization {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardTransaction.class);
+
+    private final ShardedBookRepository owner;
+    private final Lock writerLock;
+    private final Map<BookShard, Connection> connections = new LinkedHashMap<>();
+    private final Set<BookShard> claimShards = new HashSet<>();
+    private final Set<BookShard> rowShards = new HashSet<>();
+    private boolean locked;
+    private boolean committed;
+    private boolean partial;
+
+    ShardTransaction(ShardedBookRepository owner, Lock writerLock) {
+        this.owner = owner;
+        this.writerLock = writerLock;
+    }
+
+    ShardedBookRepository owner() {
+        return owner;
+    }
+
+    /**
+     * Keeps bucket moves out until the end of the unit of work. Must be called before
+     * the shard of a write is chosen.
+     */
+    void lockBuckets() {
+        if (!locked) {
+            writerLock.lock();
+            locked = true;
+        }
+    }
+
+    /**
+     * Gets JDBC access to a shard for a write of book rows, opening the connection on first use.
+     */
+    NamedParameterJdbcTemplate writer(BookShard shard) {
+        rowShards.add(shard);
+        return connect(shard);
+    }
+
+    /**
+     * Gets JDBC access to a shard to claim ISBNs there.
+     */
+    NamedParameterJdbcTemplate claims(BookShard shard) {
+        claimShards.add(shard);
+        return connect(shard);
+    }
+
+    /**
+     * Gets JDBC access to a shard to release ISBN claims there.
+     */
+    NamedParameterJdbcTemplate releases(BookShard shard) {
+        return connect(shard);
+    }
+
+    private NamedParameterJdbcTemplate connect(BookShard shard) {
+        return shard.on(connections.computeIfAbsent(shard, BookShard::begin));
+    }
+
+    /**
+     * Gets the connection this unit of work holds to a shard, for reads that must see its writes.
+     * @return the connection, or null if nothing was written to the shard
+     */
+    Connection connection(BookShard shard) {
+        return connections.get(shard);
+    }
+
+    /**
+     * Commits every shard written to: the shards that claim ISBNs, then the shards of
+     * book rows, then the rest, each group in the order the shards were first written.
+     */
+    void commit() {
+        List<BookShard> order = new ArrayList<>(connections.keySet());
+        order.sort(Comparator.comparingInt(this::commitGroup));
+        for (int i = 0; i < order.size(); i++) {
+            BookShard shard = order.get(i);
+            try {
+                connections.get(shard).commit();
+            } catch (SQLException e) {
+                if (i > 0) {
+                    partial = true;
+                    log.error("Shard {} failed to commit after {} other shards did", shard.index(), i);
+                }
+                throw shard.translate("commit", e);
+            }
+        }
+        committed = true;
+    }
+
+    private int commitGroup(BookShard shard) {
+        if (claimShards.contains(shard)) {
+            return 0;
+        }
+        return rowShards.contains(shard) ? 1 : 2;
+    }
+
+    /**
+     * Rolls back what was not committed, closes the connections and lets bucket moves in.
+     */
+    void finish() {
+        for (Map.Entry<BookShard, Connection> entry : connections.entrySet()) {
+            Connection connection = entry.getValue();
+            try {
+                if (!committed) {
+                    connection.rollback();
+                }
+            } catch (SQLException e) {
+                log.warn("Could not roll back shard {}: {}", entry.getKey().index(), e.getMessage());
+            } finally {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.warn("Could not close the connection to shard {}: {}", entry.getKey().index(), e.getMessage());
+                }
+            }
+        }
+        connections.clear();
+        if (locked) {
+            locked = false;
+            writerLock.unlock();
+        }
+        if (partial) {
+            partial = false;
+            owner.reconcileAfterPartialCommit();
+        }
+    }
+
+    @Override
+    public void beforeCommit(boolean readOnly) {
+        commit();
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        finish();
+    }
+}
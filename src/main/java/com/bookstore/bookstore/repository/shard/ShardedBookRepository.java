@@ -0,0 +1,926 @@
+package com.bookstore.bookstore.repository.shard;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bookstore.bookstore.codec.CompressedTextConverter;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.repository.BookExamples;
+import com.bookstore.bookstore.repository.BookRepository;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+
+/**
+ * {@link BookRepository} that partitions the catalog across several H2 databases,
+ * for catalogs or write rates beyond a single database file. Selected with the
+ * {@code sharded} profile, it replaces the JPA repository for every service.
+ *
+ * <p>Placement: books are hashed by ISBN to one of 1024 virtual buckets, and the
+ * {@link ShardMap} assigns buckets to shards. New IDs come from a sequence in the
+ * main database, with the bucket in their low bits (see {@link ShardKeys}), so
+ * they are unique across shards and lead straight to the shard of the book.
+ * Lookups by ID or by ISBN therefore query one shard.
+ *
+ * <p>Lists, lookups and counts run on every shard in parallel (scatter-gather). Each
+ * shard answers the same keyset query as the single database, from the same indexes,
+ * and the pages are merge-sorted on the key of the query, so page tokens work unchanged.
+ *
+ * <p>Transactions: writes join the current Spring transaction through a
+ * {@link ShardTransaction}, one connection per shard written, committed just before
+ * the transaction. A transaction that writes to several shards, including an ISBN
+ * change, is not atomic across them if a shard fails to commit: the ISBN claims are
+ * then reconciled with the book rows (see {@link #reconcileClaims()}), and lookups by
+ * ISBN ignore a claim whose book has another ISBN.
+ *
+ * <p>Rebalancing: the {@link ShardRebalancer} moves buckets between shards. Writers
+ * share {@code bucketLock}, a move takes it exclusively; readers never lock, and
+ * retry if a move overlapped them.
+ */
+@Repository
+@Primary
+@Profile("sharded")
+public class ShardedBookRepository implements BookRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedBookRepository.class);
+
+    /** Rows read from each shard per round of a catalog scan. */
+    private static final int SCAN_PAGE_SIZE = 500;
+
+    private static final String SUMMARY_COLUMNS = "id, title, author, isbn, price, stock, available";
+
+    private static final Comparator<Book> BY_ID = Comparator.comparing(Book::getId);
+    private static final Comparator<Book> BY_TITLE = Comparator.comparing(Book::getTitle).thenComparing(BY_ID);
+    private static final Comparator<Book> BY_PRICE = Comparator.comparing(Book::getPrice).thenComparing(BY_ID);
+
+    private static final RowMapper<BookSummary> SUMMARY_MAPPER = (rs, rowNum) -> new BookSummary(rs.getLong("id"),
+            rs.getString("title"), rs.getString("author"), rs.getString("isbn"), rs.getDouble("price"),
+            rs.getInt("stock"), rs.getBoolean("available"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardMap shardMap;
+    private final BookShards shards;
+    private final CompressedTextConverter descriptions;
+    private final RowMapper<Book> bookMapper;
+    private final ReentrantReadWriteLock bucketLock = new ReentrantReadWriteLock();
+    private long nextSequence;
+    private long sequenceLimit;
+
+    /**
+     * Constructor for dependency injection. Opens the shards and finishes a bucket move
+     * interrupted by the last shutdown.
+     * @param jdbcTemplate access to the main database, which holds the shard map and the ID sequence
+     * @param shardCount number of shards of a new catalog; an existing one keeps its shards until rebalanced
+     * @param urlPattern JDBC URL of the shards, with %d standing for the shard number
+     * @param poolSize maximum connections to each shard
+     * @param compress true to compress long descriptions
+     * @param compressMinBytes UTF-8 length from which descriptions are compressed
+     */
+    public ShardedBookRepository(JdbcTemplate jdbcTemplate,
+                                 @Value("${bookstore.shard.count:4}") int shardCount,
+                                 @Value("${bookstore.shard.url:jdbc:h2:file:./data/shards/shard-%d}") String urlPattern,
+                                 @Value("${bookstore.shard.pool-size:10}") int poolSize,
+                                 @Value("${bookstore.description.compression.enabled:true}") boolean compress,
+                                 @Value("${bookstore.description.compression.min-bytes:512}") int compressMinBytes) {
+        if (shardCount <= 0 || shardCount > ShardKeys.BUCKETS) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + ShardKeys.BUCKETS);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.descriptions = new CompressedTextConverter(compress, compressMinBytes);
+        this.bookMapper = (rs, rowNum) -> new Book(rs.getLong("id"), rs.getString("title"), rs.getString("author"),
+                rs.getString("isbn"), rs.getDouble("price"), rs.getInt("stock"),
+                descriptions.convertToEntityAttribute(rs.getBytes("description")), rs.getBoolean("available"));
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS book_shard_seq START WITH 1 INCREMENT BY "
+                + Book.ID_ALLOCATION_SIZE);
+        this.shardMap = new ShardMap(jdbcTemplate, shardCount);
+        this.shards = new BookShards(urlPattern, poolSize);
+        shards.shard(Math.max(shardCount, shardMap.shardCount()) - 1);
+        finishInterruptedMove();
+        reconcileClaims();
+        if (shardMap.shardCount() != shardCount) {
+            log.warn("The catalog is spread over {} shards, not the {} configured: rebalance to change it",
+                    shardMap.shardCount(), shardCount);
+        }
+        log.info("Sharded storage ready with {} shards", shardMap.shardCount());
+    }
+
+    // ---- Reads by key: one shard -------------------------------------------------------
+
+    @Override
+    public Optional<Book> findById(Long id) {
+        requireId(id);
+        return read(() -> reader(shardOfId(id)).query("SELECT * FROM book WHERE id = :id", Map.of("id", id),
+                bookMapper)).stream().findFirst();
+    }
+
+    @Override
+    public Optional<Book> findWithDescriptionById(Long id) {
+        // Descriptions are stored in the book rows
+        return findById(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        requireId(id);
+        return read(() -> reader(shardOfId(id)).queryForObject("SELECT COUNT(*) FROM book WHERE id = :id",
+                Map.of("id", id), Long.class)) > 0;
+    }
+
+    @Override
+    public Optional<BookSummary> findSummaryById(Long id) {
+        requireId(id);
+        return read(() -> reader(shardOfId(id)).query("SELECT " + SUMMARY_COLUMNS + " FROM book WHERE id = :id",
+                Map.of("id", id), SUMMARY_MAPPER)).stream().findFirst();
+    }
+
+    @Override
+    public Optional<Book> findByIsbn(String isbn) {
+        // The claim is on the shard of the ISBN; the book, on the shard of its ID (the same
+        // one unless the ISBN changed since the book was created)
+        List<Long> ids = read(() -> reader(shardOfIsbn(isbn)).queryForList(
+                "SELECT book_id FROM book_isbn WHERE isbn = :isbn", Map.of("isbn", isbn), Long.class));
+        return ids.isEmpty()
+                ? Optional.empty()
+                : findById(ids.get(0)).filter(book -> book.getIsbn().equals(isbn));
+    }
+
+    @Override
+    public List<Book> findAllById(Iterable<Long> ids) {
+        List<Long> list = new ArrayList<>();
+        ids.forEach(id -> list.add(requireId(id)));
+        return byShard(list, ShardKeys::bucketOfId, (jdbc, group) ->
+                jdbc.query("SELECT * FROM book WHERE id IN (:ids)", Map.of("ids", group), bookMapper));
+    }
+
+    @Override
+    public List<Book> findWithDescriptionByIdIn(Collection<Long> ids) {
+        return findAllById(ids);
+    }
+
+    @Override
+    public List<String> findExistingIsbns(Collection<String> isbns) {
+        return byShard(isbns, ShardKeys::bucketOfIsbn, (jdbc, group) ->
+                jdbc.queryForList("SELECT isbn FROM book_isbn WHERE isbn IN (:isbns)", Map.of("isbns", group),
+                        String.class));
+    }
+
+    // ---- Reads over the catalog: every shard, merged -----------------------------------
+
+    @Override
+    public long count() {
+        return scatter(jdbc -> jdbc.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM book", Long.class))
+                .stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public List<Book> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit) {
+        return page("SELECT * FROM book WHERE id > :afterId ORDER BY id", Map.of("afterId", afterId), limit,
+                bookMapper, BY_ID);
+    }
+
+    @Override
+    public List<BookSummary> findSummariesByIdGreaterThan(Long afterId, Limit limit) {
+        return page("SELECT " + SUMMARY_COLUMNS + " FROM book WHERE id > :afterId ORDER BY id",
+                Map.of("afterId", afterId), limit, SUMMARY_MAPPER, Comparator.comparing(BookSummary::id));
+    }
+
+    @Override
+    public List<Book> findByAuthorAfter(String author, long afterId, Limit limit) {
+        return page(AUTHOR_PAGE_SQL, Map.of("author", author, "afterId", afterId), limit, bookMapper, BY_ID);
+    }
+
+    @Override
+    public List<Book> findByTitleRangeAfter(String afterTitle, String titleEnd, long afterId, Limit limit) {
+        return page(TITLE_PAGE_SQL, Map.of("afterTitle", afterTitle, "titleEnd", titleEnd, "afterId", afterId),
+                limit, bookMapper, BY_TITLE);
+    }
+
+    @Override
+    public List<Book> findByPriceRangeAfter(double afterPrice, double maxPrice, long afterId, Limit limit) {
+        return page(PRICE_PAGE_SQL, Map.of("afterPrice", afterPrice, "maxPrice", maxPrice, "afterId", afterId),
+                limit, bookMapper, BY_PRICE);
+    }
+
+    @Override
+    public List<Book> findByAvailableAfter(boolean available, long afterId, Limit limit) {
+        return page(AVAILABILITY_PAGE_SQL, Map.of("available", available, "afterId", afterId), limit, bookMapper,
+                BY_ID);
+    }
+
+    @Override
+    public List<Book> findInStockAfter(long afterId, Limit limit) {
+        return page(IN_STOCK_PAGE_SQL, Map.of("afterId", afterId), limit, bookMapper, BY_ID);
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return findAll(Sort.unsorted());
+    }
+
+    @Override
+    public List<Book> findAll(Sort sort) {
+        return page("SELECT * FROM book" + orderBy(sort), Map.of(), Limit.unlimited(), bookMapper, comparator(sort));
+    }
+
+    @Override
+    public Page<Book> findAll(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(findAll(pageable.getSort()));
+        }
+        // Every shard may hold the whole page: each returns its first offset + size rows
+        int rows = Math.toIntExact(pageable.getOffset() + pageable.getPageSize());
+        List<Book> content = page("SELECT * FROM book" + orderBy(pageable.getSort()), Map.of(), Limit.of(rows),
+                bookMapper, comparator(pageable.getSort()));
+        content = content.subList((int) Math.min(pageable.getOffset(), content.size()), content.size());
+        return new PageImpl<>(content, pageable, count());
+    }
+
+    @Override
+    public Stream<Book> streamAllByOrderByIdAsc() {
+        return scan("*", bookMapper, Book::getId);
+    }
+
+    @Override
+    public Stream<Object[]> streamIdsAndIsbns() {
+        return scan("id, isbn", (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2)}, row -> (Long) row[0]);
+    }
+
+    @Override
+    public List<Long> findDescriptionIds(Collection<Long> ids) {
+        // Descriptions are stored with their books
+        return List.of();
+    }
+
+    // ---- Writes ------------------------------------------------------------------------
+
+    @Override
+    public <S extends Book> S save(S book) {
+        validate(book);
+        return write(transaction -> {
+            if (book.getId() == null) {
+                long id = ShardKeys.id(nextSequence(), ShardKeys.bucketOfIsbn(book.getIsbn()));
+                store(transaction, id, book, null);
+                book.setId(id);
+            } else {
+                List<String> current = transaction.writer(shardOfId(book.getId())).queryForList(
+                        "SELECT isbn FROM book WHERE id = :id FOR UPDATE", Map.of("id", book.getId()), String.class);
+                store(transaction, book.getId(), book, current.isEmpty() ? null : current.get(0));
+            }
+            return book;
+        });
+    }
+
+    @Override
+    public <S extends Book> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        for (S book : entities) {
+            saved.add(save(book));
+        }
+        return saved;
+    }
+
+    @Override
+    public <S extends Book> S saveAndFlush(S book) {
+        return save(book);
+    }
+
+    @Override
+    public <S extends Book> List<S> saveAllAndFlush(Iterable<S> entities) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public int patch(Long id, BookPatch patch) {
+        Map<String, Object> changes = patch.changes();
+        if (changes.isEmpty()) {
+            throw new IllegalArgumentException("Book patch cannot be empty");
+        }
+        requireId(id);
+        return write(transaction -> {
+            NamedParameterJdbcTemplate jdbc = transaction.writer(shardOfId(id));
+            if (patch.isbn() != null) {
+                List<String> current = jdbc.queryForList("SELECT isbn FROM book WHERE id = :id FOR UPDATE",
+                        Map.of("id", id), String.class);
+                if (current.isEmpty()) {
+                    return 0;
+                }
+                moveClaim(transaction, id, current.get(0), patch.isbn());
+            }
+            if (patch.description() != null) {
+                changes.put("description", descriptions.convertToDatabaseColumn(patch.description()));
+            }
+            // Only the changed columns are written; the names of the fields are those of the columns
+            MapSqlParameterSource parameters = new MapSqlParameterSource(changes).addValue("id", id);
+            StringBuilder sql = new StringBuilder("UPDATE book SET ");
+            changes.keySet().forEach(column -> sql.append(column).append(" = :").append(column).append(", "));
+            sql.setLength(sql.length() - 2);
+            return jdbc.update(sql.append(" WHERE id = :id").toString(), parameters);
+        });
+    }
+
+    @Override
+    public int reserveStock(Long id, int quantity) {
+        requireId(id);
+        return write(transaction -> transaction.writer(shardOfId(id)).update(
+                "UPDATE book SET stock = stock - :quantity, available = (stock - :quantity > 0) "
+                        + "WHERE id = :id AND available = TRUE AND stock >= :quantity",
+                Map.of("id", id, "quantity", quantity)));
+    }
+
+    @Override
+    public int releaseStock(Long id, int quantity) {
+        requireId(id);
+        return write(transaction -> transaction.writer(shardOfId(id)).update(
+                "UPDATE book SET stock = stock + :quantity, "
+                        + "available = CASE WHEN stock = 0 THEN TRUE ELSE available END WHERE id = :id",
+                Map.of("id", id, "quantity", quantity)));
+    }
+
+    @Override
+    public List<Long> deleteByIdInReturningIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return write(transaction -> {
+            Map<BookShard, List<Long>> byShard = new LinkedHashMap<>();
+            for (Long id : ids) {
+                byShard.computeIfAbsent(shardOfId(requireId(id)), shard -> new ArrayList<>()).add(id);
+            }
+            List<Long> deleted = new ArrayList<>(ids.size());
+            Map<BookShard, List<String>> claims = new LinkedHashMap<>();
+            byShard.forEach((shard, group) -> transaction.writer(shard).query(
+                    "SELECT id, isbn FROM OLD TABLE (DELETE FROM book WHERE id IN (:ids))", Map.of("ids", group),
+                    rs -> {
+                        deleted.add(rs.getLong(1));
+                        String isbn = rs.getString(2);
+                        claims.computeIfAbsent(shardOfIsbn(isbn), claimShard -> new ArrayList<>()).add(isbn);
+                    }));
+            claims.forEach((shard, isbns) -> transaction.releases(shard).update(
+                    "DELETE FROM book_isbn WHERE isbn IN (:isbns)", Map.of("isbns", isbns)));
+            return deleted;
+        });
+    }
+
+    @Override
+    public int deleteDescriptions(Collection<Long> ids) {
+        return 0;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        deleteByIdInReturningIds(List.of(id));
+    }
+
+    @Override
+    public void delete(Book book) {
+        if (book.getId() != null) {
+            deleteById(book.getId());
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        List<Long> list = new ArrayList<>();
+        ids.forEach(list::add);
+        deleteByIdInReturningIds(list);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Book> entities) {
+        for (Book book : entities) {
+            delete(book);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        try (Stream<Object[]> rows = streamIdsAndIsbns()) {
+            deleteByIdInReturningIds(rows.map(row -> (Long) row[0]).toList());
+        }
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<Book> entities) {
+        deleteAll(entities);
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(Iterable<Long> ids) {
+        deleteAllById(ids);
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    @Override
+    public void flush() {
+        // Statements are sent as they are made
+    }
+
+    @Override
+    @Deprecated
+    public Book getOne(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    @Deprecated
+    public Book getById(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    public Book getReferenceById(Long id) {
+        return findById(id).orElseThrow(() -> new EntityNotFoundException("Book not found: " + id));
+    }
+
+    // ---- Query by example ------------------------------------------------------------
+    // The example is a predicate over a scan of every shard in ID order, see BookExamples
+
+    @Override
+    public <S extends Book> Optional<S> findOne(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::one);
+    }
+
+    @Override
+    public <S extends Book> List<S> findAll(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::all);
+    }
+
+    @Override
+    public <S extends Book> List<S> findAll(Example<S> example, Sort sort) {
+        return findBy(example, query -> query.sortBy(sort).all());
+    }
+
+    @Override
+    public <S extends Book> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return findBy(example, query -> query.page(pageable));
+    }
+
+    @Override
+    public <S extends Book> long count(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::count);
+    }
+
+    @Override
+    public <S extends Book> boolean exists(Example<S> example) {
+        return findBy(example, FluentQuery.FetchableFluentQuery::exists);
+    }
+
+    @Override
+    public <S extends Book, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        Predicate<Book> matches = BookExamples.predicate(example);
+        return queryFunction.apply(BookExamples.query(sort -> {
+            Stream<Book> found = scan("*", bookMapper, Book::getId).filter(matches);
+            return sort.isSorted() ? found.sorted(comparator(sort)) : found;
+        }));
+    }
+
+    // ---- Shards ------------------------------------------------------------------------
+
+    BookShards shards() {
+        return shards;
+    }
+
+    ShardMap shardMap() {
+        return shardMap;
+    }
+
+    /**
+     * Gets the lock that keeps writers out while a bucket moves.
+     */
+    Lock moveLock() {
+        return bucketLock.writeLock();
+    }
+
+    /**
+     * Brings the ISBN claims back in line with the book rows after a commit that reached
+     * some shards only: drops the claims whose book is gone or has another ISBN, then
+     * claims the ISBN of every book left without its claim. Most claims sit on the shard
+     * of their book and are checked with a join there; the others with a lookup on the
+     * shard of the book or of the claim. Writers and bucket moves wait meanwhile.
+     */
+    void reconcileClaims() {
+        Lock lock = bucketLock.writeLock();
+        lock.lock();
+        try {
+            int dropped = 0;
+            int restored = 0;
+            for (int index = 0; index < shardMap.shardCount(); index++) {
+                BookShard shard = shards.shard(index);
+                List<Object[]> unbacked = shard.jdbc().getJdbcTemplate().query("SELECT c.isbn, c.book_id "
+                                + "FROM book_isbn c LEFT JOIN book b ON b.id = c.book_id AND b.isbn = c.isbn "
+                                + "WHERE b.id IS NULL",
+                        (rs, rowNum) -> new Object[]{rs.getString(1), rs.getLong(2)});
+                for (Object[] claim : unbacked) {
+                    Map<String, Object> key = Map.of("isbn", claim[0], "id", claim[1]);
+                    BookShard bookShard = shardOfId((Long) claim[1]);
+                    if (bookShard == shard || bookShard.jdbc().queryForObject(
+                            "SELECT COUNT(*) FROM book WHERE id = :id AND isbn = :isbn", key, Long.class) == 0) {
+                        shard.jdbc().update("DELETE FROM book_isbn WHERE isbn = :isbn AND book_id = :id", key);
+                        dropped++;
+                    }
+                }
+            }
+            for (int index = 0; index < shardMap.shardCount(); index++) {
+                BookShard shard = shards.shard(index);
+                List<Object[]> unclaimed = shard.jdbc().getJdbcTemplate().query("SELECT b.id, b.isbn "
+                                + "FROM book b LEFT JOIN book_isbn c ON c.isbn = b.isbn AND c.book_id = b.id "
+                                + "WHERE c.isbn IS NULL",
+                        (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2)});
+                for (Object[] book : unclaimed) {
+                    String isbn = (String) book[1];
+                    BookShard claimShard = shardOfIsbn(isbn);
+                    List<Long> owners = claimShard.jdbc().queryForList(
+                            "SELECT book_id FROM book_isbn WHERE isbn = :isbn", Map.of("isbn", isbn), Long.class);
+                    if (owners.isEmpty()) {
+                        claimShard.jdbc().update("INSERT INTO book_isbn (isbn, bucket, book_id) "
+                                        + "VALUES (:isbn, :bucket, :id)",
+                                Map.of("isbn", isbn, "bucket", ShardKeys.bucketOfIsbn(isbn), "id", book[0]));
+                        restored++;
+                    } else if (!owners.get(0).equals(book[0])) {
+                        log.warn("ISBN {} of book {} is claimed by book {}", isbn, book[0], owners.get(0));
+                    }
+                }
+            }
+            if (dropped > 0 || restored > 0) {
+                log.info("Reconciled ISBN claims: {} dropped, {} restored", dropped, restored);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reconciles the claims after a partial commit, unless this thread still writes in a
+     * suspended transaction: it holds the writers' lock, and the next startup does it.
+     */
+    void reconcileAfterPartialCommit() {
+        if (bucketLock.getReadHoldCount() > 0) {
+            log.warn("ISBN claims left to reconcile at the next startup");
+            return;
+        }
+        try {
+            reconcileClaims();
+        } catch (RuntimeException e) {
+            log.warn("Could not reconcile ISBN claims, left to the next startup: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        shards.close();
+    }
+
+    BookShard shardOfId(long id) {
+        return shards.shard(shardMap.owner(ShardKeys.bucketOfId(id)));
+    }
+
+    BookShard shardOfIsbn(String isbn) {
+        return shards.shard(shardMap.owner(ShardKeys.bucketOfIsbn(isbn)));
+    }
+
+    /**
+     * Runs a read, again if a bucket moved meanwhile (its rows may have been read on
+     * neither shard, or on both), or under the writers' lock if a bucket is moving now.
+     */
+    private <T> T read(Supplier<T> query) {
+        while (true) {
+            long version = shardMap.version();
+            if ((version & 1) != 0) {
+                Lock lock = bucketLock.readLock();
+                lock.lock();
+                try {
+                    return query.get();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            T result = query.get();
+            if (shardMap.version() == version) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Gets JDBC access to a shard for a read: the connection of the current transaction
+     * if it wrote there, so that it reads its own writes, or else the pool.
+     */
+    private NamedParameterJdbcTemplate reader(BookShard shard) {
+        ShardTransaction transaction = currentTransaction();
+        Connection connection = transaction == null ? null : transaction.connection(shard);
+        return connection == null ? shard.jdbc() : shard.on(connection);
+    }
+
+    /**
+     * Runs a query on every shard in use, in parallel.
+     * @return the result of each shard
+     */
+    private <T> List<T> scatter(Function<NamedParameterJdbcTemplate, T> query) {
+        return read(() -> {
+            List<BookShards.ShardTask<T>> tasks = new ArrayList<>();
+            for (int index = 0; index < shardMap.shardCount(); index++) {
+                NamedParameterJdbcTemplate jdbc = reader(shards.shard(index));
+                tasks.add(() -> query.apply(jdbc));
+            }
+            return shards.scatter(tasks);
+        });
+    }
+
+    /**
+     * Runs a query on the shards of the given keys, each with its own keys, in parallel.
+     * @return the concatenated results
+     */
+    private <K, T> List<T> byShard(Collection<K> keys, ToIntFunction<K> bucketOf,
+                                   BiFunction<NamedParameterJdbcTemplate, List<K>, List<T>> query) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        return read(() -> {
+            Map<BookShard, List<K>> groups = new LinkedHashMap<>();
+            for (K key : keys) {
+                BookShard shard = shards.shard(shardMap.owner(bucketOf.applyAsInt(key)));
+                groups.computeIfAbsent(shard, ignored -> new ArrayList<>()).add(key);
+            }
+            List<BookShards.ShardTask<List<T>>> tasks = new ArrayList<>(groups.size());
+            groups.forEach((shard, group) -> {
+                NamedParameterJdbcTemplate jdbc = reader(shard);
+                tasks.add(() -> query.apply(jdbc, group));
+            });
+            return BookShards.concat(shards.scatter(tasks));
+        });
+    }
+
+    /**
+     * Runs a sorted query on every shard and merges the results.
+     * @param sql query whose ORDER BY matches {@code order}
+     * @param limit maximum rows, applied on each shard and to the merged result
+     */
+    private <T> List<T> page(String sql, Map<String, ?> parameters, Limit limit, RowMapper<T> mapper,
+                             Comparator<? super T> order) {
+        String limited = limit.isLimited() ? sql + " LIMIT " + limit.max() : sql;
+        List<List<T>> pages = scatter(jdbc -> jdbc.query(limited, parameters, mapper));
+        return BookShards.merge(pages, order, limit.isLimited() ? limit.max() : Long.MAX_VALUE);
+    }
+
+    /**
+     * Scans the catalog in ID order. Every round reads the next rows of each shard after
+     * the last returned ID and returns the merged rows up to the lowest last ID of the
+     * shards that have more, so no lock is held between rounds.
+     */
+    private <T> Stream<T> scan(String columns, RowMapper<T> mapper, ToLongFunction<T> idOf) {
+        String sql = "SELECT " + columns + " FROM book WHERE id > :afterId ORDER BY id LIMIT " + SCAN_PAGE_SIZE;
+        Iterator<T> rows = new Iterator<>() {
+            private long afterId;
+            private boolean exhausted;
+            private Iterator<T> round = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!round.hasNext() && !exhausted) {
+                    fetch();
+                }
+                return round.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return round.next();
+            }
+
+            private void fetch() {
+                Map<String, Long> parameters = Map.of("afterId", afterId);
+                List<List<T>> pages = scatter(jdbc -> jdbc.query(sql, parameters, mapper));
+                long bound = Long.MAX_VALUE;
+                for (List<T> page : pages) {
+                    if (page.size() == SCAN_PAGE_SIZE) {
+                        bound = Math.min(bound, idOf.applyAsLong(page.get(page.size() - 1)));
+                    }
+                }
+                long upTo = bound;
+                List<T> merged = BookShards.merge(pages, Comparator.comparingLong(idOf), Long.MAX_VALUE).stream()
+                        .filter(row -> idOf.applyAsLong(row) <= upTo)
+                        .toList();
+                exhausted = bound == Long.MAX_VALUE;
+                if (!merged.isEmpty()) {
+                    afterId = idOf.applyAsLong(merged.get(merged.size() - 1));
+                }
+                round = merged.iterator();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL),
+                false);
+    }
+
+    /**
+     * Runs a write in the shard transaction of the current Spring transaction, or in one
+     * of its own committed at the end.
+     */
+    private <T> T write(Function<ShardTransaction, T> work) {
+        ShardTransaction transaction = currentTransaction();
+        if (transaction == null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            transaction = new ShardTransaction(this, bucketLock.readLock());
+            TransactionSynchronizationManager.registerSynchronization(transaction);
+        }
+        if (transaction != null) {
+            transaction.lockBuckets();
+            return work.apply(transaction);
+        }
+        ShardTransaction local = new ShardTransaction(this, bucketLock.readLock());
+        try {
+            local.lockBuckets();
+            T result = work.apply(local);
+            local.commit();
+            return result;
+        } finally {
+            local.finish();
+        }
+    }
+
+    ShardTransaction currentTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        // Looked up among the synchronizations (not bound as a resource) so that a
+        // suspended outer transaction keeps its own connections
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof ShardTransaction candidate && candidate.owner() == this) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes a whole book row, claiming its ISBN if it is new or changed.
+     * @param previousIsbn ISBN stored for the book, null if it is not stored yet
+     */
+    private void store(ShardTransaction transaction, long id, Book book, String previousIsbn) {
+        moveClaim(transaction, id, previousIsbn, book.getIsbn());
+        transaction.writer(shardOfId(id)).update("MERGE INTO book (id, bucket, title, author, isbn, price, stock, "
+                        + "available, description) KEY (id) VALUES (:id, :bucket, :title, :author, :isbn, :price, "
+                        + ":stock, :available, :description)",
+                new MapSqlParameterSource()
+                        .addValue("id", id)
+                        .addValue("bucket", ShardKeys.bucketOfId(id))
+                        .addValue("title", book.getTitle())
+                        .addValue("author", book.getAuthor())
+                        .addValue("isbn", book.getIsbn())
+                        .addValue("price", book.getPrice())
+                        .addValue("stock", book.getStock())
+                        .addValue("available", book.getAvailable())
+                        .addValue("description", descriptions.convertToDatabaseColumn(book.getDescription())));
+    }
+
+    /**
+     * Claims a new ISBN for a book and releases the previous one. The claim is the
+     * primary key of book_isbn on the shard of the ISBN, which keeps ISBNs unique.
+     */
+    private void moveClaim(ShardTransaction transaction, long id, String previousIsbn, String isbn) {
+        if (isbn.equals(previousIsbn)) {
+            return;
+        }
+        try {
+            transaction.claims(shardOfIsbn(isbn)).update(
+                    "INSERT INTO book_isbn (isbn, bucket, book_id) VALUES (:isbn, :bucket, :id)",
+                    Map.of("isbn", isbn, "bucket", ShardKeys.bucketOfIsbn(isbn), "id", id));
+        } catch (DuplicateKeyException e) {
+            throw new DataIntegrityViolationException("Unique index violation: ISBN " + isbn, e);
+        }
+        if (previousIsbn != null) {
+            transaction.releases(shardOfIsbn(previousIsbn)).update(
+                    "DELETE FROM book_isbn WHERE isbn = :isbn AND book_id = :id",
+                    Map.of("isbn", previousIsbn, "id", id));
+        }
+    }
+
+    /**
+     * Allocates the sequence part of a new ID, reserving blocks of values in the main database.
+     */
+    private synchronized long nextSequence() {
+        if (nextSequence == sequenceLimit) {
+            Long start = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR book_shard_seq", Long.class);
+            nextSequence = start;
+            sequenceLimit = start + Book.ID_ALLOCATION_SIZE;
+        }
+        return nextSequence++;
+    }
+
+    /**
+     * Removes the rows of a bucket whose move was interrupted from the shard that does not own it.
+     */
+    private void finishInterruptedMove() {
+        int[] move = shardMap.pendingMove();
+        if (move == null) {
+            return;
+        }
+        int bucket = move[0];
+        int owner = shardMap.owner(bucket);
+        for (int shard : new int[]{move[1], move[2]}) {
+            if (shard != owner) {
+                shards.shard(shard).deleteBucket(bucket);
+            }
+        }
+        shardMap.clearMove(bucket);
+        log.info("Finished the interrupted move of bucket {} to shard {}", bucket, owner);
+    }
+
+    private static void validate(Book book) {
+        if (book.getTitle() == null || book.getAuthor() == null || book.getIsbn() == null
+                || book.getPrice() == null || book.getStock() == null || book.getAvailable() == null) {
+            throw new DataIntegrityViolationException("Title, author, ISBN, price, stock and availability cannot be null");
+        }
+    }
+
+    private static Long requireId(Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("The given id must not be null");
+        }
+        return id;
+    }
+
+    private static String orderBy(Sort sort) {
+        StringBuilder sql = new StringBuilder(" ORDER BY ");
+        for (Sort.Order order : sort) {
+            sql.append(column(order.getProperty())).append(order.isDescending() ? " DESC, " : ", ");
+        }
+        // Ties, and unsorted requests, keep the ID order
+        return sql.append("id").toString();
+    }
+
+    private static Comparator<Book> comparator(Sort sort) {
+        Comparator<Book> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Book> next = switch (column(order.getProperty())) {
+                case "title" -> Comparator.comparing(Book::getTitle);
+                case "author" -> Comparator.comparing(Book::getAuthor);
+                case "isbn" -> Comparator.comparing(Book::getIsbn);
+                case "price" -> Comparator.comparing(Book::getPrice);
+                case "stock" -> Comparator.comparing(Book::getStock);
+                case "available" -> Comparator.comparing(Book::getAvailable);
+                default -> BY_ID;
+            };
+            next = order.isDescending() ? next.reversed() : next;
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator == null ? BY_ID : comparator.thenComparing(BY_ID);
+    }
+
+    private static String column(String property) {
+        return switch (property) {
+            case "id", "title", "author", "isbn", "price", "stock", "available" -> property;
+            default -> throw new IllegalArgumentException("Cannot sort books by " + property);
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package com.bookstore.bookstore.service;
+
+import java.util.List;
+
+import com.bookstore.bookstore.model.BookWriteOperation;
+import com.bookstore.bookstore.model.BookWriteResult;
+
+public interface BookBatchService {
+    List<BookWriteResult> write(List<BookWriteOperation> operations);
+}
@@ -0,0 +1,13 @@
+package com.bookstore.bookstore.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.ImportReport;
+
+public interface BookImportService {
+    ImportReport createBooks(Collection<Book> books);
+    ImportReport importCsv(InputStream in) throws IOException;
+}
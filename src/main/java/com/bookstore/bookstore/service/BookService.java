@@ -1,12 +1,38 @@
 package com.bookstore.bookstore.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
 import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPage;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.model.BookSummary;
 
 public interface BookService {
     List<Book> getAllBooks();
+    List<BookSummary> getAllBookSummaries();
+    BookPage getBooks(String pageToken, Integer pageSize);
+    BookPage getBooksByAuthor(String author, String pageToken, Integer pageSize);
+    BookPage getBooksByTitlePrefix(String prefix, String pageToken, Integer pageSize);
+    BookPage getBooksByPriceRange(double minPrice, double maxPrice, String pageToken, Integer pageSize);
+    BookPage getBooksByAvailability(boolean available, String pageToken, Integer pageSize);
+    BookPage getBooksInStock(String pageToken, Integer pageSize);
     Book getBookById(Long id);
+    Book findByIsbn(String isbn);
+    Map<String, Book> findByIsbns(Collection<String> isbns);
+    Page<Book> searchBooks(String query, Pageable page);
     Book createBook(Book book);
     Book updateBook(Long id, Book book);
+    CompletableFuture<Book> createBookAsync(Book book);
+    CompletableFuture<Book> updateBookAsync(Long id, Book book);
+    boolean patchBook(Long id, BookPatch changes);
     void deleteBook(Long id);
+    int deleteBooks(Collection<Long> ids);
+    boolean reserveStock(Long id, int quantity);
+    boolean releaseStock(Long id, int quantity);
+    boolean reserveAll(Map<Long, Integer> quantities);
 }
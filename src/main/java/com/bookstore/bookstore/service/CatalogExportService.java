@@ -0,0 +1,8 @@
+package com.bookstore.bookstore.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface CatalogExportService {
+    long exportBooks(ExportFormat format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,15 @@
+package com.bookstore.bookstore.service;
+
+/**
+ * Output formats supported by the catalog export.
+ */
+public enum ExportFormat {
+    /** Comma separated values with a header row (RFC 4180 quoting). */
+    CSV,
+    /** One JSON object per line. */
+    JSON_LINES,
+    /** A single JSON array of book objects. */
+    JSON,
+    /** Compact binary batch, see {@link com.bookstore.bookstore.codec.BookBinaryCodec}. */
+    BINARY
+}
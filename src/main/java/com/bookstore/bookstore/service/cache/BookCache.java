@@ -0,0 +1,202 @@
+package com.bookstore.bookstore.service.cache;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+import com.bookstore.bookstore.service.snapshot.SnapshotIO;
+
+/**
+ * Bounded in-process cache of books by ID with LRU eviction.
+ * Entries are detached copies, so callers can freely modify what they get back.
+ * Entries are invalidated after the mutating transaction commits, so readers never
+ * see rolled-back state; a generation counter keeps a reader that loaded a book
+ * before a concurrent commit from putting the stale copy back. Books read inside a
+ * read-write transaction are not cached: they may carry its uncommitted writes, and
+ * a rollback invalidates nothing.
+ */
+@Component
+public class BookCache {
+
+    private final int maxSize;
+    private final Map<Long, Book> entries;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private long appliedChanges;
+
+    /**
+     * Constructor for dependency injection.
+     * @param maxSize maximum number of cached books (0 disables the cache)
+     */
+    public BookCache(@Value("${bookstore.cache.books.max-size:10000}") int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Cache size must be greater than or equal to 0");
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Book> eldest) {
+                if (size() > BookCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up a book, counting the hit or miss.
+     * @param id identifier of the book
+     * @return a copy of the cached book, or null if it is not cached
+     */
+    public Book get(Long id) {
+        Book book;
+        synchronized (entries) {
+            book = entries.get(id);
+        }
+        if (book == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return book.copy();
+    }
+
+    /**
+     * Gets the current generation, to be read before loading a book from the database.
+     * @return the generation to pass to {@link #put(Book, long)}
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Caches a book loaded from the database, unless some book was invalidated
+     * since the given generation was read or it was read inside a read-write transaction.
+     * @param book the loaded book
+     * @param loadedAtGeneration value of {@link #generation()} before the book was loaded
+     */
+    public void put(Book book, long loadedAtGeneration) {
+        if (maxSize == 0 || book == null || book.getId() == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return;
+        }
+        Book copy = book.copy();
+        synchronized (entries) {
+            if (generation.get() == loadedAtGeneration) {
+                entries.put(copy.getId(), copy);
+            }
+        }
+    }
+
+    /**
+     * Removes a book from the cache.
+     * @param id identifier of the book
+     */
+    public void invalidate(Long id) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            if (entries.remove(id) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes every book from the cache.
+     */
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            invalidations.add(entries.size());
+            entries.clear();
+        }
+    }
+
+    /**
+     * Gets the cache counters.
+     * @return hit, miss, eviction and invalidation counts
+     */
+    public CacheStats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), size, maxSize);
+    }
+
+    /**
+     * Writes the cached books, least recently used first, as a section of a catalog snapshot.
+     * @param out destination
+     * @return number of committed changes the written entries reflect
+     * @throws IOException if writing fails
+     */
+    public long writeSnapshot(DataOutput out) throws IOException {
+        List<Book> books;
+        long applied;
+        synchronized (entries) {
+            // Cached books are never modified in place
+            books = new ArrayList<>(entries.values());
+            applied = appliedChanges;
+        }
+        out.writeInt(books.size());
+        for (Book book : books) {
+            SnapshotIO.writeBook(out, book);
+        }
+        return applied;
+    }
+
+    /**
+     * Warms the cache with the section of a catalog snapshot written by
+     * {@link #writeSnapshot(DataOutput)}. Nothing is cached if some book was
+     * invalidated since the given generation was read.
+     * @param in snapshot positioned at the cache section; left after it
+     * @param loadedAtGeneration value of {@link #generation()} before the snapshot was checked
+     * @return number of cached books
+     */
+    public int restore(ByteBuffer in, long loadedAtGeneration) {
+        int count = in.getInt();
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            books.add(SnapshotIO.readBook(in));
+        }
+        if (maxSize == 0) {
+            return 0;
+        }
+        synchronized (entries) {
+            if (generation.get() != loadedAtGeneration) {
+                return 0;
+            }
+            books.forEach(book -> entries.put(book.getId(), book));
+            return entries.size();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void onBookChanged(BookChangedEvent event) {
+        synchronized (entries) {
+            invalidate(event.id());
+            appliedChanges++;
+        }
+    }
+}
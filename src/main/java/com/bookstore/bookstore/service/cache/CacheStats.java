@@ -0,0 +1,23 @@
+package com.bookstore.bookstore.service.cache;
+
+/**
+ * Point-in-time counters of a cache.
+ *
+ * @param hits lookups served from the cache
+ * @param misses lookups that had to go to the database
+ * @param evictions entries dropped to respect the size bound
+ * @param invalidations entries dropped because the book changed
+ * @param size current number of entries
+ * @param maxSize maximum number of entries
+ */
+public record CacheStats(long hits, long misses, long evictions, long invalidations, int size, int maxSize) {
+
+    /**
+     * Gets the fraction of lookups served from the cache.
+     * @return hit rate between 0 and 1
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,45 @@
+package com.bookstore.bookstore.service.event;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+
+/**
+ * Published by the book services for every book mutation.
+ * Listeners that keep derived state (caches, indexes) should use
+ * {@code @TransactionalEventListener} so they only see committed changes.
+ *
+ * @param type kind of mutation
+ * @param id identifier of the affected book
+ * @param book detached snapshot of the book after the change, or null for deletions
+ *             and partial updates
+ * @param patch changed fields of a partial update (the rest of the book is unknown), or null;
+ *              an update with neither book nor patch only changed stock and availability
+ */
+public record BookChangedEvent(ChangeType type, Long id, Book book, BookPatch patch) {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public static BookChangedEvent created(Book book) {
+        return new BookChangedEvent(ChangeType.CREATED, book.getId(), book.copy(), null);
+    }
+
+    public static BookChangedEvent updated(Book book) {
+        return new BookChangedEvent(ChangeType.UPDATED, book.getId(), book.copy(), null);
+    }
+
+    public static BookChangedEvent patched(Long id, BookPatch patch) {
+        return new BookChangedEvent(ChangeType.UPDATED, id, null, patch);
+    }
+
+    public static BookChangedEvent stockChanged(Long id) {
+        return new BookChangedEvent(ChangeType.UPDATED, id, null, null);
+    }
+
+    public static BookChangedEvent deleted(Long id) {
+        return new BookChangedEvent(ChangeType.DELETED, id, null, null);
+    }
+}
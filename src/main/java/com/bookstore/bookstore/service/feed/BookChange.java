@@ -0,0 +1,20 @@
+package com.bookstore.bookstore.service.feed;
+
+import java.time.Instant;
+import java.util.Map;
+
+import com.bookstore.bookstore.service.event.BookChangedEvent.ChangeType;
+
+/**
+ * One committed book mutation in the change feed.
+ *
+ * @param sequence position in the feed, strictly increasing from 1
+ * @param operation kind of mutation
+ * @param id identifier of the affected book
+ * @param fields new values of the changed fields (every field for creates and full
+ *               updates, only the changed ones for partial updates, none for deletes)
+ * @param committedAt time the change was added to the feed
+ */
+public record BookChange(long sequence, ChangeType operation, Long id, Map<String, Object> fields,
+                         Instant committedAt) {
+}
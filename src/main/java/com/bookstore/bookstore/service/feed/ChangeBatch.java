@@ -0,0 +1,16 @@
+package com.bookstore.bookstore.service.feed;
+
+import java.util.List;
+
+/**
+ * Result of reading the change feed.
+ *
+ * @param changes changes after the requested sequence, in order
+ * @param lastSequence sequence to ask from next time
+ * @param cursor {@code epoch:lastSequence}, to ask from next time outside the process
+ * @param reset true if changes after the requested sequence are no longer retained
+ *              (or the cursor comes from a previous run): the consumer must reload the
+ *              catalog and then continue from {@code cursor}
+ */
+public record ChangeBatch(List<BookChange> changes, long lastSequence, String cursor, boolean reset) {
+}
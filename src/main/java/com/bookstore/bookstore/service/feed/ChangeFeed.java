@@ -0,0 +1,257 @@
+package com.bookstore.bookstore.service.feed;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+
+/**
+ * Ordered feed of committed book mutations, for consumers that keep a copy of the
+ * catalog and want to apply deltas instead of reloading it.
+ * Changes are numbered as they commit and kept in a fixed-size ring buffer, so the
+ * retention window is bounded: a consumer that falls further behind than the
+ * retention gets a reset and must reload the catalog once.
+ *
+ * <p>Sequences restart at 1 on every start of the application, so consumers outside
+ * the process keep a cursor, {@code epoch:sequence}, where the epoch names the run
+ * of the feed. A cursor from another run always gets a reset.
+ */
+@Component
+public class ChangeFeed {
+
+    private final BookRepository bookRepository;
+    private final BookChange[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), 36);
+
+    /**
+     * Sequence of the last appended change; 0 while the feed is empty.
+     * Written under the lock, volatile so that {@link #lastSequence()} doesn't take it.
+     */
+    private volatile long lastSequence;
+
+    /**
+     * Constructor for dependency injection.
+     * @param bookRepository book repository, to read the new stock of stock-only changes
+     * @param retention number of changes kept
+     */
+    public ChangeFeed(BookRepository bookRepository,
+                      @Value("${bookstore.feed.retention:10000}") int retention) {
+        if (retention <= 0) {
+            throw new IllegalArgumentException("Change feed retention must be greater than 0");
+        }
+        this.bookRepository = bookRepository;
+        this.ring = new BookChange[retention];
+    }
+
+    /**
+     * Gets the sequence of the last change.
+     * @return last sequence, 0 if nothing changed since startup
+     */
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Gets the epoch of this run of the feed.
+     */
+    public String epoch() {
+        return epoch;
+    }
+
+    /**
+     * Gets the cursor of a sequence of this run.
+     * @param sequence a sequence of the feed
+     * @return {@code epoch:sequence}
+     */
+    public String cursor(long sequence) {
+        return epoch + ":" + sequence;
+    }
+
+    /**
+     * Gets the sequence of a cursor.
+     * @param cursor {@code epoch:sequence}, or null or blank for the start of this run
+     * @return the sequence, or -1 if the cursor comes from another run
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public long sequenceOf(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        int separator = cursor.indexOf(':');
+        long sequence;
+        try {
+            sequence = separator < 0 ? -1 : Long.parseLong(cursor.substring(separator + 1).trim());
+        } catch (NumberFormatException e) {
+            sequence = -1;
+        }
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Invalid change feed cursor: " + cursor);
+        }
+        return cursor.substring(0, separator).trim().equals(epoch) ? sequence : -1;
+    }
+
+    /**
+     * Reads the changes committed after a cursor, with a reset if the cursor comes from another run.
+     * @param cursor cursor of the last change the consumer applied, null to start from the oldest retained change
+     * @param limit maximum number of changes to return
+     * @return the changes, the cursor to continue from and whether the consumer must reload
+     * @throws IllegalArgumentException if the cursor is malformed or the limit is not positive
+     */
+    public ChangeBatch changesSince(String cursor, int limit) {
+        long sequence = sequenceOf(cursor);
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be greater than 0");
+        }
+        lock.lock();
+        try {
+            return readLocked(sequence, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the changes committed after a sequence of this run.
+     * @param sequence last sequence the consumer applied (0 to start from the oldest retained change)
+     * @param limit maximum number of changes to return
+     * @return the changes, the sequence to continue from and whether the consumer must reload
+     * @throws IllegalArgumentException if the sequence is negative or the limit is not positive
+     */
+    public ChangeBatch changesSince(long sequence, int limit) {
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Sequence must be greater than or equal to 0");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be greater than 0");
+        }
+        lock.lock();
+        try {
+            return readLocked(sequence, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Like {@link #changesSince(long, int)}, but waits for a change if there is none yet.
+     * @param sequence last sequence the consumer applied
+     * @param limit maximum number of changes to return
+     * @param timeout maximum time to wait
+     * @return the changes, empty if none was committed before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public ChangeBatch awaitChangesSince(long sequence, int limit, Duration timeout) throws InterruptedException {
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Sequence must be greater than or equal to 0");
+        }
+        return await(sequence, limit, timeout);
+    }
+
+    /**
+     * Like {@link #changesSince(String, int)}, but waits for a change if there is none yet.
+     * @param cursor cursor of the last change the consumer applied
+     * @param limit maximum number of changes to return
+     * @param timeout maximum time to wait
+     * @return the changes, empty if none was committed before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public ChangeBatch awaitChangesSince(String cursor, int limit, Duration timeout) throws InterruptedException {
+        return await(sequenceOf(cursor), limit, timeout);
+    }
+
+    private ChangeBatch await(long sequence, int limit, Duration timeout) throws InterruptedException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be greater than 0");
+        }
+        long remaining = timeout.toNanos();
+        lock.lock();
+        try {
+            while (lastSequence == sequence && remaining > 0) {
+                remaining = appended.awaitNanos(remaining);
+            }
+            return readLocked(sequence, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // First of the after-commit listeners: those that run later see the change's sequence
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    void onBookChanged(BookChangedEvent event) {
+        Map<String, Object> fields = fields(event);
+        lock.lock();
+        try {
+            long sequence = ++lastSequence;
+            ring[(int) ((sequence - 1) % ring.length)] = new BookChange(sequence, event.type(), event.id(),
+                    fields, Instant.now());
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A negative sequence (a cursor of another run) always resets
+    private ChangeBatch readLocked(long sequence, int limit) {
+        long oldest = Math.max(1, lastSequence - ring.length + 1);
+        boolean reset = sequence > lastSequence || sequence < oldest - 1;
+        long from = reset ? lastSequence : sequence;
+        int count = (int) Math.min(limit, lastSequence - from);
+        List<BookChange> changes = new ArrayList<>(count);
+        for (long next = from + 1; next <= from + count; next++) {
+            changes.add(ring[(int) ((next - 1) % ring.length)]);
+        }
+        return new ChangeBatch(changes, from + count, cursor(from + count), reset);
+    }
+
+    private Map<String, Object> fields(BookChangedEvent event) {
+        if (event.type() == BookChangedEvent.ChangeType.DELETED) {
+            return Map.of();
+        }
+        if (event.book() != null) {
+            return bookFields(event.book());
+        }
+        if (event.patch() != null) {
+            return Collections.unmodifiableMap(event.patch().changes());
+        }
+        // Stock reservations don't carry the resulting stock: read it once for every consumer
+        return bookRepository.findSummaryById(event.id())
+                .map(summary -> {
+                    Map<String, Object> stock = new LinkedHashMap<>();
+                    stock.put("stock", summary.stock());
+                    stock.put("available", summary.available());
+                    return Collections.unmodifiableMap(stock);
+                })
+                .orElse(Map.of());
+    }
+
+    private static Map<String, Object> bookFields(Book book) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("title", book.getTitle());
+        fields.put("author", book.getAuthor());
+        fields.put("isbn", book.getIsbn());
+        fields.put("price", book.getPrice());
+        fields.put("stock", book.getStock());
+        fields.put("description", book.getDescription());
+        fields.put("available", book.getAvailable());
+        return Collections.unmodifiableMap(fields);
+    }
+}
@@ -0,0 +1,323 @@
+package com.bookstore.bookstore.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.model.BookWriteOperation;
+import com.bookstore.bookstore.model.BookWriteResult;
+import com.bookstore.bookstore.model.BookWriteResult.Status;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.BookBatchService;
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Service implementation for batch writes of mixed creates, updates and deletes.
+ * Operations are applied in chunks, one transaction per chunk: the books a chunk
+ * touches are loaded with a single query and the resulting inserts, updates and
+ * deletes go out as JDBC batches. Items that fail validation or reuse an existing
+ * ISBN are answered before the chunk is written, so they don't cost the rest of the
+ * chunk its transaction; if a chunk still fails at the database it is retried item
+ * by item to isolate the culprit.
+ */
+@Service
+public class BookBatchServiceImpl implements BookBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookBatchServiceImpl.class);
+
+    private final EntityManager entityManager;
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int chunkSize;
+
+    /**
+     * Constructor for dependency injection.
+     * @param entityManager entity manager used for batched writes
+     * @param bookRepository book repository
+     * @param transactionManager transaction manager for the per-chunk transactions
+     * @param eventPublisher publisher of book change events
+     * @param batchSize number of statements sent in a single JDBC batch
+     * @param chunkSize number of operations committed per transaction
+     */
+    public BookBatchServiceImpl(EntityManager entityManager,
+                                BookRepository bookRepository,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${bookstore.import.batch-size:50}") int batchSize,
+                                @Value("${bookstore.batch.chunk-size:1000}") int chunkSize) {
+        if (batchSize <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Batch and chunk sizes must be greater than 0");
+        }
+        this.entityManager = entityManager;
+        this.bookRepository = bookRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Applies a batch of writes.
+     * Operations of the same chunk are applied in order, so a book can be updated
+     * and then deleted in one batch. Created books receive their generated IDs.
+     * @param operations the writes to apply
+     * @return one result per operation, in the same order
+     * @throws IllegalArgumentException if the list is null
+     */
+    @Override
+    public List<BookWriteResult> write(List<BookWriteOperation> operations) {
+        if (operations == null) {
+            throw new IllegalArgumentException("Operations cannot be null");
+        }
+
+        BookWriteResult[] results = new BookWriteResult[operations.size()];
+        List<PendingWrite> chunk = new ArrayList<>(Math.min(chunkSize, operations.size()));
+        for (int i = 0; i < operations.size(); i++) {
+            chunk.add(new PendingWrite(i, operations.get(i)));
+            if (chunk.size() == chunkSize) {
+                writeChunk(chunk, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, results);
+        }
+        return List.of(results);
+    }
+
+    private void writeChunk(List<PendingWrite> writes, BookWriteResult[] results) {
+        List<PendingWrite> candidates = new ArrayList<>(writes.size());
+        Set<String> createdIsbns = new HashSet<>();
+        for (PendingWrite write : writes) {
+            BookWriteOperation operation = write.operation();
+            try {
+                validate(operation);
+            } catch (IllegalArgumentException e) {
+                results[write.index()] = write.result(Status.INVALID, e.getMessage());
+                continue;
+            }
+            if (operation.type() == BookWriteOperation.Type.CREATE && !createdIsbns.add(operation.book().getIsbn())) {
+                results[write.index()] = write.result(Status.CONFLICT, "Duplicate ISBN in batch");
+                continue;
+            }
+            candidates.add(write);
+        }
+
+        if (!createdIsbns.isEmpty()) {
+            Set<String> existing = new HashSet<>(bookRepository.findExistingIsbns(createdIsbns));
+            if (!existing.isEmpty()) {
+                candidates.removeIf(write -> {
+                    BookWriteOperation operation = write.operation();
+                    if (operation.type() == BookWriteOperation.Type.CREATE
+                            && existing.contains(operation.book().getIsbn())) {
+                        results[write.index()] = write.result(Status.CONFLICT, "ISBN already exists");
+                        return true;
+                    }
+                    return false;
+                });
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<BookWriteResult> applied = transactionTemplate.execute(status -> apply(candidates));
+            applied.forEach(result -> results[result.index()] = result);
+        } catch (RuntimeException e) {
+            log.warn("Batch write chunk of {} operations failed, retrying one by one: {}",
+                    candidates.size(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            for (PendingWrite write : candidates) {
+                resetCreatedId(write);
+                try {
+                    BookWriteResult result = transactionTemplate.execute(status -> apply(List.of(write)).get(0));
+                    results[write.index()] = result;
+                } catch (DataIntegrityViolationException conflict) {
+                    resetCreatedId(write);
+                    results[write.index()] = write.result(Status.CONFLICT,
+                            NestedExceptionUtils.getMostSpecificCause(conflict).getMessage());
+                } catch (RuntimeException itemError) {
+                    resetCreatedId(write);
+                    results[write.index()] = write.result(Status.FAILED,
+                            NestedExceptionUtils.getMostSpecificCause(itemError).getMessage());
+                }
+            }
+        }
+    }
+
+    private List<BookWriteResult> apply(List<PendingWrite> writes) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+
+        List<Long> ids = new ArrayList<>();
+        boolean withDescriptions = false;
+        for (PendingWrite write : writes) {
+            if (write.operation().type() != BookWriteOperation.Type.CREATE) {
+                ids.add(write.operation().id());
+                withDescriptions |= touchesDescription(write.operation());
+            }
+        }
+        Map<Long, Book> books = new HashMap<>();
+        if (!ids.isEmpty()) {
+            // Descriptions are lazy: fetch them in the same query only if some write needs them
+            (withDescriptions ? bookRepository.findWithDescriptionByIdIn(ids) : bookRepository.findAllById(ids))
+                    .forEach(book -> books.put(book.getId(), book));
+        }
+
+        List<BookWriteResult> results = new ArrayList<>(writes.size());
+        for (PendingWrite write : writes) {
+            BookWriteOperation operation = write.operation();
+            if (operation.type() == BookWriteOperation.Type.CREATE) {
+                Book book = operation.book();
+                book.setId(null);
+                // Ensure the book is available by default
+                if (book.getAvailable() == null) {
+                    book.setAvailable(true);
+                }
+                // Through the repository rather than the entity manager, so that every storage engine sees it
+                bookRepository.save(book);
+                eventPublisher.publishEvent(BookChangedEvent.created(book));
+                results.add(new BookWriteResult(write.index(), Status.CREATED, book.getId(), null));
+                continue;
+            }
+
+            Book existing = books.get(operation.id());
+            if (existing == null) {
+                results.add(write.result(Status.NOT_FOUND, "Book not found"));
+                continue;
+            }
+            switch (operation.type()) {
+                case UPDATE -> {
+                    copyFields(operation.book(), existing);
+                    bookRepository.save(existing);
+                    eventPublisher.publishEvent(BookChangedEvent.updated(existing));
+                    results.add(write.result(Status.UPDATED, null));
+                }
+                case PATCH -> {
+                    applyPatch(operation.patch(), existing);
+                    bookRepository.save(existing);
+                    eventPublisher.publishEvent(BookChangedEvent.patched(existing.getId(), operation.patch()));
+                    results.add(write.result(Status.UPDATED, null));
+                }
+                default -> {
+                    bookRepository.delete(existing);
+                    books.remove(operation.id());
+                    eventPublisher.publishEvent(BookChangedEvent.deleted(operation.id()));
+                    results.add(write.result(Status.DELETED, null));
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return results;
+    }
+
+    private static void validate(BookWriteOperation operation) {
+        if (operation == null || operation.type() == null) {
+            throw new IllegalArgumentException("Operation type is required");
+        }
+        switch (operation.type()) {
+            case CREATE -> {
+                if (operation.book() == null) {
+                    throw new IllegalArgumentException("Book cannot be null");
+                }
+                BookValidator.validateBook(operation.book());
+            }
+            case UPDATE -> {
+                requireId(operation);
+                if (operation.book() == null) {
+                    throw new IllegalArgumentException("Book cannot be null");
+                }
+                BookValidator.validateBook(operation.book());
+            }
+            case PATCH -> {
+                requireId(operation);
+                if (operation.patch() == null || operation.patch().isEmpty()) {
+                    throw new IllegalArgumentException("Book changes cannot be empty");
+                }
+                BookValidator.validatePatch(operation.patch());
+            }
+            case DELETE -> requireId(operation);
+        }
+    }
+
+    private static void requireId(BookWriteOperation operation) {
+        if (operation.id() == null) {
+            throw new IllegalArgumentException("Book ID cannot be null");
+        }
+    }
+
+    /**
+     * Checks whether applying an operation reads or replaces the stored description
+     * (deletes cascade to it).
+     */
+    private static boolean touchesDescription(BookWriteOperation operation) {
+        return operation.type() != BookWriteOperation.Type.PATCH || operation.patch().description() != null;
+    }
+
+    private static void copyFields(Book source, Book target) {
+        target.setTitle(source.getTitle());
+        target.setAuthor(source.getAuthor());
+        target.setIsbn(source.getIsbn());
+        target.setPrice(source.getPrice());
+        target.setStock(source.getStock());
+        target.setDescription(source.getDescription());
+        target.setAvailable(source.getAvailable());
+    }
+
+    private static void applyPatch(BookPatch patch, Book target) {
+        if (patch.title() != null) {
+            target.setTitle(patch.title());
+        }
+        if (patch.author() != null) {
+            target.setAuthor(patch.author());
+        }
+        if (patch.isbn() != null) {
+            target.setIsbn(patch.isbn());
+        }
+        if (patch.price() != null) {
+            target.setPrice(patch.price());
+        }
+        if (patch.stock() != null) {
+            target.setStock(patch.stock());
+        }
+        if (patch.description() != null) {
+            target.setDescription(patch.description());
+        }
+        if (patch.available() != null) {
+            target.setAvailable(patch.available());
+        }
+    }
+
+    private static void resetCreatedId(PendingWrite write) {
+        if (write.operation().type() == BookWriteOperation.Type.CREATE) {
+            write.operation().book().setId(null);
+        }
+    }
+
+    private record PendingWrite(int index, BookWriteOperation operation) {
+
+        BookWriteResult result(Status status, String message) {
+            return new BookWriteResult(index, status, operation == null ? null : operation.id(), message);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.bookstore.bookstore.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.ImportReport;
+import com.bookstore.bookstore.model.ImportReport.RowError;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.BookImportService;
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Service implementation for bulk book imports.
+ * Rows are stored in chunks, one transaction per chunk, with JDBC insert batching.
+ * Invalid rows are reported individually instead of aborting the import: rows that
+ * fail validation or reuse an existing ISBN are filtered out before writing, and if a
+ * chunk still fails at the database it is retried row by row to isolate the culprit.
+ */
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookImportServiceImpl.class);
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("title", "author", "isbn", "price", "stock");
+
+    private final EntityManager entityManager;
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int flushSize;
+    private final int chunkSize;
+
+    /**
+     * Constructor for dependency injection.
+     * @param entityManager entity manager used for batched persists
+     * @param bookRepository book repository
+     * @param transactionManager transaction manager for the per-chunk transactions
+     * @param eventPublisher publisher of book change events
+     * @param batchSize number of inserts sent in a single JDBC batch
+     * @param flushSize number of persisted books between flushes of the persistence context
+     * @param chunkSize number of books committed per transaction
+     */
+    public BookImportServiceImpl(EntityManager entityManager,
+                                 BookRepository bookRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${bookstore.import.batch-size:50}") int batchSize,
+                                 @Value("${bookstore.import.flush-size:500}") int flushSize,
+                                 @Value("${bookstore.import.chunk-size:5000}") int chunkSize) {
+        if (batchSize <= 0 || flushSize <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Import batch, flush and chunk sizes must be greater than 0");
+        }
+        this.entityManager = entityManager;
+        this.bookRepository = bookRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.flushSize = flushSize;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Creates many books at once.
+     * The given instances receive their generated IDs when they are stored.
+     * @param books the books to create
+     * @return the number of stored books and the rejected rows
+     * @throws IllegalArgumentException if the collection is null
+     */
+    @Override
+    public ImportReport createBooks(Collection<Book> books) {
+        if (books == null) {
+            throw new IllegalArgumentException("Books cannot be null");
+        }
+
+        ImportState state = new ImportState();
+        List<PendingRow> chunk = new ArrayList<>(Math.min(chunkSize, books.size()));
+        long row = 0;
+        for (Book book : books) {
+            chunk.add(new PendingRow(++row, book));
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, state);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, state);
+        }
+        return state.report();
+    }
+
+    /**
+     * Imports books from a UTF-8 CSV stream with a header row.
+     * Required columns are title, author, isbn, price and stock; description and
+     * available are optional and any other column (such as id) is ignored, so the
+     * CSV catalog export can be imported back. The stream is not closed.
+     * @param in CSV input
+     * @return the number of stored books and the rejected rows
+     * @throws IOException if reading the input fails
+     * @throws IllegalArgumentException if the stream is null or the header lacks a required column
+     */
+    @Override
+    public ImportReport importCsv(InputStream in) throws IOException {
+        if (in == null) {
+            throw new IllegalArgumentException("Input stream cannot be null");
+        }
+
+        ImportState state = new ImportState();
+        CsvReader reader = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> header = reader.readRecord();
+        if (header == null) {
+            return state.report();
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("CSV header is missing column: " + column);
+            }
+        }
+
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+        long row = 0;
+        List<String> record;
+        while ((record = reader.readRecord()) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            row++;
+            try {
+                chunk.add(new PendingRow(row, toBook(record, columns)));
+            } catch (IllegalArgumentException e) {
+                state.errors.add(new RowError(row, field(record, columns, "isbn"), "Invalid row: " + e.getMessage()));
+            }
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, state);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, state);
+        }
+        return state.report();
+    }
+
+    private void importChunk(List<PendingRow> rows, ImportState state) {
+        List<PendingRow> candidates = new ArrayList<>(rows.size());
+        Set<String> chunkIsbns = new HashSet<>();
+        for (PendingRow row : rows) {
+            Book book = row.book();
+            if (book == null) {
+                state.errors.add(new RowError(row.row(), null, "Book cannot be null"));
+                continue;
+            }
+            try {
+                BookValidator.validateBook(book);
+            } catch (IllegalArgumentException e) {
+                state.errors.add(new RowError(row.row(), book.getIsbn(), e.getMessage()));
+                continue;
+            }
+            if (!chunkIsbns.add(book.getIsbn())) {
+                state.errors.add(new RowError(row.row(), book.getIsbn(), "Duplicate ISBN in import"));
+                continue;
+            }
+            candidates.add(row);
+        }
+
+        // Earlier chunks are already committed, so this also catches duplicates across chunks
+        if (!candidates.isEmpty()) {
+            Set<String> existing = new HashSet<>(bookRepository.findExistingIsbns(chunkIsbns));
+            if (!existing.isEmpty()) {
+                candidates.removeIf(row -> {
+                    if (existing.contains(row.book().getIsbn())) {
+                        state.errors.add(new RowError(row.row(), row.book().getIsbn(), "ISBN already exists"));
+                        return true;
+                    }
+                    return false;
+                });
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> persistAll(candidates));
+            state.imported += candidates.size();
+        } catch (RuntimeException e) {
+            log.warn("Import chunk of {} rows failed, retrying row by row: {}",
+                    candidates.size(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            for (PendingRow row : candidates) {
+                row.book().setId(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persistAll(List.of(row)));
+                    state.imported++;
+                } catch (RuntimeException rowError) {
+                    row.book().setId(null);
+                    state.errors.add(new RowError(row.row(), row.book().getIsbn(),
+                            NestedExceptionUtils.getMostSpecificCause(rowError).getMessage()));
+                }
+            }
+        }
+    }
+
+    private void persistAll(List<PendingRow> rows) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        int pending = 0;
+        for (PendingRow row : rows) {
+            Book book = row.book();
+            // Ensure the book is available by default
+            if (book.getAvailable() == null) {
+                book.setAvailable(true);
+            }
+            bookRepository.save(book);
+            eventPublisher.publishEvent(BookChangedEvent.created(book));
+            if (++pending == flushSize) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static Book toBook(List<String> record, Map<String, Integer> columns) {
+        Book book = new Book();
+        book.setTitle(field(record, columns, "title"));
+        book.setAuthor(field(record, columns, "author"));
+        book.setIsbn(field(record, columns, "isbn"));
+        String price = field(record, columns, "price");
+        book.setPrice(price == null ? null : Double.valueOf(price));
+        String stock = field(record, columns, "stock");
+        book.setStock(stock == null ? null : Integer.valueOf(stock));
+        book.setDescription(field(record, columns, "description"));
+        String available = field(record, columns, "available");
+        book.setAvailable(available == null ? null : Boolean.valueOf(available));
+        return book;
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private record PendingRow(long row, Book book) {
+    }
+
+    private static final class ImportState {
+        private final long startNanos = System.nanoTime();
+        private final List<RowError> errors = new ArrayList<>();
+        private long imported;
+
+        ImportReport report() {
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            errors.sort(Comparator.comparingLong(RowError::row));
+            return new ImportReport(imported, errors, elapsedMillis);
+        }
+    }
+}
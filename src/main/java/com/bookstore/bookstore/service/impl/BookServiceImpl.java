@@ -1,45 +1,322 @@
 package com.bookstore.bookstore.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPage;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.replica.ReplicaRouting;
 import com.bookstore.bookstore.repository.BookRepository;
 import com.bookstore.bookstore.service.BookService;
+import com.bookstore.bookstore.service.cache.BookCache;
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+import com.bookstore.bookstore.service.index.IsbnIndex;
+import com.bookstore.bookstore.service.search.BookSearchIndex;
+import com.bookstore.bookstore.service.search.SearchHits;
+import com.bookstore.bookstore.service.stock.StockLedger;
+import com.bookstore.bookstore.service.write.GroupCommitWriter;
 
 /**
  * Service implementation for book management.
  * Provides CRUD operations for the Book entity.
+ * Every mutation publishes a {@link BookChangedEvent} so that caches and
+ * indexes can follow the committed state of the catalog.
  */
 @Service
 @Transactional
 public class BookServiceImpl implements BookService {
 
     private final BookRepository bookRepository;
+    private final BookCache bookCache;
+    private final IsbnIndex isbnIndex;
+    private final BookSearchIndex searchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockLedger stockLedger;
+    private final GroupCommitWriter groupCommitWriter;
+    private final ReplicaRouting replicaRouting;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     /**
      * Constructor for dependency injection.
      * @param bookRepository book repository
+     * @param bookCache read-through cache for single book lookups
+     * @param isbnIndex in-memory ISBN to ID index
+     * @param searchIndex full-text index over title, author and description
+     * @param eventPublisher publisher of book change events
+     * @param stockLedger in-memory stock ledger, when enabled for this deployment
+     * @param groupCommitWriter pipeline behind the asynchronous writes
+     * @param replicaRouting read replica routing, when enabled for this deployment
+     * @param defaultPageSize page size used when the caller doesn't specify one
+     * @param maxPageSize upper bound for the requested page size
      */
-    public BookServiceImpl(BookRepository bookRepository) {
+    public BookServiceImpl(BookRepository bookRepository,
+                           BookCache bookCache,
+                           IsbnIndex isbnIndex,
+                           BookSearchIndex searchIndex,
+                           ApplicationEventPublisher eventPublisher,
+                           ObjectProvider<StockLedger> stockLedger,
+                           GroupCommitWriter groupCommitWriter,
+                           ObjectProvider<ReplicaRouting> replicaRouting,
+                           @Value("${bookstore.catalog.page-size:100}") int defaultPageSize,
+                           @Value("${bookstore.catalog.max-page-size:1000}") int maxPageSize) {
         this.bookRepository = bookRepository;
+        this.bookCache = bookCache;
+        this.isbnIndex = isbnIndex;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
+        this.stockLedger = stockLedger.getIfAvailable();
+        this.groupCommitWriter = groupCommitWriter;
+        this.replicaRouting = replicaRouting.getIfAvailable();
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     /**
      * Gets all books available in the database.
-     * @return list of all books
+     * Walks the catalog page by page so that no single query scans the whole table.
+     * @return list of all books ordered by ID
      */
     @Override
     @Transactional(readOnly = true)
     public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+        List<Book> books = new ArrayList<>();
+        long afterId = 0L;
+        List<Book> page;
+        do {
+            page = bookRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(maxPageSize));
+            books.addAll(page);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == maxPageSize);
+        return books;
+    }
+
+    /**
+     * Gets the summary of every book, for list views.
+     * Same paging as {@link #getAllBooks()}, without descriptions or managed entities.
+     * @return list of all book summaries ordered by ID
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookSummary> getAllBookSummaries() {
+        List<BookSummary> summaries = new ArrayList<>();
+        long afterId = 0L;
+        List<BookSummary> page;
+        do {
+            page = bookRepository.findSummariesByIdGreaterThan(afterId, Limit.of(maxPageSize));
+            summaries.addAll(page);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).id();
+            }
+        } while (page.size() == maxPageSize);
+        return summaries;
+    }
+
+    /**
+     * Gets a page of books using keyset pagination, ordered by ID.
+     * @param pageToken token returned by the previous page, or null for the first page
+     * @param pageSize number of books per page, or null for the configured default
+     * @return the requested page and the token of the next one
+     * @throws IllegalArgumentException if the token is invalid or the page size is not positive
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BookPage getBooks(String pageToken, Integer pageSize) {
+        int size = pageSize(pageSize);
+        long afterId = BookPage.decodeToken(pageToken);
+
+        // Fetch one extra row to know whether a next page exists
+        List<Book> books = bookRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size + 1));
+        return toPage(books, size, last -> BookPage.encodeToken(last.getId()));
+    }
+
+    /**
+     * Gets a page of the books of an author, ordered by ID.
+     * @param author exact author name
+     * @param pageToken token returned by the previous page, or null for the first page
+     * @param pageSize number of books per page, or null for the configured default
+     * @return the requested page and the token of the next one
+     * @throws IllegalArgumentException if the author is blank, the token is invalid or the page size is not positive
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BookPage getBooksByAuthor(String author, String pageToken, Integer pageSize) {
+        if (author == null || author.isBlank()) {
+            throw new IllegalArgumentException("Author cannot be empty");
+        }
+        int size = pageSize(pageSize);
+        long afterId = BookPage.decodeToken(pageToken);
+        List<Book> books = bookRepository.findByAuthorAfter(author, afterId, Limit.of(size + 1));
+        return toPage(books, size, last -> BookPage.encodeToken(last.getId()));
+    }
+
+    /**
+     * Gets a page of the books whose title starts with a prefix, ordered by title and then ID.
+     * The match is case-sensitive, so that it stays a range of the title index.
+     * @param prefix start of the title
+     * @param pageToken token returned by the previous page, or null for the first page
+     * @param pageSize number of books per page, or null for the configured default
+     * @return the requested page and the token of the next one
+     * @throws IllegalArgumentException if the prefix is empty, the token is invalid or the page size is not positive
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BookPage getBooksByTitlePrefix(String prefix, String pageToken, Integer pageSize) {
+        if (prefix == null || prefix.isEmpty()) {
+            throw new IllegalArgumentException("Title prefix cannot be empty");
+        }
+        int size = pageSize(pageSize);
+        BookPage.Keyset position = BookPage.decodeKeysetToken(pageToken);
+        String afterTitle = position == null ? prefix : position.key();
+        long afterId = position == null ? 0L : position.lastId();
+        if (!afterTitle.startsWith(prefix)) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        List<Book> books = bookRepository.findByTitleRangeAfter(afterTitle, prefixEnd(prefix), afterId,
+                Limit.of(size + 1));
+        return toPage(books, size, last -> BookPage.encodeToken(last.getTitle(), last.getId()));
+    }
+
+    /**
+     * Gets a page of the books within a price range, ordered by price and then ID.
+     * @param minPrice inclusive minimum price
+     * @param maxPrice inclusive maximum price
+     * @param pageToken token returned by the previous page, or null for the first page
+     * @param pageSize number of books per page, or null for the configured default
+     * @return the requested page and the token of the next one
+     * @throws IllegalArgumentException if the range is invalid, the token is invalid or the page size is not positive
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BookPage getBooksByPriceRange(double minPrice, double maxPrice, String pageToken, Integer pageSize) {
+        if (Double.isNaN(minPrice) || Double.isNaN(maxPrice) || minPrice > maxPrice) {
+            throw new IllegalArgumentException("Minimum price cannot be greater than maximum price");
+        }
+        int size = pageSize(pageSize);
+        BookPage.Keyset position = BookPage.decodeKeysetToken(pageToken);
+        double afterPrice = minPrice;
+        long afterId = 0L;
+        if (position != null) {
+            try {
+                afterPrice = Double.parseDouble(position.key());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid page token", e);
+            }
+            afterId = position.lastId();
+            if (afterPrice < minPrice) {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+        }
+        List<Book> books = bookRepository.findByPriceRangeAfter(afterPrice, maxPrice, afterId, Limit.of(size + 1));
+        // Double.toString gives back exactly the same double when parsed
+        return toPage(books, size, last -> BookPage.encodeToken(Double.toString(last.getPrice()), last.getId()));
+    }
+
+    /**
+     * Gets a page of the books with the given availability, ordered by ID.
+     * @param available true for the books on sale, false for the withdrawn ones
+     * @param pageToken token returned by the previous page, or null for the first page
+     * @param pageSize number of books per page, or null for the configured default
+     * @return the requested page and the token of the next one
+     * @throws IllegalArgumentException if the token is invalid or the page size is not positive
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BookPage getBooksByAvailability(boolean available, String pageToken, Integer pageSize) {
+        int size = pageSize(pageSize);
+        long afterId = BookPage.decodeToken(pageToken);
+        List<Book> books = bookRepository.findByAvailableAfter(available, afterId, Limit.of(size + 1));
+        return toPage(books, size, last -> BookPage.encodeToken(last.getId()));
+    }
+
+    /**
+     * Gets a page of the available books with stock left, ordered by ID.
+     * With the stock ledger enabled, the stock is the one last written to the database.
+     * @param pageToken token returned by the previous page, or null for the first page
+     * @param pageSize number of books per page, or null for the configured default
+     * @return the requested page and the token of the next one
+     * @throws IllegalArgumentException if the token is invalid or the page size is not positive
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BookPage getBooksInStock(String pageToken, Integer pageSize) {
+        int size = pageSize(pageSize);
+        long afterId = BookPage.decodeToken(pageToken);
+        List<Book> books = bookRepository.findInStockAfter(afterId, Limit.of(size + 1));
+        return toPage(books, size, last -> BookPage.encodeToken(last.getId()));
+    }
+
+    /**
+     * Resolves the requested page size.
+     * @param pageSize requested size, or null for the configured default
+     * @return the size to use, capped to the configured maximum
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    private int pageSize(Integer pageSize) {
+        int size = pageSize == null ? defaultPageSize : pageSize;
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    /**
+     * Builds a page from a query that fetched one extra row to know whether a next page exists.
+     * @param books fetched books, at most one more than the page size
+     * @param size page size
+     * @param token creates the next page token from the last book of the page
+     * @return the page
+     */
+    private static BookPage toPage(List<Book> books, int size, Function<Book, String> token) {
+        if (books.size() <= size) {
+            return new BookPage(books, null);
+        }
+        List<Book> pageBooks = books.subList(0, size);
+        return new BookPage(new ArrayList<>(pageBooks), token.apply(pageBooks.get(size - 1)));
+    }
+
+    /**
+     * Gets the smallest string greater than every string starting with the prefix.
+     * @param prefix a non-empty prefix
+     * @return exclusive upper bound of the strings starting with the prefix
+     */
+    private static String prefixEnd(String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char c = prefix.charAt(i);
+            if (c != Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (c + 1);
+            }
+        }
+        throw new IllegalArgumentException("Invalid title prefix");
     }
 
     /**
      * Finds a book by its ID.
+     * Served from the cache when possible; misses are loaded and cached.
      * @param id unique identifier of the book
      * @return the found book or null if it doesn't exist
      * @throws IllegalArgumentException if the id is null
@@ -50,7 +327,167 @@ public class BookServiceImpl implements BookService {
         if (id == null) {
             throw new IllegalArgumentException("Book ID cannot be null");
         }
-        return bookRepository.findById(id).orElse(null);
+
+        Book cached = bookCache.get(id);
+        if (cached != null) {
+            return withLedgerStock(cached);
+        }
+        long generation = bookCache.generation();
+        Book book = readForCache(() -> bookRepository.findWithDescriptionById(id).orElse(null));
+        bookCache.put(book, generation);
+        return withLedgerStock(book);
+    }
+
+    /**
+     * Runs a read whose result is cached against the primary database, even inside a
+     * read-only transaction: a row read from a lagging replica could be put in the cache
+     * after the invalidation of its change, and stay there.
+     * @param read the read
+     * @return the result of the read
+     */
+    private <T> T readForCache(Supplier<T> read) {
+        return replicaRouting == null ? read.get() : replicaRouting.onPrimary(read);
+    }
+
+    /**
+     * Applies the stock changes not yet written by the stock ledger, if any.
+     * @param book book as stored in the database
+     * @return the book with its current stock
+     */
+    private Book withLedgerStock(Book book) {
+        if (stockLedger == null || book == null) {
+            return book;
+        }
+        Integer stock = stockLedger.currentStock(book.getId());
+        if (stock == null || stock.equals(book.getStock())) {
+            return book;
+        }
+        Book current = book.copy();
+        current.setAvailable(stock > 0 && (Boolean.TRUE.equals(book.getAvailable()) || book.getStock() == 0));
+        current.setStock(stock);
+        return current;
+    }
+
+    /**
+     * Finds a book by its ISBN.
+     * The ISBN is resolved to an ID through the in-memory index, so only the
+     * book itself may need a database read (and not even that on a cache hit).
+     * @param isbn ISBN with or without hyphens, in ISBN-10 or ISBN-13 form
+     * @return the found book or null if it doesn't exist
+     * @throws IllegalArgumentException if the isbn is null or blank
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Book findByIsbn(String isbn) {
+        if (isbn == null || isbn.isBlank()) {
+            throw new IllegalArgumentException("Book ISBN cannot be empty");
+        }
+        if (!isbnIndex.isReady()) {
+            return bookRepository.findByIsbn(isbn.trim()).orElse(null);
+        }
+        Long id = isbnIndex.find(isbn);
+        return id == null ? null : getBookById(id);
+    }
+
+    /**
+     * Finds several books by ISBN.
+     * Books missing from the cache are loaded with a single query.
+     * @param isbns ISBNs to look up
+     * @return found books keyed by the requested ISBN, in request order; unknown ISBNs are omitted
+     * @throws IllegalArgumentException if the collection is null
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Book> findByIsbns(Collection<String> isbns) {
+        if (isbns == null) {
+            throw new IllegalArgumentException("ISBNs cannot be null");
+        }
+
+        Map<String, Book> found = new LinkedHashMap<>();
+        if (!isbnIndex.isReady()) {
+            for (String isbn : isbns) {
+                if (isbn != null && !isbn.isBlank()) {
+                    bookRepository.findByIsbn(isbn.trim()).ifPresent(book -> found.put(isbn, book));
+                }
+            }
+            return found;
+        }
+
+        Map<String, Long> ids = new LinkedHashMap<>();
+        for (String isbn : isbns) {
+            Long id = isbn == null ? null : isbnIndex.find(isbn);
+            if (id != null) {
+                ids.put(isbn, id);
+            }
+        }
+        Map<Long, Book> books = loadBooks(ids.values());
+        ids.forEach((isbn, id) -> {
+            Book book = books.get(id);
+            if (book != null) {
+                found.put(isbn, book);
+            }
+        });
+        return found;
+    }
+
+    /**
+     * Searches books by title, author and description.
+     * Results are ranked by relevance; the index lives in memory, so only the
+     * books of the requested page are read.
+     * @param query free text query
+     * @param page page number and size (sorting is ignored, results are ranked)
+     * @return the requested page of matching books
+     * @throws IllegalArgumentException if the query is null
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Book> searchBooks(String query, Pageable page) {
+        if (query == null) {
+            throw new IllegalArgumentException("Search query cannot be null");
+        }
+        Pageable pageable = page == null || page.isUnpaged()
+                ? PageRequest.of(0, defaultPageSize)
+                : PageRequest.of(page.getPageNumber(), Math.min(page.getPageSize(), maxPageSize));
+
+        SearchHits hits = searchIndex.search(query, pageable.getOffset(), pageable.getPageSize());
+        Map<Long, Book> books = loadBooks(hits.ids());
+        List<Book> ranked = new ArrayList<>(hits.ids().size());
+        for (Long id : hits.ids()) {
+            Book book = books.get(id);
+            if (book != null) {
+                ranked.add(book);
+            }
+        }
+        return new PageImpl<>(ranked, pageable, hits.totalHits());
+    }
+
+    /**
+     * Loads books by ID, from the cache when possible and with a single query for the rest.
+     * @param ids identifiers of the books to load
+     * @return the found books keyed by ID
+     */
+    private Map<Long, Book> loadBooks(Collection<Long> ids) {
+        Map<Long, Book> books = new LinkedHashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : ids) {
+            if (books.containsKey(id)) {
+                continue;
+            }
+            Book cached = bookCache.get(id);
+            books.put(id, cached);
+            if (cached == null) {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            long generation = bookCache.generation();
+            for (Book book : readForCache(() -> bookRepository.findWithDescriptionByIdIn(misses))) {
+                books.put(book.getId(), book);
+                bookCache.put(book, generation);
+            }
+        }
+        books.values().removeIf(book -> book == null);
+        return books;
     }
 
     /**
@@ -65,14 +502,16 @@ public class BookServiceImpl implements BookService {
             throw new IllegalArgumentException("Book cannot be null");
         }
         
-        validateBook(book);
+        BookValidator.validateBook(book);
         
         // Ensure the book is available by default
         if (book.getAvailable() == null) {
             book.setAvailable(true);
         }
         
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.created(savedBook));
+        return savedBook;
     }
 
     /**
@@ -91,7 +530,7 @@ public class BookServiceImpl implements BookService {
             throw new IllegalArgumentException("Book cannot be null");
         }
 
-        Optional<Book> existingBookOpt = bookRepository.findById(id);
+        Optional<Book> existingBookOpt = bookRepository.findWithDescriptionById(id);
         if (existingBookOpt.isEmpty()) {
             return null;
         }
@@ -99,7 +538,7 @@ public class BookServiceImpl implements BookService {
         Book existingBook = existingBookOpt.get();
         
         // Validate the new data
-        validateBook(book);
+        BookValidator.validateBook(book);
         
         // Update the fields
         existingBook.setTitle(book.getTitle());
@@ -110,11 +549,80 @@ public class BookServiceImpl implements BookService {
         existingBook.setDescription(book.getDescription());
         existingBook.setAvailable(book.getAvailable());
 
-        return bookRepository.save(existingBook);
+        Book savedBook = bookRepository.save(existingBook);
+        eventPublisher.publishEvent(BookChangedEvent.updated(savedBook));
+        return savedBook;
+    }
+
+    /**
+     * Creates a new book, committed together with other concurrent writes when
+     * group commit is enabled. Validation happens before returning, in the caller's thread.
+     * @param book book to create
+     * @return future completed with the created book, or with the write failure
+     * @throws IllegalArgumentException if the book is null or invalid
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<Book> createBookAsync(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null");
+        }
+        BookValidator.validateBook(book);
+        return groupCommitWriter.create(book);
+    }
+
+    /**
+     * Updates an existing book, committed together with other concurrent writes when
+     * group commit is enabled.
+     * @param id identifier of the book to update
+     * @param book updated book data
+     * @return future completed with the updated book, with null if not found, or with the write failure
+     * @throws IllegalArgumentException if parameters are invalid
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<Book> updateBookAsync(Long id, Book book) {
+        if (id == null) {
+            throw new IllegalArgumentException("Book ID cannot be null");
+        }
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null");
+        }
+        BookValidator.validateBook(book);
+        return groupCommitWriter.update(id, book);
+    }
+
+    /**
+     * Partially updates a book with a single UPDATE of the changed columns.
+     * Unlike {@link #updateBook(Long, Book)} the book is not loaded first.
+     * @param id identifier of the book to update
+     * @param changes fields to change; null fields are left untouched
+     * @return true if the book exists (and was updated), false otherwise
+     * @throws IllegalArgumentException if parameters are invalid
+     */
+    @Override
+    public boolean patchBook(Long id, BookPatch changes) {
+        if (id == null) {
+            throw new IllegalArgumentException("Book ID cannot be null");
+        }
+        if (changes == null) {
+            throw new IllegalArgumentException("Book changes cannot be null");
+        }
+        if (changes.isEmpty()) {
+            return bookRepository.existsById(id);
+        }
+
+        BookValidator.validatePatch(changes);
+
+        if (bookRepository.patch(id, changes) == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(BookChangedEvent.patched(id, changes));
+        return true;
     }
 
     /**
-     * Deletes a book from the database.
+     * Deletes a book from the database with a single statement.
      * @param id identifier of the book to delete
      * @throws IllegalArgumentException if the id is null
      */
@@ -123,36 +631,131 @@ public class BookServiceImpl implements BookService {
         if (id == null) {
             throw new IllegalArgumentException("Book ID cannot be null");
         }
-        
-        if (bookRepository.existsById(id)) {
-            bookRepository.deleteById(id);
+
+        deleteBooks(List.of(id));
+    }
+
+    /**
+     * Deletes several books with a single statement.
+     * @param ids identifiers of the books to delete
+     * @return number of books actually deleted
+     * @throws IllegalArgumentException if the collection is null or contains null
+     */
+    @Override
+    public int deleteBooks(Collection<Long> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("Book IDs cannot be null");
         }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        for (Long id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("Book ID cannot be null");
+            }
+        }
+
+        List<Long> descriptionIds = bookRepository.findDescriptionIds(ids);
+        List<Long> deleted = bookRepository.deleteByIdInReturningIds(ids);
+        if (!descriptionIds.isEmpty()) {
+            bookRepository.deleteDescriptions(descriptionIds);
+        }
+        for (Long id : deleted) {
+            eventPublisher.publishEvent(BookChangedEvent.deleted(id));
+        }
+        return deleted.size();
     }
 
     /**
-     * Validates book data before saving it.
-     * @param book the book to validate
-     * @throws IllegalArgumentException if the data is invalid
+     * Reserves stock of a book with a single conditional UPDATE, so concurrent
+     * reservations can never oversell. The book becomes unavailable when its stock
+     * reaches zero. With the stock ledger enabled the reservation is served from
+     * memory and written to the database in the background.
+     * @param id identifier of the book
+     * @param quantity units to reserve
+     * @return true if the stock was reserved, false if the book doesn't exist,
+     *         is unavailable or doesn't have enough stock
+     * @throws IllegalArgumentException if the id is null or the quantity is not positive
      */
-    private void validateBook(Book book) {
-        if (book.getTitle() == null || book.getTitle().trim().isEmpty()) {
-            throw new IllegalArgumentException("Book title is required");
+    @Override
+    public boolean reserveStock(Long id, int quantity) {
+        validateStockChange(id, quantity);
+        if (stockLedger != null) {
+            return stockLedger.reserve(id, quantity);
         }
-        
-        if (book.getAuthor() == null || book.getAuthor().trim().isEmpty()) {
-            throw new IllegalArgumentException("Book author is required");
+
+        if (bookRepository.reserveStock(id, quantity) == 0) {
+            return false;
         }
-        
-        if (book.getIsbn() == null || book.getIsbn().trim().isEmpty()) {
-            throw new IllegalArgumentException("Book ISBN is required");
+        eventPublisher.publishEvent(BookChangedEvent.stockChanged(id));
+        return true;
+    }
+
+    /**
+     * Gives back previously reserved stock with a single UPDATE.
+     * A sold-out book becomes available again.
+     * @param id identifier of the book
+     * @param quantity units to release
+     * @return true if the book exists, false otherwise
+     * @throws IllegalArgumentException if the id is null or the quantity is not positive
+     */
+    @Override
+    public boolean releaseStock(Long id, int quantity) {
+        validateStockChange(id, quantity);
+        if (stockLedger != null) {
+            return stockLedger.release(id, quantity);
         }
-        
-        if (book.getPrice() == null || book.getPrice() < 0) {
-            throw new IllegalArgumentException("Book price must be greater than or equal to 0");
+
+        if (bookRepository.releaseStock(id, quantity) == 0) {
+            return false;
         }
-        
-        if (book.getStock() == null || book.getStock() < 0) {
-            throw new IllegalArgumentException("Book stock must be greater than or equal to 0");
+        eventPublisher.publishEvent(BookChangedEvent.stockChanged(id));
+        return true;
+    }
+
+    /**
+     * Reserves stock of several books, all or nothing.
+     * Books are reserved in ID order so that concurrent multi-item reservations
+     * lock rows in the same order and can't deadlock. When a book falls short, the
+     * units already reserved are released in the same transaction, so a caller's
+     * transaction can still commit its other work.
+     * @param quantities units to reserve per book ID
+     * @return true if every reservation succeeded, false (and nothing reserved) otherwise
+     * @throws IllegalArgumentException if the map is null or contains invalid entries
+     */
+    @Override
+    public boolean reserveAll(Map<Long, Integer> quantities) {
+        if (quantities == null) {
+            throw new IllegalArgumentException("Quantities cannot be null");
+        }
+        Map<Long, Integer> ordered = new TreeMap<>();
+        quantities.forEach((id, quantity) -> {
+            validateStockChange(id, quantity == null ? 0 : quantity);
+            ordered.put(id, quantity);
+        });
+        if (stockLedger != null) {
+            return stockLedger.reserveAll(ordered);
+        }
+
+        List<Map.Entry<Long, Integer>> reserved = new ArrayList<>(ordered.size());
+        for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+            if (bookRepository.reserveStock(entry.getKey(), entry.getValue()) == 0) {
+                // Given back in place rather than by rolling back, which would doom a caller's transaction
+                reserved.forEach(done -> bookRepository.releaseStock(done.getKey(), done.getValue()));
+                return false;
+            }
+            reserved.add(entry);
+        }
+        ordered.keySet().forEach(id -> eventPublisher.publishEvent(BookChangedEvent.stockChanged(id)));
+        return true;
+    }
+
+    private static void validateStockChange(Long id, int quantity) {
+        if (id == null) {
+            throw new IllegalArgumentException("Book ID cannot be null");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package com.bookstore.bookstore.service.impl;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+
+/**
+ * Validation rules shared by every write path of the book services.
+ */
+final class BookValidator {
+
+    private BookValidator() {
+    }
+
+    /**
+     * Validates book data before saving it.
+     * @param book the book to validate
+     * @throws IllegalArgumentException if the data is invalid
+     */
+    static void validateBook(Book book) {
+        if (book.getTitle() == null || book.getTitle().trim().isEmpty()) {
+            throw new IllegalArgumentException("Book title is required");
+        }
+
+        if (book.getAuthor() == null || book.getAuthor().trim().isEmpty()) {
+            throw new IllegalArgumentException("Book author is required");
+        }
+
+        if (book.getIsbn() == null || book.getIsbn().trim().isEmpty()) {
+            throw new IllegalArgumentException("Book ISBN is required");
+        }
+
+        if (book.getPrice() == null || book.getPrice() < 0) {
+            throw new IllegalArgumentException("Book price must be greater than or equal to 0");
+        }
+
+        if (book.getStock() == null || book.getStock() < 0) {
+            throw new IllegalArgumentException("Book stock must be greater than or equal to 0");
+        }
+    }
+
+    /**
+     * Validates the fields set in a partial update.
+     * @param patch the changes to validate
+     * @throws IllegalArgumentException if a changed field is invalid
+     */
+    static void validatePatch(BookPatch patch) {
+        if (patch.title() != null && patch.title().trim().isEmpty()) {
+            throw new IllegalArgumentException("Book title is required");
+        }
+
+        if (patch.author() != null && patch.author().trim().isEmpty()) {
+            throw new IllegalArgumentException("Book author is required");
+        }
+
+        if (patch.isbn() != null && patch.isbn().trim().isEmpty()) {
+            throw new IllegalArgumentException("Book ISBN is required");
+        }
+
+        if (patch.price() != null && patch.price() < 0) {
+            throw new IllegalArgumentException("Book price must be greater than or equal to 0");
+        }
+
+        if (patch.stock() != null && patch.stock() < 0) {
+            throw new IllegalArgumentException("Book stock must be greater than or equal to 0");
+        }
+    }
+}
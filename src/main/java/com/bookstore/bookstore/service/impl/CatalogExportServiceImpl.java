@@ -0,0 +1,209 @@
+package com.bookstore.bookstore.service.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.bookstore.codec.BookBinaryCodec;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.CatalogExportService;
+import com.bookstore.bookstore.service.ExportFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Service implementation for catalog exports.
+ * Reads the catalog in keyset chunks of {@code chunkSize} books, each in its own short
+ * read-only transaction, and writes every chunk to the output stream outside of it:
+ * memory use doesn't depend on the size of the catalog, and a slow client never holds
+ * a database connection. The export is not a snapshot: a book changed meanwhile is
+ * written as of the chunk that reads it.
+ */
+@Service
+public class CatalogExportServiceImpl implements CatalogExportService {
+
+    private static final String CSV_HEADER = "id,title,author,isbn,price,stock,description,available";
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate readTransaction;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    /**
+     * Constructor for dependency injection.
+     * @param bookRepository book repository
+     * @param transactionManager transaction manager for the read of each chunk
+     * @param objectMapper JSON mapper
+     * @param chunkSize number of books read per transaction
+     */
+    public CatalogExportServiceImpl(BookRepository bookRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper,
+                                    @Value("${bookstore.export.chunk-size:500}") int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Export chunk size must be greater than 0");
+        }
+        this.bookRepository = bookRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes a chunk of books read by {@link #forEachChunk(ChunkWriter)}.
+     */
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(List<Book> chunk) throws IOException;
+    }
+
+    /**
+     * Writes every book of the catalog to the given stream, ordered by ID.
+     * The stream is flushed but not closed.
+     * @param format output format
+     * @param out destination stream
+     * @return number of exported books
+     * @throws IOException if writing to the stream fails
+     * @throws IllegalArgumentException if the format or the stream is null
+     */
+    @Override
+    public long exportBooks(ExportFormat format, OutputStream out) throws IOException {
+        if (format == null) {
+            throw new IllegalArgumentException("Export format cannot be null");
+        }
+        if (out == null) {
+            throw new IllegalArgumentException("Output stream cannot be null");
+        }
+
+        if (format == ExportFormat.BINARY) {
+            return exportBinary(out);
+        }
+        if (format == ExportFormat.JSON) {
+            return exportJsonArray(out);
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        long count = forEachChunk(chunk -> {
+            for (Book book : chunk) {
+                if (format == ExportFormat.CSV) {
+                    writeCsvRow(writer, book);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(book));
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+        });
+        writer.flush();
+        return count;
+    }
+
+    private long exportJsonArray(OutputStream out) throws IOException {
+        // Flushing after every book would send (and compress) tiny chunks
+        ObjectWriter bookWriter = objectMapper.writerFor(Book.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // The caller owns the stream
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            count = forEachChunk(chunk -> {
+                for (Book book : chunk) {
+                    bookWriter.writeValue(generator, book);
+                }
+                generator.flush();
+            });
+            generator.writeEndArray();
+        }
+        out.flush();
+        return count;
+    }
+
+    private long exportBinary(OutputStream out) throws IOException {
+        BookBinaryCodec.BookWriter writer = new BookBinaryCodec.BookWriter(out, true);
+        long count = forEachChunk(chunk -> {
+            for (Book book : chunk) {
+                writer.write(book);
+            }
+        });
+        writer.finish();
+        return count;
+    }
+
+    /**
+     * Reads the catalog in ID order, one keyset chunk per read-only transaction, and
+     * hands each chunk to the writer once its transaction is over.
+     * @param writer writes a chunk of books (with their descriptions loaded)
+     * @return number of books read
+     * @throws IOException if the writer fails
+     */
+    private long forEachChunk(ChunkWriter writer) throws IOException {
+        long count = 0;
+        long afterId = 0L;
+        List<Book> chunk;
+        do {
+            long lastId = afterId;
+            chunk = readTransaction.execute(status ->
+                    bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(chunkSize)));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            writer.write(chunk);
+            count += chunk.size();
+            afterId = chunk.get(chunk.size() - 1).getId();
+        } while (chunk.size() == chunkSize);
+        return count;
+    }
+
+    private void writeCsvRow(Writer writer, Book book) throws IOException {
+        writer.write(String.valueOf(book.getId()));
+        writer.write(',');
+        writer.write(csvField(book.getTitle()));
+        writer.write(',');
+        writer.write(csvField(book.getAuthor()));
+        writer.write(',');
+        writer.write(csvField(book.getIsbn()));
+        writer.write(',');
+        writer.write(String.valueOf(book.getPrice()));
+        writer.write(',');
+        writer.write(String.valueOf(book.getStock()));
+        writer.write(',');
+        writer.write(csvField(book.getDescription()));
+        writer.write(',');
+        writer.write(String.valueOf(book.getAvailable()));
+        writer.write('\n');
+    }
+
+    /**
+     * Quotes a CSV field when it contains separators, quotes or line breaks.
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean needsQuotes = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!needsQuotes) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,413 @@
+package com.bookstore.bookstore.service.index;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+import com.bookstore.bookstore.service.snapshot.SnapshotIO;
+
+/**
+ * In-memory ISBN to book ID index.
+ * ISBNs are normalized to their ISBN-13 numeric value and stored in primitive
+ * long-keyed maps, so a lookup is a couple of array probes under an optimistic
+ * read lock. ISBNs that are not valid ISBN-10/13 codes are kept in a regular map.
+ * The index is rebuilt from the repository at startup, or restored from a catalog
+ * snapshot, and kept in sync with the committed book mutations.
+ */
+@Component
+public class IsbnIndex implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(IsbnIndex.class);
+
+    private static final long NONE = -1L;
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final StampedLock lock = new StampedLock();
+
+    private LongLongHashMap isbnToId = new LongLongHashMap(1024);
+    private LongLongHashMap idToIsbn = new LongLongHashMap(1024);
+    private Map<String, Long> otherIsbnToId = new HashMap<>();
+    private Map<Long, String> idToOtherIsbn = new HashMap<>();
+
+    private volatile boolean ready;
+    private List<BookChangedEvent> changesDuringRebuild;
+    private long appliedChanges;
+
+    /**
+     * Constructor for dependency injection.
+     * @param bookRepository book repository used to rebuild the index
+     * @param transactionManager transaction manager for the rebuild scan
+     */
+    public IsbnIndex(BookRepository bookRepository, PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // Already restored from a snapshot
+        if (!ready) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Checks whether the index has been built and can answer lookups authoritatively.
+     * @return true once the startup rebuild finished
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Resolves an ISBN to a book ID.
+     * @param isbn ISBN in any common notation (with or without hyphens, ISBN-10 or ISBN-13)
+     * @return the book ID, or null if the ISBN is not indexed
+     */
+    public Long find(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        long key = normalize(isbn);
+        if (key == NONE) {
+            String other = isbn.trim();
+            long stamp = lock.readLock();
+            try {
+                return otherIsbnToId.get(other);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        long id = isbnToId.get(key, NONE);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                id = isbnToId.get(key, NONE);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return id == NONE ? null : id;
+    }
+
+    /**
+     * Gets the number of indexed ISBNs.
+     * @return index size
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return isbnToId.size() + otherIsbnToId.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Rebuilds the whole index from the repository.
+     * Changes committed while the scan runs are replayed on the new index.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        long stamp = lock.writeLock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        int expected = (int) Math.min(Integer.MAX_VALUE / 4, bookRepository.count());
+        LongLongHashMap newIsbnToId = new LongLongHashMap(expected);
+        LongLongHashMap newIdToIsbn = new LongLongHashMap(expected);
+        Map<String, Long> newOtherIsbnToId = new HashMap<>();
+        Map<Long, String> newIdToOtherIsbn = new HashMap<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = bookRepository.streamIdsAndIsbns()) {
+                Iterator<Object[]> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    Object[] row = iterator.next();
+                    add((Long) row[0], (String) row[1],
+                            newIsbnToId, newIdToIsbn, newOtherIsbnToId, newIdToOtherIsbn);
+                }
+            }
+        });
+
+        stamp = lock.writeLock();
+        try {
+            isbnToId = newIsbnToId;
+            idToIsbn = newIdToIsbn;
+            otherIsbnToId = newOtherIsbnToId;
+            idToOtherIsbn = newIdToOtherIsbn;
+            List<BookChangedEvent> pending = changesDuringRebuild;
+            changesDuringRebuild = null;
+            pending.forEach(this::applyLocked);
+            ready = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        log.info("ISBN index rebuilt with {} entries in {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void onBookChanged(BookChangedEvent event) {
+        long stamp = lock.writeLock();
+        try {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+            applyLocked(event);
+            appliedChanges++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Starts recording committed changes, to be replayed by {@link #restore(ByteBuffer)}.
+     * Must be called before checking that the snapshot is current.
+     */
+    public void beginRestore() {
+        long stamp = lock.writeLock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Stops recording changes after the snapshot turned out to be stale.
+     */
+    public void cancelRestore() {
+        long stamp = lock.writeLock();
+        try {
+            if (ready) {
+                changesDuringRebuild = null;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the index with the section of a catalog snapshot written by
+     * {@link #writeSnapshot(DataOutput)}, then replays the changes recorded since
+     * {@link #beginRestore()}.
+     * @param in snapshot positioned at the index section; left after it
+     */
+    public void restore(ByteBuffer in) {
+        long start = System.nanoTime();
+        int numeric = in.getInt();
+        LongLongHashMap newIsbnToId = new LongLongHashMap(numeric);
+        LongLongHashMap newIdToIsbn = new LongLongHashMap(numeric);
+        for (int i = 0; i < numeric; i++) {
+            long id = in.getLong();
+            long key = in.getLong();
+            newIdToIsbn.put(id, key);
+            newIsbnToId.put(key, id);
+        }
+        int others = in.getInt();
+        Map<String, Long> newOtherIsbnToId = new HashMap<>();
+        Map<Long, String> newIdToOtherIsbn = new HashMap<>();
+        for (int i = 0; i < others; i++) {
+            long id = in.getLong();
+            String isbn = SnapshotIO.readString(in);
+            newOtherIsbnToId.put(isbn, id);
+            newIdToOtherIsbn.put(id, isbn);
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            isbnToId = newIsbnToId;
+            idToIsbn = newIdToIsbn;
+            otherIsbnToId = newOtherIsbnToId;
+            idToOtherIsbn = newIdToOtherIsbn;
+            List<BookChangedEvent> pending = changesDuringRebuild;
+            changesDuringRebuild = null;
+            if (pending != null) {
+                pending.forEach(this::applyLocked);
+            }
+            ready = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        log.info("ISBN index restored with {} entries in {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes the index as a section of a catalog snapshot.
+     * @param out destination
+     * @return number of committed changes the written index reflects
+     * @throws IOException if writing fails
+     */
+    public long writeSnapshot(DataOutput out) throws IOException {
+        long[] numeric;
+        Map<Long, String> others;
+        long applied;
+        long stamp = lock.readLock();
+        try {
+            numeric = idToIsbn.toArray();
+            others = new HashMap<>(idToOtherIsbn);
+            applied = appliedChanges;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        out.writeInt(numeric.length / 2);
+        for (long value : numeric) {
+            out.writeLong(value);
+        }
+        out.writeInt(others.size());
+        for (Map.Entry<Long, String> entry : others.entrySet()) {
+            out.writeLong(entry.getKey());
+            SnapshotIO.writeString(out, entry.getValue());
+        }
+        return applied;
+    }
+
+    private void applyLocked(BookChangedEvent event) {
+        String isbn;
+        if (event.type() == BookChangedEvent.ChangeType.DELETED) {
+            isbn = null;
+        } else if (event.book() != null) {
+            isbn = event.book().getIsbn();
+        } else if (event.patch() != null && event.patch().isbn() != null) {
+            isbn = event.patch().isbn();
+        } else {
+            // Partial update that keeps the ISBN
+            return;
+        }
+        remove(event.id());
+        if (isbn != null) {
+            add(event.id(), isbn, isbnToId, idToIsbn, otherIsbnToId, idToOtherIsbn);
+        }
+    }
+
+    private void remove(Long id) {
+        long key = idToIsbn.remove(id, NONE);
+        if (key != NONE) {
+            // Only drop the forward entry if it still points to this book
+            if (isbnToId.get(key, NONE) == id) {
+                isbnToId.remove(key, NONE);
+            }
+            return;
+        }
+        String other = idToOtherIsbn.remove(id);
+        if (other != null && id.equals(otherIsbnToId.get(other))) {
+            otherIsbnToId.remove(other);
+        }
+    }
+
+    private static void add(Long id, String isbn,
+                            LongLongHashMap isbnToId, LongLongHashMap idToIsbn,
+                            Map<String, Long> otherIsbnToId, Map<Long, String> idToOtherIsbn) {
+        if (id == null || isbn == null) {
+            return;
+        }
+        long key = normalize(isbn);
+        if (key == NONE) {
+            String other = isbn.trim();
+            otherIsbnToId.put(other, id);
+            idToOtherIsbn.put(id, other);
+        } else {
+            isbnToId.put(key, id);
+            idToIsbn.put(id, key);
+        }
+    }
+
+    /**
+     * Normalizes an ISBN to the numeric value of its ISBN-13 form.
+     * Hyphens and spaces are ignored; valid ISBN-10 codes are converted to ISBN-13.
+     * An all-zero ISBN-13 passes the checksum but has no numeric key (keys are positive),
+     * so it is indexed as a free-form ISBN.
+     * @param isbn ISBN to normalize
+     * @return the ISBN-13 as a (positive) number, or -1 if the value is not a valid ISBN-10/13
+     */
+    public static long normalize(String isbn) {
+        int length = isbn.length();
+        char[] digits = new char[13];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            if (count == 13) {
+                return NONE;
+            }
+            digits[count++] = c;
+        }
+        if (count == 13) {
+            return isbn13Value(digits);
+        }
+        if (count == 10) {
+            return isbn10ToIsbn13Value(digits);
+        }
+        return NONE;
+    }
+
+    private static long isbn13Value(char[] digits) {
+        long value = 0;
+        int sum = 0;
+        for (int i = 0; i < 13; i++) {
+            int d = digits[i] - '0';
+            if (d < 0 || d > 9) {
+                return NONE;
+            }
+            sum += (i % 2 == 0) ? d : 3 * d;
+            value = value * 10 + d;
+        }
+        return sum % 10 == 0 && value > 0 ? value : NONE;
+    }
+
+    private static long isbn10ToIsbn13Value(char[] digits) {
+        int sum10 = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = digits[i];
+            int d;
+            if (i == 9 && (c == 'X' || c == 'x')) {
+                d = 10;
+            } else if (c >= '0' && c <= '9') {
+                d = c - '0';
+            } else {
+                return NONE;
+            }
+            sum10 += (10 - i) * d;
+        }
+        if (sum10 % 11 != 0) {
+            return NONE;
+        }
+
+        // 978 prefix + first nine digits + recomputed ISBN-13 check digit
+        long value = 978;
+        int sum13 = 9 + 3 * 7 + 8;
+        for (int i = 0; i < 9; i++) {
+            int d = digits[i] - '0';
+            sum13 += ((i + 3) % 2 == 0) ? d : 3 * d;
+            value = value * 10 + d;
+        }
+        int check = (10 - sum13 % 10) % 10;
+        return value * 10 + check;
+    }
+}
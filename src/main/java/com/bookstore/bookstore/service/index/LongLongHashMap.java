@@ -0,0 +1,172 @@
+package com.bookstore.bookstore.service.index;
+
+/**
+ * Compact open-addressing hash map from positive long keys to long values.
+ * Keys and values are interleaved in a single primitive array (no boxing, no
+ * entry objects), with linear probing and backward-shift deletion.
+ * Not thread-safe: callers coordinate access. Lookups only read the table through
+ * a single array reference, so they never fail even if a writer runs concurrently,
+ * which makes them usable under an optimistic read lock.
+ */
+final class LongLongHashMap {
+
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] table;
+    private int size;
+
+    LongLongHashMap(int expectedSize) {
+        table = new long[2 * capacityFor(expectedSize)];
+    }
+
+    /**
+     * Gets the value mapped to a key.
+     * @param key a positive key
+     * @param missing value returned when the key is absent
+     * @return the mapped value or {@code missing}
+     */
+    long get(long key, long missing) {
+        long[] t = table;
+        int capacity = t.length >>> 1;
+        int mask = capacity - 1;
+        int slot = hash(key) & mask;
+        for (int probes = 0; probes < capacity; probes++) {
+            long k = t[slot << 1];
+            if (k == key) {
+                return t[(slot << 1) + 1];
+            }
+            if (k == EMPTY) {
+                return missing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missing;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous value.
+     * @param key a positive key
+     * @param value the value
+     */
+    void put(long key, long value) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Key must be positive");
+        }
+        if ((size + 1) * 2 > (table.length >>> 1)) {
+            resize(table.length);
+        }
+        int mask = (table.length >>> 1) - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            long k = table[slot << 1];
+            if (k == key) {
+                table[(slot << 1) + 1] = value;
+                return;
+            }
+            if (k == EMPTY) {
+                table[(slot << 1) + 1] = value;
+                table[slot << 1] = key;
+                size++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes a key.
+     * @param key the key
+     * @param missing value returned when the key is absent
+     * @return the removed value or {@code missing}
+     */
+    long remove(long key, long missing) {
+        int mask = (table.length >>> 1) - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            long k = table[slot << 1];
+            if (k == EMPTY) {
+                return missing;
+            }
+            if (k == key) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        long removed = table[(slot << 1) + 1];
+
+        // Shift back the following entries of the probe chain so lookups never stop early
+        int gap = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            long k = table[next << 1];
+            if (k == EMPTY) {
+                break;
+            }
+            int home = hash(k) & mask;
+            boolean movable = gap <= next ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (movable) {
+                table[(gap << 1) + 1] = table[(next << 1) + 1];
+                table[gap << 1] = k;
+                gap = next;
+            }
+        }
+        table[gap << 1] = EMPTY;
+        table[(gap << 1) + 1] = 0L;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Copies the entries into a new array of alternating keys and values.
+     * @return keys at even positions, each followed by its value
+     */
+    long[] toArray() {
+        long[] entries = new long[size * 2];
+        int next = 0;
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != EMPTY) {
+                entries[next++] = table[i];
+                entries[next++] = table[i + 1];
+            }
+        }
+        return entries;
+    }
+
+    private void resize(int currentLength) {
+        long[] old = table;
+        long[] resized = new long[currentLength * 2];
+        int mask = (resized.length >>> 1) - 1;
+        for (int i = 0; i < old.length; i += 2) {
+            long k = old[i];
+            if (k != EMPTY) {
+                int slot = hash(k) & mask;
+                while (resized[slot << 1] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                resized[slot << 1] = k;
+                resized[(slot << 1) + 1] = old[i + 1];
+            }
+        }
+        // Publish the fully populated table in a single reference write
+        table = resized;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
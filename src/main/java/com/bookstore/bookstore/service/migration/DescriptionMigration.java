@@ -0,0 +1,134 @@
+package com.bookstore.bookstore.service.migration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.bookstore.codec.CompressedTextConverter;
+import com.bookstore.bookstore.model.Book;
+
+/**
+ * Moves descriptions of databases created before the book_description table
+ * out of the old inline book.description column.
+ * Hibernate's schema update adds the new table and foreign key but leaves the old
+ * column in place; this runner copies every description in chunks, one transaction
+ * each (so an interrupted migration resumes where it stopped), then drops the column.
+ * Runs before the other startup runners, which read descriptions to build indexes.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DescriptionMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DescriptionMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CompressedTextConverter converter;
+    private final int chunkSize;
+
+    /**
+     * Constructor for dependency injection.
+     * @param jdbcTemplate JDBC access to both tables
+     * @param transactionManager transaction manager for the per-chunk transactions
+     * @param compress true to compress long descriptions, as new ones are
+     * @param minBytes UTF-8 length from which descriptions are compressed
+     * @param chunkSize descriptions moved per transaction
+     */
+    public DescriptionMigration(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${bookstore.description.compression.enabled:true}") boolean compress,
+                                @Value("${bookstore.description.compression.min-bytes:512}") int minBytes,
+                                @Value("${bookstore.description.migration.chunk-size:1000}") int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Migration chunk size must be greater than 0");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.converter = new CompressedTextConverter(compress, minBytes);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        migrate();
+    }
+
+    /**
+     * Moves the inline descriptions, if the old column still exists.
+     * @return number of descriptions moved
+     */
+    public long migrate() {
+        Integer legacyColumns = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS "
+                        + "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = 'BOOK' AND COLUMN_NAME = 'DESCRIPTION'",
+                Integer.class);
+        if (legacyColumns == null || legacyColumns == 0) {
+            return 0;
+        }
+
+        long moved = 0;
+        int count;
+        do {
+            count = transactionTemplate.execute(status -> moveChunk());
+            moved += count;
+        } while (count == chunkSize);
+
+        jdbcTemplate.execute("ALTER TABLE book DROP COLUMN description");
+        log.info("Moved {} book descriptions to the book_description table", moved);
+        return moved;
+    }
+
+    private int moveChunk() {
+        List<Object[]> rows = jdbcTemplate.query(
+                "SELECT id, description FROM book WHERE description IS NOT NULL AND description_id IS NULL "
+                        + "ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new Object[]{rs.getLong("id"), rs.getString("description")},
+                chunkSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> descriptions = new ArrayList<>(rows.size());
+        List<Object[]> links = new ArrayList<>(rows.size());
+        long nextId = 0;
+        long lastId = -1;
+        for (Object[] row : rows) {
+            if (nextId > lastId) {
+                lastId = allocateIds();
+                nextId = lastId - Book.ID_ALLOCATION_SIZE + 1;
+            }
+            long descriptionId = nextId++;
+            descriptions.add(new Object[]{descriptionId, converter.convertToDatabaseColumn((String) row[1])});
+            links.add(new Object[]{descriptionId, row[0]});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO book_description (id, content) VALUES (?, ?)", descriptions);
+        jdbcTemplate.batchUpdate("UPDATE book SET description_id = ?, description = NULL WHERE id = ?", links);
+        return rows.size();
+    }
+
+    /**
+     * Takes a block of description IDs from the sequence, the way Hibernate's pooled
+     * optimizer does: a sequence value v reserves (v - allocation size, v].
+     * @return the last ID of the block
+     */
+    private long allocateIds() {
+        String next = "SELECT NEXT VALUE FOR book_description_seq";
+        long value = jdbcTemplate.queryForObject(next, Long.class);
+        if (value < Book.ID_ALLOCATION_SIZE) {
+            // The first value of a new sequence opens a block that ends at the second one
+            value = jdbcTemplate.queryForObject(next, Long.class);
+        }
+        return value;
+    }
+}
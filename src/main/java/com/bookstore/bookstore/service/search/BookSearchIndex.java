@@ -0,0 +1,456 @@
+package com.bookstore.bookstore.service.search;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+import com.bookstore.bookstore.service.snapshot.SnapshotIO;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * In-process inverted index over book titles, authors and descriptions.
+ * Each term maps to the books containing it with a field-weighted term frequency
+ * (a title match counts more than an author match, which counts more than a
+ * description match). Queries are ranked with TF-IDF, books matching every query
+ * term rank first, and the last query term also matches as a prefix so partial
+ * input finds results. The index is rebuilt at startup, or restored from a catalog
+ * snapshot, and updated incrementally from the committed book mutations.
+ */
+@Component
+public class BookSearchIndex implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    static final int TITLE_WEIGHT = 3;
+    static final int AUTHOR_WEIGHT = 2;
+    static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+    private static final int REBUILD_CLEAR_INTERVAL = 500;
+
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private Map<Long, IndexedBook> documents = new HashMap<>();
+    private List<BookChangedEvent> changesDuringRebuild;
+    private long appliedChanges;
+    private volatile boolean ready;
+
+    /**
+     * Constructor for dependency injection.
+     * @param bookRepository book repository used to rebuild the index
+     * @param entityManager entity manager, cleared while scanning the catalog
+     * @param transactionManager transaction manager for the rebuild scan
+     */
+    public BookSearchIndex(BookRepository bookRepository, EntityManager entityManager,
+                           PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // Already restored from a snapshot
+        if (!ready) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Checks whether the startup rebuild finished.
+     * @return true if the index covers the whole catalog
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Gets the number of indexed books.
+     * @return index size
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a ranked search.
+     * @param query free text query
+     * @param offset number of ranked hits to skip
+     * @param limit maximum number of hits to return
+     * @return the IDs of the requested page of hits and the total number of hits
+     */
+    public SearchHits search(String query, long offset, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokenize(query)));
+        if (terms.isEmpty() || limit <= 0) {
+            return new SearchHits(List.of(), 0);
+        }
+
+        Map<Long, double[]> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int documentCount = Math.max(1, documents.size());
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                boolean prefix = i == terms.size() - 1 && term.length() >= MIN_PREFIX_LENGTH;
+                Map<Long, Double> termScores = new HashMap<>();
+                if (prefix) {
+                    for (Map.Entry<String, Map<Long, Integer>> entry
+                            : postings.subMap(term, true, term + Character.MAX_VALUE, true).entrySet()) {
+                        double factor = entry.getKey().equals(term) ? 1.0 : PREFIX_MATCH_FACTOR;
+                        scoreTerm(entry.getValue(), documentCount, factor, termScores);
+                    }
+                } else {
+                    Map<Long, Integer> docs = postings.get(term);
+                    if (docs != null) {
+                        scoreTerm(docs, documentCount, 1.0, termScores);
+                    }
+                }
+                termScores.forEach((id, score) -> {
+                    double[] total = scores.computeIfAbsent(id, key -> new double[2]);
+                    total[0] += score;
+                    total[1]++;
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Keep only the best offset + limit hits; ties are broken by ascending ID
+        Comparator<Map.Entry<Long, Double>> ranking = Map.Entry.<Long, Double>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed());
+        long wanted = offset + limit;
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(ranking);
+        for (Map.Entry<Long, double[]> entry : scores.entrySet()) {
+            double[] total = entry.getValue();
+            double score = total[0] * total[1] / terms.size();
+            best.add(Map.entry(entry.getKey(), score));
+            if (best.size() > wanted) {
+                best.poll();
+            }
+        }
+        List<Long> ranked = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ranked.add(best.poll().getKey());
+        }
+        Collections.reverse(ranked);
+
+        List<Long> page = offset >= ranked.size()
+                ? List.of()
+                : List.copyOf(ranked.subList((int) offset, ranked.size()));
+        return new SearchHits(page, scores.size());
+    }
+
+    /**
+     * Rebuilds the index from the repository.
+     * Changes committed while the scan runs are replayed on the new index.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        NavigableMap<String, Map<Long, Integer>> newPostings = new TreeMap<>();
+        Map<Long, IndexedBook> newDocuments = new HashMap<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<Book> books = bookRepository.streamAllByOrderByIdAsc()) {
+                Iterator<Book> iterator = books.iterator();
+                int scanned = 0;
+                while (iterator.hasNext()) {
+                    Book book = iterator.next();
+                    add(book.getId(), IndexedBook.of(book), newPostings, newDocuments);
+                    if (++scanned % REBUILD_CLEAR_INTERVAL == 0) {
+                        entityManager.clear();
+                    }
+                }
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            documents = newDocuments;
+            List<BookChangedEvent> pending = changesDuringRebuild;
+            changesDuringRebuild = null;
+            pending.forEach(this::applyLocked);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index rebuilt with {} books and {} terms in {} ms",
+                documents.size(), postings.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+            applyLocked(event);
+            appliedChanges++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts recording committed changes, to be replayed by {@link #restore(ByteBuffer)}.
+     * Must be called before checking that the snapshot is current.
+     */
+    public void beginRestore() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops recording changes after the snapshot turned out to be stale.
+     */
+    public void cancelRestore() {
+        lock.writeLock().lock();
+        try {
+            if (ready) {
+                changesDuringRebuild = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the index with the section of a catalog snapshot written by
+     * {@link #writeSnapshot(DataOutput)}, then replays the changes recorded since
+     * {@link #beginRestore()}. Postings are derived from the stored term frequencies,
+     * without tokenizing any text.
+     * @param in snapshot positioned at the index section; left after it
+     */
+    public void restore(ByteBuffer in) {
+        long start = System.nanoTime();
+        String[] terms = new String[in.getInt()];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = SnapshotIO.readString(in);
+        }
+        int documentCount = in.getInt();
+        NavigableMap<String, Map<Long, Integer>> newPostings = new TreeMap<>();
+        Map<Long, IndexedBook> newDocuments = new HashMap<>(documentCount * 4 / 3 + 1);
+        for (int i = 0; i < documentCount; i++) {
+            long id = in.getLong();
+            IndexedBook book = new IndexedBook(readFrequencies(in, terms), readFrequencies(in, terms),
+                    readFrequencies(in, terms));
+            add(id, book, newPostings, newDocuments);
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            documents = newDocuments;
+            List<BookChangedEvent> pending = changesDuringRebuild;
+            changesDuringRebuild = null;
+            if (pending != null) {
+                pending.forEach(this::applyLocked);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index restored with {} books and {} terms in {} ms",
+                documents.size(), postings.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes the term frequencies of every indexed book as a section of a catalog
+     * snapshot, with a shared term dictionary.
+     * @param out destination
+     * @return number of committed changes the written index reflects
+     * @throws IOException if writing fails
+     */
+    public long writeSnapshot(DataOutput out) throws IOException {
+        Map<Long, IndexedBook> indexed;
+        Set<String> terms;
+        long applied;
+        lock.readLock().lock();
+        try {
+            // Indexed books are never modified in place, so a shallow copy is enough
+            indexed = new HashMap<>(documents);
+            terms = new LinkedHashSet<>(postings.keySet());
+            applied = appliedChanges;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<String, Integer> termIds = new HashMap<>(terms.size() * 4 / 3 + 1);
+        out.writeInt(terms.size());
+        for (String term : terms) {
+            termIds.put(term, termIds.size());
+            SnapshotIO.writeString(out, term);
+        }
+        out.writeInt(indexed.size());
+        for (Map.Entry<Long, IndexedBook> entry : indexed.entrySet()) {
+            out.writeLong(entry.getKey());
+            writeFrequencies(out, entry.getValue().title(), termIds);
+            writeFrequencies(out, entry.getValue().author(), termIds);
+            writeFrequencies(out, entry.getValue().description(), termIds);
+        }
+        return applied;
+    }
+
+    private static void writeFrequencies(DataOutput out, Map<String, Integer> frequencies,
+                                         Map<String, Integer> termIds) throws IOException {
+        out.writeInt(frequencies.size());
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            out.writeInt(termIds.get(entry.getKey()));
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    private static Map<String, Integer> readFrequencies(ByteBuffer in, String[] terms) {
+        int size = in.getInt();
+        Map<String, Integer> frequencies = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            frequencies.put(terms[in.getInt()], in.getInt());
+        }
+        return frequencies;
+    }
+
+    private void applyLocked(BookChangedEvent event) {
+        if (event.type() == BookChangedEvent.ChangeType.DELETED) {
+            remove(event.id(), postings, documents);
+        } else if (event.book() != null) {
+            remove(event.id(), postings, documents);
+            add(event.id(), IndexedBook.of(event.book()), postings, documents);
+        } else if (event.patch() != null) {
+            IndexedBook current = documents.get(event.id());
+            if (current != null) {
+                IndexedBook patched = current.patch(event.patch());
+                if (patched != current) {
+                    remove(event.id(), postings, documents);
+                    add(event.id(), patched, postings, documents);
+                }
+            }
+        }
+    }
+
+    private static void scoreTerm(Map<Long, Integer> docs, int documentCount, double factor,
+                                  Map<Long, Double> termScores) {
+        double idf = Math.log(1.0 + (double) documentCount / docs.size());
+        docs.forEach((id, weight) -> {
+            double score = factor * idf * (1.0 + Math.log(weight));
+            termScores.merge(id, score, Math::max);
+        });
+    }
+
+    private static void add(Long id, IndexedBook book,
+                            NavigableMap<String, Map<Long, Integer>> postings, Map<Long, IndexedBook> documents) {
+        documents.put(id, book);
+        book.weights().forEach((term, weight) ->
+                postings.computeIfAbsent(term, key -> new HashMap<>(4)).put(id, weight));
+    }
+
+    private static void remove(Long id, NavigableMap<String, Map<Long, Integer>> postings,
+                               Map<Long, IndexedBook> documents) {
+        IndexedBook previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.weights().keySet()) {
+            Map<Long, Integer> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(id);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Term frequencies of the indexed fields of a book.
+     */
+    record IndexedBook(Map<String, Integer> title, Map<String, Integer> author, Map<String, Integer> description) {
+
+        static IndexedBook of(Book book) {
+            return new IndexedBook(frequencies(book.getTitle()), frequencies(book.getAuthor()),
+                    frequencies(book.getDescription()));
+        }
+
+        /**
+         * Applies the text fields of a partial update.
+         * @return the updated entry, or this same instance if no indexed field changed
+         */
+        IndexedBook patch(BookPatch patch) {
+            if (patch.title() == null && patch.author() == null && patch.description() == null) {
+                return this;
+            }
+            return new IndexedBook(
+                    patch.title() != null ? frequencies(patch.title()) : title,
+                    patch.author() != null ? frequencies(patch.author()) : author,
+                    patch.description() != null ? frequencies(patch.description()) : description);
+        }
+
+        /**
+         * Combines the field frequencies using the field weights.
+         */
+        Map<String, Integer> weights() {
+            Map<String, Integer> weights = new HashMap<>();
+            title.forEach((term, count) -> weights.merge(term, count * TITLE_WEIGHT, Integer::sum));
+            author.forEach((term, count) -> weights.merge(term, count * AUTHOR_WEIGHT, Integer::sum));
+            description.forEach((term, count) -> weights.merge(term, count * DESCRIPTION_WEIGHT, Integer::sum));
+            return weights;
+        }
+
+        private static Map<String, Integer> frequencies(String text) {
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String term : Tokenizer.tokenize(text)) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+            return frequencies;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.bookstore.bookstore.service.search;
+
+import java.util.List;
+
+/**
+ * A page of search results, as book IDs in ranking order.
+ *
+ * @param ids IDs of the books of the requested page, best match first
+ * @param totalHits number of books matching the query
+ */
+public record SearchHits(List<Long> ids, long totalHits) {
+}
@@ -0,0 +1,289 @@
+package com.bookstore.bookstore.service.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.bookstore.bookstore.service.cache.BookCache;
+import com.bookstore.bookstore.service.index.IsbnIndex;
+import com.bookstore.bookstore.service.search.BookSearchIndex;
+import com.bookstore.bookstore.service.version.CatalogRevision;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Binary snapshot of the state derived from the catalog (ISBN index, search index
+ * and the hot entries of the book cache), so a restarted node is ready without
+ * scanning the whole book table.
+ *
+ * <p>The snapshot is written on shutdown and every {@code interval-ms}, and stamped
+ * with the {@link CatalogRevision} it reflects. At startup it is memory-mapped, its
+ * checksum verified, and used only if the database is still at the same revision
+ * (same epoch, revision counter, highest book ID and book count); otherwise the
+ * indexes are rebuilt from the database as usual. A snapshot is only written when
+ * every index has applied every change published so far, so it is a consistent cut.
+ *
+ * <p>Layout: magic, format version, epoch, revision, highest book ID, book count,
+ * the ISBN index, search index and cache sections, and a CRC32C of everything before it.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class CatalogSnapshot implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    private static final int MAGIC = 0x424B4353; // "BKCS"
+    private static final int FORMAT_VERSION = 1;
+
+    private final CatalogRevision catalogRevision;
+    private final IsbnIndex isbnIndex;
+    private final BookSearchIndex searchIndex;
+    private final BookCache bookCache;
+    private final boolean enabled;
+    private final Path file;
+    private final long intervalMillis;
+
+    private ScheduledExecutorService scheduler;
+    private volatile long lastWrittenChanges = -1;
+    private volatile boolean warmStart;
+    private volatile long restoreMillis;
+    private volatile long readyMillis;
+
+    /**
+     * Constructor for dependency injection.
+     * @param catalogRevision persistent catalog revision the snapshot is checked against
+     * @param isbnIndex ISBN index
+     * @param searchIndex search index
+     * @param bookCache book cache
+     * @param enabled true to restore at startup and write snapshots periodically and on shutdown
+     * @param file snapshot file
+     * @param intervalMillis time between periodic snapshots
+     */
+    public CatalogSnapshot(CatalogRevision catalogRevision,
+                           IsbnIndex isbnIndex,
+                           BookSearchIndex searchIndex,
+                           BookCache bookCache,
+                           @Value("${bookstore.snapshot.enabled:true}") boolean enabled,
+                           @Value("${bookstore.snapshot.file:./data/catalog.snapshot}") String file,
+                           @Value("${bookstore.snapshot.interval-ms:300000}") long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be greater than 0");
+        }
+        this.catalogRevision = catalogRevision;
+        this.isbnIndex = isbnIndex;
+        this.searchIndex = searchIndex;
+        this.bookCache = bookCache;
+        this.enabled = enabled;
+        this.file = Path.of(file);
+        this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        restore();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                write();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Periodic catalog snapshot failed", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Restores the indexes and the cache from the snapshot file, if it matches the database.
+     * @return true if the snapshot was used, false if the indexes must be rebuilt
+     */
+    public boolean restore() {
+        if (!Files.isRegularFile(file)) {
+            log.info("No catalog snapshot at {}", file);
+            return false;
+        }
+        long start = System.nanoTime();
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            log.warn("Could not map the catalog snapshot {}", file, e);
+            return false;
+        }
+        try {
+            ByteBuffer in = verified(mapped);
+            if (in == null) {
+                log.warn("Ignoring corrupt catalog snapshot {}", file);
+                return false;
+            }
+            CatalogRevision.Revision saved = new CatalogRevision.Revision(in.getLong(), in.getLong(),
+                    in.getLong(), in.getLong());
+
+            // Record the changes committed from now on before comparing, so none is missed
+            isbnIndex.beginRestore();
+            searchIndex.beginRestore();
+            long cacheGeneration = bookCache.generation();
+            CatalogRevision.Revision current = catalogRevision.current();
+            if (!saved.equals(current)) {
+                log.info("Catalog snapshot is stale (snapshot {}, database {}), rebuilding", saved, current);
+                isbnIndex.cancelRestore();
+                searchIndex.cancelRestore();
+                return false;
+            }
+
+            isbnIndex.restore(in);
+            searchIndex.restore(in);
+            int cached = bookCache.restore(in, cacheGeneration);
+            restoreMillis = (System.nanoTime() - start) / 1_000_000;
+            warmStart = true;
+            lastWrittenChanges = catalogRevision.publishedChanges();
+            log.info("Catalog restored from snapshot at revision {} ({} books, {} cached) in {} ms",
+                    saved.revision(), saved.bookCount(), cached, restoreMillis);
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Could not read the catalog snapshot {}, rebuilding", file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the current state, replacing the previous one atomically.
+     * Skipped if nothing changed since the last snapshot or if a change is still being
+     * applied (the next attempt will catch it).
+     * @return true if a snapshot was written
+     * @throws IOException if writing the file fails
+     */
+    public synchronized boolean write() throws IOException {
+        long published = catalogRevision.publishedChanges();
+        if (published == lastWrittenChanges || !isbnIndex.isReady() || !searchIndex.isReady()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        catalogRevision.stamp();
+        CatalogRevision.Revision revision = catalogRevision.current();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        boolean consistent = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                CRC32C crc = new CRC32C();
+                OutputStream raw = Channels.newOutputStream(channel);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(raw, crc), 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(revision.epoch());
+                out.writeLong(revision.revision());
+                out.writeLong(revision.maxBookId());
+                out.writeLong(revision.bookCount());
+                long isbnApplied = isbnIndex.writeSnapshot(out);
+                long searchApplied = searchIndex.writeSnapshot(out);
+                long cacheApplied = bookCache.writeSnapshot(out);
+                out.flush();
+                new DataOutputStream(raw).writeInt((int) crc.getValue());
+                channel.force(true);
+
+                // Every index must reflect exactly the changes behind the revision read above
+                consistent = catalogRevision.publishedChanges() == published
+                        && isbnApplied == published && searchApplied == published && cacheApplied == published;
+            }
+            if (!consistent) {
+                log.debug("Catalog changed while writing the snapshot, skipped");
+                return false;
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastWrittenChanges = published;
+            log.info("Catalog snapshot written at revision {} ({} bytes) in {} ms", revision.revision(),
+                    Files.size(file), (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Gets the startup figures of this node.
+     * @return whether the node started warm, the snapshot restore time and the
+     *         time until the application was ready, in milliseconds
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("warmStart", warmStart);
+        stats.put("restoreMillis", restoreMillis);
+        stats.put("timeToReadyMillis", readyMillis);
+        return stats;
+    }
+
+    @EventListener
+    void onReady(ApplicationReadyEvent event) {
+        readyMillis = event.getTimeTaken() == null ? 0 : event.getTimeTaken().toMillis();
+        log.info("Catalog ready {} ms after startup ({} start)", readyMillis, warmStart ? "warm" : "cold");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            write();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write the catalog snapshot on shutdown", e);
+        }
+    }
+
+    /**
+     * Checks the magic, version and trailing checksum of a mapped snapshot.
+     * @return the buffer positioned after the magic and version, or null if the file is not valid
+     */
+    private static ByteBuffer verified(MappedByteBuffer mapped) {
+        if (mapped.capacity() < 4 + 4 + 4 * 8 + 4) {
+            return null;
+        }
+        int end = mapped.capacity() - 4;
+        CRC32C crc = new CRC32C();
+        crc.update(mapped.slice(0, end));
+        if ((int) crc.getValue() != mapped.getInt(end) || mapped.getInt(0) != MAGIC
+                || mapped.getInt(4) != FORMAT_VERSION) {
+            return null;
+        }
+        return mapped.slice(8, end - 8);
+    }
+}
@@ -0,0 +1,93 @@
+package com.bookstore.bookstore.service.snapshot;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.bookstore.bookstore.model.Book;
+
+/**
+ * Encoding helpers shared by the sections of a catalog snapshot.
+ * Sections are written with {@link DataOutput} (big-endian) and read back from the
+ * memory-mapped file as a {@link ByteBuffer}.
+ */
+public final class SnapshotIO {
+
+    private SnapshotIO() {
+    }
+
+    /**
+     * Writes a string as an int byte length (-1 for null) and its UTF-8 bytes.
+     * @param out destination
+     * @param value the string, or null
+     * @throws IOException if writing fails
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}.
+     * @param in source, positioned at the string
+     * @return the string, or null
+     */
+    public static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalStateException("Corrupt snapshot string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes every field of a book exactly (unlike the export codec, prices are not rounded).
+     * @param out destination
+     * @param book the book
+     * @throws IOException if writing fails
+     */
+    public static void writeBook(DataOutput out, Book book) throws IOException {
+        out.writeLong(book.getId());
+        writeString(out, book.getTitle());
+        writeString(out, book.getAuthor());
+        writeString(out, book.getIsbn());
+        out.writeDouble(book.getPrice() == null ? Double.NaN : book.getPrice());
+        out.writeBoolean(book.getStock() != null);
+        out.writeInt(book.getStock() == null ? 0 : book.getStock());
+        writeString(out, book.getDescription());
+        out.writeByte(book.getAvailable() == null ? 2 : book.getAvailable() ? 1 : 0);
+    }
+
+    /**
+     * Reads a book written by {@link #writeBook(DataOutput, Book)}.
+     * @param in source, positioned at the book
+     * @return the book
+     */
+    public static Book readBook(ByteBuffer in) {
+        Book book = new Book();
+        book.setId(in.getLong());
+        book.setTitle(readString(in));
+        book.setAuthor(readString(in));
+        book.setIsbn(readString(in));
+        double price = in.getDouble();
+        book.setPrice(Double.isNaN(price) ? null : price);
+        boolean hasStock = in.get() != 0;
+        int stock = in.getInt();
+        book.setStock(hasStock ? stock : null);
+        book.setDescription(readString(in));
+        byte available = in.get();
+        book.setAvailable(available == 2 ? null : available == 1);
+        return book;
+    }
+}
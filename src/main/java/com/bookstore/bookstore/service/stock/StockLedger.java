@@ -0,0 +1,392 @@
+package com.bookstore.bookstore.service.stock;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+import com.bookstore.bookstore.service.version.CatalogRevision;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-memory stock ledger in front of the database for flash-sale traffic.
+ * Reservations and releases only touch lock-free striped counters; the net change
+ * of every book is written behind in JDBC batches, so thousands of decrements of
+ * the same book cost a single UPDATE per flush instead of serializing on its row lock.
+ *
+ * <p>Durability trade-off: changes not yet flushed are lost on a crash. The amount is
+ * bounded by {@code bookstore.stock.ledger.max-unflushed} units (callers flush
+ * synchronously once it is reached) and by the flush interval. Counters are always
+ * seeded from the database on first use.
+ *
+ * <p>Writes that overwrite the stock of a book (updates, stock or availability
+ * patches) don't go through the ledger. Once they commit, the counter of the book is
+ * retired and its pending change is applied on top of the new stock, so units reserved
+ * before the commit are not lost. A flush never takes a stock below zero: if an
+ * overwrite left fewer units than were reserved, the book is sold out instead.
+ *
+ * <p>A write that fails keeps its changes for the next flush, even when the counter
+ * of the book was retired meanwhile; reservations and commits never fail because of it.
+ *
+ * <p>Enabled per deployment with {@code bookstore.stock.ledger.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.stock.ledger.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class StockLedger implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(StockLedger.class);
+
+    private static final String FLUSH_SQL = "UPDATE book SET stock = stock + ?, "
+            + "available = CASE WHEN stock + ? > 0 THEN (available OR stock = 0) ELSE FALSE END "
+            + "WHERE id = ? AND stock + ? >= 0";
+    private static final String SELL_OUT_SQL = "UPDATE book SET stock = 0, available = FALSE "
+            + "WHERE id = ? AND stock + ? < 0";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogRevision catalogRevision;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int stripes;
+    private final long maxUnflushed;
+
+    private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+    // Drained changes whose write failed, by book, retried by the next flush
+    private final Map<Long, Long> unwritten = new ConcurrentHashMap<>();
+    private final AtomicLong seedGeneration = new AtomicLong();
+    private final AtomicLong unflushedUnits = new AtomicLong();
+    private final AtomicLong flushedUnits = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Constructor for dependency injection.
+     * @param jdbcTemplate JDBC access for seeding and batched flushes
+     * @param catalogRevision persistent catalog revision, bumped by the startup repair
+     * @param transactionManager transaction manager for the flush transactions
+     * @param eventPublisher publisher of book change events for flushed books
+     * @param stripes number of cells per book counter
+     * @param flushIntervalMillis time between background flushes
+     * @param maxUnflushed units changed in memory after which callers flush synchronously
+     */
+    public StockLedger(JdbcTemplate jdbcTemplate,
+                       CatalogRevision catalogRevision,
+                       PlatformTransactionManager transactionManager,
+                       ApplicationEventPublisher eventPublisher,
+                       @Value("${bookstore.stock.ledger.stripes:8}") int stripes,
+                       @Value("${bookstore.stock.ledger.flush-interval-ms:200}") long flushIntervalMillis,
+                       @Value("${bookstore.stock.ledger.max-unflushed:1000}") long maxUnflushed) {
+        if (stripes <= 0 || flushIntervalMillis <= 0 || maxUnflushed <= 0) {
+            throw new IllegalArgumentException("Stock ledger stripes, flush interval and max unflushed must be greater than 0");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogRevision = catalogRevision;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Flushes never join the caller's transaction: they also run after commits
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.stripes = stripes;
+        this.maxUnflushed = maxUnflushed;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-ledger-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Repairs negative stocks written by versions of the ledger whose flushes were not guarded.
+     * Availability is left alone: a sold-out book may be kept on sale on purpose. Runs after
+     * the description migration and before the catalog snapshot is checked against the revision.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        int negative = jdbcTemplate.update("UPDATE book SET stock = 0 WHERE stock < 0");
+        if (negative > 0) {
+            // Repaired rows publish no events: a catalog snapshot taken before them is stale
+            catalogRevision.increment();
+            log.warn("Stock ledger reconciliation fixed {} negative stocks", negative);
+        }
+    }
+
+    /**
+     * Reserves units of a book in memory.
+     * @param id identifier of the book
+     * @param quantity units to reserve
+     * @return true if reserved, false if the book doesn't exist, is disabled or lacks stock
+     */
+    public boolean reserve(Long id, int quantity) {
+        while (true) {
+            StripedStockCounter counter = counter(id);
+            if (counter == null) {
+                return false;
+            }
+            if (!counter.enter()) {
+                continue;
+            }
+            boolean reserved;
+            try {
+                reserved = counter.take(quantity);
+            } finally {
+                counter.exit();
+            }
+            if (reserved) {
+                recordUnflushed(quantity);
+            }
+            return reserved;
+        }
+    }
+
+    /**
+     * Gives back units of a book in memory.
+     * @param id identifier of the book
+     * @param quantity units to release
+     * @return true if the book exists, false otherwise
+     */
+    public boolean release(Long id, int quantity) {
+        while (true) {
+            StripedStockCounter counter = counter(id);
+            if (counter == null) {
+                return false;
+            }
+            if (!counter.enter()) {
+                continue;
+            }
+            try {
+                counter.give(quantity);
+            } finally {
+                counter.exit();
+            }
+            recordUnflushed(quantity);
+            return true;
+        }
+    }
+
+    /**
+     * Reserves units of several books, all or nothing.
+     * @param quantities units to reserve per book ID
+     * @return true if every reservation succeeded, false (and nothing reserved) otherwise
+     */
+    public boolean reserveAll(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> reserved = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (!reserve(entry.getKey(), entry.getValue())) {
+                reserved.forEach(done -> release(done.getKey(), done.getValue()));
+                return false;
+            }
+            reserved.add(entry);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the stock of a book as seen by the ledger, including unflushed changes.
+     * @param id identifier of the book
+     * @return the ledger stock, or null if the book is not tracked
+     */
+    public Integer currentStock(Long id) {
+        StripedStockCounter counter = counters.get(id);
+        return counter == null ? null : counter.available();
+    }
+
+    /**
+     * Writes the pending net change of every book to the database.
+     * @return number of books written
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            long unflushedAtStart = unflushedUnits.get();
+            Map<Long, Long> deltas = new LinkedHashMap<>();
+            for (Long id : unwritten.keySet()) {
+                Long delta = unwritten.remove(id);
+                if (delta != null) {
+                    deltas.merge(id, delta, Long::sum);
+                }
+            }
+            counters.forEach((id, counter) -> {
+                long delta = counter.drainPending();
+                if (delta != 0) {
+                    deltas.merge(id, delta, Long::sum);
+                }
+            });
+            deltas.values().removeIf(delta -> delta == 0);
+            if (!deltas.isEmpty()) {
+                write(deltas);
+            }
+            unflushedUnits.addAndGet(-unflushedAtStart);
+            return deltas.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the ledger counters.
+     * @return tracked books, units waiting to be flushed, flushed units and number of flushes
+     */
+    public Map<String, Long> stats() {
+        return Map.of(
+                "trackedBooks", (long) counters.size(),
+                "unflushedUnits", unflushedUnits.get(),
+                "flushedUnits", flushedUnits.get(),
+                "flushes", flushes.get());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+
+    /**
+     * Drops the counter of a book changed outside the ledger once the change is
+     * committed, writing its pending change on top of the new stock; the next
+     * reservation seeds the counter again from the committed stock.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    void onBookChanged(BookChangedEvent event) {
+        boolean stockUntouched = event.type() == BookChangedEvent.ChangeType.UPDATED
+                && event.book() == null
+                && (event.patch() == null || (event.patch().stock() == null && event.patch().available() == null));
+        if (stockUntouched) {
+            // Our own flushes, or a partial update that doesn't touch stock
+            return;
+        }
+        evict(event.id(), event.type() != BookChangedEvent.ChangeType.DELETED);
+    }
+
+    private void evict(Long id, boolean writePending) {
+        seedGeneration.incrementAndGet();
+        StripedStockCounter counter = counters.remove(id);
+        if (counter == null) {
+            return;
+        }
+        counter.retire();
+        long delta = counter.drainPending();
+        if (!writePending) {
+            unwritten.remove(id);
+        } else if (delta != 0) {
+            try {
+                write(Map.of(id, delta));
+            } catch (RuntimeException e) {
+                // Already logged, the next flush retries: the commit that retired the counter stands
+            }
+        }
+    }
+
+    private StripedStockCounter counter(Long id) {
+        StripedStockCounter counter = counters.get(id);
+        if (counter != null) {
+            return counter;
+        }
+        long generation = seedGeneration.get();
+        List<StripedStockCounter> seeded = jdbcTemplate.query(
+                "SELECT stock, available FROM book WHERE id = ?",
+                (rs, rowNum) -> {
+                    int stock = rs.getInt("stock");
+                    boolean available = rs.getBoolean("available");
+                    return new StripedStockCounter(stock, !available && stock > 0, stripes);
+                },
+                id);
+        if (seeded.isEmpty()) {
+            return null;
+        }
+        if (seedGeneration.get() != generation) {
+            // The book changed while it was being read: read it again
+            return counter(id);
+        }
+        StripedStockCounter existing = counters.putIfAbsent(id, seeded.get(0));
+        return existing != null ? existing : seeded.get(0);
+    }
+
+    private void recordUnflushed(int quantity) {
+        if (unflushedUnits.addAndGet(quantity) >= maxUnflushed) {
+            // Back-pressure: bound what a crash can lose. A failed flush keeps the
+            // changes for the next one; the units are already taken, so don't fail the caller
+            flushQuietly();
+        }
+    }
+
+    /**
+     * Writes net stock changes in one transaction. If it fails, the changes are kept for the next flush.
+     * @param deltas net change per book ID
+     */
+    private void write(Map<Long, Long> deltas) {
+        List<Object[]> batch = new ArrayList<>(deltas.size());
+        deltas.forEach((id, delta) -> batch.add(new Object[]{delta, delta, id, delta}));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int[] updated = jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+                sellOutOversold(batch, updated);
+                deltas.keySet().forEach(id -> eventPublisher.publishEvent(BookChangedEvent.stockChanged(id)));
+            });
+            flushes.incrementAndGet();
+            deltas.values().forEach(delta -> flushedUnits.addAndGet(Math.abs(delta)));
+        } catch (RuntimeException e) {
+            log.error("Stock ledger flush of {} books failed, will retry", deltas.size(), e);
+            deltas.forEach((id, delta) -> unwritten.merge(id, delta, Long::sum));
+            throw e;
+        }
+    }
+
+    /**
+     * Sells out the books whose guarded flush was skipped: their stock was overwritten
+     * below the units reserved in memory meanwhile.
+     * @param batch flushed rows, as {delta, delta, id, delta}
+     * @param updated update count of each row
+     */
+    private void sellOutOversold(List<Object[]> batch, int[] updated) {
+        List<Object[]> oversold = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                oversold.add(new Object[]{batch.get(i)[2], batch.get(i)[0]});
+            }
+        }
+        if (oversold.isEmpty()) {
+            return;
+        }
+        int soldOut = 0;
+        for (int count : jdbcTemplate.batchUpdate(SELL_OUT_SQL, oversold)) {
+            soldOut += Math.max(count, 0);
+        }
+        if (soldOut > 0) {
+            log.warn("Stock ledger sold out {} books whose stock was overwritten below their reservations", soldOut);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Already logged, the next run retries
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.bookstore.bookstore.service.stock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free stock counter of a single book, split into stripes.
+ * The sellable units are spread over several cache-line padded cells; each thread
+ * starts taking from its own cell, so concurrent reservations of a hot book mostly
+ * CAS different memory locations. A cell never goes below zero, so the counter can
+ * never oversell. Net changes not yet written to the database accumulate in a
+ * {@link LongAdder}, which is also striped internally.
+ */
+final class StripedStockCounter {
+
+    /** Ints per cell: 16 * 4 bytes keeps every cell on its own 64-byte cache line. */
+    private static final int PAD = 16;
+
+    private final int stripes;
+    private final AtomicIntegerArray cells;
+    private final LongAdder pendingDelta = new LongAdder();
+    private final boolean disabled;
+
+    /** Reservers currently working on this counter, see {@link #retire()}. */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean retired;
+
+    /**
+     * @param stock units in the database when the counter is created
+     * @param disabled true if the book was made unavailable by hand (it can't be reserved)
+     * @param stripes number of cells
+     */
+    StripedStockCounter(int stock, boolean disabled, int stripes) {
+        this.stripes = stripes;
+        this.cells = new AtomicIntegerArray(stripes * PAD);
+        this.disabled = disabled;
+        int share = stock / stripes;
+        int remainder = stock % stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PAD, share + (i < remainder ? 1 : 0));
+        }
+    }
+
+    /**
+     * Marks the start of an operation. Must be paired with {@link #exit()}.
+     * @return false if the counter was retired and must not be used
+     */
+    boolean enter() {
+        inFlight.incrementAndGet();
+        if (retired) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    void exit() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Takes units, from the caller's own stripe when possible.
+     * @return true if the units were taken, false if there aren't enough
+     */
+    boolean take(int quantity) {
+        if (disabled) {
+            return false;
+        }
+        int home = homeStripe();
+
+        // Fast path: a single stripe can serve the whole quantity
+        for (int i = 0; i < stripes; i++) {
+            int index = ((home + i) % stripes) * PAD;
+            int value;
+            while ((value = cells.get(index)) >= quantity) {
+                if (cells.compareAndSet(index, value, value - quantity)) {
+                    pendingDelta.add(-quantity);
+                    return true;
+                }
+            }
+        }
+
+        // Slow path: gather from several stripes, giving everything back if short
+        int[] taken = new int[stripes];
+        int missing = quantity;
+        for (int i = 0; i < stripes && missing > 0; i++) {
+            int stripe = (home + i) % stripes;
+            int index = stripe * PAD;
+            int value;
+            while (missing > 0 && (value = cells.get(index)) > 0) {
+                int part = Math.min(value, missing);
+                if (cells.compareAndSet(index, value, value - part)) {
+                    taken[stripe] += part;
+                    missing -= part;
+                }
+            }
+        }
+        if (missing == 0) {
+            pendingDelta.add(-quantity);
+            return true;
+        }
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (taken[stripe] > 0) {
+                cells.getAndAdd(stripe * PAD, taken[stripe]);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives units back to the caller's stripe.
+     */
+    void give(int quantity) {
+        cells.getAndAdd(homeStripe() * PAD, quantity);
+        pendingDelta.add(quantity);
+    }
+
+    /**
+     * Gets the units currently sellable according to the ledger.
+     */
+    int available() {
+        int sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    /**
+     * Takes the net change accumulated since the previous drain.
+     */
+    long drainPending() {
+        return pendingDelta.sumThenReset();
+    }
+
+    /**
+     * Stops new operations and waits for the running ones, so that after this call
+     * the pending change is final and can be drained one last time.
+     */
+    void retire() {
+        retired = true;
+        while (inFlight.get() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private int homeStripe() {
+        return (int) (Thread.currentThread().threadId() % stripes);
+    }
+}
@@ -0,0 +1,155 @@
+package com.bookstore.bookstore.service.version;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Persistent change counter of the catalog, stored in the single-row table
+ * catalog_revision next to the books.
+ * Unlike {@link CatalogVersion} it survives restarts and is shared by every process
+ * using the database, which lets a node check whether state saved earlier is still
+ * current. The epoch is a random value chosen when the row is created: a recreated
+ * database never matches state saved against the old one.
+ *
+ * <p>The counter only needs to move after state was saved against it, so it does not
+ * count every write: a node about to save state {@link #stamp() stamps} the row, and
+ * the first transaction that publishes book changes after the stamp increments the
+ * counter and clears the stamp, just before committing, so the counter moves atomically
+ * with the data. Other writers only read the row, so they don't queue on its lock.
+ */
+@Component
+public class CatalogRevision {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong publishedChanges = new AtomicLong();
+
+    public CatalogRevision(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Persistent revision of the catalog.
+     * @param epoch random identity of the database
+     * @param revision counter moved by the first change after each stamp
+     * @param maxBookId highest book ID, 0 for an empty catalog
+     * @param bookCount number of books
+     */
+    public record Revision(long epoch, long revision, long maxBookId, long bookCount) {
+    }
+
+    @PostConstruct
+    void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS catalog_revision "
+                + "(id INT PRIMARY KEY, epoch BIGINT NOT NULL, revision BIGINT NOT NULL)");
+        // Tables of earlier versions start stamped: their next change moves the counter
+        jdbcTemplate.execute("ALTER TABLE catalog_revision "
+                + "ADD COLUMN IF NOT EXISTS stamped BOOLEAN DEFAULT TRUE NOT NULL");
+        jdbcTemplate.update("INSERT INTO catalog_revision (id, epoch, revision, stamped) SELECT 1, ?, 0, TRUE "
+                + "WHERE NOT EXISTS (SELECT 1 FROM catalog_revision WHERE id = 1)",
+                ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Reads the revision together with the highest book ID and the number of books,
+     * in a single statement so the three values are consistent.
+     * @return the current revision
+     */
+    public Revision current() {
+        return jdbcTemplate.queryForObject(
+                "SELECT r.epoch, r.revision, (SELECT COALESCE(MAX(id), 0) FROM book), (SELECT COUNT(*) FROM book) "
+                        + "FROM catalog_revision r WHERE r.id = 1",
+                (rs, rowNum) -> new Revision(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)));
+    }
+
+    /**
+     * Gets the number of book changes published by this process and not rolled back,
+     * including those whose transaction is still open or committing. State derived from
+     * the committed changes is complete once it has applied this many changes.
+     * @return published change count
+     */
+    public long publishedChanges() {
+        return publishedChanges.get();
+    }
+
+    /**
+     * Marks the current revision as the one state is about to be saved against, so the
+     * next change moves the counter. Must be called before the revision is read for the state.
+     */
+    public void stamp() {
+        jdbcTemplate.update("UPDATE catalog_revision SET stamped = TRUE WHERE id = 1 AND stamped = FALSE");
+    }
+
+    @EventListener
+    void onBookChanged(BookChangedEvent event) {
+        publishedChanges.incrementAndGet();
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            incrementIfStamped();
+            return;
+        }
+        // Looked up among the synchronizations (not bound as a resource) so that a
+        // suspended outer transaction keeps its own count
+        PendingChanges pending = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges candidate) {
+                pending = candidate;
+                break;
+            }
+        }
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.count++;
+    }
+
+    /**
+     * Increments the revision for a change of the book table made without publishing
+     * book events, such as a bulk repair, so that state saved before it is no longer current.
+     */
+    public void increment() {
+        jdbcTemplate.update("UPDATE catalog_revision SET revision = revision + 1, stamped = FALSE WHERE id = 1");
+    }
+
+    /**
+     * Increments the revision if state may have been saved against it. A stamp made after
+     * the read is seen by the next writer; a writer that read the row before it published
+     * its changes before it too, so the state saved waits for them.
+     */
+    private void incrementIfStamped() {
+        Boolean stamped = jdbcTemplate.queryForObject("SELECT stamped FROM catalog_revision WHERE id = 1",
+                Boolean.class);
+        if (Boolean.TRUE.equals(stamped)) {
+            increment();
+        }
+    }
+
+    /**
+     * Changes published by the current transaction: at most one increment at commit.
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+
+        private long count;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            incrementIfStamped();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_ROLLED_BACK) {
+                publishedChanges.addAndGet(-count);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.bookstore.bookstore.service.version;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+
+/**
+ * Monotonic version of the catalog, bumped after every committed book mutation.
+ * Each book also remembers the catalog version of its last change, so item ETags
+ * only change when that book does while list ETags change with any mutation.
+ * Versions start from the boot time in microseconds, so they keep growing across
+ * restarts and an ETag issued by a previous process never matches by accident.
+ *
+ * <p>Only the books changed most recently are remembered, deleted ones included (so the
+ * tag of a deleted book never matches again). A book that is forgotten, or never
+ * changed, gets the highest version forgotten so far: its tag may change once without
+ * a change of the book, but never goes back to a tag issued before.
+ *
+ * <p>Tags are weak: the server compresses responses on request, so the bytes sent for
+ * a tag depend on the Accept-Encoding of the client, and a strong tag would turn the
+ * compression off. Conditional GETs compare tags weakly, so they still get 304s.
+ */
+@Component
+public class CatalogVersion {
+
+    private final AtomicLong version;
+    private final Map<Long, Long> bookVersions;
+    private long forgottenVersion;
+
+    /**
+     * Constructor for dependency injection.
+     * @param maxBooks maximum number of books whose version is remembered
+     */
+    public CatalogVersion(@Value("${bookstore.etag.max-books:100000}") int maxBooks) {
+        if (maxBooks <= 0) {
+            throw new IllegalArgumentException("ETag max books must be greater than 0");
+        }
+        long initialVersion = System.currentTimeMillis() * 1000;
+        this.version = new AtomicLong(initialVersion);
+        this.forgottenVersion = initialVersion;
+        // Insertion order is change order: the eldest entry is the least recently changed book
+        this.bookVersions = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                if (size() <= maxBooks) {
+                    return false;
+                }
+                forgottenVersion = Math.max(forgottenVersion, eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Gets the current catalog version.
+     * @return version of the last committed mutation
+     */
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Gets the version of the last committed change of a book.
+     * @param id identifier of the book
+     * @return the book version (the initial catalog version if it didn't change since startup,
+     *         unless books were forgotten since)
+     */
+    public synchronized long bookVersion(Long id) {
+        Long bookVersion = bookVersions.get(id);
+        return bookVersion != null ? bookVersion : forgottenVersion;
+    }
+
+    /**
+     * Gets the entity tag of a single book.
+     * @param id identifier of the book
+     * @return weak ETag value
+     */
+    public String bookETag(Long id) {
+        return weak("b" + id + "-" + bookVersion(id));
+    }
+
+    /**
+     * Gets the entity tag of any list or page of the catalog.
+     * The request URL identifies the page, so the catalog version is enough.
+     * @return weak ETag value
+     */
+    public String catalogETag() {
+        return weak("c" + current());
+    }
+
+    /**
+     * Gets the entity tag of a list or page of the catalog that has several representations.
+     * Even a weak tag promises an equivalent body, so each representation gets its own tag.
+     * @param representation short name of the representation, such as "json"
+     * @return weak ETag value
+     */
+    public String catalogETag(String representation) {
+        return weak("c" + current() + "-" + representation);
+    }
+
+    private static String weak(String tag) {
+        return "W/\"" + tag + "\"";
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void onBookChanged(BookChangedEvent event) {
+        long changed = version.incrementAndGet();
+        synchronized (this) {
+            // Moved to the end, as the latest change
+            Long previous = bookVersions.remove(event.id());
+            bookVersions.put(event.id(), previous == null ? changed : Math.max(previous, changed));
+        }
+    }
+
+    /**
+     * Gets the number of books whose version is remembered.
+     */
+    synchronized int trackedBooks() {
+        return bookVersions.size();
+    }
+}
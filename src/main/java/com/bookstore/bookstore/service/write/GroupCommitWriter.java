@@ -0,0 +1,251 @@
+package com.bookstore.bookstore.service.write;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookWriteOperation;
+import com.bookstore.bookstore.model.BookWriteResult;
+import com.bookstore.bookstore.service.BookBatchService;
+
+/**
+ * Group commit for single-book writes.
+ * Every write in its own transaction pays a commit (a log sync of the H2 file) per
+ * book. With group commit enabled, concurrent writes are queued and a single writer
+ * thread collects them for up to {@code bookstore.write.group-commit.window-ms} or
+ * {@code max-batch} operations, then applies them through {@link BookBatchService}:
+ * one transaction and one commit for the whole group. Each caller still gets its
+ * own outcome, since the batch service reports a result per operation and isolates
+ * failing items.
+ *
+ * <p>The writer thread runs between the start and the stop of the application
+ * context; it starts before the web server and stops after it, committing every
+ * write queued until then. Writes submitted while it is not running fail with
+ * {@link IllegalStateException}.
+ *
+ * <p>Disabled (the default), writes are applied right away in the caller's thread,
+ * one transaction each, and the returned future is already complete.
+ */
+@Component
+public class GroupCommitWriter implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitWriter.class);
+
+    private final BookBatchService bookBatchService;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final BlockingQueue<QueuedWrite> queue;
+    private final AtomicLong groups = new AtomicLong();
+    private final AtomicLong operations = new AtomicLong();
+    private volatile boolean accepting;
+    private Thread writer;
+
+    /**
+     * Constructor for dependency injection.
+     * @param bookBatchService batch writes, one transaction per group
+     * @param enabled true to group concurrent writes, false to apply each one on its own
+     * @param windowMillis maximum time the first write of a group waits for others
+     * @param maxBatch maximum number of writes committed together
+     * @param maxPending queued writes after which callers block until there is room
+     */
+    public GroupCommitWriter(BookBatchService bookBatchService,
+                             @Value("${bookstore.write.group-commit.enabled:false}") boolean enabled,
+                             @Value("${bookstore.write.group-commit.window-ms:2}") long windowMillis,
+                             @Value("${bookstore.write.group-commit.max-batch:256}") int maxBatch,
+                             @Value("${bookstore.write.group-commit.max-pending:10000}") int maxPending) {
+        if (windowMillis < 0 || maxBatch <= 0 || maxPending <= 0) {
+            throw new IllegalArgumentException("Group commit window, max batch and max pending must not be negative or 0");
+        }
+        this.bookBatchService = bookBatchService;
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatch = maxBatch;
+        this.queue = new LinkedBlockingQueue<>(maxPending);
+    }
+
+    /**
+     * Creates a book.
+     * @param book validated book to create; its ID is set once the write commits
+     * @return the created book, or a failure (DataIntegrityViolationException for a duplicate ISBN)
+     */
+    public CompletableFuture<Book> create(Book book) {
+        return submit(BookWriteOperation.create(book));
+    }
+
+    /**
+     * Replaces the data of a book.
+     * @param id identifier of the book
+     * @param book validated new data
+     * @return the updated book, null if it doesn't exist, or a failure
+     */
+    public CompletableFuture<Book> update(Long id, Book book) {
+        return submit(BookWriteOperation.update(id, book));
+    }
+
+    /**
+     * Gets the group commit counters.
+     * @return writes waiting in the queue, committed groups and the writes they carried
+     */
+    public Map<String, Long> stats() {
+        return Map.of(
+                "pending", (long) queue.size(),
+                "groups", groups.get(),
+                "operations", operations.get());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || writer != null) {
+            return;
+        }
+        accepting = true;
+        writer = new Thread(this::runWriter, "group-commit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops taking writes and waits for the writer to commit the queued ones.
+     * Writes that slipped into the queue as it stopped are failed.
+     */
+    @Override
+    public synchronized void stop() {
+        if (writer == null) {
+            return;
+        }
+        // No interrupt: it would close the H2 file channel under a running commit
+        accepting = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        List<QueuedWrite> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(GroupCommitWriter::reject);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return accepting;
+    }
+
+    // Web server: graceful shutdown at DEFAULT_PHASE - 1024, start/stop at DEFAULT_PHASE - 2048.
+    // A lower phase starts earlier and stops later, so requests still running can write
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private CompletableFuture<Book> submit(BookWriteOperation operation) {
+        QueuedWrite write = new QueuedWrite(operation, new CompletableFuture<>());
+        if (!enabled) {
+            commit(List.of(write));
+            return write.future();
+        }
+        if (!accepting) {
+            reject(write);
+            return write.future();
+        }
+        try {
+            // Back-pressure: a full queue blocks the caller instead of growing without bound
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.future().completeExceptionally(e);
+            return write.future();
+        }
+        if (!accepting && queue.remove(write)) {
+            // Queued after the writer drained the queue for the last time
+            reject(write);
+        }
+        return write.future();
+    }
+
+    private static void reject(QueuedWrite write) {
+        write.future().completeExceptionally(new IllegalStateException("Group commit writer is not running"));
+    }
+
+    private void runWriter() {
+        List<QueuedWrite> group = new ArrayList<>(maxBatch);
+        while (accepting || !queue.isEmpty()) {
+            try {
+                QueuedWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (group.size() < maxBatch) {
+                    if (queue.drainTo(group, maxBatch - group.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    QueuedWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Not re-asserted: the collected group must still commit, and the loop ends
+                accepting = false;
+            }
+            if (!group.isEmpty()) {
+                commit(group);
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<QueuedWrite> group) {
+        List<BookWriteOperation> batch = new ArrayList<>(group.size());
+        group.forEach(write -> batch.add(write.operation()));
+        List<BookWriteResult> results;
+        try {
+            results = bookBatchService.write(batch);
+        } catch (RuntimeException e) {
+            log.error("Group commit of {} writes failed", group.size(), e);
+            group.forEach(write -> write.future().completeExceptionally(e));
+            return;
+        }
+        groups.incrementAndGet();
+        operations.addAndGet(group.size());
+        for (int i = 0; i < group.size(); i++) {
+            complete(group.get(i), results.get(i));
+        }
+    }
+
+    private static void complete(QueuedWrite write, BookWriteResult result) {
+        Book book = write.operation().book();
+        CompletableFuture<Book> future = write.future();
+        switch (result.status()) {
+            case CREATED, UPDATED -> {
+                book.setId(result.id());
+                future.complete(book);
+            }
+            case NOT_FOUND -> future.complete(null);
+            case INVALID -> future.completeExceptionally(new IllegalArgumentException(result.message()));
+            case CONFLICT -> future.completeExceptionally(new DataIntegrityViolationException(result.message()));
+            default -> future.completeExceptionally(new IllegalStateException(result.message()));
+        }
+    }
+
+    private record QueuedWrite(BookWriteOperation operation, CompletableFuture<Book> future) {
+    }
+}
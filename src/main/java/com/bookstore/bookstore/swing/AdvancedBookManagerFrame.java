@@ -1,8 +1,10 @@
 package com.bookstore.bookstore.swing;
 
 import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookSummary;
 import com.bookstore.bookstore.service.BookService;
 import com.bookstore.bookstore.swing.config.GuiAvailableCondition;
+import com.bookstore.bookstore.swing.utils.BookTableRows;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.stereotype.Component;
 
@@ -24,7 +26,7 @@ public class AdvancedBookManagerFrame extends JFrame {
     private final BookService bookService;
     
     // Model
-    private List<Book> books;
+    private List<BookSummary> books;
     private DefaultTableModel tableModel;
     
     // View components
@@ -50,8 +52,7 @@ public class AdvancedBookManagerFrame extends JFrame {
         books = Collections.emptyList();
         
         // Table model setup
-        String[] columnNames = {"ID", "Title", "Author", "ISBN", "Price", "Stock", "Available"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
+        tableModel = new DefaultTableModel(BookTableRows.COLUMN_NAMES, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 return false; // Make table read-only
@@ -133,21 +134,6 @@ public class AdvancedBookManagerFrame extends JFrame {
         add(footerPanel, BorderLayout.SOUTH);
     }
     
-    /**
-     * Converts a Book entity to a table row array
-     */
-    private Object[] bookToTableRow(Book book) {
-        return new Object[]{
-            book.getId(),
-            book.getTitle(), 
-            book.getAuthor(), 
-            book.getIsbn(), 
-            book.getPrice(), 
-            book.getStock(), 
-            book.getAvailable() ? "✅" : "❌"
-        };
-    }
-    
     /**
      * Updates the status label with current book count
      */
@@ -261,11 +247,11 @@ public class AdvancedBookManagerFrame extends JFrame {
         int selectedRow = booksTable.getSelectedRow();
         if (selectedRow >= 0 && validateForm()) {
             try {
-                Book selectedBook = books.get(selectedRow);
+                BookSummary selectedBook = books.get(selectedRow);
                 Book updatedBook = createBookFromForm();
-                updatedBook.setId(selectedBook.getId());
+                updatedBook.setId(selectedBook.id());
                 
-                Book savedBook = bookService.updateBook(selectedBook.getId(), updatedBook);
+                Book savedBook = bookService.updateBook(selectedBook.id(), updatedBook);
                 if (savedBook != null) {
                     loadBooksFromService();
                     clearForm();
@@ -288,8 +274,8 @@ public class AdvancedBookManagerFrame extends JFrame {
                 
             if (result == JOptionPane.YES_OPTION) {
                 try {
-                    Book selectedBook = books.get(selectedRow);
-                    bookService.deleteBook(selectedBook.getId());
+                    BookSummary selectedBook = books.get(selectedRow);
+                    bookService.deleteBook(selectedBook.id());
                     loadBooksFromService();
                     clearForm();
                     showMessage("🗑️ Book deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
@@ -345,7 +331,12 @@ public class AdvancedBookManagerFrame extends JFrame {
     }
     
     private void loadBookToForm(int row) {
-        Book book = books.get(row);
+        // The table only holds summaries: load the full book for the form
+        Book book = bookService.getBookById(books.get(row).id());
+        if (book == null) {
+            showMessage("❌ Book not found!", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         titleField.setText(book.getTitle());
         authorField.setText(book.getAuthor());
         isbnField.setText(book.getIsbn());
@@ -372,15 +363,10 @@ public class AdvancedBookManagerFrame extends JFrame {
     
     private void loadBooksFromService() {
         try {
-            books = bookService.getAllBooks();
+            books = bookService.getAllBookSummaries();
             
-            // Clear existing table data
-            tableModel.setRowCount(0);
-            
-            // Populate table with books from service
-            for (Book book : books) {
-                tableModel.addRow(bookToTableRow(book));
-            }
+            // Replace the table data with the books from service
+            BookTableRows.fill(tableModel, books);
             
             updateStatusLabel();
         } catch (Exception e) {
@@ -0,0 +1,43 @@
+package com.bookstore.bookstore.swing.utils;
+
+import com.bookstore.bookstore.model.BookSummary;
+
+import javax.swing.table.DefaultTableModel;
+import java.util.List;
+
+/**
+ * Utility class for showing books in Swing tables
+ * Keeps the column layout and the book summary to row conversion in one place
+ */
+public final class BookTableRows {
+
+    public static final String[] COLUMN_NAMES = {"ID", "Title", "Author", "ISBN", "Price", "Stock", "Available"};
+
+    private BookTableRows() {
+    }
+
+    /**
+     * Converts a book summary to a table row array
+     */
+    public static Object[] toRow(BookSummary book) {
+        return new Object[]{
+            book.id(),
+            book.title(),
+            book.author(),
+            book.isbn(),
+            book.price(),
+            book.stock(),
+            Boolean.TRUE.equals(book.available()) ? "✅" : "❌"
+        };
+    }
+
+    /**
+     * Replaces the rows of a table model with the given books
+     */
+    public static void fill(DefaultTableModel tableModel, List<BookSummary> books) {
+        tableModel.setRowCount(0);
+        for (BookSummary book : books) {
+            tableModel.addRow(toRow(book));
+        }
+    }
+}
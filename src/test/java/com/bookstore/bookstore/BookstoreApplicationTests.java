@@ -1,13 +1,55 @@
 package com.bookstore.bookstore;
 
+import com.bookstore.bookstore.admission.AdmissionController;
+import com.bookstore.bookstore.admission.AdmissionStats;
+import com.bookstore.bookstore.codec.BookBinaryCodec;
 import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPage;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.model.BookWriteOperation;
+import com.bookstore.bookstore.model.BookWriteResult;
+import com.bookstore.bookstore.model.ImportReport;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.BookBatchService;
+import com.bookstore.bookstore.service.BookImportService;
 import com.bookstore.bookstore.service.BookService;
+import com.bookstore.bookstore.service.CatalogExportService;
+import com.bookstore.bookstore.service.ExportFormat;
+import com.bookstore.bookstore.service.cache.BookCache;
+import com.bookstore.bookstore.service.cache.CacheStats;
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+import com.bookstore.bookstore.service.feed.ChangeBatch;
+import com.bookstore.bookstore.service.feed.ChangeFeed;
+import com.bookstore.bookstore.service.index.IsbnIndex;
+import com.bookstore.bookstore.service.migration.DescriptionMigration;
+import com.bookstore.bookstore.service.snapshot.CatalogSnapshot;
+import com.bookstore.bookstore.service.version.CatalogRevision;
+import com.bookstore.bookstore.service.version.CatalogVersion;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static com.bookstore.bookstore.TestBooks.newBook;
+import static com.bookstore.bookstore.TestBooks.walk;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest(classes = {BookstoreApplication.class})
@@ -17,6 +59,42 @@ class BookstoreApplicationTests {
 	@Autowired
 	private BookService bookService;
 
+	@Autowired
+	private CatalogExportService catalogExportService;
+
+	@Autowired
+	private BookImportService bookImportService;
+
+	@Autowired
+	private BookBatchService bookBatchService;
+
+	@Autowired
+	private BookCache bookCache;
+
+	@Autowired
+	private CatalogVersion catalogVersion;
+
+	@Autowired
+	private ChangeFeed changeFeed;
+
+	@Autowired
+	private DescriptionMigration descriptionMigration;
+
+	@Autowired
+	private CatalogSnapshot catalogSnapshot;
+
+	@Autowired
+	private CatalogRevision catalogRevision;
+
+	@Autowired
+	private IsbnIndex isbnIndex;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
 	@BeforeAll
 	static void setUpHeadless() {
 		// Ensure headless mode for tests
@@ -62,4 +140,492 @@ class BookstoreApplicationTests {
 		assertNull(deletedBook);
 	}
 
+	@Test
+	void testKeysetPagination() {
+		List<Long> createdIds = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			createdIds.add(bookService.createBook(newBook("page-" + i)).getId());
+		}
+
+		// Walk the catalog two books at a time
+		List<Long> seenIds = new ArrayList<>();
+		BookPage page = bookService.getBooks(null, 2);
+		while (true) {
+			assertTrue(page.books().size() <= 2);
+			page.books().forEach(b -> seenIds.add(b.getId()));
+			if (!page.hasNext()) {
+				break;
+			}
+			page = bookService.getBooks(page.nextPageToken(), 2);
+		}
+
+		assertTrue(seenIds.containsAll(createdIds));
+		assertEquals(seenIds.stream().sorted().toList(), seenIds);
+		assertEquals(bookService.getAllBooks().size(), seenIds.size());
+		assertThrows(IllegalArgumentException.class, () -> bookService.getBooks("not-a-token", 2));
+
+		createdIds.forEach(bookService::deleteBook);
+	}
+
+	@Test
+	void testIndexedLookups() {
+		List<Long> createdIds = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			Book book = newBook("lookup-" + i);
+			book.setAuthor("Lookup Author");
+			book.setTitle("Lookup Title " + (4 - i));
+			book.setPrice(1000.0 + (i % 2));
+			book.setStock(i);
+			createdIds.add(bookService.createBook(book).getId());
+		}
+
+		// Every lookup, walked two books at a time, returns the matching books in its order
+		assertEquals(createdIds, walk(token -> bookService.getBooksByAuthor("Lookup Author", token, 2)));
+		assertEquals(createdIds.reversed(), walk(token -> bookService.getBooksByTitlePrefix("Lookup Title", token, 2)));
+		assertEquals(List.of(createdIds.get(0), createdIds.get(2), createdIds.get(4), createdIds.get(1), createdIds.get(3)),
+				walk(token -> bookService.getBooksByPriceRange(1000.0, 1001.0, token, 2)));
+		assertTrue(walk(token -> bookService.getBooksByAvailability(true, token, 2)).containsAll(createdIds));
+		List<Long> inStock = walk(token -> bookService.getBooksInStock(token, 2));
+		assertFalse(inStock.contains(createdIds.get(0)), "no stock left");
+		assertTrue(inStock.containsAll(createdIds.subList(1, 5)));
+
+		assertThrows(IllegalArgumentException.class, () -> bookService.getBooksByTitlePrefix("", null, 2));
+		assertThrows(IllegalArgumentException.class, () -> bookService.getBooksByPriceRange(2.0, 1.0, null, 2));
+		assertThrows(IllegalArgumentException.class,
+				() -> bookService.getBooksByPriceRange(1.0, 2.0, BookPage.encodeToken(1L), 2));
+
+		bookService.deleteBooks(createdIds);
+	}
+
+	@Test
+	void testIndexedLookupsAvoidTableScans() {
+		List<Long> createdIds = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			Book book = newBook("explain-" + i);
+			book.setAuthor("Explain Author " + (i % 20));
+			book.setPrice(1.0 + i);
+			book.setAvailable(i % 10 != 0);
+			createdIds.add(bookService.createBook(book).getId());
+		}
+		jdbcTemplate.execute("ANALYZE");
+
+		NamedParameterJdbcTemplate namedJdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+		Map<String, Object> params = Map.of("author", "Explain Author 3", "afterId", 0L,
+				"afterTitle", "Book explain-1", "titleEnd", "Book explain-2",
+				"afterPrice", 10.0, "maxPrice", 20.0, "available", false);
+		Map<String, String> indexes = Map.of(
+				BookRepository.AUTHOR_PAGE_SQL, "IDX_BOOK_AUTHOR",
+				BookRepository.TITLE_PAGE_SQL, "IDX_BOOK_TITLE",
+				BookRepository.PRICE_PAGE_SQL, "IDX_BOOK_PRICE",
+				BookRepository.AVAILABILITY_PAGE_SQL, "IDX_BOOK_AVAILABLE",
+				BookRepository.IN_STOCK_PAGE_SQL, "IDX_BOOK_AVAILABLE");
+		indexes.forEach((sql, index) -> {
+			String plan = namedJdbc.queryForObject("EXPLAIN " + sql, params, String.class);
+			assertFalse(plan.contains("tableScan"), "full table scan in plan: " + plan);
+			assertTrue(plan.toUpperCase(Locale.ROOT).contains(index), index + " not used by plan: " + plan);
+		});
+
+		bookService.deleteBooks(createdIds);
+	}
+
+	@Test
+	void testCatalogExport() throws Exception {
+		Book book = newBook("export-1");
+		book.setTitle("Title, with comma");
+		Long id = bookService.createBook(book).getId();
+
+		ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		long exported = catalogExportService.exportBooks(ExportFormat.CSV, csv);
+		String[] lines = csv.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(exported + 1, lines.length);
+		assertTrue(csv.toString(StandardCharsets.UTF_8).contains("\"Title, with comma\""));
+
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		assertEquals(exported, catalogExportService.exportBooks(ExportFormat.JSON_LINES, json));
+		assertTrue(json.toString(StandardCharsets.UTF_8).contains("\"isbn\":\"export-1\""));
+
+		bookService.deleteBook(id);
+	}
+
+	@Test
+	void testBulkImportReportsRowErrors() throws Exception {
+		Book invalid = newBook("import-3");
+		invalid.setTitle(" ");
+		ImportReport report = bookImportService.createBooks(List.of(
+				newBook("import-1"), newBook("import-2"), invalid, newBook("import-1")));
+
+		assertEquals(2, report.imported());
+		assertEquals(2, report.failed());
+		assertEquals(3, report.errors().get(0).row());
+		assertEquals(4, report.errors().get(1).row());
+
+		String csv = "id,title,author,isbn,price,stock,description,available\n"
+				+ ",\"Csv, Book\",Csv Author,import-4,12.5,3,\"multi\nline\",true\n"
+				+ ",Csv Book,Csv Author,import-2,12.5,3,,true\n"
+				+ ",Csv Book,Csv Author,import-5,not-a-price,3,,true\n";
+		ImportReport csvReport = bookImportService.importCsv(
+				new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+		assertEquals(1, csvReport.imported());
+		assertEquals(2, csvReport.failed());
+
+		for (Book book : bookService.getAllBooks()) {
+			if (book.getIsbn().startsWith("import-")) {
+				bookService.deleteBook(book.getId());
+			}
+		}
+	}
+
+	@Test
+	void testBookCacheReadThroughAndInvalidation() {
+		Long id = bookService.createBook(newBook("cache-1")).getId();
+
+		bookService.getBookById(id);
+		CacheStats before = bookCache.stats();
+		Book cached = bookService.getBookById(id);
+		assertEquals(before.hits() + 1, bookCache.stats().hits());
+
+		// Modifying a returned copy must not leak into the cache
+		cached.setTitle("Changed locally");
+		assertEquals("Book cache-1", bookService.getBookById(id).getTitle());
+
+		cached.setTitle("Changed for real");
+		bookService.updateBook(id, cached);
+		assertEquals("Changed for real", bookService.getBookById(id).getTitle());
+
+		bookService.deleteBook(id);
+		assertNull(bookService.getBookById(id));
+	}
+
+	@Test
+	void testBookCacheKeepsUncommittedReadsOut() {
+		Long id = bookService.createBook(newBook("cache-rollback")).getId();
+		bookCache.invalidate(id);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			assertTrue(bookService.patchBook(id, new BookPatch("Rolled back", null, null, null, null, null, null)));
+			// The transaction reads its own write, which must not reach the cache
+			assertEquals("Rolled back", bookService.getBookById(id).getTitle());
+			status.setRollbackOnly();
+		});
+		assertEquals("Book cache-rollback", bookService.getBookById(id).getTitle());
+
+		bookService.deleteBook(id);
+	}
+
+	@Test
+	void testFindByIsbn() {
+		Long isbn13Id = bookService.createBook(newBook("978-0-306-40615-7")).getId();
+		Long otherId = bookService.createBook(newBook("isbn-free-form")).getId();
+
+		// Hyphenation and ISBN-10 notation resolve to the same book
+		assertEquals(isbn13Id, bookService.findByIsbn("9780306406157").getId());
+		assertEquals(isbn13Id, bookService.findByIsbn("0-306-40615-2").getId());
+		assertEquals(otherId, bookService.findByIsbn("isbn-free-form").getId());
+		assertNull(bookService.findByIsbn("978-3-16-148410-0"));
+
+		Map<String, Book> found = bookService.findByIsbns(List.of("0306406152", "isbn-free-form", "unknown"));
+		assertEquals(List.of("0306406152", "isbn-free-form"), List.copyOf(found.keySet()));
+
+		Book changed = bookService.getBookById(isbn13Id);
+		changed.setIsbn("978-3-16-148410-0");
+		bookService.updateBook(isbn13Id, changed);
+		assertNull(bookService.findByIsbn("9780306406157"));
+		assertEquals(isbn13Id, bookService.findByIsbn("9783161484100").getId());
+
+		bookService.deleteBook(isbn13Id);
+		bookService.deleteBook(otherId);
+		assertNull(bookService.findByIsbn("9783161484100"));
+	}
+
+	@Test
+	void testAllZeroIsbnIsIndexedAsFreeForm() {
+		// Passes the ISBN-13 checksum, but 0 is not a valid numeric key
+		assertEquals(-1, IsbnIndex.normalize("0000000000000"));
+		Long id = bookService.createBook(newBook("0000000000000")).getId();
+		assertEquals(id, bookService.findByIsbn("0000000000000").getId());
+
+		// Such a row doesn't stop the index from being rebuilt
+		isbnIndex.rebuild();
+		assertEquals(id, isbnIndex.find("0000000000000"));
+		bookService.deleteBook(id);
+		assertNull(bookService.findByIsbn("0000000000000"));
+	}
+
+	@Test
+	void testSearchBooks() {
+		Book quijote = newBook("search-1");
+		quijote.setTitle("El ingenioso hidalgo Don Quijote");
+		quijote.setAuthor("Miguel de Cervantes");
+		quijote.setDescription("Novela sobre un hidalgo de La Mancha");
+		Book mancha = newBook("search-2");
+		mancha.setTitle("Viaje por La Mancha");
+		mancha.setAuthor("Azorín");
+		mancha.setDescription("Crónica de la ruta de Don Quijote");
+		Long quijoteId = bookService.createBook(quijote).getId();
+		Long manchaId = bookService.createBook(mancha).getId();
+
+		// Title matches outrank description matches; accents and case are folded
+		Page<Book> results = bookService.searchBooks("QUIJOTE", PageRequest.of(0, 10));
+		assertEquals(2, results.getTotalElements());
+		assertEquals(quijoteId, results.getContent().get(0).getId());
+		assertEquals(manchaId, bookService.searchBooks("azorin", PageRequest.of(0, 10)).getContent().get(0).getId());
+
+		// Prefix match on the last term and pagination
+		assertEquals(2, bookService.searchBooks("manc", PageRequest.of(0, 10)).getTotalElements());
+		Page<Book> second = bookService.searchBooks("mancha", PageRequest.of(1, 1));
+		assertEquals(1, second.getContent().size());
+		assertEquals(2, second.getTotalElements());
+
+		// Incremental updates
+		mancha.setTitle("Viaje por Castilla");
+		mancha.setDescription("Crónica de viaje");
+		bookService.updateBook(manchaId, mancha);
+		assertEquals(1, bookService.searchBooks("quijote", PageRequest.of(0, 10)).getTotalElements());
+
+		bookService.deleteBook(quijoteId);
+		bookService.deleteBook(manchaId);
+		assertEquals(0, bookService.searchBooks("quijote", PageRequest.of(0, 10)).getTotalElements());
+	}
+
+	@Test
+	void testPatchAndBulkDelete() {
+		Long id = bookService.createBook(newBook("patch-1")).getId();
+		Long otherId = bookService.createBook(newBook("patch-2")).getId();
+
+		assertTrue(bookService.patchBook(id, new BookPatch(null, null, null, 5.5, null, null, null)));
+		Book patched = bookService.getBookById(id);
+		assertEquals(5.5, patched.getPrice());
+		assertEquals("Book patch-1", patched.getTitle());
+		assertEquals(5, patched.getStock());
+
+		assertFalse(bookService.patchBook(Long.MAX_VALUE, new BookPatch("Missing", null, null, null, null, null, null)));
+		assertThrows(IllegalArgumentException.class,
+				() -> bookService.patchBook(id, new BookPatch(null, null, null, -1.0, null, null, null)));
+
+		assertEquals(2, bookService.deleteBooks(List.of(id, otherId, Long.MAX_VALUE)));
+		assertNull(bookService.getBookById(id));
+		assertNull(bookService.getBookById(otherId));
+	}
+
+	@Test
+	void testCatalogVersionETags() {
+		Long id = bookService.createBook(newBook("etag-1")).getId();
+		Long otherId = bookService.createBook(newBook("etag-2")).getId();
+		long version = catalogVersion.current();
+		String catalogETag = catalogVersion.catalogETag();
+		String bookETag = catalogVersion.bookETag(id);
+		String otherETag = catalogVersion.bookETag(otherId);
+
+		// Reads don't change anything
+		bookService.getBookById(id);
+		assertEquals(catalogETag, catalogVersion.catalogETag());
+
+		// A committed change moves the catalog and that book, but not the other books
+		assertTrue(bookService.patchBook(id, new BookPatch(null, null, null, 7.5, null, null, null)));
+		assertTrue(catalogVersion.current() > version);
+		assertNotEquals(catalogETag, catalogVersion.catalogETag());
+		assertNotEquals(bookETag, catalogVersion.bookETag(id));
+		assertEquals(otherETag, catalogVersion.bookETag(otherId));
+
+		bookService.deleteBooks(List.of(id, otherId));
+		assertNotEquals(otherETag, catalogVersion.bookETag(otherId));
+	}
+
+	@Test
+	void testBatchWriteReportsPerItemStatus() {
+		Long updatedId = bookService.createBook(newBook("batch-1")).getId();
+		Long deletedId = bookService.createBook(newBook("batch-2")).getId();
+		Book invalid = newBook("batch-4");
+		invalid.setPrice(-1.0);
+		Book changes = newBook("batch-1");
+		changes.setPrice(3.25);
+
+		List<BookWriteResult> results = bookBatchService.write(List.of(
+				BookWriteOperation.create(newBook("batch-3")),
+				BookWriteOperation.create(invalid),
+				BookWriteOperation.update(updatedId, changes),
+				BookWriteOperation.patch(updatedId, new BookPatch(null, null, null, null, 42, null, null)),
+				BookWriteOperation.delete(deletedId),
+				BookWriteOperation.delete(Long.MAX_VALUE),
+				BookWriteOperation.create(newBook("batch-1"))));
+
+		assertEquals(7, results.size());
+		assertEquals(BookWriteResult.Status.CREATED, results.get(0).status());
+		assertEquals(BookWriteResult.Status.INVALID, results.get(1).status());
+		assertEquals(BookWriteResult.Status.UPDATED, results.get(2).status());
+		assertEquals(BookWriteResult.Status.UPDATED, results.get(3).status());
+		assertEquals(BookWriteResult.Status.DELETED, results.get(4).status());
+		assertEquals(BookWriteResult.Status.NOT_FOUND, results.get(5).status());
+		assertEquals(BookWriteResult.Status.CONFLICT, results.get(6).status());
+
+		// The failed items didn't roll back the valid ones
+		assertEquals("batch-3", bookService.getBookById(results.get(0).id()).getIsbn());
+		Book updated = bookService.getBookById(updatedId);
+		assertEquals(3.25, updated.getPrice());
+		assertEquals(42, updated.getStock());
+		assertNull(bookService.getBookById(deletedId));
+
+		bookService.deleteBooks(List.of(updatedId, results.get(0).id()));
+	}
+
+	@Test
+	void testChangeFeed() {
+		long since = changeFeed.lastSequence();
+		Long id = bookService.createBook(newBook("feed-1")).getId();
+		assertTrue(bookService.patchBook(id, new BookPatch(null, null, null, 4.5, null, null, null)));
+		assertTrue(bookService.reserveStock(id, 2));
+		bookService.deleteBook(id);
+
+		ChangeBatch batch = changeFeed.changesSince(since, 100);
+		assertFalse(batch.reset());
+		assertEquals(4, batch.changes().size());
+		assertEquals(since + 4, batch.lastSequence());
+		assertEquals(BookChangedEvent.ChangeType.CREATED, batch.changes().get(0).operation());
+		assertEquals("feed-1", batch.changes().get(0).fields().get("isbn"));
+		assertEquals(Map.of("price", 4.5), batch.changes().get(1).fields());
+		assertEquals(3, batch.changes().get(2).fields().get("stock"));
+		assertEquals(BookChangedEvent.ChangeType.DELETED, batch.changes().get(3).operation());
+		assertEquals(id, batch.changes().get(3).id());
+
+		// Nothing new after the last sequence, and a sequence from the future asks for a reload
+		assertTrue(changeFeed.changesSince(batch.lastSequence(), 100).changes().isEmpty());
+		assertTrue(changeFeed.changesSince(batch.lastSequence() + 10, 100).reset());
+
+		// Cursors name the run of the feed: one from a previous run asks for a reload
+		assertEquals(changeFeed.cursor(batch.lastSequence()), batch.cursor());
+		assertTrue(changeFeed.changesSince(batch.cursor(), 100).changes().isEmpty());
+		assertEquals(batch.changes(), changeFeed.changesSince(changeFeed.cursor(since), 100).changes());
+		ChangeBatch restarted = changeFeed.changesSince("previous-run:" + since, 100);
+		assertTrue(restarted.reset());
+		assertEquals(batch.cursor(), restarted.cursor());
+		assertThrows(IllegalArgumentException.class, () -> changeFeed.changesSince(Long.toString(since), 100));
+	}
+
+	@Test
+	void testBinaryCodecRoundTrip() throws Exception {
+		Book first = newBook("bin-1");
+		first.setId(100L);
+		first.setPrice(12.35);
+		first.setTitle("Cien años de soledad");
+		Book second = newBook("bin-2");
+		second.setId(101L);
+		second.setAuthor(first.getAuthor());
+		second.setDescription(null);
+		second.setAvailable(false);
+		Book third = newBook("bin-3");
+		third.setId(42L);
+
+		for (boolean dictionary : new boolean[]{true, false}) {
+			byte[] encoded = BookBinaryCodec.encode(List.of(first, second, third), dictionary);
+			assertEquals(List.of(first, second, third), BookBinaryCodec.decode(encoded));
+		}
+		assertEquals(List.of(), BookBinaryCodec.decode(BookBinaryCodec.encode(List.of(), true)));
+		assertThrows(java.io.IOException.class, () -> BookBinaryCodec.decode(new byte[]{'J', 'S', 'O', 'N'}));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long exported = catalogExportService.exportBooks(ExportFormat.BINARY, out);
+		assertEquals(exported, BookBinaryCodec.decode(out.toByteArray()).size());
+	}
+
+	@Test
+	void testAdmissionControl() {
+		// Burst of 2 and one token per 10 seconds; one read and one write slot, no queue
+		AdmissionController admission = new AdmissionController(0.1, 2, 10, 1, 1, 4, 1, 1, 4, 2.0, 0, 0);
+
+		AdmissionController.Concurrency limited = AdmissionController.Concurrency.LIMITED;
+
+		AdmissionController.Decision first = admission.admit("client-a", false, limited);
+		assertTrue(first.admitted());
+		AdmissionController.Decision overloaded = admission.admit("client-b", false, limited);
+		assertEquals(AdmissionController.Outcome.OVERLOADED, overloaded.outcome());
+		AdmissionController.Decision write = admission.admit("client-b", true, limited);
+		assertTrue(write.admitted());
+		admission.complete(first);
+		admission.complete(write);
+
+		assertTrue(admission.admit("client-a", false, AdmissionController.Concurrency.UNLIMITED).admitted());
+		AdmissionController.Decision rateLimited = admission.admit("client-a", false, limited);
+		assertEquals(AdmissionController.Outcome.RATE_LIMITED, rateLimited.outcome());
+		assertTrue(rateLimited.retryAfterSeconds() >= 1);
+
+		AdmissionStats stats = admission.stats();
+		assertEquals(1, stats.rateLimited());
+		assertEquals(2, stats.trackedClients());
+		assertEquals(1, stats.reads().admitted());
+		assertEquals(1, stats.reads().shed());
+		assertEquals(0, stats.reads().inFlight());
+		assertEquals(1, stats.writes().admitted());
+	}
+
+	@Test
+	void testAsyncWrites() {
+		Book created = bookService.createBookAsync(newBook("async-1")).join();
+		assertNotNull(created.getId());
+
+		Book changes = newBook("async-1");
+		changes.setPrice(15.0);
+		assertEquals(15.0, bookService.updateBookAsync(created.getId(), changes).join().getPrice());
+		assertEquals(15.0, bookService.getBookById(created.getId()).getPrice());
+		assertNull(bookService.updateBookAsync(Long.MAX_VALUE, newBook("async-2")).join());
+
+		CompletionException duplicate = assertThrows(CompletionException.class,
+				() -> bookService.createBookAsync(newBook("async-1")).join());
+		assertInstanceOf(DataIntegrityViolationException.class, duplicate.getCause());
+		assertThrows(IllegalArgumentException.class, () -> bookService.createBookAsync(null));
+	}
+
+	@Test
+	void testBookSummaries() {
+		bookService.createBook(newBook("summary-1"));
+		List<Book> books = bookService.getAllBooks();
+		List<BookSummary> summaries = bookService.getAllBookSummaries();
+		assertEquals(books.stream().map(BookSummary::of).toList(), summaries);
+	}
+
+	@Test
+	void testDescriptionMigration() {
+		String blurb = "A long publisher blurb that repeats itself. ".repeat(50);
+		jdbcTemplate.execute("ALTER TABLE book ADD COLUMN description CHARACTER LARGE OBJECT");
+		jdbcTemplate.update("INSERT INTO book (id, title, author, isbn, price, stock, available, description) "
+				+ "VALUES (9000001, 'Legacy', 'Author', 'legacy-1', 10.0, 1, TRUE, ?), "
+				+ "(9000002, 'Legacy', 'Author', 'legacy-2', 10.0, 1, TRUE, 'Short')", blurb);
+
+		assertEquals(2, descriptionMigration.migrate());
+		assertEquals(0, descriptionMigration.migrate());
+
+		assertEquals(blurb, bookService.getBookById(9000001L).getDescription());
+		assertEquals("Short", bookService.getBookById(9000002L).getDescription());
+		byte[] stored = jdbcTemplate.queryForObject("SELECT d.content FROM book_description d "
+				+ "JOIN book b ON b.description_id = d.id WHERE b.id = 9000001", byte[].class);
+		assertTrue(stored.length < blurb.length(), "long descriptions are stored compressed");
+
+		assertEquals(2, bookService.deleteBooks(List.of(9000001L, 9000002L)));
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM book_description d "
+				+ "WHERE NOT EXISTS (SELECT 1 FROM book b WHERE b.description_id = d.id)", Integer.class));
+	}
+
+	@Test
+	void testCatalogSnapshot() throws IOException {
+		Book book = bookService.createBook(newBook("snapshot-1"));
+		assertTrue(catalogSnapshot.write());
+		assertFalse(catalogSnapshot.write(), "nothing changed since the last snapshot");
+
+		assertTrue(catalogSnapshot.restore());
+		assertEquals(book.getId(), bookService.findByIsbn("snapshot-1").getId());
+		assertTrue(bookService.searchBooks("snapshot-1", null).getContent().stream()
+				.anyMatch(found -> found.getId().equals(book.getId())));
+
+		// Any committed change makes the snapshot stale
+		bookService.patchBook(book.getId(), new BookPatch("Renamed", null, null, null, null, null, null));
+		assertFalse(catalogSnapshot.restore());
+		assertEquals(1, bookService.searchBooks("renamed", null).getTotalElements());
+
+		// Only the first change after a snapshot moves the revision
+		long revision = catalogRevision.current().revision();
+		bookService.patchBook(book.getId(), new BookPatch(null, null, null, 3.5, null, null, null));
+		assertEquals(revision, catalogRevision.current().revision());
+		assertTrue(catalogSnapshot.write());
+		bookService.patchBook(book.getId(), new BookPatch(null, null, null, 4.5, null, null, null));
+		assertEquals(revision + 1, catalogRevision.current().revision());
+	}
 }
@@ -0,0 +1,103 @@
+package com.bookstore.bookstore;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.service.BookService;
+import com.bookstore.bookstore.service.write.GroupCommitWriter;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.bookstore.bookstore.TestBooks.newBook;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Group commit enabled, with a window long enough for writes submitted back to back
+ * to share a transaction.
+ */
+@SpringBootTest(classes = {BookstoreApplication.class}, properties = {
+		"spring.datasource.url=jdbc:h2:mem:groupcommittest",
+		"bookstore.write.group-commit.enabled=true",
+		"bookstore.write.group-commit.window-ms=500"})
+@ActiveProfiles("test")
+class GroupCommitWriterTests {
+
+	@Autowired
+	private GroupCommitWriter groupCommitWriter;
+
+	@Autowired
+	private BookService bookService;
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Test
+	void concurrentWritesShareACommit() throws Exception {
+		long groups = groupCommitWriter.stats().get("groups");
+		long operations = groupCommitWriter.stats().get("operations");
+
+		List<CompletableFuture<Book>> futures = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			futures.add(groupCommitWriter.create(newBook("group-" + i)));
+		}
+		for (CompletableFuture<Book> future : futures) {
+			Book created = future.get(10, TimeUnit.SECONDS);
+			assertNotNull(created.getId());
+			assertEquals(created.getIsbn(), bookService.getBookById(created.getId()).getIsbn());
+		}
+
+		assertEquals(operations + 20, groupCommitWriter.stats().get("operations"));
+		assertTrue(groupCommitWriter.stats().get("groups") - groups <= 2,
+				"groups: " + (groupCommitWriter.stats().get("groups") - groups));
+	}
+
+	@Test
+	void failingWritesDoNotFailTheirGroup() throws Exception {
+		Book existing = bookService.createBook(newBook("group-taken"));
+		long groups = groupCommitWriter.stats().get("groups");
+
+		CompletableFuture<Book> first = groupCommitWriter.create(newBook("group-ok-1"));
+		CompletableFuture<Book> duplicate = groupCommitWriter.create(newBook("group-taken"));
+		CompletableFuture<Book> missing = groupCommitWriter.update(Long.MAX_VALUE, newBook("group-missing"));
+		CompletableFuture<Book> update = groupCommitWriter.update(existing.getId(), newBook("group-renamed"));
+		CompletableFuture<Book> last = groupCommitWriter.create(newBook("group-ok-2"));
+
+		assertNotNull(first.get(10, TimeUnit.SECONDS).getId());
+		ExecutionException conflict = assertThrows(ExecutionException.class,
+				() -> duplicate.get(10, TimeUnit.SECONDS));
+		assertInstanceOf(DataIntegrityViolationException.class, conflict.getCause());
+		assertNull(missing.get(10, TimeUnit.SECONDS));
+		assertEquals(existing.getId(), update.get(10, TimeUnit.SECONDS).getId());
+		assertNotNull(last.get(10, TimeUnit.SECONDS).getId());
+		assertEquals(groups + 1, groupCommitWriter.stats().get("groups"));
+		assertNotNull(bookService.findByIsbn("group-ok-2"));
+	}
+
+	@Test
+	@DirtiesContext
+	void writesAfterStopAreRejected() throws Exception {
+		CompletableFuture<Book> queued = groupCommitWriter.create(newBook("group-before-stop"));
+		groupCommitWriter.stop();
+
+		// Queued before the stop: committed
+		assertNotNull(queued.get(10, TimeUnit.SECONDS).getId());
+		assertFalse(groupCommitWriter.isRunning());
+
+		CompletableFuture<Book> rejected = groupCommitWriter.create(newBook("group-after-stop"));
+		ExecutionException failure = assertThrows(ExecutionException.class,
+				() -> rejected.get(1, TimeUnit.SECONDS));
+		assertInstanceOf(IllegalStateException.class, failure.getCause());
+		assertNull(bookService.findByIsbn("group-after-stop"));
+	}
+}
@@ -0,0 +1,130 @@
+package com.bookstore.bookstore;
+
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.service.BookService;
+import com.bookstore.bookstore.service.stock.StockLedger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static com.bookstore.bookstore.TestBooks.newBook;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stock ledger with the background flush out of the way: reservations stay in memory
+ * until an explicit flush, and writes that overwrite the stock meet pending reservations.
+ */
+@SpringBootTest(classes = {BookstoreApplication.class}, properties = {
+		"spring.datasource.url=jdbc:h2:mem:ledgertest",
+		"bookstore.stock.ledger.enabled=true",
+		"bookstore.stock.ledger.flush-interval-ms=3600000"})
+@ActiveProfiles("test")
+class StockLedgerTests {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private StockLedger stockLedger;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Test
+	void reservationsAreWrittenOnFlush() {
+		Long id = bookService.createBook(newBook("ledger-1", 5)).getId();
+
+		assertTrue(bookService.reserveStock(id, 2));
+		assertEquals(5, storedStock(id));
+		assertEquals(3, bookService.getBookById(id).getStock());
+
+		assertTrue(stockLedger.flush() >= 1);
+		assertEquals(3, storedStock(id));
+		assertFalse(bookService.reserveStock(id, 4));
+		assertTrue(bookService.releaseStock(id, 1));
+		stockLedger.flush();
+		assertEquals(4, storedStock(id));
+	}
+
+	@Test
+	void overwritesKeepUnitsReservedBeforeTheirCommit() {
+		Long id = bookService.createBook(newBook("ledger-2", 5)).getId();
+		assertTrue(bookService.reserveStock(id, 2));
+
+		// The pending reservation is written on top of the new stock once the update commits
+		assertNotNull(bookService.updateBook(id, newBook("ledger-2", 10)));
+		assertEquals(8, storedStock(id));
+		assertEquals(8, bookService.getBookById(id).getStock());
+
+		assertTrue(bookService.reserveStock(id, 8));
+		assertFalse(bookService.reserveStock(id, 1));
+		stockLedger.flush();
+		assertEquals(0, storedStock(id));
+		assertFalse(storedAvailable(id));
+	}
+
+	@Test
+	void flushesNeverTakeStockBelowZero() {
+		Long id = bookService.createBook(newBook("ledger-3", 5)).getId();
+		assertTrue(bookService.reserveStock(id, 4));
+
+		// Overwritten below the units already reserved: the book is sold out, not negative
+		assertTrue(bookService.patchBook(id, new BookPatch(null, null, null, null, 1, null, null)));
+		assertEquals(0, storedStock(id));
+		assertFalse(storedAvailable(id));
+		assertFalse(bookService.reserveStock(id, 1));
+	}
+
+	@Test
+	void reservationsSurviveAFailedBackPressureFlush() {
+		Long id = bookService.createBook(newBook("ledger-4", 1500)).getId();
+		failWritesOfStock(id, 500);
+		try {
+			// Reaches max-unflushed: the synchronous flush fails, the units stay reserved
+			assertTrue(bookService.reserveStock(id, 1000));
+			assertEquals(1500, storedStock(id));
+			assertEquals(500, bookService.getBookById(id).getStock());
+		} finally {
+			jdbcTemplate.execute("ALTER TABLE book DROP CONSTRAINT ledger_write_fails");
+		}
+		stockLedger.flush();
+		assertEquals(500, storedStock(id));
+	}
+
+	@Test
+	void pendingChangesOfARetiredCounterSurviveAFailedWrite() {
+		Long id = bookService.createBook(newBook("ledger-5", 10)).getId();
+		assertTrue(bookService.reserveStock(id, 2));
+		failWritesOfStock(id, 18);
+		try {
+			// The patch commits; writing the 2 reserved units on top of it fails
+			assertTrue(bookService.patchBook(id, new BookPatch(null, null, null, null, 20, null, null)));
+			assertEquals(20, storedStock(id));
+		} finally {
+			jdbcTemplate.execute("ALTER TABLE book DROP CONSTRAINT ledger_write_fails");
+		}
+		stockLedger.flush();
+		assertEquals(18, storedStock(id));
+	}
+
+	private void failWritesOfStock(Long id, int stock) {
+		jdbcTemplate.execute("ALTER TABLE book ADD CONSTRAINT ledger_write_fails CHECK (id <> " + id
+				+ " OR stock <> " + stock + ")");
+	}
+
+	private int storedStock(Long id) {
+		return jdbcTemplate.queryForObject("SELECT stock FROM book WHERE id = ?", Integer.class, id);
+	}
+
+	private boolean storedAvailable(Long id) {
+		return jdbcTemplate.queryForObject("SELECT available FROM book WHERE id = ?", Boolean.class, id);
+	}
+}
@@ -0,0 +1,137 @@
+package com.bookstore.bookstore;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.service.BookService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.bookstore.bookstore.TestBooks.newBook;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers the stock reservation API from many threads to prove it never oversells.
+ */
+@SpringBootTest(classes = {BookstoreApplication.class},
+		properties = "spring.datasource.url=jdbc:h2:mem:stocktest;LOCK_TIMEOUT=30000")
+@ActiveProfiles("test")
+class StockReservationConcurrencyTests {
+
+	private static final int THREADS = 64;
+	private static final int ATTEMPTS_PER_THREAD = 10;
+	private static final int STOCK = 100;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Test
+	void concurrentReservationsNeverOversell() throws Exception {
+		Long id = bookService.createBook(newBook("stress-1", STOCK)).getId();
+
+		AtomicInteger reserved = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		runConcurrently(() -> {
+			for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+				if (bookService.reserveStock(id, 1)) {
+					reserved.incrementAndGet();
+				} else {
+					rejected.incrementAndGet();
+				}
+			}
+		});
+
+		assertEquals(STOCK, reserved.get());
+		assertEquals(THREADS * ATTEMPTS_PER_THREAD - STOCK, rejected.get());
+		Book book = bookService.getBookById(id);
+		assertEquals(0, book.getStock());
+		assertFalse(book.getAvailable());
+
+		// Releasing stock makes the sold-out book available again
+		assertTrue(bookService.releaseStock(id, 3));
+		book = bookService.getBookById(id);
+		assertEquals(3, book.getStock());
+		assertTrue(book.getAvailable());
+	}
+
+	@Test
+	void concurrentMultiItemReservationsAreAllOrNothing() throws Exception {
+		Long first = bookService.createBook(newBook("stress-2", STOCK)).getId();
+		Long second = bookService.createBook(newBook("stress-3", STOCK / 2)).getId();
+
+		// Each order takes one unit of both books, so the second book limits the total
+		AtomicInteger orders = new AtomicInteger();
+		runConcurrently(() -> {
+			for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+				if (bookService.reserveAll(Map.of(second, 1, first, 1))) {
+					orders.incrementAndGet();
+				}
+			}
+		});
+
+		assertEquals(STOCK / 2, orders.get());
+		assertEquals(STOCK - STOCK / 2, bookService.getBookById(first).getStock());
+		assertEquals(0, bookService.getBookById(second).getStock());
+		assertFalse(bookService.reserveAll(Map.of(first, 1, second, 1)));
+		assertEquals(STOCK - STOCK / 2, bookService.getBookById(first).getStock());
+	}
+
+	@Test
+	void failedMultiItemReservationsLeaveTheCallersTransactionUsable() {
+		Long first = bookService.createBook(newBook("stress-4", 3)).getId();
+		Long second = bookService.createBook(newBook("stress-5", 1)).getId();
+
+		Long created = transactionTemplate.execute(status -> {
+			assertFalse(bookService.reserveAll(Map.of(first, 2, second, 2)));
+			return bookService.createBook(newBook("stress-6")).getId();
+		});
+
+		// The caller's other work committed, and nothing was reserved
+		assertNotNull(bookService.getBookById(created));
+		assertEquals(3, bookService.getBookById(first).getStock());
+		assertEquals(1, bookService.getBookById(second).getStock());
+		assertTrue(bookService.reserveAll(Map.of(first, 3, second, 1)));
+		assertFalse(bookService.getBookById(first).getAvailable());
+	}
+
+	private static void runConcurrently(Runnable task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		try {
+			for (int i = 0; i < THREADS; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					task.run();
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(2, TimeUnit.MINUTES);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.bookstore.bookstore;
+
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Books and catalog walks shared by the tests.
+ */
+public final class TestBooks {
+
+	private TestBooks() {
+	}
+
+	/**
+	 * Creates a new available book, not stored, with 5 units in stock and title,
+	 * author and description derived from the ISBN.
+	 */
+	public static Book newBook(String isbn) {
+		return newBook(isbn, 5);
+	}
+
+	/**
+	 * Creates a new available book, not stored, with the given stock.
+	 */
+	public static Book newBook(String isbn, int stock) {
+		Book book = new Book();
+		book.setTitle("Book " + isbn);
+		book.setAuthor("Author " + isbn);
+		book.setIsbn(isbn);
+		book.setPrice(9.99);
+		book.setStock(stock);
+		book.setDescription("Description " + isbn);
+		book.setAvailable(true);
+		return book;
+	}
+
+	/**
+	 * Follows the page tokens of a keyset query to its last page.
+	 * @param query reads the page of a token (null for the first page)
+	 * @return the IDs of every book listed, in page order
+	 */
+	public static List<Long> walk(Function<String, BookPage> query) {
+		List<Long> ids = new ArrayList<>();
+		BookPage page = query.apply(null);
+		while (true) {
+			page.books().forEach(book -> ids.add(book.getId()));
+			if (!page.hasNext()) {
+				return ids;
+			}
+			page = query.apply(page.nextPageToken());
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.bookstore.bookstore.admission;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.FilterChain;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Admission control without the application: the adaptive limits, the per-client
+ * buckets and the HTTP answers of the filter.
+ */
+class AdmissionControlTests {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(10);
+
+	@Test
+	void limitGrowsWhileItIsTheBottleneck() throws InterruptedException {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("reads", 4, 2, 8, 2.0, 0, 0);
+		fill(limit);
+		for (int i = 0; i < 100; i++) {
+			limit.release(FAST);
+			fill(limit);
+		}
+		assertEquals(8, limit.stats().limit());
+	}
+
+	@Test
+	void limitShrinksWhenLatencyRises() throws InterruptedException {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("reads", 8, 2, 8, 2.0, 0, 0);
+		assertTrue(limit.acquire());
+		limit.release(FAST);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(limit.acquire());
+			limit.release(SLOW);
+		}
+		AdmissionStats.LimitStats stats = limit.stats();
+		assertTrue(stats.limit() < 8, "limit: " + stats.limit());
+		assertTrue(stats.limit() >= 2);
+		assertEquals(0, stats.inFlight());
+	}
+
+	@Test
+	void unsampledReleasesLeaveTheLimitAlone() throws InterruptedException {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("reads", 1, 1, 4, 2.0, 0, 0);
+		assertTrue(limit.acquire());
+		assertFalse(limit.acquire());
+		limit.releaseUnsampled();
+
+		AdmissionStats.LimitStats stats = limit.stats();
+		assertEquals(1, stats.limit());
+		assertEquals(0, stats.inFlight());
+		assertEquals(0.0, stats.latencyMillis());
+		assertTrue(limit.acquire());
+	}
+
+	@Test
+	void leastRecentlySeenClientsAreForgotten() {
+		// Burst of 2, one token per 10 seconds, room for two clients
+		AdmissionController admission = new AdmissionController(0.1, 2, 2, 4, 1, 4, 2, 1, 2, 2.0, 0, 0);
+		AdmissionController.Concurrency unlimited = AdmissionController.Concurrency.UNLIMITED;
+
+		assertTrue(admission.admit("a", false, unlimited).admitted());
+		assertTrue(admission.admit("b", false, unlimited).admitted());
+		assertTrue(admission.admit("a", false, unlimited).admitted());
+		assertTrue(admission.admit("c", false, unlimited).admitted());
+		assertEquals(2, admission.stats().trackedClients());
+
+		// "a" was seen after "b", so it kept its empty bucket
+		assertEquals(AdmissionController.Outcome.RATE_LIMITED, admission.admit("a", false, unlimited).outcome());
+		assertTrue(admission.admit("b", false, unlimited).admitted());
+	}
+
+	@Test
+	void rateLimitedClientsGet429ByAddress() throws Exception {
+		AdmissionController admission = new AdmissionController(0.1, 1, 10, 4, 1, 4, 2, 1, 2, 2.0, 0, 0);
+		AdmissionFilter filter = new AdmissionFilter(admission);
+		AtomicInteger served = new AtomicInteger();
+		FilterChain chain = (request, response) -> served.incrementAndGet();
+
+		assertEquals(200, send(filter, get("/api/books", "10.0.0.1"), chain).getStatus());
+
+		// A client id header doesn't buy a new bucket
+		MockHttpServletRequest spoofed = get("/api/books", "10.0.0.1");
+		spoofed.addHeader("X-Client-Id", "someone-else");
+		MockHttpServletResponse limited = send(filter, spoofed, chain);
+		assertEquals(429, limited.getStatus());
+		assertNotNull(limited.getHeader(HttpHeaders.RETRY_AFTER));
+
+		assertEquals(200, send(filter, get("/api/books", "10.0.0.2"), chain).getStatus());
+		assertEquals(2, served.get());
+	}
+
+	@Test
+	void overloadedRequestsGet503() throws Exception {
+		// One read slot and no queue
+		AdmissionController admission = new AdmissionController(100, 100, 10, 1, 1, 1, 1, 1, 1, 2.0, 0, 0);
+		AdmissionFilter filter = new AdmissionFilter(admission);
+		MockHttpServletResponse[] nested = new MockHttpServletResponse[1];
+
+		// The second read arrives while the first one holds the slot
+		MockHttpServletResponse first = send(filter, get("/api/books", "10.0.0.1"), (request, response) ->
+				nested[0] = send(filter, get("/api/books", "10.0.0.2"), (req, res) -> fail("admitted")));
+		assertEquals(200, first.getStatus());
+		assertEquals(503, nested[0].getStatus());
+		assertEquals("1", nested[0].getHeader(HttpHeaders.RETRY_AFTER));
+
+		// Writes have their own limit
+		MockHttpServletRequest write = get("/api/books", "10.0.0.3");
+		write.setMethod("POST");
+		assertEquals(200, send(filter, get("/api/books", "10.0.0.1"), (request, response) ->
+				assertEquals(200, send(filter, write, (req, res) -> { }).getStatus())).getStatus());
+	}
+
+	@Test
+	void exportsDoNotFeedTheReadLimit() throws Exception {
+		AdmissionController admission = new AdmissionController(100, 100, 10, 4, 1, 4, 2, 1, 2, 2.0, 0, 0);
+		AdmissionFilter filter = new AdmissionFilter(admission);
+
+		send(filter, get("/api/books/export", "10.0.0.1"), (request, response) -> { });
+		AdmissionStats.LimitStats reads = admission.stats().reads();
+		assertEquals(1, reads.admitted());
+		assertEquals(0, reads.inFlight());
+		assertEquals(0.0, reads.latencyMillis());
+
+		send(filter, get("/api/books", "10.0.0.1"), (request, response) -> { });
+		assertTrue(admission.stats().reads().latencyMillis() > 0);
+	}
+
+	private static void fill(AdaptiveConcurrencyLimit limit) throws InterruptedException {
+		while (limit.acquire()) {
+			// Take every free slot
+		}
+	}
+
+	private static MockHttpServletRequest get(String uri, String remoteAddress) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+		request.setRemoteAddr(remoteAddress);
+		return request;
+	}
+
+	private static MockHttpServletResponse send(AdmissionFilter filter, MockHttpServletRequest request,
+												FilterChain chain) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		try {
+			filter.doFilter(request, response, chain);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		return response;
+	}
+}
@@ -0,0 +1,89 @@
+package com.bookstore.bookstore.benchmark;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.model.BookWriteOperation;
+import com.bookstore.bookstore.model.BookWriteResult;
+import com.bookstore.bookstore.service.BookBatchService;
+import com.bookstore.bookstore.service.BookImportService;
+import com.bookstore.bookstore.service.BookService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Price and stock updates pushed one by one through updateBook versus a single
+ * batch write, with 1% of the items failing validation.
+ * Run with: ./mvnw test -Pbenchmark -Dtest=BatchWriteBenchmark
+ */
+@SpringBootTest(classes = {BookstoreApplication.class})
+@ActiveProfiles("test")
+@Tag("benchmark")
+class BatchWriteBenchmark {
+
+	private static final int BOOKS = 10_000;
+	private static final int INVALID_EVERY = 100;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookBatchService bookBatchService;
+
+	@Autowired
+	private BookImportService bookImportService;
+
+	@Test
+	void batchVersusOneByOne() {
+		List<Book> books = createBooks("one-");
+		long start = System.nanoTime();
+		int failed = 0;
+		for (int i = 0; i < books.size(); i++) {
+			Book changes = books.get(i).copy();
+			changes.setPrice(i % INVALID_EVERY == 0 ? -1.0 : 20.0);
+			changes.setStock(7);
+			try {
+				bookService.updateBook(changes.getId(), changes);
+			} catch (IllegalArgumentException e) {
+				failed++;
+			}
+		}
+		report("updateBook one by one", start, failed);
+
+		books = createBooks("batch-");
+		List<BookWriteOperation> operations = new ArrayList<>(books.size());
+		for (int i = 0; i < books.size(); i++) {
+			double price = i % INVALID_EVERY == 0 ? -1.0 : 20.0;
+			operations.add(BookWriteOperation.patch(books.get(i).getId(),
+					new BookPatch(null, null, null, price, 7, null, null)));
+		}
+		start = System.nanoTime();
+		List<BookWriteResult> results = bookBatchService.write(operations);
+		long rejected = results.stream().filter(result -> !result.succeeded()).count();
+		report("batch write", start, rejected);
+
+		assertEquals(BOOKS / INVALID_EVERY, rejected);
+	}
+
+	private List<Book> createBooks(String prefix) {
+		List<Book> books = new ArrayList<>(BOOKS);
+		for (int i = 0; i < BOOKS; i++) {
+			books.add(new Book(null, "Title " + i, "Author", prefix + i, 10.0, 5, "Description " + i, true));
+		}
+		assertEquals(BOOKS, bookImportService.createBooks(books).imported());
+		return books;
+	}
+
+	private static void report(String path, long startNanos, long failed) {
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		System.out.printf("%-22s %10.0f items/s (%d rejected)%n", path, BOOKS / seconds, failed);
+	}
+}
@@ -0,0 +1,74 @@
+package com.bookstore.bookstore.benchmark;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.ImportReport;
+import com.bookstore.bookstore.service.BookImportService;
+import com.bookstore.bookstore.service.BookService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the bulk import against looping over createBook.
+ * Run with: ./mvnw test -Pbenchmark -Dtest=BulkImportBenchmark
+ */
+@SpringBootTest(classes = {BookstoreApplication.class})
+@ActiveProfiles("test")
+@Tag("benchmark")
+class BulkImportBenchmark {
+
+	private static final int LOOP_ROWS = 5_000;
+	private static final int BULK_ROWS = 50_000;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookImportService bookImportService;
+
+	@Test
+	void bulkImportVersusCreateBookLoop() {
+		// Warm up both paths
+		books("warmup-loop-", 500).forEach(bookService::createBook);
+		bookImportService.createBooks(books("warmup-bulk-", 500));
+
+		List<Book> loopBooks = books("loop-", LOOP_ROWS);
+		long start = System.nanoTime();
+		for (Book book : loopBooks) {
+			bookService.createBook(book);
+		}
+		double loopRate = LOOP_ROWS / ((System.nanoTime() - start) / 1e9);
+
+		ImportReport report = bookImportService.createBooks(books("bulk-", BULK_ROWS));
+		assertEquals(BULK_ROWS, report.imported());
+		assertEquals(0, report.failed());
+
+		System.out.printf("createBook loop: %,.0f rows/s (%d rows)%n", loopRate, LOOP_ROWS);
+		System.out.printf("createBooks bulk: %,.0f rows/s (%d rows)%n", report.rowsPerSecond(), BULK_ROWS);
+		System.out.printf("speed-up: %.1fx%n", report.rowsPerSecond() / loopRate);
+	}
+
+	private static List<Book> books(String prefix, int count) {
+		List<Book> books = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Book book = new Book();
+			book.setTitle("Title " + i);
+			book.setAuthor("Author " + (i % 100));
+			book.setIsbn(prefix + i);
+			book.setPrice(10.0 + i % 50);
+			book.setStock(i % 20);
+			book.setDescription("Description of book " + i);
+			book.setAvailable(true);
+			books.add(book);
+		}
+		return books;
+	}
+}
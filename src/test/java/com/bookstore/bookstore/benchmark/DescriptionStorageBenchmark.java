@@ -0,0 +1,116 @@
+package com.bookstore.bookstore.benchmark;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.BookImportService;
+import com.bookstore.bookstore.service.BookService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * List and scan speed with descriptions out of the book row, against the previous
+ * layout with an inline description column (recreated as book_inline with the same data),
+ * plus the storage saved by compression.
+ * Run with: ./mvnw test -Pbenchmark -Dtest=DescriptionStorageBenchmark
+ */
+@SpringBootTest(classes = {BookstoreApplication.class},
+		properties = "spring.datasource.url=jdbc:h2:file:./target/descriptions/bench")
+@ActiveProfiles("test")
+@Tag("benchmark")
+class DescriptionStorageBenchmark {
+
+	private static final int BOOKS = 50_000;
+	private static final int ROUNDS = 5;
+	private static final String BLURB = "A sweeping story of families, wars and the small decisions that "
+			+ "shape a century, told with humour and an eye for the details of everyday life. ";
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookImportService bookImportService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Test
+	void listAndScanSpeed() {
+		List<Book> books = new ArrayList<>(BOOKS);
+		for (int i = 0; i < BOOKS; i++) {
+			// Publisher blurbs from a few hundred bytes to a few kilobytes
+			books.add(new Book(null, "Title " + i, "Author " + i % 400, "desc-" + i, 10.0 + i % 30, i % 40,
+					i + ": " + BLURB.repeat(2 + i % 20), true));
+		}
+		bookImportService.createBooks(books);
+
+		jdbcTemplate.execute("DROP TABLE IF EXISTS book_inline");
+		jdbcTemplate.execute("CREATE TABLE book_inline (id BIGINT PRIMARY KEY, title VARCHAR(255), "
+				+ "author VARCHAR(255), isbn VARCHAR(255), price DOUBLE PRECISION, stock INTEGER, "
+				+ "description CHARACTER LARGE OBJECT, available BOOLEAN)");
+		jdbcTemplate.update("INSERT INTO book_inline SELECT b.id, b.title, b.author, b.isbn, b.price, b.stock, "
+				+ "NULL, b.available FROM book b");
+		jdbcTemplate.batchUpdate("UPDATE book_inline SET description = ? WHERE id = ?",
+				books.stream().map(book -> new Object[]{book.getDescription(), book.getId()}).toList());
+
+		String listColumns = "id, title, author, isbn, price, stock, available";
+		time("scan, inline description", () ->
+				jdbcTemplate.queryForList("SELECT " + listColumns + " FROM book_inline").size());
+		time("scan, side table", () ->
+				jdbcTemplate.queryForList("SELECT " + listColumns + " FROM book").size());
+		time("scan with descriptions, inline", () ->
+				jdbcTemplate.queryForList("SELECT * FROM book_inline").size());
+
+		TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+		time("entities, lazy description", () ->
+				readOnly.execute(status -> bookRepository.findAll().size()));
+		time("entities with descriptions", () -> bookService.getAllBooks().size());
+		time("summaries", () -> bookService.getAllBookSummaries().size());
+
+		Long inline = jdbcTemplate.queryForObject(
+				"SELECT SUM(OCTET_LENGTH(description)) FROM book_inline", Long.class);
+		Long stored = jdbcTemplate.queryForObject(
+				"SELECT SUM(OCTET_LENGTH(content)) FROM book_description", Long.class);
+		System.out.printf("Description bytes: %,d inline, %,d stored (%.0f%%)%n",
+				inline, stored, 100.0 * stored / inline);
+
+		assertEquals(books.get(7).getDescription(), bookService.getBookById(books.get(7).getId()).getDescription());
+		assertTrue(stored < inline);
+	}
+
+	private static void time(String name, Supplier<Integer> scan) {
+		int rows = scan.get();
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			rows = scan.get();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.printf("%-32s %8.1f ms (%d rows)%n", name, best / 1e6, rows);
+	}
+}
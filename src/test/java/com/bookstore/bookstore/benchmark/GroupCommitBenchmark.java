@@ -0,0 +1,103 @@
+package com.bookstore.bookstore.benchmark;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.BookService;
+import com.bookstore.bookstore.service.write.GroupCommitWriter;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many concurrent single-book creates against a file database, each in its own
+ * transaction and then through the group commit pipeline.
+ * Run with: ./mvnw test -Pbenchmark -Dtest=GroupCommitBenchmark
+ */
+@SpringBootTest(classes = {BookstoreApplication.class},
+		properties = {
+				"spring.datasource.url=jdbc:h2:file:./target/groupcommit/bench",
+				"bookstore.write.group-commit.enabled=true"
+		})
+@ActiveProfiles("test")
+@Tag("benchmark")
+class GroupCommitBenchmark {
+
+	private static final int THREADS = 64;
+	private static final int WRITES_PER_THREAD = 200;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private GroupCommitWriter groupCommitWriter;
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Test
+	void groupCommitVersusTransactionPerWrite() throws Exception {
+		long before = bookRepository.count();
+		run("transaction per write", "single-", (isbn) -> bookService.createBook(newBook(isbn)));
+		run("group commit", "group-", (isbn) -> bookService.createBookAsync(newBook(isbn)).join());
+		System.out.println("Group commit stats: " + groupCommitWriter.stats());
+
+		assertEquals(before + 2L * THREADS * WRITES_PER_THREAD, bookRepository.count());
+	}
+
+	private static void run(String path, String prefix, Write write) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < WRITES_PER_THREAD; i++) {
+						Book created = write.apply(prefix + thread + "-" + i);
+						assertNotNull(created.getId());
+					}
+					return null;
+				}));
+			}
+			long startNanos = System.nanoTime();
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(10, TimeUnit.MINUTES);
+			}
+			double seconds = (System.nanoTime() - startNanos) / 1e9;
+			int writes = THREADS * WRITES_PER_THREAD;
+			System.out.printf("%-22s %10.0f writes/s (%d writes)%n", path, writes / seconds, writes);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Book newBook(String isbn) {
+		return new Book(null, "Book " + isbn, "Author", "gc-" + System.nanoTime() + "-" + isbn, 9.99, 10, null, true);
+	}
+
+	private interface Write {
+		Book apply(String isbn) throws Exception;
+	}
+}
@@ -0,0 +1,127 @@
+package com.bookstore.bookstore.benchmark;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.BookImportService;
+import com.bookstore.bookstore.service.BookService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares statement counts and latency of the partial update and bulk delete
+ * paths against updateBook and the previous existsById + deleteById delete.
+ * Run with: ./mvnw test -Pbenchmark -Dtest=PartialUpdateBenchmark
+ */
+@SpringBootTest(classes = {BookstoreApplication.class},
+		properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Tag("benchmark")
+class PartialUpdateBenchmark {
+
+	private static final int BOOKS = 5_000;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookImportService bookImportService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void patchVersusUpdate() {
+		List<Book> books = createBooks("upd-");
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		statistics.clear();
+		long start = System.nanoTime();
+		for (Book book : books) {
+			Book changes = book.copy();
+			changes.setPrice(1.0 + book.getId() % 7);
+			bookService.updateBook(book.getId(), changes);
+		}
+		report("updateBook", start, statistics.getPrepareStatementCount());
+
+		statistics.clear();
+		start = System.nanoTime();
+		for (Book book : books) {
+			assertTrue(bookService.patchBook(book.getId(),
+					new BookPatch(null, null, null, 2.0 + book.getId() % 7, null, null, null)));
+		}
+		report("patchBook", start, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void bulkDeleteVersusExistsAndDelete() {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		List<Long> ids = ids(createBooks("del-a-"));
+		statistics.clear();
+		long start = System.nanoTime();
+		for (Long id : ids) {
+			transaction.executeWithoutResult(status -> {
+				if (bookRepository.existsById(id)) {
+					bookRepository.deleteById(id);
+				}
+			});
+		}
+		report("existsById + deleteById", start, statistics.getPrepareStatementCount());
+
+		ids = ids(createBooks("del-b-"));
+		statistics.clear();
+		start = System.nanoTime();
+		for (Long id : ids) {
+			bookService.deleteBook(id);
+		}
+		report("deleteBook", start, statistics.getPrepareStatementCount());
+
+		ids = ids(createBooks("del-c-"));
+		statistics.clear();
+		start = System.nanoTime();
+		for (int i = 0; i < ids.size(); i += 500) {
+			bookService.deleteBooks(ids.subList(i, Math.min(ids.size(), i + 500)));
+		}
+		report("deleteBooks (500 per call)", start, statistics.getPrepareStatementCount());
+	}
+
+	private List<Book> createBooks(String prefix) {
+		List<Book> books = new ArrayList<>(BOOKS);
+		for (int i = 0; i < BOOKS; i++) {
+			books.add(new Book(null, "Title " + i, "Author", prefix + i, 10.0, 5, "Description " + i, true));
+		}
+		assertEquals(BOOKS, bookImportService.createBooks(books).imported());
+		return books;
+	}
+
+	private static List<Long> ids(List<Book> books) {
+		return books.stream().map(Book::getId).toList();
+	}
+
+	private static void report(String path, long startNanos, long statements) {
+		double micros = (System.nanoTime() - startNanos) / 1_000.0 / BOOKS;
+		System.out.printf("%-28s %6.1f statements/op %8.1f us/op%n", path, (double) statements / BOOKS, micros);
+	}
+}
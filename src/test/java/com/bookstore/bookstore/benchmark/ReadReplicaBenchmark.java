@@ -0,0 +1,163 @@
+package com.bookstore.bookstore.benchmark;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.replica.ReplicaRouting;
+import com.bookstore.bookstore.service.BookImportService;
+import com.bookstore.bookstore.service.BookService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput of read-heavy mixes with every transaction on the primary against
+ * read-only transactions routed to two replicas. Reads are keyset pages by author
+ * and by price range, writes are price patches; the book cache is disabled.
+ * Each worker thread reads its own writes, so after a write its reads wait for a
+ * replica that has applied it, or go to the primary.
+ * Run with: ./mvnw test -Pbenchmark -Dtest=ReadReplicaBenchmark
+ */
+@Tag("benchmark")
+class ReadReplicaBenchmark {
+
+	private static final int BOOKS = 20_000;
+	private static final int AUTHORS = 500;
+	private static final int THREADS = 16;
+	private static final long WARMUP_MILLIS = 2_000;
+	private static final long MEASURE_MILLIS = 10_000;
+	private static final double[] READ_RATIOS = {0.9, 0.99};
+	private static final Path DIRECTORY = Path.of("target", "replica-benchmark");
+
+	record Result(String name, double readRatio, long operations, long errors, double opsPerSecond) {
+		@Override
+		public String toString() {
+			return String.format("%-9s %3.0f%% reads: %,10.0f ops/s (%,d ops, %d errors)",
+					name, readRatio * 100, opsPerSecond, operations, errors);
+		}
+	}
+
+	@Test
+	void primaryOnlyAgainstReplicas() throws Exception {
+		FileSystemUtils.deleteRecursively(DIRECTORY);
+		List<Result> results = new ArrayList<>();
+		for (boolean replicas : new boolean[]{false, true}) {
+			try (ConfigurableApplicationContext context = start(replicas)) {
+				BookService bookService = context.getBean(BookService.class);
+				seed(context.getBean(BookImportService.class));
+				if (replicas) {
+					awaitReplicas(context.getBean(ReplicaRouting.class));
+				}
+				List<Long> ids = bookService.getAllBookSummaries().stream().map(BookSummary::id).toList();
+				for (double readRatio : READ_RATIOS) {
+					results.add(run(replicas ? "replicas" : "primary", readRatio, bookService, ids));
+				}
+			}
+		}
+		results.forEach(System.out::println);
+		results.forEach(result -> assertEquals(0, result.errors(), result.name()));
+	}
+
+	private static Result run(String name, double readRatio, BookService bookService, List<Long> ids)
+			throws Exception {
+		measure(readRatio, bookService, ids, WARMUP_MILLIS, new LongAdder(), new LongAdder());
+		LongAdder operations = new LongAdder();
+		LongAdder errors = new LongAdder();
+		long started = System.nanoTime();
+		measure(readRatio, bookService, ids, MEASURE_MILLIS, operations, errors);
+		double seconds = (System.nanoTime() - started) / 1e9;
+		return new Result(name, readRatio, operations.sum(), errors.sum(), operations.sum() / seconds);
+	}
+
+	private static void measure(double readRatio, BookService bookService, List<Long> ids, long millis,
+								LongAdder operations, LongAdder errors) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> workers = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				workers.add(executor.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					while (System.nanoTime() < deadline) {
+						try {
+							if (random.nextDouble() < readRatio) {
+								if (random.nextBoolean()) {
+									bookService.getBooksByAuthor("Author " + random.nextInt(AUTHORS), null, 20);
+								} else {
+									double min = 10.0 + random.nextInt(30);
+									bookService.getBooksByPriceRange(min, min + 0.5, null, 20);
+								}
+							} else {
+								Long id = ids.get(random.nextInt(ids.size()));
+								bookService.patchBook(id, new BookPatch(null, null, null,
+										10.0 + random.nextInt(30), null, null, null));
+							}
+							operations.increment();
+						} catch (RuntimeException e) {
+							errors.increment();
+						}
+					}
+				}));
+			}
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void awaitReplicas(ReplicaRouting routing) throws InterruptedException {
+		// The seed overflows the change feed retention: the replicas copy the catalog again
+		long deadline = System.currentTimeMillis() + 60_000;
+		while (!routing.stats().replicas().stream().allMatch(replica -> replica.ready() && replica.lagChanges() == 0)) {
+			assertTrue(System.currentTimeMillis() < deadline, "replicas did not catch up: " + routing.stats());
+			Thread.sleep(50);
+		}
+	}
+
+	private static void seed(BookImportService importService) {
+		List<Book> books = new ArrayList<>(BOOKS);
+		for (int i = 0; i < BOOKS; i++) {
+			books.add(new Book(null, "Title " + i, "Author " + i % AUTHORS, "replica-" + i, 10.0 + i % 30, 100,
+					"Description of book " + i, true));
+		}
+		importService.createBooks(books);
+	}
+
+	private static ConfigurableApplicationContext start(boolean replicas) {
+		String name = replicas ? "replicas" : "primary";
+		return new SpringApplicationBuilder(BookstoreApplication.class)
+				.web(WebApplicationType.NONE)
+				.headless(true)
+				.logStartupInfo(false)
+				.properties(
+						"spring.datasource.url=jdbc:h2:file:./" + DIRECTORY + "/" + name,
+						"spring.datasource.hikari.maximum-pool-size=" + THREADS,
+						"spring.jpa.hibernate.ddl-auto=create-drop",
+						"spring.jpa.show-sql=false",
+						"spring.h2.console.enabled=false",
+						"bookstore.cache.books.max-size=0",
+						"bookstore.snapshot.enabled=false",
+						"bookstore.replica.enabled=" + replicas,
+						"bookstore.replica.count=2",
+						"logging.level.root=WARN")
+				.run();
+	}
+}
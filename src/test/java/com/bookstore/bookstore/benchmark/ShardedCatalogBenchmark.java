@@ -0,0 +1,154 @@
+package com.bookstore.bookstore.benchmark;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.service.BookImportService;
+import com.bookstore.bookstore.service.BookService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput of a single database against the catalog split over four shards, for
+ * mixes of lookups by ID, price patches and keyset pages by author. Lookups and
+ * patches go to one shard; pages query every shard and merge the results. The book
+ * cache is disabled.
+ * Run with: ./mvnw test -Pbenchmark -Dtest=ShardedCatalogBenchmark
+ */
+@Tag("benchmark")
+class ShardedCatalogBenchmark {
+
+	private static final int BOOKS = 20_000;
+	private static final int AUTHORS = 500;
+	private static final int THREADS = 32;
+	private static final int SHARDS = 4;
+	private static final long WARMUP_MILLIS = 2_000;
+	private static final long MEASURE_MILLIS = 10_000;
+	private static final double[] WRITE_RATIOS = {0.1, 0.5};
+	private static final double PAGE_RATIO = 0.1;
+	private static final Path DIRECTORY = Path.of("target", "shard-benchmark");
+
+	record Result(String name, double writeRatio, long operations, long errors, double opsPerSecond) {
+		@Override
+		public String toString() {
+			return String.format("%-8s %3.0f%% writes: %,10.0f ops/s (%,d ops, %d errors)",
+					name, writeRatio * 100, opsPerSecond, operations, errors);
+		}
+	}
+
+	@Test
+	void singleDatabaseAgainstShards() throws Exception {
+		FileSystemUtils.deleteRecursively(DIRECTORY);
+		List<Result> results = new ArrayList<>();
+		for (boolean sharded : new boolean[]{false, true}) {
+			try (ConfigurableApplicationContext context = start(sharded)) {
+				BookService bookService = context.getBean(BookService.class);
+				seed(context.getBean(BookImportService.class));
+				List<Long> ids = bookService.getAllBookSummaries().stream().map(BookSummary::id).toList();
+				assertEquals(BOOKS, ids.size());
+				for (double writeRatio : WRITE_RATIOS) {
+					results.add(run(sharded ? "sharded" : "single", writeRatio, bookService, ids));
+				}
+			}
+		}
+		results.forEach(System.out::println);
+		results.forEach(result -> assertEquals(0, result.errors(), result.name()));
+	}
+
+	private static Result run(String name, double writeRatio, BookService bookService, List<Long> ids)
+			throws Exception {
+		measure(writeRatio, bookService, ids, WARMUP_MILLIS, new LongAdder(), new LongAdder());
+		LongAdder operations = new LongAdder();
+		LongAdder errors = new LongAdder();
+		long started = System.nanoTime();
+		measure(writeRatio, bookService, ids, MEASURE_MILLIS, operations, errors);
+		double seconds = (System.nanoTime() - started) / 1e9;
+		return new Result(name, writeRatio, operations.sum(), errors.sum(), operations.sum() / seconds);
+	}
+
+	private static void measure(double writeRatio, BookService bookService, List<Long> ids, long millis,
+								LongAdder operations, LongAdder errors) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> workers = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				workers.add(executor.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					while (System.nanoTime() < deadline) {
+						try {
+							Long id = ids.get(random.nextInt(ids.size()));
+							double draw = random.nextDouble();
+							if (draw < writeRatio) {
+								bookService.patchBook(id, new BookPatch(null, null, null,
+										10.0 + random.nextInt(30), null, null, null));
+							} else if (draw < writeRatio + PAGE_RATIO) {
+								bookService.getBooksByAuthor("Author " + random.nextInt(AUTHORS), null, 20);
+							} else {
+								bookService.getBookById(id);
+							}
+							operations.increment();
+						} catch (RuntimeException e) {
+							errors.increment();
+						}
+					}
+				}));
+			}
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void seed(BookImportService importService) {
+		List<Book> books = new ArrayList<>(BOOKS);
+		for (int i = 0; i < BOOKS; i++) {
+			books.add(new Book(null, "Title " + i, "Author " + i % AUTHORS, "shard-" + i, 10.0 + i % 30, 100,
+					"Description of book " + i, true));
+		}
+		importService.createBooks(books);
+	}
+
+	private static ConfigurableApplicationContext start(boolean sharded) {
+		String name = sharded ? "sharded" : "single";
+		SpringApplicationBuilder builder = new SpringApplicationBuilder(BookstoreApplication.class)
+				.web(WebApplicationType.NONE)
+				.headless(true)
+				.logStartupInfo(false)
+				.properties(
+						"spring.datasource.url=jdbc:h2:file:./" + DIRECTORY + "/" + name,
+						"spring.datasource.hikari.maximum-pool-size=" + THREADS,
+						"spring.jpa.hibernate.ddl-auto=create-drop",
+						"spring.jpa.show-sql=false",
+						"spring.h2.console.enabled=false",
+						"bookstore.cache.books.max-size=0",
+						"bookstore.snapshot.enabled=false",
+						"bookstore.shard.count=" + SHARDS,
+						"bookstore.shard.url=jdbc:h2:file:./" + DIRECTORY + "/shard-%d",
+						"bookstore.shard.pool-size=" + THREADS,
+						"logging.level.root=WARN");
+		if (sharded) {
+			builder.profiles("sharded");
+		}
+		return builder.run();
+	}
+}
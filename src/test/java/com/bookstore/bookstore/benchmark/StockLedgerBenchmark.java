@@ -0,0 +1,129 @@
+package com.bookstore.bookstore.benchmark;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.BookService;
+import com.bookstore.bookstore.service.stock.StockLedger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Flash-sale contention: many threads reserving units of the same few books,
+ * once through the in-memory stock ledger and once with the conditional UPDATE
+ * the service runs when the ledger is disabled.
+ * Run with: ./mvnw test -Pbenchmark -Dtest=StockLedgerBenchmark
+ */
+@SpringBootTest(classes = {BookstoreApplication.class},
+		properties = {
+				"spring.datasource.url=jdbc:h2:mem:ledgerbench;LOCK_TIMEOUT=60000",
+				"bookstore.stock.ledger.enabled=true"
+		})
+@ActiveProfiles("test")
+@Tag("benchmark")
+class StockLedgerBenchmark {
+
+	private static final int THREADS = 64;
+	private static final int RESERVATIONS_PER_THREAD = 2_000;
+	private static final int HOT_BOOKS = 4;
+	private static final int STOCK = THREADS * RESERVATIONS_PER_THREAD / HOT_BOOKS / 2;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private StockLedger stockLedger;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Test
+	void ledgerVersusDirectUpdate() throws Exception {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		List<Long> direct = createBooks("direct-");
+		int directReserved = run("direct UPDATE", direct, id ->
+				Boolean.TRUE.equals(transaction.execute(status -> bookRepository.reserveStock(id, 1) > 0)));
+
+		List<Long> ledger = createBooks("ledger-");
+		int ledgerReserved = run("stock ledger", ledger, id -> bookService.reserveStock(id, 1));
+		stockLedger.flush();
+		System.out.println("Ledger stats: " + stockLedger.stats());
+
+		// Both paths sell exactly the available stock, and the ledger ends up in the database
+		assertEquals(STOCK * HOT_BOOKS, directReserved);
+		assertEquals(STOCK * HOT_BOOKS, ledgerReserved);
+		for (Long id : ledger) {
+			Book book = bookRepository.findById(id).orElseThrow();
+			assertEquals(0, book.getStock());
+			assertFalse(book.getAvailable());
+		}
+	}
+
+	private List<Long> createBooks(String prefix) {
+		List<Long> ids = new ArrayList<>(HOT_BOOKS);
+		for (int i = 0; i < HOT_BOOKS; i++) {
+			Book book = new Book(null, "Hot " + i, "Author", prefix + i, 19.9, STOCK, null, true);
+			ids.add(bookService.createBook(book).getId());
+		}
+		return ids;
+	}
+
+	private static int run(String path, List<Long> ids, LongPredicate reserve) throws Exception {
+		AtomicInteger reserved = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < RESERVATIONS_PER_THREAD; i++) {
+						if (reserve.test(ids.get((thread + i) % ids.size()))) {
+							reserved.incrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+			long startNanos = System.nanoTime();
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(10, TimeUnit.MINUTES);
+			}
+			double seconds = (System.nanoTime() - startNanos) / 1e9;
+			int attempts = THREADS * RESERVATIONS_PER_THREAD;
+			System.out.printf("%-14s %10.0f reservations/s (%d attempts, %d reserved)%n",
+					path, attempts / seconds, attempts, reserved.get());
+		} finally {
+			executor.shutdownNow();
+		}
+		return reserved.get();
+	}
+}
@@ -0,0 +1,121 @@
+package com.bookstore.bookstore.benchmark;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.service.BookImportService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Downloads the full catalog through /api/books/export at two catalog sizes and
+ * prints time to first byte, payload size with and without gzip and the heap growth
+ * seen during the download, which should not grow with the catalog.
+ * Run with: ./mvnw test -Pbenchmark -Dtest=StreamingExportBenchmark
+ */
+@SpringBootTest(classes = {BookstoreApplication.class}, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Tag("benchmark")
+class StreamingExportBenchmark {
+
+	private static final int[] CATALOG_SIZES = {20_000, 200_000};
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private BookImportService bookImportService;
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Test
+	void heapStaysFlatAsTheCatalogGrows() throws Exception {
+		HttpClient client = HttpClient.newHttpClient();
+		int seeded = 0;
+		for (int size : CATALOG_SIZES) {
+			seed(seeded, size);
+			seeded = size;
+			for (String encoding : new String[]{"identity", "gzip"}) {
+				download(client, size, "application/json", encoding);
+				download(client, size, "application/x-bookstore-books", encoding);
+			}
+		}
+	}
+
+	private void download(HttpClient client, int size, String accept, String encoding) throws Exception {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		System.gc();
+		long baseline = memory.getHeapMemoryUsage().getUsed();
+		AtomicLong peak = new AtomicLong(baseline);
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+			while (running.get()) {
+				peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		});
+
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books/export"))
+				.header("Accept", accept)
+				.header("Accept-Encoding", encoding)
+				.build();
+		long start = System.nanoTime();
+		HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		long firstByteNanos = 0;
+		long bytes = 0;
+		try (InputStream body = response.body()) {
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = body.read(buffer)) >= 0) {
+				if (bytes == 0 && read > 0) {
+					firstByteNanos = System.nanoTime() - start;
+				}
+				bytes += read;
+			}
+		}
+		long totalNanos = System.nanoTime() - start;
+		running.set(false);
+		sampler.join();
+
+		assertEquals(200, response.statusCode());
+		System.out.printf("%7d books %-30s %-8s first byte %6.1f ms  total %7.1f ms  %6.1f bytes/book  heap +%5.1f MB%n",
+				size, accept, encoding, firstByteNanos / 1e6, totalNanos / 1e6, (double) bytes / size,
+				(peak.get() - baseline) / 1024.0 / 1024.0);
+	}
+
+	private void seed(int from, int to) {
+		for (int start = from; start < to; start += 10_000) {
+			List<Book> books = new ArrayList<>(10_000);
+			for (int i = start; i < Math.min(to, start + 10_000); i++) {
+				books.add(new Book(null, "Title " + i, "Author " + i % 300, "stream-" + i, 10.0 + i % 40, i % 25,
+						"Description of book " + i, true));
+			}
+			assertEquals(books.size(), bookImportService.createBooks(books).imported());
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package com.bookstore.bookstore.benchmark;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.service.BookImportService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test of the REST API with request handling on virtual threads versus
+ * Tomcat's platform thread pool. The book cache is disabled and the database is
+ * file-mode H2, so every request blocks on database I/O.
+ * Run with: ./mvnw test -Pbenchmark -Dtest=VirtualThreadLoadBenchmark
+ */
+@Tag("benchmark")
+class VirtualThreadLoadBenchmark {
+
+	private static final int BOOKS = 20_000;
+	private static final int CLIENTS = 1_000;
+	private static final int REQUESTS_PER_CLIENT = 50;
+	private static final int PLATFORM_THREADS = 200;
+
+	@Test
+	void virtualVersusPlatformThreads() throws Exception {
+		Result platform = run(false);
+		Result virtual = run(true);
+		System.out.println(platform);
+		System.out.println(virtual);
+
+		assertEquals(0, platform.errors());
+		assertEquals(0, virtual.errors());
+	}
+
+	private static Result run(boolean virtualThreads) throws Exception {
+		String name = virtualThreads ? "virtual" : "platform";
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BookstoreApplication.class)
+				.headless(true)
+				.properties(
+						"server.port=0",
+						"spring.threads.virtual.enabled=" + virtualThreads,
+						"server.tomcat.threads.max=" + PLATFORM_THREADS,
+						"server.tomcat.max-connections=" + (CLIENTS * 2),
+						"server.tomcat.accept-count=" + CLIENTS,
+						"spring.datasource.url=jdbc:h2:file:./target/load/" + name,
+						"spring.datasource.hikari.maximum-pool-size=20",
+						"spring.jpa.hibernate.ddl-auto=create-drop",
+						"spring.jpa.show-sql=false",
+						"bookstore.cache.books.max-size=0",
+						"bookstore.admission.enabled=false",
+						"logging.level.root=WARN")
+				.run()) {
+			seed(context.getBean(BookImportService.class));
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			return load(name, "http://localhost:" + port + "/api/books");
+		}
+	}
+
+	private static void seed(BookImportService importService) {
+		List<Book> books = new ArrayList<>(BOOKS);
+		for (int i = 0; i < BOOKS; i++) {
+			books.add(new Book(null, "Title " + i, "Author " + i % 100, "load-" + i, 12.5, 20, "Description " + i, true));
+		}
+		assertEquals(BOOKS, importService.createBooks(books).imported());
+	}
+
+	private static Result load(String name, String baseUrl) throws Exception {
+		AtomicInteger errors = new AtomicInteger();
+		long[][] latencies = new long[CLIENTS][REQUESTS_PER_CLIENT];
+		long start;
+		try (HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+			 ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			// Warm-up so both runs measure a JIT-compiled server
+			for (int i = 0; i < 500; i++) {
+				get(client, baseUrl + "/" + (1 + i % BOOKS));
+			}
+			List<Future<?>> futures = new ArrayList<>(CLIENTS);
+			start = System.nanoTime();
+			for (int c = 0; c < CLIENTS; c++) {
+				long[] clientLatencies = latencies[c];
+				futures.add(clients.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+						// Mostly single book reads, some catalog pages
+						String url = r % 10 == 0
+								? baseUrl + "?pageSize=50"
+								: baseUrl + "/" + (1 + random.nextInt(BOOKS));
+						long requestStart = System.nanoTime();
+						if (get(client, url) != 200) {
+							errors.incrementAndGet();
+						}
+						clientLatencies[r] = System.nanoTime() - requestStart;
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(10, TimeUnit.MINUTES);
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+		return new Result(name, all.length / seconds,
+				all[all.length / 2] / 1e6, all[(int) (all.length * 0.99) - 1] / 1e6, errors.get());
+	}
+
+	private static int get(HttpClient client, String url) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofMinutes(2)).GET().build();
+		return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	private record Result(String threads, double requestsPerSecond, double p50Millis, double p99Millis, int errors) {
+
+		@Override
+		public String toString() {
+			return String.format("%-9s %8.0f req/s  p50 %7.2f ms  p99 %7.2f ms  errors %d",
+					threads, requestsPerSecond, p50Millis, p99Millis, errors);
+		}
+	}
+}
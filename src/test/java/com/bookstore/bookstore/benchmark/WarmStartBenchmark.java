@@ -0,0 +1,86 @@
+package com.bookstore.bookstore.benchmark;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.service.BookImportService;
+import com.bookstore.bookstore.service.BookService;
+import com.bookstore.bookstore.service.snapshot.CatalogSnapshot;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Time to ready of a restarted node with a file database of BOOKS books:
+ * cold (indexes rebuilt from the book table) against warm (restored from the
+ * catalog snapshot written on the previous shutdown).
+ * Run with: ./mvnw test -Pbenchmark -Dtest=WarmStartBenchmark
+ */
+@Tag("benchmark")
+class WarmStartBenchmark {
+
+	private static final int BOOKS = 100_000;
+	private static final Path DIRECTORY = Path.of("target", "warmstart");
+	private static final Path SNAPSHOT = DIRECTORY.resolve("catalog.snapshot");
+
+	@Test
+	void coldAgainstWarmStart() throws IOException {
+		FileSystemUtils.deleteRecursively(DIRECTORY);
+		try (ConfigurableApplicationContext context = start()) {
+			List<Book> books = new ArrayList<>(BOOKS);
+			for (int i = 0; i < BOOKS; i++) {
+				books.add(new Book(null, "Title " + i, "Author " + i % 500, "warm-" + i, 10.0 + i % 30, i % 40,
+						"Description of book " + i + " with a few more words to index", true));
+			}
+			context.getBean(BookImportService.class).createBooks(books);
+		}
+
+		Files.deleteIfExists(SNAPSHOT);
+		Map<String, Object> cold = restart("cold");
+		assertEquals(false, cold.get("warmStart"));
+		assertTrue(Files.exists(SNAPSHOT), "snapshot written on shutdown");
+
+		Map<String, Object> warm = restart("warm");
+		assertEquals(true, warm.get("warmStart"));
+		System.out.printf("speed-up: %.1fx%n",
+				(double) (long) cold.get("timeToReadyMillis") / Math.max(1L, (long) warm.get("timeToReadyMillis")));
+	}
+
+	private static Map<String, Object> restart(String name) {
+		try (ConfigurableApplicationContext context = start()) {
+			Map<String, Object> stats = context.getBean(CatalogSnapshot.class).stats();
+			BookService bookService = context.getBean(BookService.class);
+			assertNotNull(bookService.findByIsbn("warm-" + (BOOKS - 1)));
+			assertFalse(bookService.searchBooks("description", null).isEmpty());
+			System.out.printf("%-6s start: ready in %,6d ms (snapshot restore %,d ms)%n",
+					name, stats.get("timeToReadyMillis"), stats.get("restoreMillis"));
+			return stats;
+		}
+	}
+
+	private static ConfigurableApplicationContext start() {
+		return new SpringApplicationBuilder(BookstoreApplication.class)
+				.web(WebApplicationType.NONE)
+				.headless(true)
+				.logStartupInfo(false)
+				.properties(
+						"spring.datasource.url=jdbc:h2:file:./" + DIRECTORY + "/bookstore",
+						"spring.jpa.show-sql=false",
+						"spring.h2.console.enabled=false",
+						"bookstore.snapshot.enabled=true",
+						"bookstore.snapshot.file=" + SNAPSHOT,
+						"logging.level.root=WARN")
+				.run();
+	}
+}
@@ -2,6 +2,7 @@ package com.bookstore.bookstore.config;
 
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 
 /**
  * Test configuration that excludes Swing components
@@ -9,7 +10,8 @@ import org.springframework.context.annotation.ComponentScan;
 @TestConfiguration
 @ComponentScan(basePackages = "com.bookstore.bookstore",
                excludeFilters = @ComponentScan.Filter(
-                   pattern = "com.bookstore.bookstore.swing.*"
+                   type = FilterType.REGEX,
+                   pattern = "com\\.bookstore\\.bookstore\\.swing\\..*"
                ))
 public class TestConfig {
 }
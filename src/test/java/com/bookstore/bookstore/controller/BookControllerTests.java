@@ -0,0 +1,146 @@
+package com.bookstore.bookstore.controller;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.codec.BookBinaryCodec;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.service.BookService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Conditional reads of the catalog API over HTTP: single books, and pages whose
+ * representation is negotiated from the Accept header.
+ */
+@SpringBootTest(classes = {BookstoreApplication.class}, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "spring.datasource.url=jdbc:h2:mem:bookcontrollertest")
+@ActiveProfiles("test")
+class BookControllerTests {
+
+	private static final String JSON = "application/json";
+	private static final String BINARY = "application/x-bookstore-books";
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private BookService bookService;
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@BeforeEach
+	void seed() {
+		if (bookService.findByIsbn("controller-0") != null) {
+			return;
+		}
+		for (int i = 0; i < 3; i++) {
+			bookService.createBook(new Book(null, "Title " + i, "Controller author", "controller-" + i, 10.0 + i, 5,
+					"Description " + i, true));
+		}
+	}
+
+	@Test
+	void pagesHaveOneETagPerFormat() throws Exception {
+		String path = "/api/books?pageSize=2";
+		HttpResponse<byte[]> json = get(path, JSON, null);
+		HttpResponse<byte[]> binary = get(path, BINARY, null);
+		assertEquals(200, json.statusCode());
+		assertEquals(2, BookBinaryCodec.decode(binary.body()).size());
+		assertTrue(HttpResponses.variesByAccept(json));
+		assertTrue(HttpResponses.variesByAccept(binary));
+
+		String jsonTag = tag(json);
+		String binaryTag = tag(binary);
+		assertNotEquals(jsonTag, binaryTag);
+
+		// A cached JSON page doesn't validate the binary one, nor the other way round
+		assertEquals(200, get(path, BINARY, jsonTag).statusCode());
+		assertEquals(200, get(path, JSON, binaryTag).statusCode());
+		HttpResponse<byte[]> notModified = get(path, BINARY, binaryTag);
+		assertEquals(304, notModified.statusCode());
+		assertTrue(HttpResponses.variesByAccept(notModified));
+
+		// The tag follows the format the negotiation picks
+		assertEquals(jsonTag, tag(get(path, BINARY + ";q=0.5, " + JSON, null)));
+		assertEquals(binaryTag, tag(get(path, BINARY + ", */*;q=0.8", null)));
+		assertEquals(jsonTag, tag(get(path, "*/*", null)));
+	}
+
+	@Test
+	void lookupsHaveOneETagPerFormat() throws Exception {
+		String path = "/api/books/by-author?author=Controller%20author";
+		String jsonTag = tag(get(path, JSON, null));
+		String binaryTag = tag(get(path, BINARY, null));
+		assertNotEquals(jsonTag, binaryTag);
+		assertEquals(304, get(path, JSON, jsonTag).statusCode());
+		assertEquals(200, get(path, BINARY, jsonTag).statusCode());
+	}
+
+	@Test
+	void conditionalReadsOfABookGet304UntilItChanges() throws Exception {
+		Book book = bookService.createBook(new Book(null, "Conditional", "Conditional author", "controller-304", 12.0, 5,
+				"Read twice", true));
+		String path = "/api/books/" + book.getId();
+		String eTag = tag(get(path, JSON, null));
+		HttpResponse<byte[]> notModified = get(path, JSON, eTag);
+		assertEquals(304, notModified.statusCode());
+		assertEquals(0, notModified.body().length);
+
+		String isbnPath = "/api/books/isbn/controller-304";
+		String isbnTag = tag(get(isbnPath, JSON, null));
+		assertEquals(304, get(isbnPath, JSON, isbnTag).statusCode());
+
+		assertTrue(bookService.patchBook(book.getId(), new BookPatch(null, null, null, 13.0, null, null, null)));
+		String changed = tag(get(path, JSON, eTag));
+		assertNotEquals(eTag, changed);
+		assertEquals(200, get(isbnPath, JSON, isbnTag).statusCode());
+
+		// A deleted book is never served from a cached copy
+		bookService.deleteBook(book.getId());
+		assertEquals(404, get(path, JSON, changed).statusCode());
+		assertEquals(404, get(isbnPath, JSON, isbnTag).statusCode());
+	}
+
+	@Test
+	void onlyNumericIdsReachTheBookHandlers() throws Exception {
+		// Other paths under /api/books are never parsed as an ID
+		assertEquals(406, get("/api/books/export", "application/xml", null).statusCode());
+		assertEquals(404, get("/api/books/not-an-id", JSON, null).statusCode());
+	}
+
+	private HttpResponse<byte[]> get(String path, String accept, String ifNoneMatch)
+			throws IOException, InterruptedException {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Accept", accept);
+		if (ifNoneMatch != null) {
+			request.header("If-None-Match", ifNoneMatch);
+		}
+		return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	private static String tag(HttpResponse<?> response) {
+		assertEquals(200, response.statusCode());
+		List<String> eTags = response.headers().allValues("ETag");
+		assertEquals(1, eTags.size(), "ETags: " + eTags);
+		return eTags.get(0);
+	}
+}
@@ -0,0 +1,186 @@
+package com.bookstore.bookstore.controller;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.codec.BookBinaryCodec;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.BookService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The catalog download over HTTP: format negotiation, conditional requests and
+ * compression by the embedded server. A small chunk size makes every export span
+ * several read transactions.
+ */
+@SpringBootTest(classes = {BookstoreApplication.class}, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {
+				"spring.datasource.url=jdbc:h2:mem:exporttest",
+				"bookstore.export.chunk-size=7"})
+@ActiveProfiles("test")
+class CatalogExportControllerTests {
+
+	private static final int BOOKS = 40;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@BeforeEach
+	void seed() {
+		if (bookService.findByIsbn("export-http-0") != null) {
+			return;
+		}
+		for (int i = 0; i < BOOKS; i++) {
+			Book book = new Book(null, "Title " + i, "Author " + i % 5, "export-http-" + i, 10.0 + i, 5,
+					"Description of exported book " + i, true);
+			bookService.createBook(book);
+		}
+	}
+
+	@Test
+	void formatsAreNegotiatedFromAccept() throws Exception {
+		long total = bookRepository.count();
+
+		HttpResponse<byte[]> lines = get("application/x-ndjson", null, null);
+		assertEquals(200, lines.statusCode());
+		assertTrue(contentType(lines).startsWith("application/x-ndjson"));
+		long previousId = 0;
+		String[] rows = text(lines).split("\n");
+		assertEquals(total, rows.length);
+		for (String row : rows) {
+			long id = objectMapper.readTree(row).get("id").asLong();
+			assertTrue(id > previousId, "IDs out of order across chunks");
+			previousId = id;
+		}
+
+		HttpResponse<byte[]> csv = get("text/csv", null, null);
+		assertTrue(contentType(csv).startsWith("text/csv"));
+		assertTrue(text(csv).startsWith("id,title,author,isbn"));
+		assertEquals(total + 1, text(csv).split("\n").length);
+
+		HttpResponse<byte[]> json = get("application/json", null, null);
+		JsonNode array = objectMapper.readTree(json.body());
+		assertTrue(array.isArray());
+		assertEquals(total, array.size());
+
+		HttpResponse<byte[]> binary = get("application/x-bookstore-books", null, null);
+		List<Book> decoded = BookBinaryCodec.decode(binary.body());
+		assertEquals(total, decoded.size());
+		assertEquals("Description of exported book 0", decoded.stream()
+				.filter(book -> "export-http-0".equals(book.getIsbn())).findFirst().orElseThrow().getDescription());
+
+		assertEquals(406, get("application/xml", null, null).statusCode());
+	}
+
+	@Test
+	void matchingETagGets304UntilTheCatalogChanges() throws Exception {
+		HttpResponse<byte[]> first = get("application/x-ndjson", null, null);
+		String eTag = first.headers().firstValue("ETag").orElseThrow();
+
+		HttpResponse<byte[]> notModified = get("application/x-ndjson", eTag, null);
+		assertEquals(304, notModified.statusCode());
+		assertEquals(0, notModified.body().length);
+
+		Long id = bookService.createBook(new Book(null, "Late", "Author", "export-http-late", 5.0, 1,
+				"Written after the first download", true)).getId();
+		try {
+			HttpResponse<byte[]> changed = get("application/x-ndjson", eTag, null);
+			assertEquals(200, changed.statusCode());
+			assertNotEquals(eTag, changed.headers().firstValue("ETag").orElseThrow());
+			assertTrue(text(changed).contains("export-http-late"));
+		} finally {
+			bookService.deleteBook(id);
+		}
+	}
+
+	@Test
+	void eachFormatHasItsOwnETag() throws Exception {
+		HttpResponse<byte[]> csv = get("text/csv", null, null);
+		HttpResponse<byte[]> lines = get("application/x-ndjson", null, null);
+		String csvTag = csv.headers().firstValue("ETag").orElseThrow();
+		assertNotEquals(csvTag, lines.headers().firstValue("ETag").orElseThrow());
+		assertTrue(HttpResponses.variesByAccept(csv));
+
+		// The tag of one format never validates another
+		assertEquals(200, get("application/x-ndjson", csvTag, null).statusCode());
+		HttpResponse<byte[]> notModified = get("text/csv", csvTag, null);
+		assertEquals(304, notModified.statusCode());
+		assertTrue(HttpResponses.variesByAccept(notModified));
+	}
+
+	@Test
+	void responsesAreCompressedOnRequest() throws Exception {
+		HttpResponse<byte[]> plain = get("text/csv", null, null);
+		assertTrue(plain.headers().firstValue("Content-Encoding").isEmpty());
+
+		HttpResponse<byte[]> gzip = get("text/csv", null, "gzip");
+		assertEquals(200, gzip.statusCode());
+		assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElseThrow());
+		// A strong tag would have turned the compression off
+		List<String> eTags = gzip.headers().allValues("ETag");
+		assertEquals(1, eTags.size());
+		assertTrue(eTags.get(0).startsWith("W/"));
+		assertEquals(eTags, plain.headers().allValues("ETag"));
+		assertTrue(gzip.body().length < plain.body().length);
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+			assertArrayEquals(plain.body(), in.readAllBytes());
+		}
+	}
+
+	private HttpResponse<byte[]> get(String accept, String ifNoneMatch, String acceptEncoding)
+			throws IOException, InterruptedException {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books/export"))
+				.header("Accept", accept);
+		if (ifNoneMatch != null) {
+			request.header("If-None-Match", ifNoneMatch);
+		}
+		if (acceptEncoding != null) {
+			request.header("Accept-Encoding", acceptEncoding);
+		}
+		return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	private static String contentType(HttpResponse<?> response) {
+		return response.headers().firstValue("Content-Type").orElse("");
+	}
+
+	private static String text(HttpResponse<byte[]> response) {
+		return new String(response.body(), StandardCharsets.UTF_8);
+	}
+}
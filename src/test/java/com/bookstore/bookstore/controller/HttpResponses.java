@@ -0,0 +1,23 @@
+package com.bookstore.bookstore.controller;
+
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+
+/**
+ * Assertions on responses of the embedded server shared by the HTTP tests.
+ */
+final class HttpResponses {
+
+	private HttpResponses() {
+	}
+
+	/**
+	 * Tells whether a response varies by Accept. The server may merge its own
+	 * Vary: Accept-Encoding into the same header.
+	 */
+	static boolean variesByAccept(HttpResponse<?> response) {
+		return response.headers().allValues("Vary").stream()
+				.flatMap(value -> Arrays.stream(value.split(",")))
+				.anyMatch(name -> name.trim().equalsIgnoreCase("Accept"));
+	}
+}
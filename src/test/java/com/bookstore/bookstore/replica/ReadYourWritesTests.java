@@ -0,0 +1,173 @@
+package com.bookstore.bookstore.replica;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.controller.BookController;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPage;
+import com.bookstore.bookstore.service.BookService;
+import com.bookstore.bookstore.service.feed.ChangeFeed;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import jakarta.servlet.ServletException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static com.bookstore.bookstore.TestBooks.newBook;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Read-your-writes with replicas allowed to lag far behind the primary: the feeder is
+ * stopped, so every replica misses the changes written by the tests and only the
+ * routing floor keeps those changes visible to their writers.
+ */
+@SpringBootTest(classes = {BookstoreApplication.class}, properties = {
+		"bookstore.replica.enabled=true",
+		"bookstore.replica.count=2",
+		"bookstore.replica.max-lag-changes=1000000",
+		"bookstore.replica.max-lag-ms=3600000",
+		"spring.datasource.url=jdbc:h2:mem:readyourwritestest"})
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ReadYourWritesTests {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookController bookController;
+
+	@Autowired
+	private ReplicaRouting routing;
+
+	@Autowired
+	private ReplicaFeeder feeder;
+
+	@Autowired
+	private ChangeFeed changeFeed;
+
+	@Autowired
+	private ReadYourWritesFilter filter;
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Test
+	void readsSeeTheirOwnWrites() throws Exception {
+		stopReplicas();
+
+		for (int i = 0; i < 20; i++) {
+			Book created = bookService.createBook(newBook("ryw-" + i));
+			BookPage page = bookService.getBooksByAuthor("Author ryw-" + i, null, 10);
+			assertEquals(1, page.books().size(), "read after write " + i);
+			assertEquals(created.getId(), page.books().get(0).getId());
+		}
+
+		// Without a floor, another thread reads from a lagging replica and misses the books
+		long replicaReads = replicaReads();
+		BookPage stale = onOtherThread(() -> bookService.getBooksByAuthor("Author ryw-0", null, 10));
+		assertTrue(stale.books().isEmpty());
+		assertEquals(replicaReads + 1, replicaReads());
+
+		// With the sequence of the writes it gets them from the primary
+		long sequence = changeFeed.lastSequence();
+		BookPage page = onOtherThread(() -> {
+			routing.requireSequence(sequence);
+			return bookService.getBooksByAuthor("Author ryw-0", null, 10);
+		});
+		assertEquals(1, page.books().size());
+	}
+
+	@Test
+	void sequenceHeaderSetsTheFloorOfTheRequest() throws Exception {
+		stopReplicas();
+		Book created = onOtherThread(() -> bookService.createBook(newBook("ryw-header")));
+		String cursor = changeFeed.cursor(changeFeed.lastSequence());
+
+		AtomicReference<BookPage> read = new AtomicReference<>();
+		MockHttpServletResponse response = filter(cursor, read);
+		assertEquals(200, response.getStatus());
+		assertEquals(created.getId(), read.get().books().get(0).getId());
+
+		// A cursor of a previous run of the feed requires nothing
+		read.set(null);
+		response = filter("0:" + changeFeed.lastSequence(), read);
+		assertEquals(200, response.getStatus());
+		assertTrue(read.get().books().isEmpty());
+
+		read.set(null);
+		response = filter("not-a-cursor", read);
+		assertEquals(400, response.getStatus());
+		assertNull(read.get());
+	}
+
+	@Test
+	void taggedReadsAreNeverOlderThanTheirETag() throws Exception {
+		stopReplicas();
+		Book created = onOtherThread(() -> bookService.createBook(newBook("ryw-etag")));
+
+		MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+		ResponseEntity<BookPage> response = onOtherThread(() -> bookController.getBooksByAuthor("Author ryw-etag",
+				null, 10, new ServletWebRequest(new MockHttpServletRequest("GET", "/api/books/by-author"),
+						servletResponse)));
+		assertNotNull(servletResponse.getHeader("ETag"));
+		assertEquals(created.getId(), response.getBody().books().get(0).getId());
+	}
+
+	/**
+	 * Runs a lookup by author through the filter, on a thread without routing state.
+	 */
+	private MockHttpServletResponse filter(String cursor, AtomicReference<BookPage> read) throws Exception {
+		return onOtherThread(() -> {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/by-author");
+			request.addHeader(ReplicaRouting.SEQUENCE_HEADER, cursor);
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			try {
+				filter.doFilter(request, response,
+						(req, res) -> read.set(bookService.getBooksByAuthor("Author ryw-header", null, 10)));
+			} catch (IOException | ServletException e) {
+				throw new IllegalStateException(e);
+			}
+			return response;
+		});
+	}
+
+	/**
+	 * Lets the replicas copy the catalog, then stops feeding them.
+	 */
+	private void stopReplicas() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!routing.stats().replicas().stream().allMatch(replica -> replica.ready() && replica.lagChanges() == 0)) {
+			assertTrue(System.currentTimeMillis() < deadline, "replicas did not catch up: " + routing.stats());
+			Thread.sleep(10);
+		}
+		feeder.stop();
+	}
+
+	private long replicaReads() {
+		return routing.stats().replicas().stream().mapToLong(ReplicaStats.Replica::reads).sum();
+	}
+
+	private <T> T onOtherThread(Supplier<T> task) throws Exception {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return task.get();
+			} finally {
+				routing.clearContext();
+			}
+		}).get();
+	}
+}
@@ -0,0 +1,94 @@
+package com.bookstore.bookstore.replica;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPage;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.service.BookService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.bookstore.bookstore.TestBooks.newBook;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Read/write routing: read-only transactions on caught-up replicas, writes and
+ * lagging reads on the primary. Read-your-writes is covered by {@link ReadYourWritesTests},
+ * where replicas may lag.
+ */
+@SpringBootTest(classes = {BookstoreApplication.class}, properties = {
+		"bookstore.replica.enabled=true",
+		"bookstore.replica.count=2",
+		"bookstore.replica.max-lag-changes=0",
+		"spring.datasource.url=jdbc:h2:mem:replicatest"})
+@ActiveProfiles("test")
+class ReplicaRoutingTests {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private ReplicaRouting routing;
+
+	@Autowired
+	private ReplicaFeeder feeder;
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Test
+	void readOnlyTransactionsUseCaughtUpReplicas() throws InterruptedException {
+		Book created = bookService.createBook(newBook("replica-1"));
+		awaitCaughtUp();
+
+		long replicaReads = replicaReads();
+		BookPage page = bookService.getBooksByAuthor("Author replica-1", null, 10);
+		assertEquals(created.getId(), page.books().get(0).getId());
+		assertEquals(replicaReads + 1, replicaReads());
+
+		// Writes never go to a replica
+		long primaryWrites = routing.stats().primaryWrites();
+		assertTrue(bookService.patchBook(created.getId(), new BookPatch(null, null, null, 12.5, null, null, null)));
+		assertEquals(replicaReads + 1, replicaReads());
+		assertTrue(routing.stats().primaryWrites() > primaryWrites);
+		bookService.deleteBook(created.getId());
+	}
+
+	@Test
+	@DirtiesContext
+	void laggingReplicasAreSkipped() throws Exception {
+		awaitCaughtUp();
+		feeder.stop();
+
+		// Written by another thread: no read-your-writes floor on this one
+		Book created = CompletableFuture.supplyAsync(() -> bookService.createBook(newBook("replica-lag"))).get();
+		long replicaReads = replicaReads();
+		long primaryReads = routing.stats().primaryReads();
+
+		BookPage page = bookService.getBooksByAuthor("Author replica-lag", null, 10);
+		assertEquals(created.getId(), page.books().get(0).getId());
+		assertEquals(replicaReads, replicaReads());
+		assertEquals(primaryReads + 1, routing.stats().primaryReads());
+		assertTrue(routing.stats().replicas().stream().allMatch(replica -> replica.lagChanges() == 1));
+	}
+
+	private long replicaReads() {
+		return routing.stats().replicas().stream().mapToLong(ReplicaStats.Replica::reads).sum();
+	}
+
+	private void awaitCaughtUp() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!routing.stats().replicas().stream().allMatch(replica -> replica.ready() && replica.lagChanges() == 0)) {
+			assertTrue(System.currentTimeMillis() < deadline, "replicas did not catch up: " + routing.stats());
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package com.bookstore.bookstore.repository.memory;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.model.BookSummary;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.BookService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import static com.bookstore.bookstore.TestBooks.newBook;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The in-memory storage engine: behind the services, and recovering from its log and snapshots.
+ */
+@SpringBootTest(classes = {BookstoreApplication.class})
+@ActiveProfiles({"test", "inmemory"})
+class InMemoryBookRepositoryTests {
+
+	@TempDir
+	static Path engineDirectory;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@DynamicPropertySource
+	static void engineProperties(DynamicPropertyRegistry registry) {
+		registry.add("bookstore.storage.memory.directory", () -> engineDirectory.toString());
+		registry.add("spring.datasource.url", () -> "jdbc:h2:mem:enginetest");
+	}
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Test
+	void servicesUseTheEngine() {
+		assertInstanceOf(InMemoryBookRepository.class, bookRepository);
+
+		Book created = bookService.createBook(newBook("engine-1"));
+		assertNotNull(created.getId());
+		assertEquals("Description engine-1", bookService.getBookById(created.getId()).getDescription());
+
+		created.setTitle("Changed");
+		assertEquals("Changed", bookService.updateBook(created.getId(), created).getTitle());
+		assertTrue(bookService.reserveStock(created.getId(), 2));
+		assertEquals(3, bookService.getBookById(created.getId()).getStock());
+
+		assertThrows(DataIntegrityViolationException.class, () -> bookService.createBook(newBook("engine-1")));
+		bookService.deleteBook(created.getId());
+		assertNull(bookService.getBookById(created.getId()));
+	}
+
+	@Test
+	void rollbackUndoesWrites() {
+		Long kept = bookService.createBook(newBook("engine-kept")).getId();
+
+		assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+			bookRepository.save(newBook("engine-rolled-back"));
+			bookRepository.patch(kept, new BookPatch("Patched", null, null, null, null, null, null));
+			bookRepository.deleteById(kept);
+			throw new IllegalStateException("rollback");
+		}));
+
+		assertEquals("Book engine-kept", bookRepository.findById(kept).orElseThrow().getTitle());
+		assertTrue(bookRepository.findByIsbn("engine-rolled-back").isEmpty());
+	}
+
+	@Test
+	void uncommittedWritesStayInTheirTransaction() throws Exception {
+		Long id = bookService.createBook(newBook("engine-isolated")).getId();
+
+		CompletableFuture<Boolean> reservation = new CompletableFuture<>();
+		assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+			bookRepository.patch(id, new BookPatch("Pending", null, null, null, 3, null, null));
+			assertEquals("Pending", bookRepository.findById(id).orElseThrow().getTitle());
+			assertEquals(List.of(id), bookRepository.findByTitleRangeAfter("Pending", "Pendinh", 0, Limit.of(10))
+					.stream().map(Book::getId).toList());
+
+			// Other transactions read the committed book, and writers of the book wait
+			assertEquals("Book engine-isolated",
+					CompletableFuture.supplyAsync(() -> bookRepository.findById(id).orElseThrow().getTitle()).join());
+			CompletableFuture.runAsync(() -> reservation.complete(bookService.reserveStock(id, 4)));
+			assertThrows(TimeoutException.class, () -> reservation.get(200, TimeUnit.MILLISECONDS));
+			throw new IllegalStateException("rollback");
+		}));
+
+		// The rollback didn't overwrite the reservation that waited for it
+		assertTrue(reservation.get(5, TimeUnit.SECONDS));
+		Book book = bookRepository.findById(id).orElseThrow();
+		assertEquals("Book engine-isolated", book.getTitle());
+		assertEquals(1, book.getStock());
+		bookService.deleteBook(id);
+	}
+
+	@Test
+	void recoversFromSnapshotAndLog(@TempDir Path directory) throws IOException {
+		InMemoryBookRepository engine = new InMemoryBookRepository(directory.toString(), 1, 50, 1_000_000, 1_000);
+		for (int i = 0; i < 100; i++) {
+			engine.save(newBook("recovery-" + i));
+		}
+		engine.snapshot();
+		engine.deleteById(1L);
+		engine.patch(2L, new BookPatch(null, null, null, null, null, "Patched after the snapshot", null));
+		Long last = engine.save(newBook("recovery-last")).getId();
+		engine.shutdown();
+
+		// A torn record at the end of the log is discarded
+		Path segment;
+		try (Stream<Path> files = Files.list(directory)) {
+			segment = files.filter(path -> path.toString().endsWith(".log")).max(Path::compareTo).orElseThrow();
+		}
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 99, 1, 2, 3}), engine.currentLogBytes());
+		}
+
+		InMemoryBookRepository recovered = new InMemoryBookRepository(directory.toString(), 1, 50, 1_000_000, 1_000);
+		try {
+			assertEquals(100, recovered.count());
+			assertFalse(recovered.existsById(1L));
+			assertEquals("Patched after the snapshot", recovered.findById(2L).orElseThrow().getDescription());
+			assertEquals("recovery-last", recovered.findById(last).orElseThrow().getIsbn());
+			// New IDs continue after the recovered ones
+			assertTrue(recovered.save(newBook("recovery-new")).getId() > last);
+			assertEquals(List.of("recovery-5"), recovered.findExistingIsbns(List.of("recovery-5", "missing")));
+		} finally {
+			recovered.shutdown();
+		}
+	}
+
+	@Test
+	void recoveryIgnoresTransactionsThatNeverCommitted(@TempDir Path directory) {
+		InMemoryBookRepository engine = new InMemoryBookRepository(directory.toString(), 1, 50, 1_000_000, 1_000);
+		Long kept = engine.save(newBook("crash-kept")).getId();
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			engine.save(newBook("crash-committed-1"));
+			engine.save(newBook("crash-committed-2"));
+			TransactionSynchronizationUtils.triggerBeforeCommit(false);
+			TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			engine.save(newBook("crash-pending"));
+			engine.patch(kept, new BookPatch("Pending", null, null, null, null, null, null));
+			engine.deleteById(kept);
+			// The process dies here: the transaction neither commits nor rolls back
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		InMemoryBookRepository recovered = new InMemoryBookRepository(directory.toString(), 1, 50, 1_000_000, 1_000);
+		try {
+			assertEquals(3, recovered.count());
+			assertEquals("Book crash-kept", recovered.findById(kept).orElseThrow().getTitle());
+			assertEquals(List.of("crash-committed-1", "crash-committed-2"),
+					recovered.findExistingIsbns(List.of("crash-committed-1", "crash-committed-2", "crash-pending")));
+		} finally {
+			recovered.shutdown();
+			engine.shutdown();
+		}
+	}
+
+	@Test
+	void queriesByExampleMatchTheSetPropertiesOfTheProbe(@TempDir Path directory) {
+		InMemoryBookRepository engine = new InMemoryBookRepository(directory.toString(), 1, 50, 1_000_000, 1_000);
+		try {
+			for (int i = 0; i < 6; i++) {
+				Book book = newBook("example-" + i, i);
+				book.setAuthor(i % 2 == 0 ? "Even Author" : "Odd Author");
+				book.setAvailable(i > 0);
+				engine.save(book);
+			}
+			// A new book is available: the probe only matches available books
+			Book probe = new Book();
+			probe.setAuthor("Even Author");
+			assertEquals(List.of("example-2", "example-4"), isbns(engine.findAll(Example.of(probe))));
+
+			probe.setAuthor("even");
+			ExampleMatcher prefix = ExampleMatcher.matching().withIgnoreCase()
+					.withStringMatcher(ExampleMatcher.StringMatcher.STARTING);
+			assertEquals(2, engine.count(Example.of(probe, prefix)));
+			assertEquals(3, engine.count(Example.of(probe, prefix.withIgnorePaths("available"))));
+			assertFalse(engine.exists(Example.of(probe)));
+
+			Book either = new Book();
+			either.setAuthor("Even Author");
+			either.setIsbn("example-1");
+			either.setAvailable(null);
+			assertEquals(List.of("example-0", "example-1", "example-2", "example-4"),
+					isbns(engine.findAll(Example.of(either, ExampleMatcher.matchingAny()))));
+
+			Book available = new Book();
+			Page<Book> page = engine.findAll(Example.of(available), PageRequest.of(0, 2, Sort.by("stock").descending()));
+			assertEquals(List.of("example-5", "example-4"), isbns(page.getContent()));
+			assertEquals(5, page.getTotalElements());
+
+			Book isbn = new Book();
+			isbn.setIsbn("example-3");
+			assertEquals(3, engine.findOne(Example.of(isbn)).orElseThrow().getStock());
+			assertEquals("Odd Author", engine.findBy(Example.of(isbn),
+					query -> query.as(BookSummary.class).oneValue()).author());
+			assertThrows(IncorrectResultSizeDataAccessException.class, () -> engine.findOne(Example.of(available)));
+		} finally {
+			engine.shutdown();
+		}
+	}
+
+	private static List<String> isbns(List<Book> books) {
+		return books.stream().map(Book::getIsbn).toList();
+	}
+}
@@ -0,0 +1,299 @@
+package com.bookstore.bookstore.repository.shard;
+
+import com.bookstore.bookstore.BookstoreApplication;
+import com.bookstore.bookstore.model.Book;
+import com.bookstore.bookstore.model.BookPatch;
+import com.bookstore.bookstore.repository.BookRepository;
+import com.bookstore.bookstore.service.BookService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.bookstore.bookstore.TestBooks.newBook;
+import static com.bookstore.bookstore.TestBooks.walk;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The sharded storage: single-shard lookups, merged scatter-gather pages, global ISBN
+ * uniqueness, transactions over several shards and rebalancing under reads.
+ */
+@SpringBootTest(classes = {BookstoreApplication.class}, properties = {
+		"bookstore.shard.count=4",
+		"bookstore.shard.url=jdbc:h2:mem:shardtest-%d",
+		"spring.datasource.url=jdbc:h2:mem:shardcatalog"})
+@ActiveProfiles({"test", "sharded"})
+class ShardedBookRepositoryTests {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private ShardRebalancer rebalancer;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeAll
+	static void setUpHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Test
+	void lookupsByIdAndIsbnGoToTheShardOfTheIsbn() {
+		assertInstanceOf(ShardedBookRepository.class, bookRepository);
+
+		List<Book> created = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			created.add(bookService.createBook(newBook("shard-lookup-" + i)));
+		}
+		for (Book book : created) {
+			// The ID carries the bucket of the ISBN
+			assertEquals(ShardKeys.bucketOfIsbn(book.getIsbn()), ShardKeys.bucketOfId(book.getId()));
+			assertEquals("Description " + book.getIsbn(), bookService.getBookById(book.getId()).getDescription());
+			assertEquals(book.getId(), bookRepository.findByIsbn(book.getIsbn()).orElseThrow().getId());
+		}
+		assertTrue(rebalancer.stats().shards().stream()
+						.filter(shard -> shard.buckets() > 0)
+						.allMatch(shard -> shard.books() > 0),
+				"books on every shard: " + rebalancer.stats());
+
+		Long id = created.get(0).getId();
+		assertTrue(bookService.reserveStock(id, 4));
+		assertEquals(1, bookService.getBookById(id).getStock());
+		bookService.deleteBooks(created.stream().map(Book::getId).toList());
+		assertFalse(bookRepository.existsById(id));
+		assertTrue(bookRepository.findByIsbn(created.get(0).getIsbn()).isEmpty());
+	}
+
+	@Test
+	void pagesAreMergedFromEveryShard() {
+		List<Book> created = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			Book book = newBook("shard-page-" + i);
+			book.setAuthor("Shard Page Author");
+			book.setPrice(2000.0 + i % 7);
+			created.add(bookService.createBook(book));
+		}
+		List<Long> byId = created.stream().map(Book::getId).sorted().toList();
+		List<Long> byPrice = created.stream()
+				.sorted(Comparator.comparing(Book::getPrice).thenComparing(Book::getId))
+				.map(Book::getId)
+				.toList();
+
+		assertEquals(byId, walk(token -> bookService.getBooksByAuthor("Shard Page Author", token, 7)));
+		assertEquals(byPrice, walk(token -> bookService.getBooksByPriceRange(2000.0, 2010.0, token, 7)));
+		List<Long> all = walk(token -> bookService.getBooks(token, 9));
+		assertTrue(all.containsAll(byId));
+		assertEquals(all.stream().sorted().toList(), all, "the whole catalog in ID order");
+		try (var rows = bookRepository.streamAllByOrderByIdAsc()) {
+			assertEquals(all, rows.map(Book::getId).toList());
+		}
+		assertEquals(all.size(), bookRepository.count());
+
+		bookService.deleteBooks(byId);
+	}
+
+	@Test
+	void queriesByExampleScanEveryShard() {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			Book book = newBook("shard-example-" + i);
+			book.setAuthor("Shard Example Author");
+			book.setPrice(3000.0 + i % 4);
+			ids.add(bookService.createBook(book).getId());
+		}
+		Book probe = new Book();
+		probe.setAuthor("shard example");
+		probe.setAvailable(null);
+		Example<Book> example = Example.of(probe, ExampleMatcher.matching().withIgnoreCase()
+				.withStringMatcher(ExampleMatcher.StringMatcher.STARTING));
+
+		assertEquals(40, bookRepository.count(example));
+		List<Book> found = bookRepository.findAll(example);
+		assertEquals(ids.stream().sorted().toList(), found.stream().map(Book::getId).toList());
+		assertEquals(found.stream().sorted(Comparator.comparing(Book::getPrice).reversed()).map(Book::getId).toList(),
+				bookRepository.findAll(example, Sort.by("price").descending()).stream().map(Book::getId).toList());
+
+		Book isbn = new Book();
+		isbn.setIsbn("shard-example-7");
+		assertEquals(ids.get(7), bookRepository.findOne(Example.of(isbn)).orElseThrow().getId());
+		bookService.deleteBooks(ids);
+		assertFalse(bookRepository.exists(example));
+	}
+
+	@Test
+	void isbnsStayUniqueAcrossShards() {
+		Book first = bookService.createBook(newBook("shard-unique-1"));
+		// The book keeps its ID, and its shard; the new ISBN is claimed on its own shard
+		assertTrue(bookService.patchBook(first.getId(),
+				new BookPatch(null, null, "shard-unique-2", null, null, null, null)));
+		assertEquals(first.getId(), bookRepository.findByIsbn("shard-unique-2").orElseThrow().getId());
+		assertTrue(bookRepository.findByIsbn("shard-unique-1").isEmpty());
+
+		Book second = bookService.createBook(newBook("shard-unique-1"));
+		assertThrows(DataIntegrityViolationException.class, () -> bookService.createBook(newBook("shard-unique-2")));
+		assertEquals(List.of("shard-unique-2"),
+				bookRepository.findExistingIsbns(List.of("shard-unique-2", "shard-unique-3")));
+
+		bookService.deleteBooks(List.of(first.getId(), second.getId()));
+		assertTrue(bookRepository.findExistingIsbns(List.of("shard-unique-1", "shard-unique-2")).isEmpty());
+	}
+
+	@Test
+	void isbnChangesSurviveAFailedShardCommit() {
+		ShardedBookRepository sharded = (ShardedBookRepository) bookRepository;
+		Long id = bookService.createBook(newBook("shard-failing-0")).getId();
+		BookShard rowShard = sharded.shardOfId(id);
+		String moved = isbnOutside("shard-failing-1-", rowShard);
+		String next = isbnOutside("shard-failing-2-", rowShard, sharded.shardOfIsbn(moved));
+
+		// The new claim commits, then the shard of the book (and of the old claim) fails
+		assertThrows(DataAccessException.class, () -> changeIsbnFailing(id, moved, rowShard));
+		assertEquals("shard-failing-0", bookRepository.findById(id).orElseThrow().getIsbn());
+		assertEquals(id, bookRepository.findByIsbn("shard-failing-0").orElseThrow().getId());
+		assertTrue(bookRepository.findByIsbn(moved).isEmpty());
+		assertTrue(bookRepository.findExistingIsbns(List.of(moved)).isEmpty(), "claim left behind");
+
+		// Moved across three shards: the old claim is released last, on a shard that fails
+		assertTrue(bookService.patchBook(id, new BookPatch(null, null, moved, null, null, null, null)));
+		assertThrows(DataAccessException.class, () -> changeIsbnFailing(id, next, sharded.shardOfIsbn(moved)));
+		assertEquals(id, bookRepository.findByIsbn(next).orElseThrow().getId());
+		assertTrue(bookRepository.findByIsbn(moved).isEmpty());
+
+		// The released ISBN is free again
+		Long reused = bookService.createBook(newBook(moved)).getId();
+		assertEquals(reused, bookRepository.findByIsbn(moved).orElseThrow().getId());
+		bookService.deleteBooks(List.of(id, reused));
+	}
+
+	/**
+	 * Changes the ISBN of a book in a transaction whose connection to one shard is lost before commit.
+	 */
+	private void changeIsbnFailing(Long id, String isbn, BookShard failing) {
+		transactionTemplate.executeWithoutResult(status -> {
+			bookRepository.patch(id, new BookPatch(null, null, isbn, null, null, null, null));
+			ShardedBookRepository sharded = (ShardedBookRepository) bookRepository;
+			try {
+				sharded.currentTransaction().connection(failing).close();
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	/**
+	 * Finds an ISBN whose claim lives on none of the given shards.
+	 */
+	private String isbnOutside(String prefix, BookShard... excluded) {
+		ShardedBookRepository sharded = (ShardedBookRepository) bookRepository;
+		for (int i = 0; ; i++) {
+			String isbn = prefix + i;
+			if (!List.of(excluded).contains(sharded.shardOfIsbn(isbn))) {
+				return isbn;
+			}
+		}
+	}
+
+	@Test
+	void rollbackUndoesWritesOnEveryShard() {
+		Long kept = bookService.createBook(newBook("shard-kept")).getId();
+
+		assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+			for (int i = 0; i < 20; i++) {
+				bookRepository.save(newBook("shard-rolled-back-" + i));
+			}
+			bookRepository.patch(kept, new BookPatch("Patched", null, null, null, null, null, null));
+			// The transaction reads its own writes
+			assertEquals("Patched", bookRepository.findById(kept).orElseThrow().getTitle());
+			bookRepository.deleteById(kept);
+			throw new IllegalStateException("rollback");
+		}));
+
+		assertEquals("Book shard-kept", bookRepository.findById(kept).orElseThrow().getTitle());
+		for (int i = 0; i < 20; i++) {
+			assertTrue(bookRepository.findByIsbn("shard-rolled-back-" + i).isEmpty());
+		}
+		bookService.deleteBook(kept);
+	}
+
+	@Test
+	void rebalancingKeepsEveryBookReachable() throws Exception {
+		List<Book> created = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			created.add(bookService.createBook(newBook("shard-rebalance-" + i)));
+		}
+		long count = bookRepository.count();
+
+		// Reads run during the moves and never miss a book
+		AtomicBoolean moving = new AtomicBoolean(true);
+		CompletableFuture<Long> reads = CompletableFuture.supplyAsync(() -> {
+			long done = 0;
+			while (moving.get()) {
+				for (Book book : created) {
+					assertTrue(bookRepository.existsById(book.getId()), "book " + book.getId());
+				}
+				assertEquals(count, bookRepository.count());
+				done++;
+			}
+			return done;
+		});
+		try {
+			ShardStats grown = rebalancer.rebalance(6);
+			assertEquals(6, grown.shardCount());
+			assertTrue(grown.shards().stream().allMatch(shard -> shard.buckets() >= ShardKeys.BUCKETS / 6));
+			ShardStats shrunk = rebalancer.rebalance(3);
+			assertEquals(3, shrunk.shardCount());
+			assertEquals(count, shrunk.shards().stream().mapToLong(ShardStats.Shard::books).sum());
+		} finally {
+			moving.set(false);
+		}
+		assertTrue(reads.get() > 0);
+
+		for (Book book : created) {
+			assertEquals(book.getId(), bookRepository.findByIsbn(book.getIsbn()).orElseThrow().getId());
+		}
+		rebalancer.rebalance(4);
+		bookService.deleteBooks(created.stream().map(Book::getId).toList());
+	}
+
+	@Test
+	void planMovesOnlyTheBucketsOfTheNewShard() {
+		int[] owners = new int[ShardKeys.BUCKETS];
+		for (int bucket = 0; bucket < owners.length; bucket++) {
+			owners[bucket] = bucket % 4;
+		}
+		int[] planned = ShardMap.plan(owners, 5);
+		int moved = 0;
+		int[] buckets = new int[5];
+		for (int bucket = 0; bucket < owners.length; bucket++) {
+			if (planned[bucket] != owners[bucket]) {
+				moved++;
+				assertEquals(4, planned[bucket], "only the new shard receives buckets");
+			}
+			buckets[planned[bucket]]++;
+		}
+		assertEquals(ShardKeys.BUCKETS / 5, moved);
+		for (int shard = 0; shard < 5; shard++) {
+			assertTrue(Math.abs(buckets[shard] - ShardKeys.BUCKETS / 5) <= 1, "balanced: shard " + shard);
+		}
+		assertThrows(IllegalArgumentException.class, () -> ShardMap.plan(owners, 0));
+	}
+}
@@ -0,0 +1,40 @@
+package com.bookstore.bookstore.service.version;
+
+import com.bookstore.bookstore.service.event.BookChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Book versions with room for two books: forgotten books never get an old tag back.
+ */
+class CatalogVersionTests {
+
+	@Test
+	void forgottenBooksNeverGoBackToAnOldTag() {
+		CatalogVersion catalogVersion = new CatalogVersion(2);
+		String untouched = catalogVersion.bookETag(99L);
+
+		catalogVersion.onBookChanged(BookChangedEvent.stockChanged(1L));
+		String first = catalogVersion.bookETag(1L);
+		catalogVersion.onBookChanged(BookChangedEvent.deleted(2L));
+		String deleted = catalogVersion.bookETag(2L);
+		assertEquals(untouched, catalogVersion.bookETag(99L));
+
+		// Book 1 changed least recently: it is forgotten with its version
+		catalogVersion.onBookChanged(BookChangedEvent.stockChanged(3L));
+		assertEquals(2, catalogVersion.trackedBooks());
+		assertEquals(first, catalogVersion.bookETag(1L));
+		assertNotEquals(untouched, catalogVersion.bookETag(99L));
+		assertEquals(deleted, catalogVersion.bookETag(2L));
+
+		// Forgetting book 2 moves the tags of books not remembered past the ones they had
+		catalogVersion.onBookChanged(BookChangedEvent.stockChanged(4L));
+		assertEquals(2, catalogVersion.trackedBooks());
+		assertEquals(deleted, catalogVersion.bookETag(2L));
+		assertNotEquals(first, catalogVersion.bookETag(1L));
+		assertTrue(catalogVersion.bookVersion(1L) < catalogVersion.bookVersion(4L));
+
+		assertThrows(IllegalArgumentException.class, () -> new CatalogVersion(0));
+	}
+}